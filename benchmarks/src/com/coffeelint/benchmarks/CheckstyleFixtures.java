@@ -0,0 +1,54 @@
+package com.coffeelint.benchmarks;
+
+/**
+ * Checkstyle reports shaped like coffeelint's output, generated so benchmarks do not depend on a node install.
+ */
+public final class CheckstyleFixtures {
+    private static final String[][] ISSUES = {
+            {"error", "Line exceeds maximum allowed length; context: Length is 95, max is 80"},
+            {"error", "Line contains inconsistent indentation; context: Expected 2 got 4"},
+            {"warning", "Line ends with trailing whitespace"},
+            {"error", "Class name should be UpperCamelCased"},
+            {"warning", "Line contains a trailing semicolon"},
+            {"error", "Unnecessary fat arrow"}
+    };
+
+    private CheckstyleFixtures() {
+    }
+
+    /**
+     * @return a report with one file holding the given number of issues, a report without a file element when there are none
+     */
+    public static String report(String fileName, int issues) {
+        StringBuilder xml = new StringBuilder(128 + issues * 128);
+        xml.append("<?xml version=\"1.0\" encoding=\"utf-8\"?>\n<checkstyle version=\"4.3\">\n");
+        if (issues > 0) {
+            appendFile(xml, fileName, issues);
+        }
+        return xml.append("</checkstyle>\n").toString();
+    }
+
+    /**
+     * @return a report over several files, as produced when coffeelint lints a batch
+     */
+    public static String report(String[] fileNames, int issuesPerFile) {
+        StringBuilder xml = new StringBuilder(128 + fileNames.length * issuesPerFile * 128);
+        xml.append("<?xml version=\"1.0\" encoding=\"utf-8\"?>\n<checkstyle version=\"4.3\">\n");
+        for (String fileName : fileNames) {
+            appendFile(xml, fileName, issuesPerFile);
+        }
+        return xml.append("</checkstyle>\n").toString();
+    }
+
+    private static void appendFile(StringBuilder xml, String fileName, int issues) {
+        xml.append("<file name=\"").append(fileName).append("\">\n");
+        for (int i = 0; i < issues; i++) {
+            String[] issue = ISSUES[i % ISSUES.length];
+            xml.append("<error line=\"").append(i + 1)
+                    .append("\" severity=\"").append(issue[0])
+                    .append("\" message=\"").append(issue[1])
+                    .append("\" source=\"coffeelint\"/>\n");
+        }
+        xml.append("</file>\n");
+    }
+}
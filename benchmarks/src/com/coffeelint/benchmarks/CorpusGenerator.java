@@ -0,0 +1,182 @@
+package com.coffeelint.benchmarks;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.util.Random;
+
+/**
+ * Generates a synthetic CoffeeScript tree for the macro benchmark.
+ * The same options and seed always produce the same tree.
+ * <pre>
+ * CorpusGenerator &lt;dir&gt; [--files 10000] [--lines 2000000] [--fanout 8] [--depth 3]
+ *                 [--issue-density 0.02] [--config-every 5] [--seed 1]
+ * </pre>
+ * File sizes follow a log-normal distribution around the mean of lines / files, like real projects with a few huge files.
+ * {@code --issue-density} is the share of lines carrying a lexical issue (trailing whitespace, semicolons, long lines).
+ * The root gets a coffeelint.json and so does every {@code --config-every}th directory, so configs nest.
+ */
+public final class CorpusGenerator {
+    public static class Options {
+        public int files = 10000;
+        public int lines = 2000000;
+        public int fanout = 8;
+        public int depth = 3;
+        public double issueDensity = 0.02;
+        public int configEvery = 5;
+        public long seed = 1;
+    }
+
+    public static class Stats {
+        public int files;
+        public long lines;
+        public int configs;
+        public int directories;
+    }
+
+    private final Options options;
+    private final Random random;
+    private final Stats stats = new Stats();
+
+    public CorpusGenerator(Options options) {
+        this.options = options;
+        this.random = new Random(options.seed);
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length == 0) {
+            System.err.println("usage: CorpusGenerator <dir> [--files n] [--lines n] [--fanout n] [--depth n] [--issue-density d] [--config-every n] [--seed n]");
+            System.exit(2);
+        }
+        Options options = new Options();
+        for (int i = 1; i + 1 < args.length; i += 2) {
+            String name = args[i];
+            String value = args[i + 1];
+            if ("--files".equals(name)) {
+                options.files = Integer.parseInt(value);
+            } else if ("--lines".equals(name)) {
+                options.lines = Integer.parseInt(value);
+            } else if ("--fanout".equals(name)) {
+                options.fanout = Integer.parseInt(value);
+            } else if ("--depth".equals(name)) {
+                options.depth = Integer.parseInt(value);
+            } else if ("--issue-density".equals(name)) {
+                options.issueDensity = Double.parseDouble(value);
+            } else if ("--config-every".equals(name)) {
+                options.configEvery = Integer.parseInt(value);
+            } else if ("--seed".equals(name)) {
+                options.seed = Long.parseLong(value);
+            } else {
+                throw new IllegalArgumentException("Unknown option " + name);
+            }
+        }
+        Stats stats = new CorpusGenerator(options).generate(new File(args[0]));
+        System.out.println("Generated " + stats.files + " files, " + stats.lines + " lines, " + stats.directories + " directories, " + stats.configs + " configs");
+    }
+
+    public Stats generate(File root) throws IOException {
+        mkdirs(root);
+        writeConfig(root, 120);
+        int directoryCount = 0;
+        for (int level = 1; level <= options.depth; level++) {
+            directoryCount += (int) Math.pow(options.fanout, level);
+        }
+        File[] directories = new File[directoryCount + 1];
+        directories[0] = root;
+        int created = createDirectories(root, 1, directories, 1);
+        stats.directories = created;
+        double meanLines = (double) options.lines / options.files;
+        // sigma 1 gives a long tail, mu is chosen so the mean comes out at meanLines
+        double mu = Math.log(meanLines) - 0.5;
+        for (int i = 0; i < options.files; i++) {
+            File directory = directories[random.nextInt(created)];
+            int lines = (int) Math.max(1, Math.min(20000, Math.round(Math.exp(mu + random.nextGaussian()))));
+            writeSource(new File(directory, "file" + i + ".coffee"), lines);
+            stats.files++;
+            stats.lines += lines;
+        }
+        return stats;
+    }
+
+    private int createDirectories(File parent, int level, File[] directories, int count) throws IOException {
+        if (level > options.depth) {
+            return count;
+        }
+        for (int i = 0; i < options.fanout; i++) {
+            File directory = new File(parent, "module" + i);
+            mkdirs(directory);
+            directories[count++] = directory;
+            if (options.configEvery > 0 && count % options.configEvery == 0) {
+                writeConfig(directory, 80 + random.nextInt(80));
+            }
+            count = createDirectories(directory, level + 1, directories, count);
+        }
+        return count;
+    }
+
+    private void writeConfig(File directory, int maxLineLength) throws IOException {
+        write(new File(directory, "coffeelint.json"),
+                "{\n  \"max_line_length\": {\"value\": " + maxLineLength + ", \"level\": \"error\"},\n"
+                        + "  \"no_trailing_whitespace\": {\"level\": \"warn\"}\n}\n");
+        stats.configs++;
+    }
+
+    private void writeSource(File file, int lines) throws IOException {
+        StringBuilder text = new StringBuilder(lines * 32);
+        text.append("class Generated").append(lines).append('\n');
+        for (int i = 1; i < lines; i++) {
+            if (i % 7 == 1) {
+                text.append("  method").append(i).append(": (a, b) ->\n");
+                continue;
+            }
+            if (random.nextDouble() < options.issueDensity) {
+                appendIssue(text, i);
+            } else {
+                appendSpaces(text, 4).append("value").append(i).append(" = a + b * ").append(i).append('\n');
+            }
+        }
+        write(file, text.toString());
+    }
+
+    private void appendIssue(StringBuilder text, int line) {
+        // only issues that keep the file compiling, a syntax error would hide every other issue of the file
+        switch (random.nextInt(3)) {
+            case 0:
+                appendSpaces(text, 4).append("trailing").append(line).append(" = a   \n");
+                break;
+            case 1:
+                appendSpaces(text, 4).append("semicolon").append(line).append(" = b;\n");
+                break;
+            default:
+                appendSpaces(text, 4).append("long").append(line).append(" = \"");
+                for (int i = 0; i < 180; i++) {
+                    text.append('x');
+                }
+                text.append("\"\n");
+        }
+    }
+
+    private static StringBuilder appendSpaces(StringBuilder text, int count) {
+        for (int i = 0; i < count; i++) {
+            text.append(' ');
+        }
+        return text;
+    }
+
+    private static void mkdirs(File directory) throws IOException {
+        if (!directory.isDirectory() && !directory.mkdirs()) {
+            throw new IOException("Could not create " + directory);
+        }
+    }
+
+    private static void write(File file, String text) throws IOException {
+        Writer writer = new OutputStreamWriter(new FileOutputStream(file), "UTF-8");
+        try {
+            writer.write(text);
+        } finally {
+            writer.close();
+        }
+    }
+}
@@ -0,0 +1,220 @@
+package com.coffeelint.benchmarks;
+
+import com.coffeelint.cli.CoffeeLintRunner;
+import com.coffeelint.cli.LintResult;
+import com.coffeelint.metrics.LintMetrics;
+import com.intellij.util.Consumer;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Lints a corpus from {@link CorpusGenerator} with a real node and coffeelint, the way the plugin does, and appends one
+ * JSON object per mode to the output file so runs can be compared over time.
+ * <pre>
+ * MacroBenchmark &lt;corpus&gt; &lt;node&gt; &lt;coffeelint&gt; &lt;output.json&gt; [--mode editor|batch|both] [--threads 4] [--batch 200] [--limit n]
+ * </pre>
+ * editor: one process per file, like the annotator linting a saved file in place, with {@code --threads} editors.
+ * batch: the files in path order, {@code --batch} per process, like batch inspection.
+ * coffeelint finds the nearest coffeelint.json of every file in both modes, so nested configs apply.
+ * {@code --limit} lints only the first files of the corpus, a whole corpus in editor mode takes long.
+ */
+public final class MacroBenchmark {
+    private MacroBenchmark() {
+    }
+
+    private static class Run {
+        String mode;
+        int files;
+        long wallMillis;
+        long spawns;
+        long issues;
+        long peakHeapBytes;
+        int errors;
+    }
+
+    public static void main(String[] args) throws Exception {
+        if (args.length < 4) {
+            System.err.println("usage: MacroBenchmark <corpus> <node> <coffeelint> <output.json> [--mode editor|batch|both] [--threads n] [--batch n] [--limit n]");
+            System.exit(2);
+        }
+        File corpus = new File(args[0]).getAbsoluteFile();
+        String node = args[1];
+        String coffeeLint = args[2];
+        File output = new File(args[3]);
+        String mode = "both";
+        int threads = 4;
+        int batch = 200;
+        int limit = Integer.MAX_VALUE;
+        for (int i = 4; i + 1 < args.length; i += 2) {
+            if ("--mode".equals(args[i])) {
+                mode = args[i + 1];
+            } else if ("--threads".equals(args[i])) {
+                threads = Integer.parseInt(args[i + 1]);
+            } else if ("--batch".equals(args[i])) {
+                batch = Integer.parseInt(args[i + 1]);
+            } else if ("--limit".equals(args[i])) {
+                limit = Integer.parseInt(args[i + 1]);
+            } else {
+                throw new IllegalArgumentException("Unknown option " + args[i]);
+            }
+        }
+        List<String> files = new ArrayList<String>();
+        collect(corpus, "", files);
+        Collections.sort(files);
+        if (files.size() > limit) {
+            files = files.subList(0, limit);
+        }
+        CoffeeLintRunner.CoffeeLintSettings settings = CoffeeLintRunner.buildSettings(corpus.getPath(), "", node, coffeeLint, null, null, null);
+
+        List<Run> runs = new ArrayList<Run>();
+        if ("editor".equals(mode) || "both".equals(mode)) {
+            runs.add(runEditors(settings, files, threads));
+        }
+        if ("batch".equals(mode) || "both".equals(mode)) {
+            runs.add(runBatches(settings, files, batch));
+        }
+        for (Run run : runs) {
+            String json = toJson(corpus, run);
+            append(output, json);
+            System.out.println(json);
+        }
+    }
+
+    private static void collect(File directory, String prefix, List<String> files) {
+        File[] children = directory.listFiles();
+        if (children == null) {
+            return;
+        }
+        for (File child : children) {
+            String path = prefix + child.getName();
+            if (child.isDirectory()) {
+                collect(child, path + '/', files);
+            } else if (child.getName().endsWith(".coffee")) {
+                files.add(path);
+            }
+        }
+    }
+
+    private static Run runEditors(final CoffeeLintRunner.CoffeeLintSettings template, List<String> files, int threads) throws Exception {
+        final AtomicLong issues = new AtomicLong();
+        final AtomicLong errors = new AtomicLong();
+        Run run = start("editor", files.size());
+        long start = System.nanoTime();
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<?>> futures = new ArrayList<Future<?>>(files.size());
+            for (final String file : files) {
+                futures.add(pool.submit(new Callable<Void>() {
+                    public Void call() {
+                        CoffeeLintRunner.CoffeeLintSettings settings = CoffeeLintRunner.buildSettings(template.cwd, file, template.node, template.executablePath, null, null, null);
+                        LintResult result = CoffeeLintRunner.lint(settings);
+                        issues.addAndGet(result.issues.size());
+                        if (result.errorOutput != null && !result.errorOutput.isEmpty()) {
+                            errors.incrementAndGet();
+                        }
+                        return null;
+                    }
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            pool.shutdown();
+            pool.awaitTermination(1, TimeUnit.MINUTES);
+        }
+        return finish(run, start, issues.get(), (int) errors.get());
+    }
+
+    private static Run runBatches(CoffeeLintRunner.CoffeeLintSettings settings, List<String> files, int batch) {
+        final AtomicLong issues = new AtomicLong();
+        int errors = 0;
+        Run run = start("batch", files.size());
+        long start = System.nanoTime();
+        for (int from = 0; from < files.size(); from += batch) {
+            List<String> chunk = files.subList(from, Math.min(files.size(), from + batch));
+            LintResult result = CoffeeLintRunner.lintFiles(settings, chunk, new Consumer<LintResult>() {
+                public void consume(LintResult file) {
+                    issues.addAndGet(file.issues.size());
+                }
+            });
+            if (result.errorOutput != null && !result.errorOutput.isEmpty()) {
+                errors++;
+            }
+        }
+        return finish(run, start, issues.get(), errors);
+    }
+
+    private static Run start(String mode, int files) {
+        System.gc();
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            if (pool.getType() == MemoryType.HEAP) {
+                pool.resetPeakUsage();
+            }
+        }
+        Run run = new Run();
+        run.mode = mode;
+        run.files = files;
+        run.spawns = LintMetrics.getInstance().getCount(LintMetrics.Counter.RUNS);
+        return run;
+    }
+
+    private static Run finish(Run run, long startNanos, long issues, int errors) {
+        run.wallMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos);
+        run.spawns = LintMetrics.getInstance().getCount(LintMetrics.Counter.RUNS) - run.spawns;
+        run.issues = issues;
+        run.errors = errors;
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            if (pool.getType() == MemoryType.HEAP) {
+                run.peakHeapBytes += pool.getPeakUsage().getUsed();
+            }
+        }
+        return run;
+    }
+
+    private static String toJson(File corpus, Run run) {
+        double seconds = Math.max(run.wallMillis, 1) / 1000.0;
+        return "{\"timestamp\":" + System.currentTimeMillis()
+                + ",\"corpus\":\"" + corpus.getPath().replace("\\", "\\\\").replace("\"", "\\\"") + '"'
+                + ",\"mode\":\"" + run.mode + '"'
+                + ",\"files\":" + run.files
+                + ",\"wallMillis\":" + run.wallMillis
+                + ",\"spawns\":" + run.spawns
+                + ",\"issues\":" + run.issues
+                + ",\"issuesPerSecond\":" + String.format(Locale.ROOT, "%.1f", run.issues / seconds)
+                + ",\"filesPerSecond\":" + String.format(Locale.ROOT, "%.1f", run.files / seconds)
+                + ",\"peakHeapBytes\":" + run.peakHeapBytes
+                + ",\"runsWithErrorOutput\":" + run.errors
+                + '}';
+    }
+
+    /**
+     * Appends as JSON lines, one object per run.
+     */
+    private static void append(File output, String json) throws IOException {
+        Writer writer = new OutputStreamWriter(new FileOutputStream(output, true), "UTF-8");
+        try {
+            writer.write(json);
+            writer.write('\n');
+        } finally {
+            writer.close();
+        }
+    }
+}
@@ -0,0 +1,128 @@
+package com.coffeelint.benchmarks;
+
+import com.coffeelint.cli.CheckstyleStreamParser;
+import com.coffeelint.cli.CoffeeLint;
+import com.coffeelint.cli.IssueTable;
+import com.coffeelint.cli.LintResult;
+import com.intellij.util.Consumer;
+
+import java.io.ByteArrayInputStream;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.nio.charset.Charset;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Heap retained by the lint results of a whole project, kept as {@link IssueTable}s and as the {@link CoffeeLint.Issue}
+ * lists they replaced. The JMH benchmarks with the GC profiler show what parsing allocates, this shows what stays.
+ * <pre>
+ * ResultMemoryBenchmark [--files 10000] [--issues 0,5,50]
+ * </pre>
+ * Both representations are built the way the plugin gets them, issue lists from one XStream read per file and tables from
+ * one streamed multi-file report, and held while the used heap is measured after full collections.
+ * Run with a fixed heap, e.g. {@code -Xms2g -Xmx2g}, so resizing does not blur the numbers.
+ */
+public final class ResultMemoryBenchmark {
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+    private static final int SETTLE_GCS = 5;
+
+    private ResultMemoryBenchmark() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        int files = 10000;
+        String issueCounts = "0,5,50";
+        for (int i = 0; i + 1 < args.length; i += 2) {
+            if ("--files".equals(args[i])) {
+                files = Integer.parseInt(args[i + 1]);
+            } else if ("--issues".equals(args[i])) {
+                issueCounts = args[i + 1];
+            } else {
+                throw new IllegalArgumentException("Unknown option " + args[i]);
+            }
+        }
+        String[] fileNames = new String[files];
+        for (int i = 0; i < files; i++) {
+            fileNames[i] = "src/module" + i / 100 + "/file" + i + ".coffee";
+        }
+        // the interned rules and messages are shared by all tables, fill the dictionary before measuring
+        String[] warmup = {"warmup.coffee"};
+        tables(warmup, CheckstyleFixtures.report(warmup, 100).getBytes(UTF_8));
+
+        for (String count : issueCounts.split(",")) {
+            int issuesPerFile = Integer.parseInt(count.trim());
+            long issues = retained(Representation.ISSUES, fileNames, issuesPerFile);
+            long tables = retained(Representation.ISSUE_TABLE, fileNames, issuesPerFile);
+            print(Representation.ISSUES, files, issuesPerFile, issues);
+            print(Representation.ISSUE_TABLE, files, issuesPerFile, tables);
+        }
+    }
+
+    private enum Representation {
+        ISSUES, ISSUE_TABLE
+    }
+
+    /**
+     * @return bytes the results of the project keep alive
+     */
+    private static long retained(Representation representation, String[] fileNames, int issuesPerFile) throws Exception {
+        String[] reports = null;
+        byte[] report = null;
+        if (representation == Representation.ISSUES) {
+            reports = new String[fileNames.length];
+            for (int i = 0; i < fileNames.length; i++) {
+                reports[i] = CheckstyleFixtures.report(fileNames[i], issuesPerFile);
+            }
+        } else {
+            report = CheckstyleFixtures.report(fileNames, issuesPerFile).getBytes(UTF_8);
+        }
+        long before = usedHeap();
+        Map<String, ?> results = representation == Representation.ISSUES ? issues(fileNames, reports) : tables(fileNames, report);
+        long after = usedHeap();
+        if (results.size() != fileNames.length) {
+            throw new IllegalStateException("unexpected result count " + results.size());
+        }
+        return after - before;
+    }
+
+    private static Map<String, List<CoffeeLint.Issue>> issues(String[] fileNames, String[] reports) {
+        Map<String, List<CoffeeLint.Issue>> results = new HashMap<String, List<CoffeeLint.Issue>>();
+        for (int i = 0; i < fileNames.length; i++) {
+            results.put(fileNames[i], CoffeeLint.read(reports[i]).file.errors);
+        }
+        return results;
+    }
+
+    /**
+     * Keyed by the given names like the issue lists, so only the issues make the difference.
+     */
+    private static Map<String, IssueTable> tables(final String[] fileNames, byte[] report) throws Exception {
+        final Map<String, IssueTable> results = new HashMap<String, IssueTable>();
+        CheckstyleStreamParser.parse(new ByteArrayInputStream(report), new Consumer<LintResult>() {
+            public void consume(LintResult result) {
+                results.put(fileNames[results.size()], result.issues);
+            }
+        });
+        return results;
+    }
+
+    private static long usedHeap() throws InterruptedException {
+        MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
+        long used = Long.MAX_VALUE;
+        for (int i = 0; i < SETTLE_GCS; i++) {
+            System.gc();
+            Thread.sleep(50L);
+            used = Math.min(used, memory.getHeapMemoryUsage().getUsed());
+        }
+        return used;
+    }
+
+    private static void print(Representation representation, int files, int issuesPerFile, long bytes) {
+        System.out.println(String.format(Locale.ROOT, "%-11s %6d files x %3d issues: %8d KB retained, %6d bytes per file, %4d bytes per issue",
+                representation.name().toLowerCase(Locale.ROOT), files, issuesPerFile, bytes / 1024, bytes / files,
+                issuesPerFile == 0 ? 0 : bytes / ((long) files * issuesPerFile)));
+    }
+}
@@ -0,0 +1,46 @@
+package com.coffeelint.cli;
+
+import com.coffeelint.benchmarks.CheckstyleFixtures;
+import com.intellij.util.Consumer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+import javax.xml.stream.XMLStreamException;
+import java.io.ByteArrayInputStream;
+import java.nio.charset.Charset;
+
+/**
+ * Parsing one file's checkstyle report, with the XStream reader and with the streaming parser the runner uses.
+ */
+@State(Scope.Benchmark)
+public class CheckstyleParseBenchmark {
+    @Param({"0", "10", "1000", "10000"})
+    public int issues;
+
+    private String xml;
+    private byte[] bytes;
+
+    @Setup
+    public void setUp() {
+        xml = CheckstyleFixtures.report("src/app.coffee", issues);
+        bytes = xml.getBytes(Charset.forName("UTF-8"));
+    }
+
+    @Benchmark
+    public CoffeeLint read() {
+        return CoffeeLint.read(xml);
+    }
+
+    @Benchmark
+    public void streamParse(final Blackhole blackhole) throws XMLStreamException {
+        CheckstyleStreamParser.parse(new ByteArrayInputStream(bytes), new Consumer<LintResult>() {
+            public void consume(LintResult result) {
+                blackhole.consume(result);
+            }
+        });
+    }
+}
@@ -0,0 +1,38 @@
+package com.coffeelint.cli;
+
+import com.intellij.execution.configurations.GeneralCommandLine;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Building the coffeelint command line, for a single file and for a batch. Nothing is started.
+ */
+@State(Scope.Benchmark)
+public class CommandLineBenchmark {
+    @Param({"1", "100"})
+    public int files;
+
+    private CoffeeLintRunner.CoffeeLintSettings settings;
+    private List<String> paths;
+
+    @Setup
+    public void setUp() {
+        settings = CoffeeLintRunner.buildSettings("/work/project", "src/app.coffee", "/usr/local/bin/node",
+                "/work/project/node_modules/coffeelint/bin/coffeelint", "/work/project/coffeelint.json", "/work/project/lint-rules", "cson,litcoffee");
+        paths = new ArrayList<String>(files);
+        for (int i = 0; i < files; i++) {
+            paths.add("src/module" + i + "/file" + i + ".coffee");
+        }
+    }
+
+    @Benchmark
+    public GeneralCommandLine createCommandLine() {
+        return CoffeeLintRunner.createCommandLineLint(settings, paths);
+    }
+}
@@ -0,0 +1,87 @@
+package com.coffeelint.cli;
+
+import com.intellij.execution.configurations.GeneralCommandLine;
+import com.intellij.execution.process.ProcessOutput;
+import com.intellij.openapi.util.io.FileUtil;
+import com.wix.nodejs.NodeRunner;
+
+import java.io.File;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Locale;
+
+/**
+ * Time of a one-shot coffeelint run of a single file without a {@link CompileCache}, with a cold one and with a warm one.
+ * <pre>
+ * StartupBenchmark &lt;node&gt; &lt;coffeelint&gt; &lt;file.coffee&gt; [--runs 20]
+ * </pre>
+ * cold: every run gets a new empty cache directory. warm: all runs share a directory filled by one run before timing.
+ * node older than 22.1 ignores the cache, all three modes then take the same time.
+ */
+public final class StartupBenchmark {
+    private StartupBenchmark() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        if (args.length < 3) {
+            System.err.println("usage: StartupBenchmark <node> <coffeelint> <file.coffee> [--runs n]");
+            System.exit(2);
+        }
+        File file = new File(args[2]).getAbsoluteFile();
+        CoffeeLintRunner.CoffeeLintSettings settings = CoffeeLintRunner.buildSettings(file.getParent(), file.getName(), args[0], args[1], null, null, null);
+        int runs = args.length > 4 && "--runs".equals(args[3]) ? Integer.parseInt(args[4]) : 20;
+
+        File root = FileUtil.createTempDirectory("coffeelint-compile-cache", null);
+        try {
+            double[] none = new double[runs];
+            double[] cold = new double[runs];
+            double[] warm = new double[runs];
+            File warmDirectory = new File(root, "warm");
+            run(settings, warmDirectory);
+            for (int i = 0; i < runs; i++) {
+                // interleave the modes so drift of the machine affects all of them alike
+                none[i] = run(settings, null);
+                cold[i] = run(settings, new File(root, "cold" + i));
+                warm[i] = run(settings, warmDirectory);
+            }
+            System.out.println("cache  median ms   mean ms    min ms");
+            print("none", none);
+            print("cold", cold);
+            print("warm", warm);
+        } finally {
+            FileUtil.delete(root);
+        }
+    }
+
+    /**
+     * @return milliseconds from process start until it exited
+     */
+    private static double run(CoffeeLintRunner.CoffeeLintSettings settings, File cacheDirectory) throws Exception {
+        GeneralCommandLine commandLine = CoffeeLintRunner.createCommandLineLint(settings, Collections.singletonList(settings.targetFile));
+        commandLine.addParameter("--reporter");
+        commandLine.addParameter("checkstyle");
+        if (cacheDirectory != null) {
+            if (!cacheDirectory.isDirectory() && !cacheDirectory.mkdirs()) {
+                throw new IllegalStateException("Could not create " + cacheDirectory);
+            }
+            commandLine.getEnvironment().put(CompileCache.ENV, cacheDirectory.getPath());
+        }
+        long start = System.nanoTime();
+        ProcessOutput output = NodeRunner.execute(commandLine, settings.timeout);
+        double millis = (System.nanoTime() - start) / 1e6;
+        if (output.getExitCode() != 0 && output.getStdout().isEmpty()) {
+            throw new IllegalStateException("coffeelint failed: " + output.getStderr());
+        }
+        return millis;
+    }
+
+    private static void print(String mode, double[] millis) {
+        double[] sorted = millis.clone();
+        Arrays.sort(sorted);
+        double sum = 0;
+        for (double value : sorted) {
+            sum += value;
+        }
+        System.out.println(String.format(Locale.ROOT, "%-5s %10.1f %9.1f %9.1f", mode, sorted[sorted.length / 2], sum / sorted.length, sorted[0]));
+    }
+}
@@ -0,0 +1,40 @@
+package com.coffeelint.config;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * {@link CoffeeLintConfigFileUtil#isCoffeeScriptFile(String, String)}, which runs for every file the IDE highlights.
+ */
+@State(Scope.Benchmark)
+public class FileMatchBenchmark {
+    @Param({"0", "3", "30"})
+    public int extensions;
+
+    private String extensionList;
+    private final String[] names = {"app.coffee", "view.litcoffee", "style.css", "README.md", "index.js", "config.cson"};
+
+    @Setup
+    public void setUp() {
+        StringBuilder list = new StringBuilder();
+        for (int i = 0; i < extensions; i++) {
+            if (i > 0) {
+                list.append(',');
+            }
+            // the matching extensions come last, the worst case for the scan
+            list.append(i == extensions - 1 ? "litcoffee" : "ext" + i);
+        }
+        extensionList = list.toString();
+    }
+
+    @Benchmark
+    public void match(Blackhole blackhole) {
+        for (String name : names) {
+            blackhole.consume(CoffeeLintConfigFileUtil.isCoffeeScriptFile(name, extensionList));
+        }
+    }
+}
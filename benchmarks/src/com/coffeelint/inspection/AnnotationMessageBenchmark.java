@@ -0,0 +1,54 @@
+package com.coffeelint.inspection;
+
+import com.coffeelint.benchmarks.CheckstyleFixtures;
+import com.coffeelint.cli.CheckstyleStreamParser;
+import com.coffeelint.cli.IssueTable;
+import com.coffeelint.cli.LintResult;
+import com.intellij.util.Consumer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.Charset;
+
+/**
+ * The per issue work of {@code createAnnotation} that does not need an editor: severity mapping and the message text.
+ */
+@State(Scope.Benchmark)
+public class AnnotationMessageBenchmark {
+    @Param({"10", "1000"})
+    public int issues;
+
+    @Param({"false", "true"})
+    public boolean treatAsWarnings;
+
+    private IssueTable table;
+
+    @Setup
+    public void setUp() throws Exception {
+        byte[] xml = CheckstyleFixtures.report("src/app.coffee", issues).getBytes(Charset.forName("UTF-8"));
+        CheckstyleStreamParser.parse(new ByteArrayInputStream(xml), new Consumer<LintResult>() {
+            public void consume(LintResult result) {
+                table = result.issues;
+            }
+        });
+    }
+
+    @Benchmark
+    public void severities(Blackhole blackhole) {
+        for (int i = 0; i < table.size(); i++) {
+            blackhole.consume(CoffeeLintExternalAnnotator.getHighlightSeverity(table.getSeverity(i), treatAsWarnings));
+        }
+    }
+
+    @Benchmark
+    public void messages(Blackhole blackhole) {
+        for (int i = 0; i < table.size(); i++) {
+            blackhole.consume(CoffeeLintExternalAnnotator.buildMessage(table.getMessage(i), table.getSource(i)));
+        }
+    }
+}
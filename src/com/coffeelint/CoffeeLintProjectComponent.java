@@ -1,5 +1,6 @@
 package com.coffeelint;
 
+import com.coffeelint.engine.LintServerPool;
 import com.coffeelint.inspection.CoffeeLintInspection;
 import com.coffeelint.settings.Settings;
 import com.intellij.notification.Notification;
@@ -9,19 +10,26 @@ import com.intellij.notification.Notifications;
 import com.intellij.openapi.components.ProjectComponent;
 import com.intellij.openapi.diagnostic.Logger;
 import com.intellij.openapi.project.Project;
+import com.intellij.openapi.util.ModificationTracker;
 import com.wix.utils.FileUtils;
 import com.wix.utils.FileUtils.ValidationStatus;
 import org.jetbrains.annotations.NotNull;
 
 import javax.swing.event.HyperlinkEvent;
+import java.util.concurrent.atomic.AtomicLong;
 
-public class CoffeeLintProjectComponent implements ProjectComponent {
+/**
+ * The validated settings of the project. Its modification count changes whenever they are applied,
+ * so cached values computed from them can depend on it.
+ */
+public class CoffeeLintProjectComponent implements ProjectComponent, ModificationTracker {
     public static final String FIX_CONFIG_HREF = "\n<a href=\"#\">Fix Configuration</a>";
     protected Project project;
     protected Settings settings;
     protected boolean settingValidStatus;
     protected String settingValidVersion;
     protected String settingVersionLastShowNotification;
+    private final AtomicLong modificationCount = new AtomicLong();
 
     private static final Logger LOG = Logger.getInstance(CoffeeLintBundle.LOG_ID);
 
@@ -33,6 +41,9 @@ public class CoffeeLintProjectComponent implements ProjectComponent {
     public String nodeInterpreter;
     public boolean treatAsWarnings;
     public boolean pluginEnabled;
+    public String engineId;
+    public String comparisonEngineId;
+    public boolean compileCache;
 
     public static final String PLUGIN_NAME = "CoffeeLint plugin";
 
@@ -50,6 +61,7 @@ public class CoffeeLintProjectComponent implements ProjectComponent {
 
     @Override
     public void projectClosed() {
+        LintServerPool.getInstance().release(project);
     }
 
     @Override
@@ -69,6 +81,14 @@ public class CoffeeLintProjectComponent implements ProjectComponent {
         return "CoffeeLintProjectComponent";
     }
 
+    public Project getProject() {
+        return project;
+    }
+
+    public long getModificationCount() {
+        return modificationCount.get();
+    }
+
     public boolean isEnabled() {
         return Settings.getInstance(project).pluginEnabled;
     }
@@ -120,6 +140,10 @@ public class CoffeeLintProjectComponent implements ProjectComponent {
         treatAsWarnings = settings.treatAllIssuesAsWarnings;
         pluginEnabled = settings.pluginEnabled;
         extensions = settings.extensions;
+        engineId = settings.engineId;
+        comparisonEngineId = settings.comparisonEngineId;
+        compileCache = settings.compileCache;
+        modificationCount.incrementAndGet();
 
 //        RuleCache.initializeFromPath(project, this);
 
@@ -0,0 +1,208 @@
+package com.coffeelint.batch;
+
+import com.coffeelint.cli.CoffeeLintRunner;
+import com.coffeelint.cli.IssueTable;
+import com.coffeelint.cli.LintResult;
+import com.coffeelint.cli.ProcessPriority;
+import com.coffeelint.config.CoffeeLintConfigFileUtil;
+import com.coffeelint.settings.Settings;
+import com.intellij.util.Consumer;
+import org.apache.commons.lang.StringUtils;
+import org.jetbrains.annotations.NotNull;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Lints a whole project without an IDE, with the settings the plugin stored for it, and writes one report.
+ * <pre>
+ * BatchLintMain &lt;project&gt; [--settings .idea/coffeelintPlugin.xml] [--format checkstyle|sarif] [--output report]
+ *               [--shards n] [--files-per-process n] [--node path] [--coffeelint path] [--history file]
+ * </pre>
+ * Eligible files are linted by one worker (shard) per core by default with multi-file coffeelint runs of at most
+ * {@code --files-per-process} files, grouped by effective config and balanced by the {@link LintScheduler}.
+ * The {@link LintCostModel} it balances with is loaded from and saved to {@code --history}, keep that file between
+ * CI runs so they are balanced with the timings of the earlier ones instead of the defaults.
+ * Wall time and the throughput of every shard go to stderr, the report to stdout unless {@code --output} is given.
+ * Exits with 0 when no errors were found, 1 when there were errors and 2 when linting failed.
+ */
+public final class BatchLintMain {
+    static final int EXIT_CLEAN = 0;
+    static final int EXIT_ERRORS = 1;
+    static final int EXIT_FAILURE = 2;
+
+    private static final int FILES_PER_PROCESS = 100;
+    private static final List<String> SKIPPED_DIRECTORIES = Arrays.asList("node_modules", ".git", ".idea", ".svn", ".hg");
+
+    private BatchLintMain() {
+    }
+
+    public static void main(String[] args) {
+        try {
+            System.exit(run(args));
+        } catch (IllegalArgumentException e) {
+            System.err.println(e.getMessage());
+            System.err.println("usage: BatchLintMain <project> [--settings file] [--format checkstyle|sarif] [--output file]" +
+                    " [--shards n] [--files-per-process n] [--node path] [--coffeelint path] [--history file]");
+            System.exit(EXIT_FAILURE);
+        } catch (Exception e) {
+            e.printStackTrace();
+            System.exit(EXIT_FAILURE);
+        }
+    }
+
+    static int run(@NotNull String[] args) throws Exception {
+        if (args.length == 0) {
+            throw new IllegalArgumentException("missing project directory");
+        }
+        File project = new File(args[0]).getCanonicalFile();
+        File settingsFile = PluginSettingsReader.getDefaultFile(project);
+        ReportWriter.Format format = ReportWriter.Format.CHECKSTYLE;
+        File output = null;
+        int shardCount = Runtime.getRuntime().availableProcessors();
+        int filesPerProcess = FILES_PER_PROCESS;
+        String node = null;
+        String executable = null;
+        File history = null;
+        for (int i = 1; i < args.length; i++) {
+            String option = args[i];
+            if (i + 1 == args.length) {
+                throw new IllegalArgumentException("missing value of " + option);
+            }
+            String value = args[++i];
+            if ("--settings".equals(option)) {
+                settingsFile = new File(value);
+            } else if ("--format".equals(option)) {
+                format = ReportWriter.Format.valueOf(value.toUpperCase(Locale.ROOT));
+            } else if ("--output".equals(option)) {
+                output = new File(value);
+            } else if ("--shards".equals(option)) {
+                shardCount = Math.max(1, Integer.parseInt(value));
+            } else if ("--files-per-process".equals(option)) {
+                filesPerProcess = Math.max(1, Integer.parseInt(value));
+            } else if ("--node".equals(option)) {
+                node = value;
+            } else if ("--coffeelint".equals(option)) {
+                executable = value;
+            } else if ("--history".equals(option)) {
+                history = new File(value);
+            } else {
+                throw new IllegalArgumentException("unknown option " + option);
+            }
+        }
+
+        Settings settings = settingsFile.isFile() ? PluginSettingsReader.read(settingsFile, project) : new Settings();
+        if (node == null) {
+            node = settings.nodeInterpreter;
+        }
+        if (executable == null) {
+            executable = settings.lintExecutable;
+        }
+        if (StringUtils.isEmpty(node) || StringUtils.isEmpty(executable)) {
+            throw new IllegalArgumentException("node and coffeelint are not set in " + settingsFile + ", pass --node and --coffeelint");
+        }
+
+        long start = System.nanoTime();
+        List<String> files = new ArrayList<String>();
+        collectFiles(project, "", settings.extensions, files);
+        LintScheduler scheduler = new LintScheduler(new LintCostModel(history), node + '\n' + executable, shardCount, filesPerProcess);
+        List<LintScheduler.WorkerStats> shards = new ArrayList<LintScheduler.WorkerStats>();
+        AtomicBoolean failed = new AtomicBoolean();
+        Map<String, IssueTable> results = lint(project, settings, node, executable, files, scheduler, shards, failed);
+        long wallNanos = System.nanoTime() - start;
+
+        Writer out = new OutputStreamWriter(output == null ? System.out : new FileOutputStream(output), "UTF-8");
+        try {
+            ReportWriter.write(format, results, out);
+        } finally {
+            if (output != null) {
+                out.close();
+            }
+        }
+
+        for (int i = 0; i < shards.size(); i++) {
+            LintScheduler.WorkerStats shard = shards.get(i);
+            double millis = shard.nanos / 1e6;
+            System.err.println(String.format(Locale.ROOT, "shard %d: %d files, %d KB in %.0f ms, %.1f files/s, %d processes, %d stolen", i, shard.files,
+                    shard.bytes / 1024, millis, millis == 0 ? 0 : shard.files * 1000 / millis, shard.chunks, shard.steals));
+        }
+        int errors = 0;
+        int issues = 0;
+        for (IssueTable table : results.values()) {
+            errors += table.getErrorCount();
+            issues += table.size();
+        }
+        System.err.println(String.format(Locale.ROOT, "%d files, %d issues, %d errors in %.0f ms with %d shards",
+                files.size(), issues, errors, wallNanos / 1e6, shards.size()));
+        if (failed.get()) {
+            return EXIT_FAILURE;
+        }
+        return errors > 0 ? EXIT_ERRORS : EXIT_CLEAN;
+    }
+
+    /**
+     * @param files receives the paths relative to the project, with '/' separators, as coffeelint reports them
+     */
+    static void collectFiles(@NotNull File directory, @NotNull String prefix, String extensions, @NotNull List<String> files) {
+        File[] children = directory.listFiles();
+        if (children == null) {
+            return;
+        }
+        Arrays.sort(children);
+        for (File child : children) {
+            String name = child.getName();
+            if (child.isDirectory()) {
+                if (!SKIPPED_DIRECTORIES.contains(name)) {
+                    collectFiles(child, prefix + name + '/', extensions, files);
+                }
+            } else if (CoffeeLintConfigFileUtil.isCoffeeScriptFile(name, extensions)) {
+                files.add(prefix + name);
+            }
+        }
+    }
+
+    @NotNull
+    private static Map<String, IssueTable> lint(@NotNull File project, @NotNull Settings settings, @NotNull final String node, @NotNull final String executable,
+                                                @NotNull List<String> files, @NotNull LintScheduler scheduler, @NotNull List<LintScheduler.WorkerStats> stats,
+                                                @NotNull final AtomicBoolean failed) throws Exception {
+        final Map<String, IssueTable> results = new TreeMap<String, IssueTable>();
+        EffectiveConfigLocator configs = new EffectiveConfigLocator(settings.configFile);
+        List<LintScheduler.Task> tasks = new ArrayList<LintScheduler.Task>();
+        for (String path : files) {
+            File file = new File(project, path);
+            tasks.add(new LintScheduler.Task(path, file.length(), configs.getKey(file)));
+        }
+        final String cwd = project.getPath();
+        final String rules = StringUtils.isEmpty(settings.rulesPath) ? null : settings.rulesPath;
+        final String extensions = settings.extensions;
+        stats.addAll(scheduler.run(tasks, new LintScheduler.ChunkLinter() {
+            public void lint(@NotNull String configKey, @NotNull List<String> chunk) {
+                CoffeeLintRunner.CoffeeLintSettings lintSettings = CoffeeLintRunner.buildSettings(cwd, "", node, executable,
+                        EffectiveConfigLocator.getConfigFile(configKey), rules, extensions);
+                lintSettings.priority = ProcessPriority.BATCH;
+                LintResult result = CoffeeLintRunner.lintFiles(lintSettings, chunk, new Consumer<LintResult>() {
+                    public void consume(LintResult file) {
+                        synchronized (results) {
+                            results.put(file.coffeeLint.file.name, file.issues);
+                        }
+                    }
+                });
+                if (StringUtils.isNotEmpty(result.errorOutput)) {
+                    System.err.println(result.errorOutput);
+                    failed.set(true);
+                }
+            }
+        }));
+        return results;
+    }
+}
@@ -0,0 +1,123 @@
+package com.coffeelint.batch;
+
+import com.intellij.openapi.util.io.FileUtil;
+import org.apache.commons.lang.StringUtils;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Finds the config that applies to a file the way coffeelint 1.x's configfinder does without {@code -f}:
+ * the {@code COFFEELINT_CONFIG} environment variable, then the {@code coffeelintConfig} section of the nearest package.json,
+ * then the nearest coffeelint.json, in the file's directory or above. A nearest package.json without the section
+ * does not stop the search for coffeelint.json, nor does coffeelint look for another package.json above it.
+ * Files with the same effective config can share one run with an explicit {@code -f}, which also spares coffeelint
+ * the lookup for every file. Lookups are remembered per directory for the lifetime of the locator.
+ */
+public final class EffectiveConfigLocator {
+    static final String COFFEELINT_JSON = "coffeelint.json";
+    public static final String PACKAGE_JSON = "package.json";
+
+    /** key of files without a config of their own, coffeelint falls back to its defaults or the user's home */
+    public static final String NO_CONFIG = "";
+
+    public static final String CONFIG_VARIABLE = "COFFEELINT_CONFIG";
+
+    @Nullable
+    private final String configuredFile;
+    /** directory -> key */
+    private final Map<File, String> keys = new HashMap<File, String>();
+    /** directory -> nearest package.json, or {@link #NONE} */
+    private final Map<File, File> packageJsons = new HashMap<File, File>();
+    /** directory -> nearest coffeelint.json, or {@link #NONE} */
+    private final Map<File, File> configs = new HashMap<File, File>();
+
+    private static final File NONE = new File("");
+
+    /**
+     * @param configuredFile the config file set in the settings, applies to every file when not empty
+     */
+    public EffectiveConfigLocator(@Nullable String configuredFile) {
+        this(configuredFile, System.getenv(CONFIG_VARIABLE));
+    }
+
+    /**
+     * @param environmentFile the value of {@code COFFEELINT_CONFIG} coffeelint inherits
+     */
+    EffectiveConfigLocator(@Nullable String configuredFile, @Nullable String environmentFile) {
+        if (StringUtils.isNotEmpty(configuredFile)) {
+            this.configuredFile = configuredFile;
+        } else if (StringUtils.isNotEmpty(environmentFile) && new File(environmentFile).exists()) {
+            this.configuredFile = environmentFile;
+        } else {
+            this.configuredFile = null;
+        }
+    }
+
+    /**
+     * @return the path of the effective config of the file, or {@link #NO_CONFIG}
+     */
+    @NotNull
+    public synchronized String getKey(@NotNull File file) {
+        if (configuredFile != null) {
+            return configuredFile;
+        }
+        return getDirectoryKey(file.getAbsoluteFile().getParentFile());
+    }
+
+    /**
+     * @param key a key of {@link #getKey}
+     * @return the file to pass to {@code -f}, null when coffeelint has to find the config itself
+     */
+    @Nullable
+    public static String getConfigFile(@NotNull String key) {
+        return key.equals(NO_CONFIG) || key.endsWith(PACKAGE_JSON) ? null : key;
+    }
+
+    @NotNull
+    private String getDirectoryKey(@Nullable File directory) {
+        if (directory == null) {
+            return NO_CONFIG;
+        }
+        String key = keys.get(directory);
+        if (key == null) {
+            File packageJson = findNearest(directory, PACKAGE_JSON, packageJsons);
+            File config = findNearest(directory, COFFEELINT_JSON, configs);
+            if (packageJson != null && hasCoffeeLintConfig(packageJson)) {
+                key = packageJson.getPath();
+            } else if (config != null) {
+                key = config.getPath();
+            } else {
+                key = NO_CONFIG;
+            }
+            keys.put(directory, key);
+        }
+        return key;
+    }
+
+    @Nullable
+    private static File findNearest(@Nullable File directory, @NotNull String name, @NotNull Map<File, File> found) {
+        if (directory == null) {
+            return null;
+        }
+        File nearest = found.get(directory);
+        if (nearest == null) {
+            File file = new File(directory, name);
+            nearest = file.isFile() ? file : findNearest(directory.getParentFile(), name, found);
+            found.put(directory, nearest == null ? NONE : nearest);
+        }
+        return nearest == NONE ? null : nearest;
+    }
+
+    private static boolean hasCoffeeLintConfig(@NotNull File packageJson) {
+        try {
+            return FileUtil.loadFile(packageJson, "UTF-8").contains("\"coffeelintConfig\"");
+        } catch (IOException e) {
+            return false;
+        }
+    }
+}
@@ -0,0 +1,214 @@
+package com.coffeelint.batch;
+
+import com.coffeelint.CoffeeLintBundle;
+import com.intellij.openapi.application.PathManager;
+import com.intellij.openapi.diagnostic.Logger;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Estimates how long a coffeelint run takes from the bytes it lints, learned from past multi-file runs of each executable:
+ * <pre>
+ * nanos = startup + bytes * nanosPerByte
+ * </pre>
+ * Both terms are a least squares fit over the recorded runs, older runs weigh less with every new one,
+ * so an upgraded executable or a busier machine is picked up after a few runs. Until runs of different sizes were seen
+ * the defaults below are used, they fit coffeelint 1.x on a current laptop.
+ * <p>
+ * The fits are kept in a properties file, executable -> sums of the fit, so a new IDE session or CI run starts from
+ * what earlier ones learned: the IDE's under its system directory, the batch lint's where {@code --history} points.
+ */
+public final class LintCostModel {
+    private static final Logger LOG = Logger.getInstance(CoffeeLintBundle.LOG_ID);
+
+    static final long DEFAULT_STARTUP_NANOS = TimeUnit.MILLISECONDS.toNanos(300L);
+    static final double DEFAULT_NANOS_PER_BYTE = 3000;
+    /** weight of the history in every update */
+    static final double DECAY = 0.95;
+
+    private static LintCostModel instance;
+
+    /** executable key -> fit */
+    private final Map<String, Fit> fits = new HashMap<String, Fit>();
+    @Nullable
+    private final File store;
+
+    private static final class Fit {
+        double weight;
+        double bytes;
+        double nanos;
+        double bytesSquared;
+        double bytesNanos;
+        long startupNanos = DEFAULT_STARTUP_NANOS;
+        double nanosPerByte = DEFAULT_NANOS_PER_BYTE;
+
+        void add(double x, double y) {
+            weight = weight * DECAY + 1;
+            bytes = bytes * DECAY + x;
+            nanos = nanos * DECAY + y;
+            bytesSquared = bytesSquared * DECAY + x * x;
+            bytesNanos = bytesNanos * DECAY + x * y;
+            double variance = weight * bytesSquared - bytes * bytes;
+            if (variance <= 1e-9 * weight * bytesSquared) {
+                // runs of one size only, keep the startup and scale the rate
+                if (x > 0 && y > startupNanos) {
+                    nanosPerByte = (nanos / weight - startupNanos) / (bytes / weight);
+                }
+                return;
+            }
+            double slope = (weight * bytesNanos - bytes * nanos) / variance;
+            double intercept = (nanos - slope * bytes) / weight;
+            if (slope > 0 && intercept >= 0) {
+                nanosPerByte = slope;
+                startupNanos = (long) intercept;
+            }
+        }
+
+        @NotNull
+        String write() {
+            return String.format(Locale.ROOT, "%s %s %s %s %s %d %s", weight, bytes, nanos, bytesSquared, bytesNanos, startupNanos, nanosPerByte);
+        }
+
+        @Nullable
+        static Fit read(@NotNull String text) {
+            String[] values = text.trim().split(" ");
+            if (values.length != 7) {
+                return null;
+            }
+            try {
+                Fit fit = new Fit();
+                fit.weight = Double.parseDouble(values[0]);
+                fit.bytes = Double.parseDouble(values[1]);
+                fit.nanos = Double.parseDouble(values[2]);
+                fit.bytesSquared = Double.parseDouble(values[3]);
+                fit.bytesNanos = Double.parseDouble(values[4]);
+                fit.startupNanos = Long.parseLong(values[5]);
+                fit.nanosPerByte = Double.parseDouble(values[6]);
+                return fit.startupNanos >= 0 && fit.nanosPerByte > 0 ? fit : null;
+            } catch (NumberFormatException e) {
+                return null;
+            }
+        }
+    }
+
+    LintCostModel() {
+        this(null);
+    }
+
+    /**
+     * @param store file the fits are loaded from and {@link #save() saved} to, null to keep them in memory only
+     */
+    public LintCostModel(@Nullable File store) {
+        this.store = store;
+        if (store != null && store.isFile()) {
+            load(store);
+        }
+    }
+
+    @NotNull
+    public static synchronized LintCostModel getInstance() {
+        if (instance == null) {
+            instance = new LintCostModel(new File(PathManager.getSystemPath(), "coffeelint" + File.separatorChar + "lint-cost.properties"));
+        }
+        return instance;
+    }
+
+    /**
+     * @param executable identifies node and coffeelint, e.g. their paths
+     */
+    public synchronized long getStartupNanos(@NotNull String executable) {
+        return getFit(executable).startupNanos;
+    }
+
+    /**
+     * @return the time coffeelint spends on the bytes, without the process startup
+     */
+    public synchronized long estimateNanos(@NotNull String executable, long bytes) {
+        return (long) (bytes * getFit(executable).nanosPerByte);
+    }
+
+    /**
+     * Learn from a finished run of one process.
+     */
+    public synchronized void record(@NotNull String executable, long bytes, long nanos) {
+        getFit(executable).add(bytes, nanos);
+    }
+
+    /**
+     * Write the fits to the store, if there is one. A failure only costs the history.
+     */
+    public void save() {
+        if (store == null) {
+            return;
+        }
+        Properties properties = new Properties();
+        synchronized (this) {
+            for (Map.Entry<String, Fit> entry : fits.entrySet()) {
+                properties.setProperty(entry.getKey(), entry.getValue().write());
+            }
+        }
+        File parent = store.getParentFile();
+        File temp = new File(parent, store.getName() + ".tmp");
+        try {
+            if (parent != null && !parent.isDirectory() && !parent.mkdirs()) {
+                throw new IOException("could not create " + parent);
+            }
+            OutputStream out = new FileOutputStream(temp);
+            try {
+                properties.store(out, "coffeelint cost model: weight bytes nanos bytes^2 bytes*nanos startupNanos nanosPerByte");
+            } finally {
+                out.close();
+            }
+            // replace in one step, a concurrent run reads the old or the new fits
+            if (!temp.renameTo(store) && !(store.delete() && temp.renameTo(store))) {
+                throw new IOException("could not replace " + store);
+            }
+        } catch (IOException e) {
+            LOG.warn("Could not save the lint cost model to " + store, e);
+            temp.delete();
+        }
+    }
+
+    private synchronized void load(@NotNull File file) {
+        Properties properties = new Properties();
+        try {
+            InputStream in = new FileInputStream(file);
+            try {
+                properties.load(in);
+            } finally {
+                in.close();
+            }
+        } catch (IOException e) {
+            LOG.warn("Could not load the lint cost model from " + file, e);
+            return;
+        }
+        for (String executable : properties.stringPropertyNames()) {
+            Fit fit = Fit.read(properties.getProperty(executable));
+            if (fit != null) {
+                fits.put(executable, fit);
+            }
+        }
+    }
+
+    @NotNull
+    private Fit getFit(@NotNull String executable) {
+        Fit fit = fits.get(executable);
+        if (fit == null) {
+            fit = new Fit();
+            fits.put(executable, fit);
+        }
+        return fit;
+    }
+}
@@ -0,0 +1,289 @@
+package com.coffeelint.batch;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Spreads the files of a large lint over several coffeelint processes so all workers stay busy until the end.
+ * <ul>
+ * <li>Files are grouped by their effective config, a chunk (one process) only holds files of one config.</li>
+ * <li>The cost of a file is estimated from its size with the {@link LintCostModel}. Within a group the largest files
+ * come first, and chunks close once they are worth a few process startups, so one big file does not hold back the
+ * files that would share its process.</li>
+ * <li>Chunks are dealt to the worker with the least estimated work. A worker takes its own chunks from the head of its
+ * deque, largest first. A worker without chunks steals the last, smallest chunk of the worker with the most work left.</li>
+ * </ul>
+ * Every finished chunk is fed back to the cost model, which is saved once the run ends.
+ */
+public final class LintScheduler {
+    /** a chunk costs at least this many process startups, unless its group is smaller */
+    static final int MIN_STARTUPS_PER_CHUNK = 4;
+    /** chunks per worker to aim for, so there is something left to steal near the end */
+    static final int CHUNKS_PER_WORKER = 4;
+
+    public static final class Task {
+        @NotNull
+        final String path;
+        final long bytes;
+        @NotNull
+        final String configKey;
+
+        /**
+         * @param path      as passed to coffeelint
+         * @param configKey files with equal keys share a run, see {@link EffectiveConfigLocator#getKey}
+         */
+        public Task(@NotNull String path, long bytes, @NotNull String configKey) {
+            this.path = path;
+            this.bytes = bytes;
+            this.configKey = configKey;
+        }
+    }
+
+    public interface ChunkLinter {
+        /**
+         * Lint the files with one coffeelint process.
+         *
+         * @param configKey the effective config shared by all files
+         */
+        void lint(@NotNull String configKey, @NotNull List<String> files) throws Exception;
+    }
+
+    public static final class WorkerStats {
+        public int files;
+        public long bytes;
+        public long nanos;
+        public int chunks;
+        /** chunks taken from other workers */
+        public int steals;
+    }
+
+    static final class Chunk {
+        final String configKey;
+        final List<String> files = new ArrayList<String>();
+        long bytes;
+        long cost;
+
+        Chunk(String configKey) {
+            this.configKey = configKey;
+        }
+    }
+
+    private static final class Worker {
+        final LinkedBlockingDeque<Chunk> chunks = new LinkedBlockingDeque<Chunk>();
+        /** estimated cost of the chunks still in the deque */
+        final AtomicLong remaining = new AtomicLong();
+        final WorkerStats stats = new WorkerStats();
+    }
+
+    private final LintCostModel model;
+    private final String executable;
+    private final int workerCount;
+    private final int filesPerProcess;
+
+    /**
+     * @param executable      key of node and coffeelint in the cost model
+     * @param filesPerProcess limit of files per process, keeps command lines short enough
+     */
+    public LintScheduler(@NotNull LintCostModel model, @NotNull String executable, int workerCount, int filesPerProcess) {
+        this.model = model;
+        this.executable = executable;
+        this.workerCount = Math.max(1, workerCount);
+        this.filesPerProcess = Math.max(1, filesPerProcess);
+    }
+
+    /**
+     * Lint all tasks and wait for them. A failing chunk does not stop the others, the first failure is rethrown at the end.
+     *
+     * @return statistics of every worker
+     */
+    @NotNull
+    public List<WorkerStats> run(@NotNull List<Task> tasks, @NotNull final ChunkLinter linter) throws Exception {
+        List<Chunk> chunks = pack(tasks);
+        final List<Worker> workers = new ArrayList<Worker>();
+        for (int i = 0; i < Math.min(workerCount, chunks.size()); i++) {
+            workers.add(new Worker());
+        }
+        List<WorkerStats> stats = new ArrayList<WorkerStats>();
+        if (workers.isEmpty()) {
+            return stats;
+        }
+        deal(chunks, workers);
+
+        final AtomicInteger threadNumber = new AtomicInteger();
+        ExecutorService executor = Executors.newFixedThreadPool(workers.size(), new ThreadFactory() {
+            public Thread newThread(@NotNull Runnable r) {
+                Thread thread = new Thread(r, "CoffeeLint batch worker " + threadNumber.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+        Exception failure = null;
+        try {
+            List<Future<Exception>> futures = new ArrayList<Future<Exception>>();
+            for (final Worker worker : workers) {
+                futures.add(executor.submit(new Callable<Exception>() {
+                    public Exception call() {
+                        return work(worker, workers, linter);
+                    }
+                }));
+            }
+            for (Future<Exception> future : futures) {
+                Exception exception = future.get();
+                if (failure == null) {
+                    failure = exception;
+                }
+            }
+        } catch (ExecutionException e) {
+            throw new IllegalStateException(e.getCause());
+        } finally {
+            executor.shutdownNow();
+            model.save();
+        }
+        if (failure != null) {
+            throw failure;
+        }
+        for (Worker worker : workers) {
+            stats.add(worker.stats);
+        }
+        return stats;
+    }
+
+    /**
+     * @return the first exception of a chunk, or null
+     */
+    @Nullable
+    private Exception work(@NotNull Worker worker, @NotNull List<Worker> workers, @NotNull ChunkLinter linter) {
+        Exception failure = null;
+        long start = System.nanoTime();
+        while (true) {
+            Chunk chunk = worker.chunks.pollFirst();
+            if (chunk != null) {
+                worker.remaining.addAndGet(-chunk.cost);
+            } else {
+                chunk = steal(workers);
+                if (chunk == null) {
+                    break;
+                }
+                worker.stats.steals++;
+            }
+            long chunkStart = System.nanoTime();
+            try {
+                linter.lint(chunk.configKey, chunk.files);
+                model.record(executable, chunk.bytes, System.nanoTime() - chunkStart);
+            } catch (Exception e) {
+                if (failure == null) {
+                    failure = e;
+                }
+            }
+            worker.stats.files += chunk.files.size();
+            worker.stats.bytes += chunk.bytes;
+            worker.stats.chunks++;
+        }
+        worker.stats.nanos = System.nanoTime() - start;
+        return failure;
+    }
+
+    /**
+     * @return the last chunk of the worker with the most estimated work left, null when all deques are empty
+     */
+    @Nullable
+    private static Chunk steal(@NotNull List<Worker> workers) {
+        while (true) {
+            Worker victim = null;
+            for (Worker worker : workers) {
+                if (!worker.chunks.isEmpty() && (victim == null || worker.remaining.get() > victim.remaining.get())) {
+                    victim = worker;
+                }
+            }
+            if (victim == null) {
+                return null;
+            }
+            Chunk chunk = victim.chunks.pollLast();
+            if (chunk != null) {
+                victim.remaining.addAndGet(-chunk.cost);
+                return chunk;
+            }
+            // the owner or another thief was faster, look again
+        }
+    }
+
+    /**
+     * Group the tasks by config and cut every group into chunks, largest files first.
+     */
+    @NotNull
+    List<Chunk> pack(@NotNull List<Task> tasks) {
+        Map<String, List<Task>> groups = new LinkedHashMap<String, List<Task>>();
+        long totalCost = 0;
+        for (Task task : tasks) {
+            List<Task> group = groups.get(task.configKey);
+            if (group == null) {
+                group = new ArrayList<Task>();
+                groups.put(task.configKey, group);
+            }
+            group.add(task);
+            totalCost += model.estimateNanos(executable, task.bytes);
+        }
+        long startup = model.getStartupNanos(executable);
+        long targetCost = Math.max(MIN_STARTUPS_PER_CHUNK * startup, totalCost / (workerCount * CHUNKS_PER_WORKER));
+
+        List<Chunk> chunks = new ArrayList<Chunk>();
+        for (List<Task> group : groups.values()) {
+            Collections.sort(group, new Comparator<Task>() {
+                public int compare(Task a, Task b) {
+                    return a.bytes < b.bytes ? 1 : a.bytes > b.bytes ? -1 : 0;
+                }
+            });
+            Chunk chunk = null;
+            for (Task task : group) {
+                if (chunk == null || chunk.cost >= targetCost || chunk.files.size() >= filesPerProcess) {
+                    chunk = new Chunk(task.configKey);
+                    chunk.cost = startup;
+                    chunks.add(chunk);
+                }
+                chunk.files.add(task.path);
+                chunk.bytes += task.bytes;
+                chunk.cost += model.estimateNanos(executable, task.bytes);
+            }
+        }
+        return chunks;
+    }
+
+    /**
+     * Longest processing time first: the most expensive chunk goes to the worker with the least work so far,
+     * every deque ends up ordered from its most to its least expensive chunk.
+     */
+    private static void deal(@NotNull List<Chunk> chunks, @NotNull List<Worker> workers) {
+        List<Chunk> byCost = new ArrayList<Chunk>(chunks);
+        Collections.sort(byCost, new Comparator<Chunk>() {
+            public int compare(Chunk a, Chunk b) {
+                return a.cost < b.cost ? 1 : a.cost > b.cost ? -1 : 0;
+            }
+        });
+        for (Chunk chunk : byCost) {
+            Worker least = workers.get(0);
+            for (Worker worker : workers) {
+                if (worker.remaining.get() < least.remaining.get()) {
+                    least = worker;
+                }
+            }
+            least.chunks.addLast(chunk);
+            least.remaining.addAndGet(chunk.cost);
+        }
+    }
+}
@@ -0,0 +1,100 @@
+package com.coffeelint.batch;
+
+import com.coffeelint.settings.Settings;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.w3c.dom.Element;
+import org.w3c.dom.Node;
+import org.w3c.dom.NodeList;
+
+import javax.xml.parsers.DocumentBuilderFactory;
+import java.io.File;
+import java.io.IOException;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+
+/**
+ * Reads the {@link Settings} the IDE stores in .idea/coffeelintPlugin.xml, without an IDE:
+ * <pre>
+ * &lt;component name="CoffeeLintProjectComponent"&gt;
+ *   &lt;option name="configFile" value="$PROJECT_DIR$/coffeelint.json" /&gt;
+ * &lt;/component&gt;
+ * </pre>
+ * Options left at their default are not stored and keep the default. $PROJECT_DIR$ and $USER_HOME$ are expanded.
+ */
+public final class PluginSettingsReader {
+    public static final String FILE_NAME = "coffeelintPlugin.xml";
+    static final String COMPONENT = "CoffeeLintProjectComponent";
+
+    private PluginSettingsReader() {
+    }
+
+    @NotNull
+    public static File getDefaultFile(@NotNull File projectDirectory) {
+        return new File(new File(projectDirectory, ".idea"), FILE_NAME);
+    }
+
+    @NotNull
+    public static Settings read(@NotNull File file, @NotNull File projectDirectory) throws IOException {
+        Element root;
+        try {
+            DocumentBuilderFactory factory = DocumentBuilderFactory.newInstance();
+            factory.setExpandEntityReferences(false);
+            root = factory.newDocumentBuilder().parse(file).getDocumentElement();
+        } catch (IOException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new IOException("Could not parse " + file + ": " + e.getMessage());
+        }
+        Settings settings = new Settings();
+        NodeList components = root.getElementsByTagName("component");
+        for (int i = 0; i < components.getLength(); i++) {
+            Element component = (Element) components.item(i);
+            if (!COMPONENT.equals(component.getAttribute("name"))) {
+                continue;
+            }
+            for (Node child = component.getFirstChild(); child != null; child = child.getNextSibling()) {
+                if (child instanceof Element && "option".equals(child.getNodeName())) {
+                    Element option = (Element) child;
+                    set(settings, option.getAttribute("name"), expandMacros(option.getAttribute("value"), projectDirectory));
+                }
+            }
+        }
+        return settings;
+    }
+
+    private static void set(@NotNull Settings settings, @NotNull String name, @NotNull String value) throws IOException {
+        Field field;
+        try {
+            field = Settings.class.getField(name);
+        } catch (NoSuchFieldException e) {
+            // written by another version of the plugin
+            return;
+        }
+        if (Modifier.isStatic(field.getModifiers())) {
+            return;
+        }
+        try {
+            if (field.getType() == String.class) {
+                field.set(settings, value);
+            } else if (field.getType() == boolean.class) {
+                field.setBoolean(settings, Boolean.parseBoolean(value));
+            } else if (field.getType() == int.class) {
+                field.setInt(settings, Integer.parseInt(value));
+            }
+        } catch (NumberFormatException e) {
+            throw new IOException("Invalid value of " + name + ": " + value);
+        } catch (IllegalAccessException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    @Nullable
+    static String expandMacros(@Nullable String value, @NotNull File projectDirectory) {
+        if (value == null) {
+            return null;
+        }
+        return value.replace("$PROJECT_DIR$", projectDirectory.getAbsolutePath())
+                .replace("$USER_HOME$", System.getProperty("user.home"));
+    }
+}
@@ -0,0 +1,145 @@
+package com.coffeelint.batch;
+
+import com.coffeelint.cli.IssueTable;
+import com.coffeelint.cli.Severity;
+import org.jetbrains.annotations.NotNull;
+
+import javax.xml.stream.XMLOutputFactory;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * Writes the issues of a batch run as one checkstyle report, the format coffeelint itself reports,
+ * or as a SARIF 2.1.0 log for code scanning services.
+ */
+public final class ReportWriter {
+    public enum Format {
+        CHECKSTYLE,
+        SARIF
+    }
+
+    private ReportWriter() {
+    }
+
+    /**
+     * @param results issues by path, written in the map's order
+     */
+    public static void write(@NotNull Format format, @NotNull Map<String, IssueTable> results, @NotNull Writer out) throws IOException {
+        if (format == Format.SARIF) {
+            writeSarif(results, out);
+        } else {
+            writeCheckstyle(results, out);
+        }
+        out.flush();
+    }
+
+    static void writeCheckstyle(@NotNull Map<String, IssueTable> results, @NotNull Writer out) throws IOException {
+        try {
+            XMLStreamWriter xml = XMLOutputFactory.newInstance().createXMLStreamWriter(out);
+            xml.writeStartDocument("utf-8", "1.0");
+            xml.writeCharacters("\n");
+            xml.writeStartElement("checkstyle");
+            xml.writeAttribute("version", "4.3");
+            xml.writeCharacters("\n");
+            for (Map.Entry<String, IssueTable> entry : results.entrySet()) {
+                IssueTable issues = entry.getValue();
+                xml.writeStartElement("file");
+                xml.writeAttribute("name", entry.getKey());
+                xml.writeCharacters("\n");
+                for (int i = 0; i < issues.size(); i++) {
+                    xml.writeEmptyElement("error");
+                    xml.writeAttribute("line", String.valueOf(issues.getLine(i)));
+                    if (issues.getColumn(i) != IssueTable.NO_COLUMN) {
+                        xml.writeAttribute("column", String.valueOf(issues.getColumn(i)));
+                    }
+                    xml.writeAttribute("severity", issues.getSeverity(i).id);
+                    xml.writeAttribute("message", issues.getMessage(i));
+                    xml.writeAttribute("source", issues.getSource(i));
+                    xml.writeCharacters("\n");
+                }
+                xml.writeEndElement();
+                xml.writeCharacters("\n");
+            }
+            xml.writeEndElement();
+            xml.writeCharacters("\n");
+            xml.writeEndDocument();
+            xml.close();
+        } catch (XMLStreamException e) {
+            throw new IOException(e.getMessage());
+        }
+    }
+
+    static void writeSarif(@NotNull Map<String, IssueTable> results, @NotNull Writer out) throws IOException {
+        Set<String> rules = new TreeSet<String>();
+        for (IssueTable issues : results.values()) {
+            for (int i = 0; i < issues.size(); i++) {
+                rules.add(issues.getRule(i));
+            }
+        }
+        out.write("{\n  \"version\": \"2.1.0\",\n");
+        out.write("  \"$schema\": \"https://json.schemastore.org/sarif-2.1.0.json\",\n");
+        out.write("  \"runs\": [{\n    \"tool\": {\"driver\": {\"name\": \"coffeelint\", \"informationUri\": \"http://www.coffeelint.org\", \"rules\": [");
+        boolean first = true;
+        for (String rule : rules) {
+            out.write(first ? "\n" : ",\n");
+            out.write("      {\"id\": " + quote(rule) + "}");
+            first = false;
+        }
+        out.write("]}},\n    \"results\": [");
+        first = true;
+        for (Map.Entry<String, IssueTable> entry : results.entrySet()) {
+            IssueTable issues = entry.getValue();
+            for (int i = 0; i < issues.size(); i++) {
+                out.write(first ? "\n" : ",\n");
+                out.write("      {\"ruleId\": " + quote(issues.getRule(i)));
+                out.write(", \"level\": " + (issues.getSeverity(i) == Severity.ERROR ? "\"error\"" : "\"warning\""));
+                out.write(", \"message\": {\"text\": " + quote(issues.getMessage(i)) + "}");
+                out.write(", \"locations\": [{\"physicalLocation\": {\"artifactLocation\": {\"uri\": " + quote(entry.getKey()) + "}");
+                out.write(", \"region\": {\"startLine\": " + Math.max(1, issues.getLine(i)));
+                if (issues.getColumn(i) != IssueTable.NO_COLUMN) {
+                    out.write(", \"startColumn\": " + issues.getColumn(i));
+                }
+                out.write("}}}]}");
+                first = false;
+            }
+        }
+        out.write("]\n  }]\n}\n");
+    }
+
+    @NotNull
+    static String quote(@NotNull String text) {
+        StringBuilder json = new StringBuilder(text.length() + 2).append('"');
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            switch (c) {
+                case '"':
+                    json.append("\\\"");
+                    break;
+                case '\\':
+                    json.append("\\\\");
+                    break;
+                case '\n':
+                    json.append("\\n");
+                    break;
+                case '\r':
+                    json.append("\\r");
+                    break;
+                case '\t':
+                    json.append("\\t");
+                    break;
+                default:
+                    if (c < 0x20) {
+                        json.append(String.format("\\u%04x", (int) c));
+                    } else {
+                        json.append(c);
+                    }
+            }
+        }
+        return json.append('"').toString();
+    }
+}
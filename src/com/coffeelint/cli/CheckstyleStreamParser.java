@@ -0,0 +1,88 @@
+package com.coffeelint.cli;
+
+import com.intellij.util.Consumer;
+import org.jetbrains.annotations.NotNull;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import java.io.InputStream;
+
+/**
+ * Pull parser for coffeelint's checkstyle output.
+ * Reads the stream as it is produced and hands over every file as soon as its closing tag is read,
+ * so memory is bounded by the largest single file instead of the whole report.
+ */
+public final class CheckstyleStreamParser {
+    private static final XMLInputFactory FACTORY = createFactory();
+
+    private CheckstyleStreamParser() {
+    }
+
+    private static XMLInputFactory createFactory() {
+        XMLInputFactory factory = XMLInputFactory.newInstance();
+        factory.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+        factory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+        factory.setProperty(XMLInputFactory.IS_COALESCING, true);
+        return factory;
+    }
+
+    /**
+     * @param consumer receives one result per reported file, with {@code coffeeLint.file.name} set.
+     *                 coffeelint does not report files without issues.
+     * @return the checkstyle version attribute, or null
+     */
+    public static String parse(@NotNull InputStream in, @NotNull Consumer<LintResult> consumer) throws XMLStreamException {
+        XMLStreamReader reader;
+        synchronized (FACTORY) {
+            reader = FACTORY.createXMLStreamReader(in);
+        }
+        String version = null;
+        String fileName = null;
+        IssueTable.Builder builder = null;
+        try {
+            while (reader.hasNext()) {
+                int event = reader.next();
+                if (event == XMLStreamConstants.START_ELEMENT) {
+                    String name = reader.getLocalName();
+                    if ("error".equals(name)) {
+                        if (builder == null) {
+                            continue;
+                        }
+                        builder.add(reader.getAttributeValue(null, "source"),
+                                parseInt(reader.getAttributeValue(null, "line")),
+                                parseInt(reader.getAttributeValue(null, "column")),
+                                reader.getAttributeValue(null, "severity"),
+                                reader.getAttributeValue(null, "message"));
+                    } else if ("file".equals(name)) {
+                        fileName = reader.getAttributeValue(null, "name");
+                        builder = new IssueTable.Builder(16);
+                    } else if ("checkstyle".equals(name)) {
+                        version = reader.getAttributeValue(null, "version");
+                    }
+                } else if (event == XMLStreamConstants.END_ELEMENT && "file".equals(reader.getLocalName()) && builder != null) {
+                    LintResult result = LintResult.of(builder.build());
+                    result.coffeeLint.version = version;
+                    result.coffeeLint.file.name = fileName;
+                    builder = null;
+                    consumer.consume(result);
+                }
+            }
+        } finally {
+            reader.close();
+        }
+        return version;
+    }
+
+    private static int parseInt(String value) {
+        if (value == null) {
+            return 0;
+        }
+        try {
+            return Integer.parseInt(value.trim());
+        } catch (NumberFormatException e) {
+            return 0;
+        }
+    }
+}
@@ -0,0 +1,94 @@
+package com.coffeelint.cli;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * The builtin coffeelint rules.
+ * The checkstyle reporter of coffeelint 1.x reports every issue with source "coffeelint",
+ * so the rule is recovered from the message, which is fixed per rule.
+ */
+public final class CoffeeLintRules {
+    public static final String COFFEELINT_SOURCE = "coffeelint";
+
+    private static final Set<String> BUILTIN_RULES = new LinkedHashSet<String>();
+    private static final Map<String, String> RULE_BY_MESSAGE = new LinkedHashMap<String, String>();
+
+    static {
+        rule("arrow_spacing", "Function arrows (-> and =>) must be spaced properly");
+        rule("braces_spacing", "Curly braces must have the proper spacing");
+        rule("camel_case_classes", "Class name should be UpperCamelCased");
+        // coffeescript_error reports the compiler message, which is not known up front
+        rule("coffeescript_error", null);
+        rule("colon_assignment_spacing", "Colon assignment without proper spacing");
+        rule("cyclomatic_complexity", "The cyclomatic complexity is too damn high");
+        rule("duplicate_key", "Duplicate key defined in object or class");
+        rule("empty_constructor_needs_parens", "Invoking a constructor without parens and without arguments");
+        rule("ensure_comprehensions", "Comprehensions must have parentheses around them");
+        rule("indentation", "Line contains inconsistent indentation");
+        rule("line_endings", "Line contains incorrect line endings");
+        rule("max_line_length", "Line exceeds maximum allowed length");
+        rule("missing_fat_arrows", "Used `this` in a function without a fat arrow");
+        rule("newlines_after_classes", "Wrong count of newlines between a class and other code");
+        rule("no_backticks", "Backticks are forbidden");
+        rule("no_debugger", "Found debugging code");
+        rule("no_empty_functions", "Empty function");
+        rule("no_empty_param_list", "Empty parameter list is forbidden");
+        rule("no_implicit_braces", "Implicit braces are forbidden");
+        rule("no_implicit_parens", "Implicit parens are forbidden");
+        rule("no_interpolation_in_single_quotes", "Interpolation in single quoted strings is forbidden");
+        rule("no_plusplus", "The increment and decrement operators are forbidden");
+        rule("no_stand_alone_at", "@ must not be used stand alone");
+        rule("no_tabs", "Line contains tab indentation");
+        rule("no_this", "Don't use 'this', use '@' instead");
+        rule("no_throwing_strings", "Throwing strings is forbidden");
+        rule("no_trailing_semicolons", "Line contains a trailing semicolon");
+        rule("no_trailing_whitespace", "Line ends with trailing whitespace");
+        rule("no_unnecessary_double_quotes", "Unnecessary double quotes are forbidden");
+        rule("no_unnecessary_fat_arrows", "Unnecessary fat arrow");
+        rule("non_empty_constructor_needs_parens", "Invoking a constructor without parens and with arguments");
+        rule("prefer_english_operator", "Don't use &&, ||, ==, !=, or !");
+        rule("space_operators", "Operators must be spaced properly");
+        rule("spacing_after_comma", "Spaces are required after commas");
+        rule("transform_messes_up_line_numbers", "Transforming source messes up line numbers");
+    }
+
+    private CoffeeLintRules() {
+    }
+
+    private static void rule(@NotNull String name, @Nullable String message) {
+        BUILTIN_RULES.add(name);
+        if (message != null) {
+            RULE_BY_MESSAGE.put(message, name);
+        }
+    }
+
+    @NotNull
+    public static Set<String> getBuiltinRuleNames() {
+        return Collections.unmodifiableSet(BUILTIN_RULES);
+    }
+
+    /**
+     * @return the source when it names the rule, otherwise the rule matching the message, or the source when the message is unknown
+     */
+    @NotNull
+    public static String resolve(@Nullable String source, @Nullable String message) {
+        if (source != null && !source.isEmpty() && !COFFEELINT_SOURCE.equals(source)) {
+            return source;
+        }
+        if (message != null) {
+            for (Map.Entry<String, String> entry : RULE_BY_MESSAGE.entrySet()) {
+                if (message.startsWith(entry.getKey())) {
+                    return entry.getValue();
+                }
+            }
+        }
+        return source == null ? COFFEELINT_SOURCE : source;
+    }
+}
@@ -1,16 +1,36 @@
 package com.coffeelint.cli;
 
+import com.coffeelint.metrics.LintMetrics;
+import com.coffeelint.metrics.LintTracer;
 import com.intellij.execution.ExecutionException;
 import com.intellij.execution.configurations.GeneralCommandLine;
 import com.intellij.execution.process.ProcessOutput;
 import com.intellij.openapi.diagnostic.Logger;
 import com.intellij.openapi.util.text.StringUtil;
+import com.intellij.openapi.vfs.CharsetToolkit;
+import com.intellij.util.Consumer;
 import com.wix.nodejs.NodeRunner;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
+import javax.xml.stream.XMLStreamException;
 import java.io.File;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.Reader;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadFactory;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 public final class CoffeeLintRunner {
     private CoffeeLintRunner() {
@@ -18,7 +38,18 @@ public final class CoffeeLintRunner {
 
     private static final Logger LOG = Logger.getInstance(CoffeeLintRunner.class);
 
-    private static final int TIME_OUT = (int) TimeUnit.SECONDS.toMillis(120L);
+    public static final int TIME_OUT = (int) TimeUnit.SECONDS.toMillis(120L);
+    private static final int MAX_ERROR_OUTPUT = 64 * 1024;
+    /** how often a running process checks whether the thread waiting for it was interrupted */
+    private static final long INTERRUPT_POLL_MILLIS = 100L;
+
+    private static final ScheduledExecutorService WATCHDOG = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+        public Thread newThread(@NotNull Runnable r) {
+            Thread thread = new Thread(r, "CoffeeLint process watchdog");
+            thread.setDaemon(true);
+            return thread;
+        }
+    });
 
     public static class CoffeeLintSettings {
         public String node;
@@ -28,6 +59,12 @@ public final class CoffeeLintRunner {
         public String config;
         public String cwd;
         public String targetFile;
+        /** milliseconds before the process is killed */
+        public int timeout = TIME_OUT;
+        /** whether node reuses compiled code from the {@link CompileCache} */
+        public boolean compileCache;
+        /** OS scheduling class of the process */
+        public ProcessPriority priority = ProcessPriority.NORMAL;
     }
 
     public static CoffeeLintSettings buildSettings(@NotNull String cwd, @NotNull String path, @NotNull String node, @NotNull String executable, @Nullable String configFile, @Nullable String rulesdir, @Nullable String extensions) {
@@ -47,22 +84,16 @@ public final class CoffeeLintRunner {
     }
 
     public static LintResult lint(@NotNull CoffeeLintSettings settings) {
-        LintResult result = new LintResult();
+        final LintResult result = new LintResult();
         try {
             GeneralCommandLine commandLine = createCommandLineLint(settings);
             addParam(commandLine, "--reporter", "checkstyle");
-            ProcessOutput out = NodeRunner.execute(commandLine, TIME_OUT);
-//            if (out.getExitCode() != 0) {
-                result.errorOutput = out.getStderr();
-                try {
-                    result.coffeeLint = CoffeeLint.read(out.getStdout());
-                } catch (Exception e) {
-                    LOG.error(e);
-                    //result.errorOutput = out.getStdout();
+            result.errorOutput = execute(settings, settings.targetFile, commandLine, null, new Consumer<LintResult>() {
+                public void consume(LintResult file) {
+                    result.coffeeLint = file.coffeeLint;
+                    result.issues = file.issues;
                 }
-//            } else {
-//                LOG.debug("");
-//            }
+            }).errorOutput;
         } catch (Exception e) {
             e.printStackTrace();
             result.errorOutput = e.toString();
@@ -70,11 +101,309 @@ public final class CoffeeLintRunner {
         return result;
     }
 
+    /**
+     * Lint content that is passed to coffeelint on stdin, {@code settings.targetFile} is ignored.
+     * coffeelint looks up coffeelint.json from the working directory in this mode, so callers should pass a config file.
+     */
+    public static LintResult lint(@NotNull CoffeeLintSettings settings, @NotNull CharSequence content) {
+        final LintResult result = new LintResult();
+        try {
+            GeneralCommandLine commandLine = createCommandLineLint(settings, Collections.<String>emptyList());
+            commandLine.addParameter("--stdin");
+            addParam(commandLine, "--reporter", "checkstyle");
+            result.errorOutput = execute(settings, settings.targetFile, commandLine, content, new Consumer<LintResult>() {
+                public void consume(LintResult file) {
+                    result.coffeeLint = file.coffeeLint;
+                    result.issues = file.issues;
+                }
+            }).errorOutput;
+        } catch (Exception e) {
+            LOG.warn(e);
+            result.errorOutput = e.toString();
+        }
+        return result;
+    }
+
+    /**
+     * Lint several files with a single coffeelint process.
+     * Results are handed to the consumer while the output is parsed, one per file, including files without issues.
+     *
+     * @return a result carrying only the error output of the run
+     */
+    public static LintResult lintFiles(@NotNull CoffeeLintSettings settings, @NotNull List<String> files, @NotNull final Consumer<LintResult> consumer) {
+        LintResult result = new LintResult();
+        if (files.isEmpty()) {
+            return result;
+        }
+        final Set<String> reported = new HashSet<String>();
+        try {
+            GeneralCommandLine commandLine = createCommandLineLint(settings, files);
+            addParam(commandLine, "--reporter", "checkstyle");
+            Output output = execute(settings, files.size() + " files", commandLine, null, new Consumer<LintResult>() {
+                public void consume(LintResult file) {
+                    reported.add(file.coffeeLint.file.name);
+                    consumer.consume(file);
+                }
+            });
+            result.errorOutput = output.errorOutput;
+            if (output.complete) {
+                // coffeelint only reports files with issues
+                for (String file : files) {
+                    if (!reported.contains(file)) {
+                        LintResult clean = LintResult.of(IssueTable.EMPTY);
+                        clean.coffeeLint.file.name = file;
+                        consumer.consume(clean);
+                    }
+                }
+            }
+        } catch (Exception e) {
+            LOG.warn(e);
+            result.errorOutput = e.toString();
+        }
+        return result;
+    }
+
+    private static class Output {
+        /** whether the whole checkstyle report was read */
+        boolean complete;
+        String errorOutput;
+    }
+
+    /**
+     * Run the command and parse its stdout while it is being produced.
+     * Only the first {@link #MAX_ERROR_OUTPUT} characters of stderr are kept.
+     *
+     * @param tracePath what is linted, as shown in traces
+     * @param stdin     written to the process and closed before the output is read, coffeelint reads all of stdin before it lints
+     */
+    @NotNull
+    private static Output execute(@NotNull CoffeeLintSettings settings, @Nullable String tracePath, @NotNull GeneralCommandLine commandLine,
+                                  @Nullable CharSequence stdin, @NotNull Consumer<LintResult> consumer) throws ExecutionException {
+        LintMetrics metrics = LintMetrics.getInstance();
+        LintTracer tracer = LintTracer.getInstance();
+        int size = stdin == null ? LintTracer.UNKNOWN : stdin.length();
+        IssueCounter issueCounter = null;
+        if (tracer.isEnabled()) {
+            issueCounter = new IssueCounter(consumer);
+            consumer = issueCounter;
+        }
+        metrics.increment(LintMetrics.Counter.RUNS);
+        settings.priority.count(metrics);
+        long spawnStart = System.nanoTime();
+        final Process process = commandLine.createProcess();
+        long started = System.nanoTime();
+        metrics.recordNanos(LintMetrics.Stage.SPAWN, started - spawnStart);
+        if (issueCounter != null) {
+            tracer.record(LintTracer.Kind.PROCESS_STARTED, tracePath, size, LintTracer.UNKNOWN, settings.config, started - spawnStart);
+        }
+        metrics.enter(LintMetrics.Gauge.PROCESSES_IN_FLIGHT);
+        final AtomicBoolean timedOut = new AtomicBoolean();
+        ScheduledFuture<?> watchdog = WATCHDOG.schedule(new Runnable() {
+            public void run() {
+                timedOut.set(true);
+                process.destroy();
+            }
+        }, settings.timeout, TimeUnit.MILLISECONDS);
+        // an interrupt cannot end a blocking pipe read, killing the process does
+        final Thread caller = Thread.currentThread();
+        final AtomicBoolean interrupted = new AtomicBoolean();
+        ScheduledFuture<?> interruptWatch = WATCHDOG.scheduleWithFixedDelay(new Runnable() {
+            public void run() {
+                if (caller.isInterrupted() && !interrupted.getAndSet(true)) {
+                    process.destroy();
+                }
+            }
+        }, INTERRUPT_POLL_MILLIS, INTERRUPT_POLL_MILLIS, TimeUnit.MILLISECONDS);
+        ErrorOutputReader stderr = new ErrorOutputReader(process.getErrorStream());
+        stderr.start();
+        FirstReadInputStream stdout = new FirstReadInputStream(process.getInputStream());
+        Output output = new Output();
+        String parseFailure = null;
+        try {
+            writeStdin(process, stdin);
+            boolean ended = false;
+            try {
+                CheckstyleStreamParser.parse(stdout, consumer);
+                output.complete = true;
+                ended = true;
+            } catch (XMLStreamException e) {
+                ended = true;
+                if (!timedOut.get() && !interrupted.get()) {
+                    metrics.increment(LintMetrics.Counter.PARSE_FAILURES);
+                    LOG.warn("Could not parse coffeelint output", e);
+                    parseFailure = "Could not parse coffeelint output: " + e.getMessage();
+                }
+            } finally {
+                long parsed = System.nanoTime();
+                long firstRead = stdout.getFirstReadNanos() == 0 ? parsed : stdout.getFirstReadNanos();
+                metrics.recordNanos(LintMetrics.Stage.EXECUTE, firstRead - started);
+                metrics.recordNanos(LintMetrics.Stage.PARSE, parsed - firstRead);
+                if (issueCounter != null) {
+                    tracer.record(LintTracer.Kind.OUTPUT_PARSED, tracePath, size, issueCounter.count, settings.config, parsed - started);
+                }
+                if (ended) {
+                    drain(stdout);
+                } else {
+                    // the consumer or the parser threw, e.g. on cancellation, nobody reads the rest
+                    process.destroy();
+                }
+            }
+            if (interrupted.get()) {
+                throw new InterruptedException("coffeelint was interrupted");
+            }
+            process.waitFor();
+            stderr.join();
+        } catch (InterruptedException e) {
+            process.destroy();
+            Thread.currentThread().interrupt();
+            throw new ExecutionException(e);
+        } finally {
+            watchdog.cancel(false);
+            interruptWatch.cancel(false);
+            metrics.exit(LintMetrics.Gauge.PROCESSES_IN_FLIGHT);
+        }
+        if (timedOut.get()) {
+            metrics.increment(LintMetrics.Counter.TIMEOUTS);
+            throw new ExecutionException("CoffeeLint timed out after " + settings.timeout + " ms");
+        }
+        output.errorOutput = stderr.getOutput();
+        if (parseFailure != null && StringUtil.isEmpty(output.errorOutput)) {
+            // without a report the file is not known to be clean, fail like a run with error output so nothing is cached
+            output.errorOutput = parseFailure;
+        }
+        return output;
+    }
+
+    /**
+     * Counts the issues passing to the consumer, only used while tracing.
+     */
+    private static class IssueCounter implements Consumer<LintResult> {
+        private final Consumer<LintResult> delegate;
+        int count;
+
+        IssueCounter(Consumer<LintResult> delegate) {
+            this.delegate = delegate;
+        }
+
+        public void consume(LintResult result) {
+            count += result.issues.size();
+            delegate.consume(result);
+        }
+    }
+
+    private static void writeStdin(@NotNull Process process, @Nullable CharSequence stdin) {
+        OutputStream out = process.getOutputStream();
+        try {
+            if (stdin != null) {
+                StdinWriter.write(stdin, out);
+            }
+        } catch (IOException e) {
+            // the process exited early, its output tells why
+            LOG.debug(e);
+        } finally {
+            try {
+                out.close();
+            } catch (IOException ignored) {
+            }
+        }
+    }
+
+    private static void drain(InputStream in) {
+        byte[] buffer = new byte[8192];
+        try {
+            while (in.read(buffer) >= 0) {
+                // discard
+            }
+        } catch (IOException ignored) {
+        } finally {
+            try {
+                in.close();
+            } catch (IOException ignored) {
+            }
+        }
+    }
+
+    /**
+     * Remembers when the process first produced output, which separates node execution from parsing.
+     */
+    private static class FirstReadInputStream extends FilterInputStream {
+        private long firstReadNanos;
+
+        FirstReadInputStream(InputStream in) {
+            super(in);
+        }
+
+        @Override
+        public int read() throws IOException {
+            int b = super.read();
+            if (b >= 0 && firstReadNanos == 0) {
+                firstReadNanos = System.nanoTime();
+            }
+            return b;
+        }
+
+        @Override
+        public int read(@NotNull byte[] b, int off, int len) throws IOException {
+            int read = super.read(b, off, len);
+            if (read > 0 && firstReadNanos == 0) {
+                firstReadNanos = System.nanoTime();
+            }
+            return read;
+        }
+
+        long getFirstReadNanos() {
+            return firstReadNanos;
+        }
+    }
+
+    /**
+     * Reads stderr on its own thread so the process never blocks on a full pipe, keeping a bounded prefix.
+     */
+    private static class ErrorOutputReader extends Thread {
+        private final InputStream in;
+        private final StringBuilder output = new StringBuilder();
+
+        ErrorOutputReader(InputStream in) {
+            super("CoffeeLint stderr reader");
+            setDaemon(true);
+            this.in = in;
+        }
+
+        @Override
+        public void run() {
+            Reader reader = new InputStreamReader(in, CharsetToolkit.UTF8_CHARSET);
+            char[] buffer = new char[4096];
+            try {
+                int read;
+                while ((read = reader.read(buffer)) >= 0) {
+                    synchronized (output) {
+                        int keep = Math.min(read, MAX_ERROR_OUTPUT - output.length());
+                        if (keep > 0) {
+                            output.append(buffer, 0, keep);
+                        }
+                    }
+                }
+            } catch (IOException ignored) {
+            } finally {
+                try {
+                    reader.close();
+                } catch (IOException ignored) {
+                }
+            }
+        }
+
+        String getOutput() {
+            synchronized (output) {
+                return output.toString();
+            }
+        }
+    }
+
     @NotNull
     private static ProcessOutput version(@NotNull CoffeeLintSettings settings) throws ExecutionException {
         GeneralCommandLine commandLine = createCommandLine(settings);
         commandLine.addParameter("-v");
-        return NodeRunner.execute(commandLine, TIME_OUT);
+        return NodeRunner.execute(commandLine, settings.timeout);
     }
 
     @NotNull
@@ -92,17 +421,27 @@ public final class CoffeeLintRunner {
 
     @NotNull
     private static GeneralCommandLine createCommandLine(@NotNull CoffeeLintSettings settings) {
-        return NodeRunner.createCommandLine(settings.cwd, settings.node, settings.executablePath);
+        GeneralCommandLine commandLine = NodeRunner.createCommandLine(settings.cwd, settings.node, settings.executablePath);
+        if (settings.compileCache) {
+            CompileCache.getInstance().configure(commandLine, settings);
+        }
+        return commandLine;
     }
 
     @NotNull
     private static GeneralCommandLine createCommandLineLint(@NotNull CoffeeLintSettings settings) {
+        return createCommandLineLint(settings, Collections.singletonList(settings.targetFile));
+    }
+
+    @NotNull
+    static GeneralCommandLine createCommandLineLint(@NotNull CoffeeLintSettings settings, @NotNull List<String> files) {
         GeneralCommandLine commandLine = createCommandLine(settings);
         // TODO validate arguments (file exist etc)
-        commandLine.addParameter(settings.targetFile);
+        commandLine.addParameters(files);
         addParamIfNotEmpty(commandLine, "-f", settings.config);
         addParamIfNotEmpty(commandLine, "--rules", settings.rules);
         addParamIfNotEmpty(commandLine, "--ext", settings.extensions);
+        settings.priority.apply(commandLine);
         return commandLine;
     }
 
@@ -0,0 +1,223 @@
+package com.coffeelint.cli;
+
+import com.intellij.execution.ExecutionException;
+import com.intellij.execution.configurations.GeneralCommandLine;
+import com.intellij.execution.process.ProcessOutput;
+import com.intellij.openapi.application.PathManager;
+import com.intellij.openapi.diagnostic.Logger;
+import com.intellij.openapi.util.io.FileUtil;
+import com.intellij.openapi.vfs.CharsetToolkit;
+import com.wix.nodejs.NodeRunner;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.File;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Plugin managed V8 compile cache directories, so coffeelint processes reuse the compiled code of coffeelint,
+ * coffee-script and custom rules from earlier runs instead of compiling them on every start.
+ * The directory is handed to node in {@link #ENV}, which node 22.1 and later honour and older versions ignore.
+ * <pre>
+ * &lt;root&gt;/&lt;hash of node and executable paths&gt;/&lt;coffeelint version&gt;-node&lt;node version&gt;
+ * </pre>
+ * Versions are looked up on a background thread the first time an executable is used, runs start without a cache until then.
+ * Directories of other versions of the same executable are deleted when a new version is seen,
+ * and executables that have not been used for {@link #MAX_AGE_MILLIS} are pruned.
+ */
+public final class CompileCache {
+    private static final Logger LOG = Logger.getInstance(CompileCache.class);
+
+    public static final String ENV = "NODE_COMPILE_CACHE";
+
+    static final long MAX_AGE_MILLIS = TimeUnit.DAYS.toMillis(30L);
+    /** how often the versions of an executable are checked again, they change when it is upgraded in place */
+    static final long RECHECK_MILLIS = TimeUnit.MINUTES.toMillis(10L);
+
+    private static CompileCache instance;
+
+    private static final ExecutorService RESOLVER = Executors.newSingleThreadExecutor(new ThreadFactory() {
+        public Thread newThread(@NotNull Runnable r) {
+            Thread thread = new Thread(r, "CoffeeLint compile cache");
+            thread.setDaemon(true);
+            return thread;
+        }
+    });
+
+    private final File root;
+    /** node + '\n' + executable -> resolved directory */
+    private final ConcurrentMap<String, Entry> entries = new ConcurrentHashMap<String, Entry>();
+
+    private static final class Entry {
+        @Nullable
+        final File directory;
+        final long resolvedMillis;
+
+        Entry(@Nullable File directory, long resolvedMillis) {
+            this.directory = directory;
+            this.resolvedMillis = resolvedMillis;
+        }
+    }
+
+    CompileCache(@NotNull File root) {
+        this.root = root;
+    }
+
+    @NotNull
+    public static synchronized CompileCache getInstance() {
+        if (instance == null) {
+            instance = new CompileCache(new File(PathManager.getSystemPath(), "coffeelint" + File.separatorChar + "compile-cache"));
+            instance.pruneLater();
+        }
+        return instance;
+    }
+
+    @NotNull
+    public File getRoot() {
+        return root;
+    }
+
+    /**
+     * Point the command line at the cache directory of its executable, once the versions are known.
+     */
+    public void configure(@NotNull GeneralCommandLine commandLine, @NotNull CoffeeLintRunner.CoffeeLintSettings settings) {
+        File directory = getDirectory(settings);
+        if (directory != null) {
+            commandLine.getEnvironment().put(ENV, directory.getPath());
+        }
+    }
+
+    /**
+     * @return the cache directory of the executable, or null while its versions are being looked up or could not be
+     */
+    @Nullable
+    public File getDirectory(@NotNull final CoffeeLintRunner.CoffeeLintSettings settings) {
+        final String key = settings.node + '\n' + settings.executablePath;
+        Entry entry = entries.get(key);
+        long now = System.currentTimeMillis();
+        if (entry == null || now - entry.resolvedMillis > RECHECK_MILLIS) {
+            // look up once, concurrent runs keep using the previous directory meanwhile
+            Entry resolving = new Entry(entry == null ? null : entry.directory, now);
+            boolean first = entry == null ? entries.putIfAbsent(key, resolving) == null : entries.replace(key, entry, resolving);
+            if (first) {
+                RESOLVER.submit(new Runnable() {
+                    public void run() {
+                        File directory = resolve(settings);
+                        entries.put(key, new Entry(directory, System.currentTimeMillis()));
+                    }
+                });
+            }
+            return resolving.directory;
+        }
+        return entry.directory;
+    }
+
+    @Nullable
+    private File resolve(@NotNull CoffeeLintRunner.CoffeeLintSettings settings) {
+        try {
+            String coffeeLintVersion = CoffeeLintRunner.runVersion(copyWithoutCache(settings));
+            String nodeVersion = runNodeVersion(settings);
+            if (coffeeLintVersion.isEmpty() || nodeVersion.isEmpty()) {
+                return null;
+            }
+            File executableDirectory = new File(root, hash(settings.node + '\n' + settings.executablePath));
+            File directory = new File(executableDirectory, sanitize(coffeeLintVersion) + "-node" + sanitize(nodeVersion));
+            pruneOtherVersions(executableDirectory, directory);
+            if (!directory.isDirectory() && !directory.mkdirs()) {
+                LOG.warn("Could not create compile cache " + directory);
+                return null;
+            }
+            // the modification time of the executable's directory tells the pruning when it was last used
+            executableDirectory.setLastModified(System.currentTimeMillis());
+            return directory;
+        } catch (ExecutionException e) {
+            LOG.debug("Could not look up versions for the compile cache", e);
+            return null;
+        }
+    }
+
+    @NotNull
+    private static CoffeeLintRunner.CoffeeLintSettings copyWithoutCache(@NotNull CoffeeLintRunner.CoffeeLintSettings settings) {
+        CoffeeLintRunner.CoffeeLintSettings copy = new CoffeeLintRunner.CoffeeLintSettings();
+        copy.node = settings.node;
+        copy.executablePath = settings.executablePath;
+        copy.cwd = settings.cwd;
+        copy.timeout = settings.timeout;
+        copy.compileCache = false;
+        return copy;
+    }
+
+    @NotNull
+    private static String runNodeVersion(@NotNull CoffeeLintRunner.CoffeeLintSettings settings) throws ExecutionException {
+        GeneralCommandLine commandLine = new GeneralCommandLine();
+        commandLine.setExePath(settings.node);
+        commandLine.addParameter("--version");
+        ProcessOutput out = NodeRunner.execute(commandLine, settings.timeout);
+        return out.getExitCode() == 0 ? out.getStdout().trim() : "";
+    }
+
+    /**
+     * Delete the directories of other coffeelint and node versions of the executable, V8 would reject their entries anyway.
+     */
+    private static void pruneOtherVersions(@NotNull File executableDirectory, @NotNull File current) {
+        File[] versions = executableDirectory.listFiles();
+        if (versions == null) {
+            return;
+        }
+        for (File version : versions) {
+            if (!version.equals(current)) {
+                FileUtil.delete(version);
+            }
+        }
+    }
+
+    private void pruneLater() {
+        RESOLVER.submit(new Runnable() {
+            public void run() {
+                prune(System.currentTimeMillis());
+            }
+        });
+    }
+
+    /**
+     * Delete the caches of executables that have not been used for {@link #MAX_AGE_MILLIS}.
+     */
+    void prune(long now) {
+        File[] executables = root.listFiles();
+        if (executables == null) {
+            return;
+        }
+        for (File executable : executables) {
+            if (now - executable.lastModified() > MAX_AGE_MILLIS) {
+                LOG.debug("Pruning unused compile cache " + executable);
+                FileUtil.delete(executable);
+            }
+        }
+    }
+
+    @NotNull
+    static String sanitize(@NotNull String version) {
+        return version.trim().replaceAll("[^0-9A-Za-z._-]", "_");
+    }
+
+    @NotNull
+    private static String hash(@NotNull String text) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-1").digest(text.getBytes(CharsetToolkit.UTF8_CHARSET));
+            StringBuilder hex = new StringBuilder();
+            for (int i = 0; i < 6; i++) {
+                hex.append(String.format("%02x", digest[i] & 0xff));
+            }
+            return hex.toString();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
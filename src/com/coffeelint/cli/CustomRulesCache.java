@@ -0,0 +1,260 @@
+package com.coffeelint.cli;
+
+import com.intellij.execution.ExecutionException;
+import com.intellij.execution.configurations.GeneralCommandLine;
+import com.intellij.execution.process.ProcessOutput;
+import com.intellij.openapi.application.PathManager;
+import com.intellij.openapi.diagnostic.Logger;
+import com.intellij.openapi.util.io.FileUtil;
+import com.intellij.openapi.vfs.CharsetToolkit;
+import com.wix.nodejs.NodeRunner;
+import org.apache.commons.lang.StringUtils;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Custom rules written in CoffeeScript, compiled to JavaScript once per content of the rules directory,
+ * so coffeelint does not compile them again on every run.
+ * <pre>
+ * &lt;root&gt;/&lt;hash of the rules path&gt;/&lt;hash of the rules content&gt;
+ * </pre>
+ * The compiled directory mirrors the rules directory, .coffee files become .js files and other files are copied,
+ * so rules that require each other keep working. Rules that require packages are not compiled, the packages would not
+ * resolve from the cache. Compilation uses the coffee-script package next to the coffeelint executable.
+ * The content hash is kept in memory until {@link #invalidate()}, which the plugin calls on VFS changes under the rules directory.
+ * Hashing and compiling run on a background thread, requests get the sources until the compiled rules are ready,
+ * so a slow compilation never holds up linting. When compilation fails, coffeelint gets the sources and reports the problem itself.
+ */
+public final class CustomRulesCache {
+    private static final Logger LOG = Logger.getInstance(CustomRulesCache.class);
+
+    /** written last, a directory without it is an interrupted compilation */
+    static final String COMPLETE = ".complete";
+
+    /** exit code of the compile script when the rules require packages, which would not resolve from the cache */
+    static final int USES_PACKAGES = 3;
+
+    /**
+     * Compiles argv[2] into argv[3] with the coffee-script package found from argv[1].
+     */
+    static final String COMPILE_SCRIPT =
+            "var fs = require('fs'), path = require('path');\n" +
+            "var from = process.argv[1], source = process.argv[2], target = process.argv[3], coffee, packages = false;\n" +
+            "['coffee-script', 'coffeescript'].some(function (name) {\n" +
+            "  try { coffee = require(require.resolve(name, {paths: [from]})); return true; } catch (e) { return false; }\n" +
+            "});\n" +
+            "if (!coffee) { console.error('coffee-script not found from ' + from); process.exit(1); }\n" +
+            "(function walk(dir, out) {\n" +
+            "  fs.mkdirSync(out);\n" +
+            "  fs.readdirSync(dir).forEach(function (name) {\n" +
+            "    var file = path.join(dir, name), stat = fs.statSync(file);\n" +
+            "    if (stat.isDirectory()) { if (name !== 'node_modules') walk(file, path.join(out, name)); }\n" +
+            "    else {\n" +
+            "      var text = fs.readFileSync(file, 'utf8');\n" +
+            "      if (/\\.coffee$/.test(name)) { text = coffee.compile(text, {filename: file}); name = name.replace(/\\.coffee$/, '.js'); }\n" +
+            "      packages = packages || /require\\s*\\(?\\s*['\"][^.\\/]/.test(text);\n" +
+            "      fs.writeFileSync(path.join(out, name), text);\n" +
+            "    }\n" +
+            "  });\n" +
+            "})(source, target);\n" +
+            "if (packages) process.exit(" + USES_PACKAGES + ");\n";
+
+    private static final ExecutorService COMPILER = Executors.newSingleThreadExecutor(new ThreadFactory() {
+        public Thread newThread(@NotNull Runnable r) {
+            Thread thread = new Thread(r, "CoffeeLint custom rules compiler");
+            thread.setDaemon(true);
+            return thread;
+        }
+    });
+
+    private static CustomRulesCache instance;
+
+    private final File root;
+    /** absolute rules directory -> directory to pass to coffeelint */
+    private final ConcurrentMap<String, String> resolved = new ConcurrentHashMap<String, String>();
+    /** rules directories being compiled */
+    private final Set<String> compiling = Collections.newSetFromMap(new ConcurrentHashMap<String, Boolean>());
+    /** changes on {@link #invalidate()}, compilations started before drop their result */
+    private final AtomicInteger generation = new AtomicInteger();
+
+    CustomRulesCache(@NotNull File root) {
+        this.root = root;
+    }
+
+    @NotNull
+    public static synchronized CustomRulesCache getInstance() {
+        if (instance == null) {
+            instance = new CustomRulesCache(new File(PathManager.getSystemPath(), "coffeelint" + File.separatorChar + "compiled-rules"));
+        }
+        return instance;
+    }
+
+    /**
+     * Forget the content hashes, the rules directories are hashed again on the next run.
+     */
+    public void invalidate() {
+        generation.incrementAndGet();
+        resolved.clear();
+    }
+
+    /**
+     * @return the compiled rules directory to pass to {@code --rules} instead of {@code settings.rules},
+     * or {@code settings.rules} while compiling, when there is nothing to compile or compiling failed
+     */
+    @Nullable
+    public String getRulesDirectory(@NotNull final CoffeeLintRunner.CoffeeLintSettings settings) {
+        if (StringUtils.isEmpty(settings.rules)) {
+            return settings.rules;
+        }
+        File rules = new File(settings.rules);
+        final File source = rules.isAbsolute() ? rules : new File(settings.cwd, settings.rules);
+        final String key = source.getAbsolutePath();
+        String directory = resolved.get(key);
+        if (directory != null) {
+            return directory;
+        }
+        if (compiling.add(key)) {
+            final String node = settings.node;
+            final String executablePath = settings.executablePath;
+            final int timeout = settings.timeout;
+            final String fallback = settings.rules;
+            final int started = generation.get();
+            COMPILER.submit(new Runnable() {
+                public void run() {
+                    try {
+                        String compiled = compile(source, node, executablePath, timeout);
+                        if (generation.get() == started) {
+                            resolved.put(key, compiled == null ? fallback : compiled);
+                        }
+                    } finally {
+                        compiling.remove(key);
+                    }
+                }
+            });
+        }
+        return settings.rules;
+    }
+
+    @Nullable
+    private String compile(@NotNull File source, @NotNull String node, @NotNull String executablePath, int timeout) {
+        try {
+            String contentHash = hashContent(source);
+            if (contentHash == null) {
+                // no CoffeeScript rules
+                return null;
+            }
+            File sourceDirectory = new File(root, hash(source.getAbsolutePath()));
+            File compiled = new File(sourceDirectory, contentHash);
+            if (new File(compiled, COMPLETE).isFile()) {
+                return compiled.getPath();
+            }
+            // rules that changed since leave their old compilations behind
+            FileUtil.delete(sourceDirectory);
+            if (!sourceDirectory.mkdirs()) {
+                LOG.warn("Could not create " + sourceDirectory);
+                return null;
+            }
+            GeneralCommandLine commandLine = new GeneralCommandLine();
+            commandLine.setExePath(node);
+            commandLine.addParameters("-e", COMPILE_SCRIPT, new File(executablePath).getParent(), source.getPath(), compiled.getPath());
+            ProcessOutput output = NodeRunner.execute(commandLine, timeout);
+            if (output.getExitCode() == USES_PACKAGES) {
+                LOG.debug("Custom rules in " + source + " require packages, they are passed to coffeelint as they are");
+                FileUtil.delete(sourceDirectory);
+                return null;
+            }
+            if (output.getExitCode() != 0 || !new File(compiled, COMPLETE).createNewFile()) {
+                LOG.warn("Could not compile custom rules " + source + ": " + output.getStderr());
+                FileUtil.delete(sourceDirectory);
+                return null;
+            }
+            return compiled.getPath();
+        } catch (IOException e) {
+            LOG.warn("Could not compile custom rules " + source, e);
+        } catch (ExecutionException e) {
+            LOG.warn("Could not compile custom rules " + source, e);
+        }
+        return null;
+    }
+
+    /**
+     * @return SHA-1 of the relative paths and contents of all files in the directory, null when it holds no .coffee file
+     */
+    @Nullable
+    static String hashContent(@NotNull File directory) throws IOException {
+        MessageDigest digest = sha1();
+        boolean[] coffee = new boolean[1];
+        hashContent(directory, "", digest, coffee);
+        return coffee[0] ? toHex(digest.digest()) : null;
+    }
+
+    private static void hashContent(@NotNull File directory, @NotNull String prefix, @NotNull MessageDigest digest, @NotNull boolean[] coffee) throws IOException {
+        File[] files = directory.listFiles();
+        if (files == null) {
+            return;
+        }
+        Arrays.sort(files);
+        byte[] buffer = new byte[8192];
+        for (File file : files) {
+            String path = prefix + file.getName();
+            if (file.isDirectory()) {
+                if (!"node_modules".equals(file.getName())) {
+                    hashContent(file, path + '/', digest, coffee);
+                }
+                continue;
+            }
+            coffee[0] |= file.getName().endsWith(".coffee");
+            digest.update(path.getBytes(CharsetToolkit.UTF8_CHARSET));
+            digest.update((byte) 0);
+            InputStream in = new FileInputStream(file);
+            try {
+                int read;
+                while ((read = in.read(buffer)) >= 0) {
+                    digest.update(buffer, 0, read);
+                }
+            } finally {
+                in.close();
+            }
+            digest.update((byte) 0);
+        }
+    }
+
+    @NotNull
+    private static String hash(@NotNull String text) {
+        return toHex(sha1().digest(text.getBytes(CharsetToolkit.UTF8_CHARSET))).substring(0, 12);
+    }
+
+    @NotNull
+    private static MessageDigest sha1() {
+        try {
+            return MessageDigest.getInstance("SHA-1");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    @NotNull
+    private static String toHex(@NotNull byte[] bytes) {
+        StringBuilder hex = new StringBuilder(bytes.length * 2);
+        for (byte b : bytes) {
+            hex.append(Character.forDigit((b >> 4) & 0xf, 16)).append(Character.forDigit(b & 0xf, 16));
+        }
+        return hex.toString();
+    }
+}
@@ -0,0 +1,50 @@
+package com.coffeelint.cli;
+
+import gnu.trove.TObjectIntHashMap;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Interns rule names, sources and the fixed messages of rules shared by the issues of all files, so every distinct
+ * string is held once and an issue only stores its id.
+ * Ids are never reused and the dictionary only grows, so only strings of a bounded set belong here, see {@link IssueTable}.
+ */
+public final class IssueDictionary {
+    private static final IssueDictionary INSTANCE = new IssueDictionary();
+
+    private final TObjectIntHashMap<String> ids = new TObjectIntHashMap<String>();
+    private final List<String> values = new ArrayList<String>();
+
+    @NotNull
+    public static IssueDictionary getInstance() {
+        return INSTANCE;
+    }
+
+    public synchronized int intern(@NotNull String value) {
+        if (ids.containsKey(value)) {
+            return ids.get(value);
+        }
+        int id = values.size();
+        values.add(value);
+        ids.put(value, id);
+        return id;
+    }
+
+    /**
+     * @return the id of the value, or -1 if it was never interned
+     */
+    public synchronized int find(@NotNull String value) {
+        return ids.containsKey(value) ? ids.get(value) : -1;
+    }
+
+    @NotNull
+    public synchronized String get(int id) {
+        return values.get(id);
+    }
+
+    public synchronized int size() {
+        return values.size();
+    }
+}
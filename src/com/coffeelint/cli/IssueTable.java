@@ -0,0 +1,232 @@
+package com.coffeelint.cli;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Compact, immutable list of the issues of a single file.
+ * Sources, rules and the fixed part of messages are interned in the {@link IssueDictionary}, positions and severities
+ * are kept in primitive arrays. The context coffeelint appends to a message, and the whole message of issues without a
+ * known rule like compiler errors, vary with the code, so they stay in the table and go away with it.
+ * {@link CoffeeLint.Issue} objects are only created on demand, see {@link #getIssue(int)} and {@link #asIssues()}.
+ */
+public final class IssueTable {
+    public static final IssueTable EMPTY = new Builder(0).build();
+
+    /** column of an issue for which coffeelint did not report one */
+    public static final int NO_COLUMN = 0;
+
+    /** separates the message of a rule from the context of the issue */
+    static final String CONTEXT_SEPARATOR = "; context:";
+    /** message id of an issue whose whole message is kept in the table */
+    private static final int NO_MESSAGE = -1;
+
+    private final IssueDictionary dictionary;
+    private final int[] lines;
+    private final int[] columns;
+    private final int[] sources;
+    private final int[] rules;
+    private final int[] messages;
+    /** the part of a message that is not interned, null when there is none */
+    private final String[] contexts;
+    private final byte[] severities;
+    private final int errorCount;
+
+    private IssueTable(IssueDictionary dictionary, int[] lines, int[] columns, int[] sources, int[] rules, int[] messages, String[] contexts,
+                       byte[] severities) {
+        this.dictionary = dictionary;
+        this.lines = lines;
+        this.columns = columns;
+        this.sources = sources;
+        this.rules = rules;
+        this.messages = messages;
+        this.contexts = contexts;
+        this.severities = severities;
+        int errors = 0;
+        for (byte severity : severities) {
+            if (severity == Severity.ERROR.ordinal()) {
+                errors++;
+            }
+        }
+        this.errorCount = errors;
+    }
+
+    @NotNull
+    public static IssueTable of(@Nullable List<CoffeeLint.Issue> issues) {
+        if (issues == null || issues.isEmpty()) {
+            return EMPTY;
+        }
+        Builder builder = new Builder(issues.size());
+        for (CoffeeLint.Issue issue : issues) {
+            builder.add(issue.source, issue.line, issue.column, issue.severity, issue.message);
+        }
+        return builder.build();
+    }
+
+    public int size() {
+        return lines.length;
+    }
+
+    public boolean isEmpty() {
+        return lines.length == 0;
+    }
+
+    public int getErrorCount() {
+        return errorCount;
+    }
+
+    /**
+     * @return 1 based line
+     */
+    public int getLine(int index) {
+        return lines[index];
+    }
+
+    /**
+     * @return 1 based column, or {@link #NO_COLUMN}
+     */
+    public int getColumn(int index) {
+        return columns[index];
+    }
+
+    /**
+     * @return whether any issue has a column
+     */
+    public boolean hasColumns() {
+        for (int column : columns) {
+            if (column != NO_COLUMN) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @NotNull
+    public Severity getSeverity(int index) {
+        return Severity.fromOrdinal(severities[index]);
+    }
+
+    public int getRuleId(int index) {
+        return rules[index];
+    }
+
+    @NotNull
+    public String getRule(int index) {
+        return dictionary.get(rules[index]);
+    }
+
+    @NotNull
+    public String getSource(int index) {
+        return dictionary.get(sources[index]);
+    }
+
+    @NotNull
+    public String getMessage(int index) {
+        String context = contexts[index];
+        if (messages[index] == NO_MESSAGE) {
+            return context;
+        }
+        String message = dictionary.get(messages[index]);
+        return context == null ? message : message + context;
+    }
+
+    @NotNull
+    public CoffeeLint.Issue getIssue(int index) {
+        CoffeeLint.Issue issue = new CoffeeLint.Issue();
+        issue.source = getSource(index);
+        issue.line = lines[index];
+        issue.column = columns[index];
+        issue.severity = getSeverity(index).id;
+        issue.message = getMessage(index);
+        return issue;
+    }
+
+    /**
+     * @return read only view, every access creates a new {@link CoffeeLint.Issue}
+     */
+    @NotNull
+    public List<CoffeeLint.Issue> asIssues() {
+        return new AbstractList<CoffeeLint.Issue>() {
+            @Override
+            public CoffeeLint.Issue get(int index) {
+                return getIssue(index);
+            }
+
+            @Override
+            public int size() {
+                return IssueTable.this.size();
+            }
+        };
+    }
+
+    public static final class Builder {
+        private final IssueDictionary dictionary = IssueDictionary.getInstance();
+        private int size;
+        private int[] lines;
+        private int[] columns;
+        private int[] sources;
+        private int[] rules;
+        private int[] messages;
+        private String[] contexts;
+        private byte[] severities;
+
+        public Builder(int expectedSize) {
+            lines = new int[expectedSize];
+            columns = new int[expectedSize];
+            sources = new int[expectedSize];
+            rules = new int[expectedSize];
+            messages = new int[expectedSize];
+            contexts = new String[expectedSize];
+            severities = new byte[expectedSize];
+        }
+
+        public Builder add(@Nullable String source, int line, int column, @Nullable String severity, @Nullable String message) {
+            if (size == lines.length) {
+                grow();
+            }
+            String msg = message == null ? "" : message;
+            lines[size] = line;
+            columns[size] = column;
+            sources[size] = dictionary.intern(source == null ? "" : source);
+            String rule = CoffeeLintRules.resolve(source, msg);
+            rules[size] = dictionary.intern(rule);
+            if (CoffeeLintRules.COFFEELINT_SOURCE.equals(rule)) {
+                // no rule with a fixed message, like the compiler errors of coffeescript_error
+                messages[size] = NO_MESSAGE;
+                contexts[size] = msg;
+            } else {
+                int split = msg.indexOf(CONTEXT_SEPARATOR);
+                messages[size] = dictionary.intern(split < 0 ? msg : msg.substring(0, split));
+                contexts[size] = split < 0 ? null : msg.substring(split);
+            }
+            severities[size] = (byte) Severity.fromString(severity).ordinal();
+            size++;
+            return this;
+        }
+
+        private void grow() {
+            int capacity = Math.max(16, size * 2);
+            lines = Arrays.copyOf(lines, capacity);
+            columns = Arrays.copyOf(columns, capacity);
+            sources = Arrays.copyOf(sources, capacity);
+            rules = Arrays.copyOf(rules, capacity);
+            messages = Arrays.copyOf(messages, capacity);
+            contexts = Arrays.copyOf(contexts, capacity);
+            severities = Arrays.copyOf(severities, capacity);
+        }
+
+        @NotNull
+        public IssueTable build() {
+            if (size == 0 && EMPTY != null) {
+                // most files are clean, they share one table instead of keeping seven empty arrays each
+                return EMPTY;
+            }
+            return new IssueTable(dictionary, Arrays.copyOf(lines, size), Arrays.copyOf(columns, size), Arrays.copyOf(sources, size),
+                    Arrays.copyOf(rules, size), Arrays.copyOf(messages, size), Arrays.copyOf(contexts, size), Arrays.copyOf(severities, size));
+        }
+    }
+}
@@ -0,0 +1,95 @@
+package com.coffeelint.cli;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.util.Arrays;
+
+/**
+ * Start and end offsets of every line of a text, built in one pass so that a reported line and column
+ * map to an offset in constant time instead of rescanning the text for every issue.
+ * Columns count characters like the CoffeeScript lexer does, so a tab is one column and needs no expansion.
+ */
+public final class LineOffsetIndex {
+    private final int[] starts;
+    /** end of each line, before its line separator */
+    private final int[] ends;
+    private final int length;
+
+    private LineOffsetIndex(int[] starts, int[] ends, int length) {
+        this.starts = starts;
+        this.ends = ends;
+        this.length = length;
+    }
+
+    /**
+     * Lines are separated by \n, \r\n or \r.
+     */
+    @NotNull
+    public static LineOffsetIndex of(@NotNull CharSequence text) {
+        int[] starts = new int[16];
+        int[] ends = new int[16];
+        int count = 0;
+        int start = 0;
+        int length = text.length();
+        for (int i = 0; i < length; i++) {
+            char c = text.charAt(i);
+            if (c != '\n' && c != '\r') {
+                continue;
+            }
+            if (count == starts.length) {
+                starts = Arrays.copyOf(starts, count * 2);
+                ends = Arrays.copyOf(ends, count * 2);
+            }
+            starts[count] = start;
+            ends[count] = i;
+            count++;
+            if (c == '\r' && i + 1 < length && text.charAt(i + 1) == '\n') {
+                i++;
+            }
+            start = i + 1;
+        }
+        if (count == starts.length) {
+            starts = Arrays.copyOf(starts, count + 1);
+            ends = Arrays.copyOf(ends, count + 1);
+        }
+        starts[count] = start;
+        ends[count] = length;
+        count++;
+        return new LineOffsetIndex(Arrays.copyOf(starts, count), Arrays.copyOf(ends, count), length);
+    }
+
+    public int getLineCount() {
+        return starts.length;
+    }
+
+    public int getTextLength() {
+        return length;
+    }
+
+    /**
+     * @param line 0 based
+     */
+    public int getLineStartOffset(int line) {
+        return starts[line];
+    }
+
+    /**
+     * @param line 0 based
+     * @return the offset of the line separator, or the text length for the last line
+     */
+    public int getLineEndOffset(int line) {
+        return ends[line];
+    }
+
+    /**
+     * @param line   0 based
+     * @param column 1 based, {@link IssueTable#NO_COLUMN} for the start of the line
+     * @return the offset of the column, columns past the end of the line map to its end
+     */
+    public int getOffset(int line, int column) {
+        if (column <= IssueTable.NO_COLUMN) {
+            return starts[line];
+        }
+        return column - 1 >= ends[line] - starts[line] ? ends[line] : starts[line] + column - 1;
+    }
+}
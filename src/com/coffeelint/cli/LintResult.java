@@ -2,5 +2,23 @@ package com.coffeelint.cli;
 
 public class LintResult {
     public CoffeeLint coffeeLint = new CoffeeLint();
+    public IssueTable issues = IssueTable.EMPTY;
     public String errorOutput;
+    /** line offsets of the linted text, only built when issues have columns */
+    public LineOffsetIndex lines;
+
+    public static LintResult of(IssueTable issues) {
+        LintResult result = new LintResult();
+        result.issues = issues;
+        result.coffeeLint.file.errors = issues.asIssues();
+        return result;
+    }
+
+    /**
+     * Replace the parsed issues with their compact form, {@code coffeeLint.file.errors} becomes a lazy view of {@link #issues}.
+     */
+    public void compact() {
+        issues = IssueTable.of(coffeeLint.file.errors);
+        coffeeLint.file.errors = issues.asIssues();
+    }
 }
@@ -0,0 +1,89 @@
+package com.coffeelint.cli;
+
+import com.coffeelint.metrics.LintMetrics;
+import com.intellij.execution.configurations.GeneralCommandLine;
+import com.intellij.openapi.util.SystemInfo;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.File;
+
+/**
+ * OS scheduling class of a coffeelint process. Only the focused editor's runs keep the priority of the IDE,
+ * everything else yields CPU and disk to the IDE and to the user's build.
+ * On Linux the command is prefixed with nice and ionice, both exec the command in place so destroying
+ * the process still kills coffeelint. Other platforms run every class at normal priority.
+ */
+public enum ProcessPriority {
+    /** the focused editor, the user waits for its result */
+    NORMAL(0, null, null, null),
+    /** other editors, files changed on disk and engine comparisons */
+    BACKGROUND(10, "2", "7", LintMetrics.Counter.BACKGROUND_PRIORITY_RUNS),
+    /** batch runs, they only get CPU and disk time nobody else wants */
+    BATCH(19, "3", null, LintMetrics.Counter.BATCH_PRIORITY_RUNS);
+
+    private static final String NICE = findTool("nice");
+    private static final String IONICE = findTool("ionice");
+
+    private final int niceness;
+    @Nullable
+    private final String ioClass;
+    @Nullable
+    private final String ioLevel;
+    @Nullable
+    private final LintMetrics.Counter counter;
+
+    ProcessPriority(int niceness, @Nullable String ioClass, @Nullable String ioLevel, @Nullable LintMetrics.Counter counter) {
+        this.niceness = niceness;
+        this.ioClass = ioClass;
+        this.ioLevel = ioLevel;
+        this.counter = counter;
+    }
+
+    /**
+     * Prefix the command line so it starts with this priority.
+     */
+    public void apply(@NotNull GeneralCommandLine commandLine) {
+        if (this == NORMAL || !SystemInfo.isLinux || NICE == null) {
+            return;
+        }
+        String exePath = commandLine.getExePath();
+        int index = 0;
+        commandLine.setExePath(NICE);
+        commandLine.getParametersList().addAt(index++, "-n");
+        commandLine.getParametersList().addAt(index++, String.valueOf(niceness));
+        if (IONICE != null) {
+            commandLine.getParametersList().addAt(index++, IONICE);
+            commandLine.getParametersList().addAt(index++, "-c");
+            commandLine.getParametersList().addAt(index++, ioClass);
+            if (ioLevel != null) {
+                commandLine.getParametersList().addAt(index++, "-n");
+                commandLine.getParametersList().addAt(index++, ioLevel);
+            }
+        }
+        commandLine.getParametersList().addAt(index, exePath);
+    }
+
+    /**
+     * Count a run of this class in the {@link LintMetrics}.
+     */
+    public void count(@NotNull LintMetrics metrics) {
+        if (counter != null) {
+            metrics.increment(counter);
+        }
+    }
+
+    @Nullable
+    private static String findTool(@NotNull String name) {
+        if (!SystemInfo.isLinux) {
+            return null;
+        }
+        for (String dir : new String[]{"/usr/bin", "/bin"}) {
+            File file = new File(dir, name);
+            if (file.canExecute()) {
+                return file.getPath();
+            }
+        }
+        return null;
+    }
+}
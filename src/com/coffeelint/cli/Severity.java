@@ -0,0 +1,30 @@
+package com.coffeelint.cli;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * Severity of a coffeelint issue, as reported in the checkstyle output.
+ */
+public enum Severity {
+    ERROR("error"),
+    WARNING("warning");
+
+    private static final Severity[] VALUES = values();
+
+    public final String id;
+
+    Severity(String id) {
+        this.id = id;
+    }
+
+    @NotNull
+    public static Severity fromString(@Nullable String severity) {
+        return "error".equals(severity) ? ERROR : WARNING;
+    }
+
+    @NotNull
+    public static Severity fromOrdinal(int ordinal) {
+        return VALUES[ordinal];
+    }
+}
@@ -0,0 +1,71 @@
+package com.coffeelint.cli;
+
+import com.intellij.openapi.vfs.CharsetToolkit;
+import org.jetbrains.annotations.NotNull;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+
+/**
+ * Encodes text straight from a {@link CharSequence} into a stream, through an encoder and buffer reused per thread.
+ * The document snapshot is never copied into a String or a byte array of the size of the file.
+ */
+public final class StdinWriter {
+    private static final int BUFFER_SIZE = 32 * 1024;
+
+    private static final ThreadLocal<StdinWriter> WRITERS = new ThreadLocal<StdinWriter>() {
+        @Override
+        protected StdinWriter initialValue() {
+            return new StdinWriter();
+        }
+    };
+
+    private final CharsetEncoder encoder = CharsetToolkit.UTF8_CHARSET.newEncoder()
+            .onMalformedInput(CodingErrorAction.REPLACE)
+            .onUnmappableCharacter(CodingErrorAction.REPLACE);
+    // a heap buffer, the process pipe is a plain stream so a direct buffer would be copied into a byte array anyway
+    private final ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+
+    private StdinWriter() {
+    }
+
+    /**
+     * Write the text as UTF-8. The stream is neither flushed nor closed.
+     */
+    public static void write(@NotNull CharSequence text, @NotNull OutputStream out) throws IOException {
+        WRITERS.get().encode(text, out);
+    }
+
+    private void encode(CharSequence text, OutputStream out) throws IOException {
+        CharBuffer in = CharBuffer.wrap(text);
+        encoder.reset();
+        buffer.clear();
+        while (true) {
+            CoderResult result = encoder.encode(in, buffer, true);
+            if (result.isError()) {
+                result.throwException();
+            }
+            if (result.isUnderflow()) {
+                break;
+            }
+            drain(out);
+        }
+        while (encoder.flush(buffer).isOverflow()) {
+            drain(out);
+        }
+        drain(out);
+    }
+
+    private void drain(OutputStream out) throws IOException {
+        buffer.flip();
+        if (buffer.hasRemaining()) {
+            out.write(buffer.array(), buffer.arrayOffset() + buffer.position(), buffer.remaining());
+        }
+        buffer.clear();
+    }
+}
@@ -0,0 +1,36 @@
+package com.coffeelint.config;
+
+import com.coffeelint.CoffeeLintProjectComponent;
+import com.intellij.json.psi.JsonFile;
+import com.intellij.lang.annotation.AnnotationHolder;
+import com.intellij.lang.annotation.Annotator;
+import com.intellij.psi.PsiElement;
+import com.intellij.psi.PsiFile;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Highlights the problems of the {@link CoffeeLintConfigModel} in coffeelint.json, each on the element it is about.
+ */
+public class CoffeeLintConfigAnnotator implements Annotator {
+    private static final String MESSAGE_PREFIX = "CoffeeLint: ";
+
+    public void annotate(@NotNull PsiElement element, @NotNull AnnotationHolder holder) {
+        PsiFile file = element.getContainingFile();
+        if (!(file instanceof JsonFile) || !CoffeeLintConfigFileUtil.isCoffeeLintConfigFile(file.getOriginalFile().getVirtualFile())) {
+            return;
+        }
+        if (!file.getProject().getComponent(CoffeeLintProjectComponent.class).isEnabled()) {
+            return;
+        }
+        for (CoffeeLintConfigModel.Problem problem : CoffeeLintConfigModel.get(file).problems) {
+            if (problem.element != element) {
+                continue;
+            }
+            if (problem.error) {
+                holder.createErrorAnnotation(element, MESSAGE_PREFIX + problem.message);
+            } else {
+                holder.createWarningAnnotation(element, MESSAGE_PREFIX + problem.message);
+            }
+        }
+    }
+}
@@ -1,6 +1,10 @@
 package com.coffeelint.config;
 
 import com.coffeelint.CoffeeLintProjectComponent;
+import com.coffeelint.cli.CustomRulesCache;
+import com.coffeelint.inspection.LintTriggerPolicy;
+import com.coffeelint.results.BulkChangeRelinter;
+import com.coffeelint.results.LintResultCache;
 import com.intellij.codeInsight.daemon.DaemonCodeAnalyzer;
 import com.intellij.openapi.application.ApplicationManager;
 import com.intellij.openapi.components.ServiceManager;
@@ -10,9 +14,12 @@ import com.intellij.openapi.editor.event.DocumentEvent;
 import com.intellij.openapi.editor.event.EditorEventMulticaster;
 import com.intellij.openapi.fileEditor.FileDocumentManager;
 import com.intellij.openapi.project.Project;
+import com.intellij.openapi.util.io.FileUtil;
 import com.intellij.openapi.vfs.*;
+import org.apache.commons.lang.StringUtils;
 import org.jetbrains.annotations.NotNull;
 
+import java.io.File;
 import java.util.concurrent.atomic.AtomicBoolean;
 
 public class CoffeeLintConfigFileListener {
@@ -32,6 +39,8 @@ public class CoffeeLintConfigFileListener {
                             VirtualFileManager.getInstance().addVirtualFileListener(new CoffeeLintConfigFileVfsListener(), CoffeeLintConfigFileListener.this.project);
                             EditorEventMulticaster multicaster = EditorFactory.getInstance().getEventMulticaster();
                             multicaster.addDocumentListener(new CoffeeLintConfigFileDocumentListener(), CoffeeLintConfigFileListener.this.project);
+                            BulkChangeRelinter.getInstance(CoffeeLintConfigFileListener.this.project).start();
+                            LintTriggerPolicy.getInstance(CoffeeLintConfigFileListener.this.project).start();
                         }
                     });
                 }
@@ -49,9 +58,45 @@ public class CoffeeLintConfigFileListener {
         }
     }
 
+    /**
+     * Changes on disk under the custom rules directory make its compiled rules outdated.
+     */
+    private void fileChangedOnDisk(@NotNull VirtualFile file) {
+        fileChanged(file);
+        CoffeeLintProjectComponent component = project.getComponent(CoffeeLintProjectComponent.class);
+        if (StringUtils.isEmpty(component.customRulesPath) || project.isDisposed()) {
+            return;
+        }
+        File rules = new File(component.customRulesPath);
+        if (!rules.isAbsolute() && project.getBasePath() != null) {
+            rules = new File(project.getBasePath(), component.customRulesPath);
+        }
+        if (FileUtil.isAncestor(rules.getPath(), file.getPath(), false)) {
+            CustomRulesCache.getInstance().invalidate();
+            restartAnalyzer();
+        }
+    }
+
+    /**
+     * A file or directory is about to be deleted, moved or renamed, its results stay under the old path otherwise.
+     */
+    private void fileLeaving(@NotNull VirtualFile file) {
+        if (project.isDisposed()) {
+            return;
+        }
+        CoffeeLintProjectComponent component = project.getComponent(CoffeeLintProjectComponent.class);
+        LintResultCache cache = LintResultCache.getInstance(project);
+        if (file.isDirectory()) {
+            cache.removeUnder(LintResultCache.getKey(project, file));
+        } else if (CoffeeLintConfigFileUtil.isCoffeeScriptFile(file.getName(), component.extensions)) {
+            cache.remove(LintResultCache.getKey(project, file));
+        }
+    }
+
     private void restartAnalyzer() {
         CoffeeLintProjectComponent component = project.getComponent(CoffeeLintProjectComponent.class);
         if (component.isEnabled()) {
+            LintResultCache.getInstance(project).invalidate();
             DaemonCodeAnalyzer.getInstance(project).restart();
         }
     }
@@ -64,21 +109,39 @@ public class CoffeeLintConfigFileListener {
         }
 
         public void fileCreated(@NotNull VirtualFileEvent event) {
-            CoffeeLintConfigFileListener.this.fileChanged(event.getFile());
+            CoffeeLintConfigFileListener.this.fileChangedOnDisk(event.getFile());
+        }
+
+        public void beforeFileDeletion(@NotNull VirtualFileEvent event) {
+            CoffeeLintConfigFileListener.this.fileLeaving(event.getFile());
+        }
+
+        public void beforeFileMovement(@NotNull VirtualFileMoveEvent event) {
+            CoffeeLintConfigFileListener.this.fileLeaving(event.getFile());
+        }
+
+        public void beforePropertyChange(@NotNull VirtualFilePropertyEvent event) {
+            if (VirtualFile.PROP_NAME.equals(event.getPropertyName())) {
+                CoffeeLintConfigFileListener.this.fileLeaving(event.getFile());
+            }
         }
 
         public void fileDeleted(@NotNull VirtualFileEvent event) {
-            CoffeeLintConfigFileListener.this.fileChanged(event.getFile());
+            CoffeeLintConfigFileListener.this.fileChangedOnDisk(event.getFile());
         }
 
         public void fileMoved(@NotNull VirtualFileMoveEvent event) {
-            CoffeeLintConfigFileListener.this.fileChanged(event.getFile());
+            CoffeeLintConfigFileListener.this.fileChangedOnDisk(event.getFile());
         }
 
         public void fileCopied(@NotNull VirtualFileCopyEvent event) {
-            CoffeeLintConfigFileListener.this.fileChanged(event.getFile());
+            CoffeeLintConfigFileListener.this.fileChangedOnDisk(event.getFile());
 //            CoffeeLintConfigFileListener.this.fileChanged(event.getOriginalFile());
         }
+
+        public void contentsChanged(@NotNull VirtualFileEvent event) {
+            CoffeeLintConfigFileListener.this.fileChangedOnDisk(event.getFile());
+        }
     }
 
     /**
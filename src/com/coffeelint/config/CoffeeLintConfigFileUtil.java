@@ -14,17 +14,24 @@ public final class CoffeeLintConfigFileUtil {
     }
 
     public static boolean isCoffeeScriptFile(PsiFile file) {
-        return file.getName().endsWith(".coffee") || isExt(file);
+        CoffeeLintProjectComponent component = file.getProject().getComponent(CoffeeLintProjectComponent.class);
+        return isCoffeeScriptFile(file.getName(), component.extensions);
     }
 
-    private static boolean isExt(PsiFile file) {
-        CoffeeLintProjectComponent component = file.getProject().getComponent(CoffeeLintProjectComponent.class);
-        if (StringUtils.isEmpty(component.extensions)) {
+    /**
+     * @param extensions comma separated extensions without the dot, as passed to coffeelint's --ext
+     */
+    public static boolean isCoffeeScriptFile(String name, String extensions) {
+        return name.endsWith(".coffee") || isExt(name, extensions);
+    }
+
+    private static boolean isExt(String name, String extensions) {
+        if (StringUtils.isEmpty(extensions)) {
             return false;
         }
-        String[] exts = component.extensions.split(",");
+        String[] exts = extensions.split(",");
         for (String ext : exts) {
-            if (file.getName().endsWith('.' + ext)) {
+            if (name.endsWith('.' + ext)) {
                 return true;
             }
         }
@@ -0,0 +1,275 @@
+package com.coffeelint.config;
+
+import com.coffeelint.CoffeeLintBundle;
+import com.coffeelint.CoffeeLintProjectComponent;
+import com.coffeelint.batch.EffectiveConfigLocator;
+import com.intellij.json.psi.JsonArray;
+import com.intellij.json.psi.JsonBooleanLiteral;
+import com.intellij.json.psi.JsonFile;
+import com.intellij.json.psi.JsonNumberLiteral;
+import com.intellij.json.psi.JsonObject;
+import com.intellij.json.psi.JsonProperty;
+import com.intellij.json.psi.JsonStringLiteral;
+import com.intellij.json.psi.JsonValue;
+import com.intellij.openapi.application.ApplicationManager;
+import com.intellij.openapi.project.Project;
+import com.intellij.openapi.util.Computable;
+import com.intellij.openapi.util.io.FileUtil;
+import com.intellij.openapi.util.text.StringUtil;
+import com.intellij.openapi.vfs.LocalFileSystem;
+import com.intellij.openapi.vfs.VfsUtilCore;
+import com.intellij.openapi.vfs.VirtualFile;
+import com.intellij.psi.PsiElement;
+import com.intellij.psi.PsiErrorElement;
+import com.intellij.psi.PsiFile;
+import com.intellij.psi.PsiManager;
+import com.intellij.psi.util.CachedValueProvider;
+import com.intellij.psi.util.CachedValuesManager;
+import com.intellij.psi.util.PsiTreeUtil;
+import org.apache.commons.lang.StringUtils;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The rules of a coffeelint.json, read from its JSON PSI and checked against the rules of the installed coffeelint.
+ * The model of a file is cached until the file, the settings or the {@link CoffeeLintRuleCatalog} change, so edits only rebuild the model
+ * of the edited config. A config with errors makes coffeelint fail for every file, so linting waits until it is fixed.
+ */
+public final class CoffeeLintConfigModel {
+    /**
+     * An error or warning about a part of the config.
+     */
+    public static final class Problem {
+        @NotNull
+        public final PsiElement element;
+        @NotNull
+        public final String message;
+        /** errors make coffeelint fail, warnings only point at options it ignores */
+        public final boolean error;
+
+        Problem(@NotNull PsiElement element, @NotNull String message, boolean error) {
+            this.element = element;
+            this.message = message;
+            this.error = error;
+        }
+    }
+
+    /** rule -> level, for the rules that set one */
+    @NotNull
+    public final Map<String, String> levels;
+    @NotNull
+    public final List<Problem> problems;
+    /** the coffeelint version the rules were checked against, null when only the builtin rule names were known */
+    @Nullable
+    public final String version;
+    private final boolean valid;
+
+    private CoffeeLintConfigModel(@NotNull Map<String, String> levels, @NotNull List<Problem> problems, @Nullable String version, boolean syntaxErrors) {
+        this.levels = Collections.unmodifiableMap(levels);
+        this.problems = Collections.unmodifiableList(problems);
+        this.version = version;
+        boolean errors = syntaxErrors;
+        for (Problem problem : problems) {
+            errors |= problem.error;
+        }
+        this.valid = !errors;
+    }
+
+    /**
+     * @return false when coffeelint would refuse the config
+     */
+    public boolean isValid() {
+        return valid;
+    }
+
+    /**
+     * @return the model of the file as it is in its document
+     */
+    @NotNull
+    public static CoffeeLintConfigModel get(@NotNull final PsiFile file) {
+        // look the rules of a changed executable up, the cached model follows once they arrive
+        getRules(file.getProject());
+        return CachedValuesManager.getCachedValue(file, new CachedValueProvider<CoffeeLintConfigModel>() {
+            @Nullable
+            public Result<CoffeeLintConfigModel> compute() {
+                CoffeeLintProjectComponent component = file.getProject().getComponent(CoffeeLintProjectComponent.class);
+                return Result.create(parse(file, getRules(file.getProject())), file, CoffeeLintRuleCatalog.getInstance(), component);
+            }
+        });
+    }
+
+    /**
+     * @return true when the coffeelint.json that governs the file is known to be invalid
+     */
+    public static boolean isInvalidConfigOf(@NotNull Project project, @NotNull VirtualFile file) {
+        return isInvalid(project, findConfigFile(project, file));
+    }
+
+    /**
+     * @param configKey a key of {@link EffectiveConfigLocator#getKey}
+     * @return true when the config is a coffeelint.json known to be invalid
+     */
+    public static boolean isInvalidConfig(@NotNull Project project, @NotNull String configKey) {
+        String path = EffectiveConfigLocator.getConfigFile(configKey);
+        return path != null && isInvalid(project, findFile(resolve(project, path)));
+    }
+
+    private static boolean isInvalid(@NotNull final Project project, @Nullable final VirtualFile config) {
+        if (config == null || !CoffeeLintConfigFileUtil.isCoffeeLintConfigFile(config)) {
+            // package.json sections are left to coffeelint
+            return false;
+        }
+        return ApplicationManager.getApplication().runReadAction(new Computable<Boolean>() {
+            public Boolean compute() {
+                PsiFile file = config.isValid() && !project.isDisposed() ? PsiManager.getInstance(project).findFile(config) : null;
+                return file instanceof JsonFile && !get(file).isValid();
+            }
+        });
+    }
+
+    /**
+     * Finds the config like {@link EffectiveConfigLocator} does, through the file system of the IDE.
+     */
+    @Nullable
+    static VirtualFile findConfigFile(@NotNull Project project, @NotNull VirtualFile file) {
+        CoffeeLintProjectComponent component = project.getComponent(CoffeeLintProjectComponent.class);
+        if (StringUtils.isNotEmpty(component.configFile)) {
+            return findFile(resolve(project, component.configFile));
+        }
+        String environmentFile = System.getenv(EffectiveConfigLocator.CONFIG_VARIABLE);
+        if (StringUtils.isNotEmpty(environmentFile) && new File(environmentFile).exists()) {
+            return findFile(environmentFile);
+        }
+        VirtualFile packageJson = findNearest(file, EffectiveConfigLocator.PACKAGE_JSON);
+        if (packageJson != null && hasCoffeeLintConfig(packageJson)) {
+            return packageJson;
+        }
+        return findNearest(file, CoffeeLintConfigFileType.COFFEE_LINT_CONFIG);
+    }
+
+    @Nullable
+    private static VirtualFile findFile(@NotNull String path) {
+        return LocalFileSystem.getInstance().findFileByPath(FileUtil.toSystemIndependentName(path));
+    }
+
+    @Nullable
+    private static VirtualFile findNearest(@NotNull VirtualFile file, @NotNull String name) {
+        for (VirtualFile directory = file.getParent(); directory != null; directory = directory.getParent()) {
+            VirtualFile found = directory.findChild(name);
+            if (found != null && !found.isDirectory()) {
+                return found;
+            }
+        }
+        return null;
+    }
+
+    private static boolean hasCoffeeLintConfig(@NotNull VirtualFile packageJson) {
+        try {
+            return VfsUtilCore.loadText(packageJson).contains("\"coffeelintConfig\"");
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    @NotNull
+    private static String resolve(@NotNull Project project, @NotNull String path) {
+        if (new File(path).isAbsolute() || project.getBasePath() == null) {
+            return path;
+        }
+        return new File(project.getBasePath(), path).getPath();
+    }
+
+    @Nullable
+    private static CoffeeLintRuleCatalog.Rules getRules(@NotNull Project project) {
+        CoffeeLintProjectComponent component = project.getComponent(CoffeeLintProjectComponent.class);
+        if (StringUtils.isEmpty(component.nodeInterpreter) || StringUtils.isEmpty(component.lintExecutable)) {
+            return null;
+        }
+        return CoffeeLintRuleCatalog.getInstance().get(component.nodeInterpreter, component.lintExecutable);
+    }
+
+    /**
+     * @param rules of the installed coffeelint, null to check only the names of the builtin rules
+     */
+    @NotNull
+    static CoffeeLintConfigModel parse(@NotNull PsiFile file, @Nullable CoffeeLintRuleCatalog.Rules rules) {
+        Map<String, String> levels = new LinkedHashMap<String, String>();
+        final List<Problem> problems = new ArrayList<Problem>();
+        String version = rules == null ? null : rules.version;
+        // the JSON highlighting shows syntax errors already
+        boolean syntaxErrors = PsiTreeUtil.findChildOfType(file, PsiErrorElement.class) != null;
+        JsonValue top = file instanceof JsonFile ? ((JsonFile) file).getTopLevelValue() : null;
+        if (top == null) {
+            problems.add(new Problem(file, CoffeeLintBundle.message("coffeelint.config.not.object"), true));
+            return new CoffeeLintConfigModel(levels, problems, version, syntaxErrors);
+        }
+        CoffeeLintProjectComponent component = file.getProject().getComponent(CoffeeLintProjectComponent.class);
+        new CoffeeLintConfigValidator<PsiElement>(rules, StringUtils.isNotEmpty(component.customRulesPath)) {
+            @Nullable
+            protected String getType(@NotNull PsiElement value) {
+                return CoffeeLintConfigModel.getType(value);
+            }
+
+            @NotNull
+            protected List<PsiElement> getProperties(@NotNull PsiElement object) {
+                return new ArrayList<PsiElement>(((JsonObject) object).getPropertyList());
+            }
+
+            @NotNull
+            protected String getName(@NotNull PsiElement property) {
+                return ((JsonProperty) property).getName();
+            }
+
+            @Nullable
+            protected PsiElement getValue(@NotNull PsiElement property) {
+                return ((JsonProperty) property).getValue();
+            }
+
+            @NotNull
+            protected PsiElement getNameNode(@NotNull PsiElement property) {
+                return ((JsonProperty) property).getNameElement();
+            }
+
+            @Nullable
+            protected String getString(@NotNull PsiElement value) {
+                return value instanceof JsonStringLiteral ? StringUtil.unquoteString(value.getText()) : null;
+            }
+
+            protected void problem(@NotNull PsiElement node, @NotNull String message, boolean error) {
+                problems.add(new Problem(node, message, error));
+            }
+        }.validate(top, levels);
+        return new CoffeeLintConfigModel(levels, problems, version, syntaxErrors);
+    }
+
+    /**
+     * @return the type like {@link CoffeeLintRuleCatalog.Rules#getDefaultType} names it, null for null
+     */
+    @Nullable
+    private static String getType(@NotNull PsiElement value) {
+        if (value instanceof JsonObject) {
+            return CoffeeLintConfigValidator.OBJECT;
+        }
+        if (value instanceof JsonArray) {
+            return "array";
+        }
+        if (value instanceof JsonBooleanLiteral) {
+            return "boolean";
+        }
+        if (value instanceof JsonNumberLiteral) {
+            return "number";
+        }
+        if (value instanceof JsonStringLiteral) {
+            return "string";
+        }
+        return null;
+    }
+}
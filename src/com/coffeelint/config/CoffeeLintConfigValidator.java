@@ -0,0 +1,138 @@
+package com.coffeelint.config;
+
+import com.coffeelint.CoffeeLintBundle;
+import com.coffeelint.cli.CoffeeLintRules;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Checks the rules of a coffeelint.json against the rules of the installed coffeelint, over any JSON tree.
+ * {@link CoffeeLintConfigModel} walks the JSON PSI with it, the tests a parsed JSON string.
+ *
+ * @param <N> values and properties of the tree
+ */
+abstract class CoffeeLintConfigValidator<N> {
+    static final String LEVEL = "level";
+    /** rules loaded from a node module name their module instead of being builtin */
+    static final String MODULE = "module";
+    /** options of coffeelint itself, like transforms, not a rule */
+    static final String COFFEELINT = "coffeelint";
+
+    static final String OBJECT = "object";
+
+    private static final Set<String> LEVELS = new HashSet<String>(Arrays.asList("ignore", "warn", "error"));
+
+    @Nullable
+    private final CoffeeLintRuleCatalog.Rules rules;
+    private final boolean customRules;
+
+    /**
+     * @param rules       of the installed coffeelint, null to check only the names of the builtin rules
+     * @param customRules whether rules are loaded from a custom rules directory, their names are not known then
+     */
+    CoffeeLintConfigValidator(@Nullable CoffeeLintRuleCatalog.Rules rules, boolean customRules) {
+        this.rules = rules;
+        this.customRules = customRules;
+    }
+
+    /**
+     * @return the type like {@link CoffeeLintRuleCatalog.Rules#getDefaultType} names it, null for null
+     */
+    @Nullable
+    protected abstract String getType(@NotNull N value);
+
+    /**
+     * @return the properties of an object value, in order
+     */
+    @NotNull
+    protected abstract List<N> getProperties(@NotNull N object);
+
+    @NotNull
+    protected abstract String getName(@NotNull N property);
+
+    /**
+     * @return the value of the property, null while it is being typed
+     */
+    @Nullable
+    protected abstract N getValue(@NotNull N property);
+
+    /**
+     * @return the node a problem with the name of the property is reported on
+     */
+    @NotNull
+    protected abstract N getNameNode(@NotNull N property);
+
+    /**
+     * @return the unquoted text of a string value, null for other values
+     */
+    @Nullable
+    protected abstract String getString(@NotNull N value);
+
+    protected abstract void problem(@NotNull N node, @NotNull String message, boolean error);
+
+    /**
+     * @param top    the top level value of the config
+     * @param levels receives rule -> level, for the rules that set a valid one
+     */
+    void validate(@NotNull N top, @NotNull Map<String, String> levels) {
+        if (!OBJECT.equals(getType(top))) {
+            problem(top, CoffeeLintBundle.message("coffeelint.config.not.object"), true);
+            return;
+        }
+        String version = rules == null ? null : rules.version;
+        for (N property : getProperties(top)) {
+            String rule = getName(property);
+            N value = getValue(property);
+            if (COFFEELINT.equals(rule) || value == null) {
+                continue;
+            }
+            if (!OBJECT.equals(getType(value))) {
+                problem(value, CoffeeLintBundle.message("coffeelint.config.rule.not.object", rule), true);
+                continue;
+            }
+            List<N> options = getProperties(value);
+            boolean known = rules != null ? rules.contains(rule) : CoffeeLintRules.getBuiltinRuleNames().contains(rule);
+            if (!known && !customRules && !hasProperty(options, MODULE)) {
+                problem(getNameNode(property), version == null
+                        ? CoffeeLintBundle.message("coffeelint.config.rule.unknown", rule)
+                        : CoffeeLintBundle.message("coffeelint.config.rule.unknown.version", rule, version), false);
+            }
+            for (N option : options) {
+                String name = getName(option);
+                N optionValue = getValue(option);
+                if (optionValue == null) {
+                    continue;
+                }
+                if (LEVEL.equals(name)) {
+                    String level = getString(optionValue);
+                    if (level == null || !LEVELS.contains(level)) {
+                        problem(optionValue, CoffeeLintBundle.message("coffeelint.config.level.invalid", rule), true);
+                    } else {
+                        levels.put(rule, level);
+                    }
+                    continue;
+                }
+                String expected = rules == null ? null : rules.getDefaultType(rule, name);
+                String actual = getType(optionValue);
+                if (expected != null && actual != null && !expected.equals(actual)) {
+                    problem(optionValue, CoffeeLintBundle.message("coffeelint.config.option.type", name, rule, expected), false);
+                }
+            }
+        }
+    }
+
+    private boolean hasProperty(@NotNull List<N> properties, @NotNull String name) {
+        for (N property : properties) {
+            if (name.equals(getName(property))) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
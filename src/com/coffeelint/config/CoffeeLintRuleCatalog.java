@@ -0,0 +1,199 @@
+package com.coffeelint.config;
+
+import com.coffeelint.CoffeeLintBundle;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import com.google.gson.JsonPrimitive;
+import com.intellij.execution.configurations.GeneralCommandLine;
+import com.intellij.execution.process.ProcessOutput;
+import com.intellij.openapi.diagnostic.Logger;
+import com.intellij.openapi.util.ModificationTracker;
+import com.wix.nodejs.NodeRunner;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * The rules an installed coffeelint knows, with the defaults of their options, asked from the coffeelint module itself
+ * so validation follows the detected version. Looked up on a background thread the first time an executable is used,
+ * {@link #get} returns null until then. The modification count changes whenever a lookup finishes.
+ */
+public final class CoffeeLintRuleCatalog implements ModificationTracker {
+    private static final Logger LOG = Logger.getInstance(CoffeeLintBundle.LOG_ID);
+
+    private static final int TIMEOUT = (int) TimeUnit.SECONDS.toMillis(30L);
+    /** how often the rules of an executable are looked up again, they change when it is upgraded in place */
+    static final long RECHECK_MILLIS = TimeUnit.MINUTES.toMillis(10L);
+
+    /** finds the coffeelint package of the executable in argv[1] like lint-server.js does, prints its version and rules */
+    private static final String SCRIPT = "var fs = require('fs'), path = require('path');" +
+            "for (var dir = path.dirname(fs.realpathSync(process.argv[1])); ; dir = path.dirname(dir)) {" +
+            "  var manifest = path.join(dir, 'package.json');" +
+            "  if (fs.existsSync(manifest) && /coffeelint/.test(JSON.parse(fs.readFileSync(manifest, 'utf8')).name)) break;" +
+            "  if (path.dirname(dir) === dir) throw new Error('coffeelint package not found');" +
+            "}" +
+            "var coffeelint = require(dir);" +
+            "console.log(JSON.stringify({version: coffeelint.VERSION, rules: coffeelint.RULES}));";
+
+    private static final CoffeeLintRuleCatalog INSTANCE = new CoffeeLintRuleCatalog();
+
+    private static final ExecutorService RESOLVER = Executors.newSingleThreadExecutor(new ThreadFactory() {
+        public Thread newThread(@NotNull Runnable r) {
+            Thread thread = new Thread(r, "CoffeeLint rule catalog");
+            thread.setDaemon(true);
+            return thread;
+        }
+    });
+
+    /** node + '\n' + executable -> rules */
+    private final ConcurrentMap<String, Entry> entries = new ConcurrentHashMap<String, Entry>();
+    private final AtomicLong modificationCount = new AtomicLong();
+
+    /**
+     * Rules of one coffeelint version.
+     */
+    public static final class Rules {
+        @NotNull
+        public final String version;
+        /** rule name -> its defaults, like {"level": "error", "value": 80} */
+        @NotNull
+        private final Map<String, JsonObject> defaults;
+
+        Rules(@NotNull String version, @NotNull Map<String, JsonObject> defaults) {
+            this.version = version;
+            this.defaults = defaults;
+        }
+
+        public boolean contains(@NotNull String rule) {
+            return defaults.containsKey(rule);
+        }
+
+        /**
+         * @return the default of the option, null when the rule or the option is unknown
+         */
+        @Nullable
+        public JsonElement getDefault(@NotNull String rule, @NotNull String option) {
+            JsonObject ruleDefaults = defaults.get(rule);
+            return ruleDefaults == null ? null : ruleDefaults.get(option);
+        }
+
+        /**
+         * @return the JSON type of the option's default: object, array, boolean, number or string,
+         * null when there is no default or it is null
+         */
+        @Nullable
+        public String getDefaultType(@NotNull String rule, @NotNull String option) {
+            JsonElement value = getDefault(rule, option);
+            if (value == null || value.isJsonNull()) {
+                return null;
+            }
+            if (value.isJsonObject()) {
+                return "object";
+            }
+            if (value.isJsonArray()) {
+                return "array";
+            }
+            JsonPrimitive primitive = value.getAsJsonPrimitive();
+            return primitive.isBoolean() ? "boolean" : primitive.isNumber() ? "number" : "string";
+        }
+    }
+
+    private static final class Entry {
+        @Nullable
+        final Rules rules;
+        final long resolvedMillis;
+
+        Entry(@Nullable Rules rules, long resolvedMillis) {
+            this.rules = rules;
+            this.resolvedMillis = resolvedMillis;
+        }
+    }
+
+    private CoffeeLintRuleCatalog() {
+    }
+
+    @NotNull
+    public static CoffeeLintRuleCatalog getInstance() {
+        return INSTANCE;
+    }
+
+    public long getModificationCount() {
+        return modificationCount.get();
+    }
+
+    /**
+     * @return the rules of the executable, or null while they are being looked up or could not be
+     */
+    @Nullable
+    public Rules get(@NotNull final String node, @NotNull final String executable) {
+        final String key = node + '\n' + executable;
+        Entry entry = entries.get(key);
+        long now = System.currentTimeMillis();
+        if (entry == null || now - entry.resolvedMillis > RECHECK_MILLIS) {
+            // look up once, concurrent callers keep using the previous rules meanwhile
+            Entry resolving = new Entry(entry == null ? null : entry.rules, now);
+            boolean first = entry == null ? entries.putIfAbsent(key, resolving) == null : entries.replace(key, entry, resolving);
+            if (first) {
+                RESOLVER.submit(new Runnable() {
+                    public void run() {
+                        entries.put(key, new Entry(resolve(node, executable), System.currentTimeMillis()));
+                        modificationCount.incrementAndGet();
+                    }
+                });
+            }
+            return resolving.rules;
+        }
+        return entry.rules;
+    }
+
+    @Nullable
+    private static Rules resolve(@NotNull String node, @NotNull String executable) {
+        GeneralCommandLine commandLine = new GeneralCommandLine();
+        commandLine.setExePath(node);
+        commandLine.addParameter("-e");
+        commandLine.addParameter(SCRIPT);
+        commandLine.addParameter(executable);
+        try {
+            ProcessOutput out = NodeRunner.execute(commandLine, TIMEOUT);
+            if (out.getExitCode() != 0) {
+                LOG.debug("Could not look up the coffeelint rules: " + out.getStderr());
+                return null;
+            }
+            return parse(out.getStdout());
+        } catch (Exception e) {
+            LOG.debug("Could not look up the coffeelint rules", e);
+            return null;
+        }
+    }
+
+    /**
+     * @return null when the module does not export its rules, validation falls back to the builtin rule names then
+     */
+    @Nullable
+    static Rules parse(@NotNull String output) {
+        JsonObject json = new JsonParser().parse(output.trim()).getAsJsonObject();
+        JsonElement rules = json.get("rules");
+        if (rules == null || !rules.isJsonObject()) {
+            return null;
+        }
+        Map<String, JsonObject> defaults = new HashMap<String, JsonObject>();
+        for (Map.Entry<String, JsonElement> rule : rules.getAsJsonObject().entrySet()) {
+            if (rule.getValue().isJsonObject()) {
+                defaults.put(rule.getKey(), rule.getValue().getAsJsonObject());
+            }
+        }
+        JsonElement version = json.get("version");
+        return new Rules(version == null || !version.isJsonPrimitive() ? "" : version.getAsString(), Collections.unmodifiableMap(defaults));
+    }
+}
@@ -0,0 +1,99 @@
+package com.coffeelint.engine;
+
+import com.coffeelint.cli.IssueTable;
+import com.coffeelint.cli.LintResult;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * The outcome of linting the same content with two engines.
+ * Issues are matched on line, column, severity, rule and message.
+ */
+public class EngineComparison {
+    public final long timeMillis = System.currentTimeMillis();
+    public final String path;
+    public final String engine;
+    public final String otherEngine;
+    public final long nanos;
+    public final long otherNanos;
+    public final int issues;
+    public final int otherIssues;
+    /** issues only the first engine reported */
+    public final int missingInOther;
+    /** issues only the other engine reported */
+    public final int addedInOther;
+    /** the first differing issue, or an error output that differs, for the log */
+    @Nullable
+    public final String firstDifference;
+
+    public EngineComparison(@NotNull String path, @NotNull String engine, @NotNull LintResult result, long nanos,
+                            @NotNull String otherEngine, @NotNull LintResult otherResult, long otherNanos) {
+        this.path = path;
+        this.engine = engine;
+        this.otherEngine = otherEngine;
+        this.nanos = nanos;
+        this.otherNanos = otherNanos;
+        this.issues = result.issues.size();
+        this.otherIssues = otherResult.issues.size();
+
+        Map<String, Integer> counts = new HashMap<String, Integer>();
+        for (int i = 0; i < result.issues.size(); i++) {
+            adjust(counts, key(result.issues, i), 1);
+        }
+        String difference = null;
+        int added = 0;
+        for (int i = 0; i < otherResult.issues.size(); i++) {
+            String key = key(otherResult.issues, i);
+            Integer count = counts.get(key);
+            if (count == null || count == 0) {
+                added++;
+                if (difference == null) {
+                    difference = "only " + otherEngine + ": " + key;
+                }
+            } else {
+                adjust(counts, key, -1);
+            }
+        }
+        int missing = 0;
+        for (Map.Entry<String, Integer> entry : counts.entrySet()) {
+            if (entry.getValue() > 0) {
+                missing += entry.getValue();
+                if (difference == null) {
+                    difference = "only " + engine + ": " + entry.getKey();
+                }
+            }
+        }
+        if (difference == null && !equal(result.errorOutput, otherResult.errorOutput)) {
+            difference = "error output: " + result.errorOutput + " / " + otherResult.errorOutput;
+        }
+        this.missingInOther = missing;
+        this.addedInOther = added;
+        this.firstDifference = difference;
+    }
+
+    public boolean isSame() {
+        return firstDifference == null;
+    }
+
+    private static String key(IssueTable issues, int index) {
+        return issues.getLine(index) + ":" + issues.getColumn(index) + ' ' + issues.getSeverity(index).id + ' ' + issues.getRule(index) + ' ' + issues.getMessage(index);
+    }
+
+    private static void adjust(Map<String, Integer> counts, String key, int delta) {
+        Integer count = counts.get(key);
+        counts.put(key, (count == null ? 0 : count) + delta);
+    }
+
+    private static boolean equal(@Nullable String a, @Nullable String b) {
+        return (a == null || a.isEmpty()) ? (b == null || b.isEmpty()) : a.equals(b);
+    }
+
+    @Override
+    public String toString() {
+        return path + ": " + engine + " " + nanos / 1000000 + " ms, " + issues + " issues; " + otherEngine + " " + otherNanos / 1000000 + " ms, " + otherIssues
+                + " issues" + (isSame() ? "" : "; " + firstDifference);
+    }
+}
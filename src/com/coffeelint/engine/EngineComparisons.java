@@ -0,0 +1,59 @@
+package com.coffeelint.engine;
+
+import com.coffeelint.CoffeeLintBundle;
+import com.intellij.openapi.diagnostic.Logger;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.ArrayList;
+import java.util.LinkedList;
+import java.util.List;
+
+/**
+ * The latest engine comparisons of the application, shown in the Engines tab of the diagnostics tool window.
+ * Comparisons with differing results are also logged.
+ */
+public final class EngineComparisons {
+    private static final Logger LOG = Logger.getInstance(CoffeeLintBundle.LOG_ID);
+
+    public static final int CAPACITY = 200;
+
+    private static final EngineComparisons INSTANCE = new EngineComparisons();
+
+    private final LinkedList<EngineComparison> comparisons = new LinkedList<EngineComparison>();
+
+    private EngineComparisons() {
+    }
+
+    @NotNull
+    public static EngineComparisons getInstance() {
+        return INSTANCE;
+    }
+
+    public void add(@NotNull EngineComparison comparison) {
+        if (!comparison.isSame()) {
+            LOG.info("CoffeeLint engines differ: " + comparison);
+        }
+        synchronized (comparisons) {
+            comparisons.addFirst(comparison);
+            if (comparisons.size() > CAPACITY) {
+                comparisons.removeLast();
+            }
+        }
+    }
+
+    /**
+     * @return the comparisons, newest first
+     */
+    @NotNull
+    public List<EngineComparison> getComparisons() {
+        synchronized (comparisons) {
+            return new ArrayList<EngineComparison>(comparisons);
+        }
+    }
+
+    public void clear() {
+        synchronized (comparisons) {
+            comparisons.clear();
+        }
+    }
+}
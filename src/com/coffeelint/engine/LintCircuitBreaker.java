@@ -0,0 +1,214 @@
+package com.coffeelint.engine;
+
+import com.coffeelint.CoffeeLintBundle;
+import com.coffeelint.CoffeeLintProjectComponent;
+import com.coffeelint.cli.CoffeeLintRunner;
+import com.coffeelint.metrics.LatencyHistogram;
+import com.coffeelint.metrics.LintMetrics;
+import com.intellij.notification.NotificationType;
+import com.intellij.openapi.diagnostic.Logger;
+import com.intellij.util.Consumer;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.Timer;
+import java.util.TimerTask;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Stops linting files and executables that keep failing, so a hanging custom rule or a broken coffeelint install
+ * does not cost a process and a notification on every highlighting pass.
+ * A breaker opens after consecutive failures and stays open for a backoff that doubles with every further failure,
+ * once it expires the next run is a trial that closes the breaker on success.
+ * Breakers that open within a few seconds are reported in a single notification.
+ * Timeouts follow the observed latency of each executable.
+ */
+public final class LintCircuitBreaker {
+    private static final Logger LOG = Logger.getInstance(CoffeeLintBundle.LOG_ID);
+
+    static final int FILE_FAILURES = 2;
+    static final int EXECUTABLE_FAILURES = 5;
+    static final long MIN_BACKOFF_MILLIS = TimeUnit.SECONDS.toMillis(30L);
+    static final long MAX_BACKOFF_MILLIS = TimeUnit.MINUTES.toMillis(30L);
+    static final long NOTIFICATION_DELAY_MILLIS = TimeUnit.SECONDS.toMillis(5L);
+    /** runs observed before the timeout adapts */
+    static final int MIN_SAMPLES = 20;
+    static final int MIN_TIMEOUT_MILLIS = (int) TimeUnit.SECONDS.toMillis(10L);
+    /** the timeout is this multiple of the 99th percentile latency */
+    static final int TIMEOUT_FACTOR = 4;
+
+    private static final int MAX_ERROR_LENGTH = 500;
+    private static final String EXECUTABLE_PREFIX = "executable:";
+
+    private static final LintCircuitBreaker INSTANCE = new LintCircuitBreaker(new Consumer<String>() {
+        public void consume(String message) {
+            CoffeeLintProjectComponent.showNotification(message, NotificationType.WARNING);
+        }
+    });
+
+    private final Consumer<String> notifier;
+    private final Map<String, Breaker> breakers = new HashMap<String, Breaker>();
+    private final ConcurrentMap<String, LatencyHistogram> latencies = new ConcurrentHashMap<String, LatencyHistogram>();
+    /** breakers opened since the last notification */
+    private final Set<String> opened = new LinkedHashSet<String>();
+    private String lastError;
+    private Timer timer;
+
+    private static final class Breaker {
+        int failures;
+        long openUntil;
+    }
+
+    LintCircuitBreaker(@NotNull Consumer<String> notifier) {
+        this.notifier = notifier;
+    }
+
+    @NotNull
+    public static LintCircuitBreaker getInstance() {
+        return INSTANCE;
+    }
+
+    @NotNull
+    public static String executableKey(@Nullable String node, @Nullable String executable) {
+        return EXECUTABLE_PREFIX + node + ' ' + executable;
+    }
+
+    /**
+     * @param key a file path or an {@link #executableKey executable key}
+     * @return false while the breaker of the key is open
+     */
+    public boolean allows(@NotNull String key) {
+        return allows(key, System.currentTimeMillis());
+    }
+
+    synchronized boolean allows(@NotNull String key, long now) {
+        Breaker breaker = breakers.get(key);
+        return breaker == null || breaker.openUntil <= now;
+    }
+
+    public void succeeded(@NotNull String file, @NotNull String executable, long nanos) {
+        synchronized (this) {
+            breakers.remove(file);
+            breakers.remove(executable);
+        }
+        LatencyHistogram histogram = latencies.get(executable);
+        if (histogram == null) {
+            latencies.putIfAbsent(executable, new LatencyHistogram());
+            histogram = latencies.get(executable);
+        }
+        histogram.record(nanos);
+    }
+
+    public void failed(@NotNull String file, @NotNull String executable, @NotNull String error) {
+        failed(file, executable, error, System.currentTimeMillis());
+    }
+
+    synchronized void failed(@NotNull String file, @NotNull String executable, @NotNull String error, long now) {
+        lastError = error;
+        boolean fileOpened = fail(file, FILE_FAILURES, now);
+        boolean executableOpened = fail(executable, EXECUTABLE_FAILURES, now);
+        if (fileOpened || executableOpened) {
+            LintMetrics.getInstance().increment(LintMetrics.Counter.CIRCUIT_BREAKER_TRIPS);
+            if (opened.isEmpty()) {
+                scheduleNotification();
+            }
+            if (executableOpened) {
+                opened.add(executable.substring(EXECUTABLE_PREFIX.length()));
+            }
+            if (fileOpened) {
+                opened.add(file);
+            }
+        }
+    }
+
+    /**
+     * @return whether the breaker opened, false if it was open already
+     */
+    private boolean fail(@NotNull String key, int threshold, long now) {
+        Breaker breaker = breakers.get(key);
+        if (breaker == null) {
+            breaker = new Breaker();
+            breakers.put(key, breaker);
+        }
+        breaker.failures++;
+        if (breaker.failures < threshold) {
+            return false;
+        }
+        boolean wasOpen = breaker.openUntil > now;
+        breaker.openUntil = now + getBackoffMillis(breaker.failures - threshold);
+        return !wasOpen;
+    }
+
+    static long getBackoffMillis(int retries) {
+        return Math.min(MIN_BACKOFF_MILLIS << Math.min(retries, 16), MAX_BACKOFF_MILLIS);
+    }
+
+    /**
+     * @return milliseconds before a single file run of the executable is killed
+     */
+    public int getTimeout(@NotNull String executable) {
+        LatencyHistogram histogram = latencies.get(executable);
+        if (histogram == null || histogram.getCount() < MIN_SAMPLES) {
+            return CoffeeLintRunner.TIME_OUT;
+        }
+        double timeout = histogram.getPercentileMillis(99) * TIMEOUT_FACTOR;
+        return (int) Math.max(MIN_TIMEOUT_MILLIS, Math.min(timeout, CoffeeLintRunner.TIME_OUT));
+    }
+
+    private void scheduleNotification() {
+        if (timer == null) {
+            timer = new Timer("CoffeeLint circuit breaker", true);
+        }
+        timer.schedule(new TimerTask() {
+            @Override
+            public void run() {
+                String message = flushNotification();
+                if (message != null) {
+                    notifier.consume(message);
+                }
+            }
+        }, NOTIFICATION_DELAY_MILLIS);
+    }
+
+    /**
+     * @return the message reporting the breakers opened since the last call, null if none opened
+     */
+    @Nullable
+    synchronized String flushNotification() {
+        if (opened.isEmpty()) {
+            return null;
+        }
+        StringBuilder message = new StringBuilder("CoffeeLint keeps failing and is paused for ");
+        message.append(opened.size() == 1 ? opened.iterator().next() : opened.size() + " files or executables: " + join(opened, 5));
+        message.append(", retrying in ").append(TimeUnit.MILLISECONDS.toSeconds(MIN_BACKOFF_MILLIS)).append(" s or later");
+        message.append("<br>").append(lastError.length() > MAX_ERROR_LENGTH ? lastError.substring(0, MAX_ERROR_LENGTH) + "..." : lastError);
+        LOG.info(message.toString());
+        opened.clear();
+        return message.toString();
+    }
+
+    private static String join(@NotNull Collection<String> items, int limit) {
+        StringBuilder text = new StringBuilder();
+        int count = 0;
+        for (String item : items) {
+            if (count == limit) {
+                break;
+            }
+            if (count++ > 0) {
+                text.append(", ");
+            }
+            text.append(item);
+        }
+        if (items.size() > limit) {
+            text.append(", ...");
+        }
+        return text.toString();
+    }
+}
@@ -0,0 +1,53 @@
+package com.coffeelint.engine;
+
+import com.coffeelint.cli.LintResult;
+import com.intellij.openapi.extensions.ExtensionPointName;
+import com.intellij.util.Consumer;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.List;
+import java.util.concurrent.Future;
+
+/**
+ * A backend that lints CoffeeScript, registered with the {@code com.wix.coffeelint.lintEngine} extension point
+ * and selected per project in the settings.
+ */
+public interface LintEngine {
+    ExtensionPointName<LintEngine> EP_NAME = ExtensionPointName.create("com.wix.coffeelint.lintEngine");
+
+    enum Capability {
+        /** lints {@link LintRequest#content} without a file on disk */
+        STDIN,
+        /** reports issue columns */
+        COLUMNS,
+        /** lints several files in one run */
+        MULTI_FILE
+    }
+
+    /**
+     * @return the id stored in the settings
+     */
+    @NotNull
+    String getId();
+
+    @NotNull
+    String getDisplayName();
+
+    boolean supports(@NotNull Capability capability);
+
+    /**
+     * Lint a single file: {@link LintRequest#content} when it is set and the engine supports {@link Capability#STDIN},
+     * otherwise the target file on disk.
+     */
+    @NotNull
+    Future<LintResult> lint(@NotNull LintRequest request);
+
+    /**
+     * Lint several files on disk, the consumer gets one result per file as soon as it is known.
+     * Engines without {@link Capability#MULTI_FILE} lint them one by one.
+     *
+     * @return a result carrying only the error output of the run
+     */
+    @NotNull
+    Future<LintResult> lintFiles(@NotNull LintRequest request, @NotNull List<String> files, @NotNull Consumer<LintResult> consumer);
+}
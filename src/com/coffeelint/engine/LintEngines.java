@@ -0,0 +1,105 @@
+package com.coffeelint.engine;
+
+import com.coffeelint.cli.LintResult;
+import com.intellij.openapi.application.ApplicationManager;
+import com.intellij.openapi.progress.ProcessCanceledException;
+import com.intellij.openapi.progress.ProgressManager;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Lookup of the registered {@link LintEngine}s and the threads they run on.
+ */
+public final class LintEngines {
+    public static final String DEFAULT_ENGINE_ID = StdinLintEngine.ID;
+
+    private static final long POLL_MILLIS = 50L;
+
+    private static final ExecutorService EXECUTOR = Executors.newCachedThreadPool(new ThreadFactory() {
+        private final AtomicInteger count = new AtomicInteger();
+
+        public Thread newThread(@NotNull Runnable r) {
+            Thread thread = new Thread(r, "CoffeeLint engine " + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }
+    });
+
+    private LintEngines() {
+    }
+
+    /**
+     * @return the registered engines, or the built in ones when running outside the IDE
+     */
+    @NotNull
+    public static List<LintEngine> getEngines() {
+        if (ApplicationManager.getApplication() == null) {
+            return Arrays.<LintEngine>asList(new StdinLintEngine(), new ProcessLintEngine());
+        }
+        return new ArrayList<LintEngine>(Arrays.asList(LintEngine.EP_NAME.getExtensions()));
+    }
+
+    @Nullable
+    public static LintEngine findEngine(@Nullable String id) {
+        for (LintEngine engine : getEngines()) {
+            if (engine.getId().equals(id)) {
+                return engine;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * @return the engine with the id, or the default engine when it is not installed
+     */
+    @NotNull
+    public static LintEngine getEngine(@Nullable String id) {
+        LintEngine engine = findEngine(id);
+        if (engine == null) {
+            engine = findEngine(DEFAULT_ENGINE_ID);
+        }
+        return engine == null ? new StdinLintEngine() : engine;
+    }
+
+    @NotNull
+    public static <T> Future<T> submit(@NotNull Callable<T> task) {
+        return EXECUTOR.submit(task);
+    }
+
+    /**
+     * Wait for an engine's result while honouring cancellation of the current progress and interrupts, the future is cancelled with them.
+     */
+    @NotNull
+    public static LintResult await(@NotNull Future<LintResult> future) throws ExecutionException, InterruptedException {
+        while (true) {
+            try {
+                ProgressManager.checkCanceled();
+            } catch (ProcessCanceledException e) {
+                future.cancel(true);
+                throw e;
+            }
+            try {
+                return future.get(POLL_MILLIS, TimeUnit.MILLISECONDS);
+            } catch (TimeoutException ignored) {
+                // poll the progress again
+            } catch (InterruptedException e) {
+                // nobody waits for the result any more, stop the process instead of letting it run to its timeout
+                future.cancel(true);
+                throw e;
+            }
+        }
+    }
+}
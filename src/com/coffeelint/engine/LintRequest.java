@@ -0,0 +1,44 @@
+package com.coffeelint.engine;
+
+import com.coffeelint.CoffeeLintProjectComponent;
+import com.coffeelint.cli.CoffeeLintRunner;
+import com.coffeelint.cli.CustomRulesCache;
+import com.intellij.openapi.project.Project;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * What to lint and how: the coffeelint settings, and optionally the text to lint instead of the target file on disk.
+ */
+public class LintRequest {
+    @NotNull
+    public final CoffeeLintRunner.CoffeeLintSettings settings;
+    @Nullable
+    public final CharSequence content;
+    /** the project asking, engines that share processes between projects keep them while it is open */
+    @Nullable
+    public final Project project;
+
+    public LintRequest(@NotNull CoffeeLintRunner.CoffeeLintSettings settings, @Nullable CharSequence content) {
+        this(settings, content, null);
+    }
+
+    public LintRequest(@NotNull CoffeeLintRunner.CoffeeLintSettings settings, @Nullable CharSequence content, @Nullable Project project) {
+        this.settings = settings;
+        this.content = content;
+        this.project = project;
+    }
+
+    /**
+     * @param targetFile path relative to cwd, also used to name the content in results
+     * @param content    text to lint, or null to lint the target file on disk
+     */
+    @NotNull
+    public static LintRequest create(@NotNull CoffeeLintProjectComponent component, @NotNull String cwd, @NotNull String targetFile, @Nullable CharSequence content) {
+        CoffeeLintRunner.CoffeeLintSettings settings = CoffeeLintRunner.buildSettings(cwd, targetFile, component.nodeInterpreter, component.lintExecutable,
+                component.configFile, component.customRulesPath, component.extensions);
+        settings.compileCache = component.compileCache;
+        settings.rules = CustomRulesCache.getInstance().getRulesDirectory(settings);
+        return new LintRequest(settings, content, component.getProject());
+    }
+}
@@ -0,0 +1,261 @@
+package com.coffeelint.engine;
+
+import com.coffeelint.CoffeeLintBundle;
+import com.coffeelint.cli.CoffeeLintRunner;
+import com.coffeelint.cli.CompileCache;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import com.intellij.execution.ExecutionException;
+import com.intellij.execution.configurations.GeneralCommandLine;
+import com.intellij.openapi.diagnostic.Logger;
+import com.intellij.openapi.vfs.CharsetToolkit;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.util.Iterator;
+import java.util.LinkedList;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A long running node process with the lint-server.js shim, see {@link LintServerPool}.
+ * Requests are written as JSON lines and may be sent from any thread, responses are matched to them by id,
+ * so requests of several projects are multiplexed over the one process.
+ * The shim lints one request at a time in the order they were written, so the timeout of a request only starts once
+ * the requests before it are answered. A request that times out fails alone, the server is only stopped when it
+ * has not answered it {@link #UNRESPONSIVE_MILLIS} later either.
+ */
+final class LintServer {
+    private static final Logger LOG = Logger.getInstance(CoffeeLintBundle.LOG_ID);
+
+    private static final int MAX_ERROR_OUTPUT = 64 * 1024;
+    /** how often waiting requests check whether they were dispatched or timed out */
+    private static final long POLL_MILLIS = 100L;
+    /** time past its timeout after which an unanswered request means the server hangs */
+    static final long UNRESPONSIVE_MILLIS = TimeUnit.SECONDS.toMillis(60L);
+
+    private final Process process;
+    private final Writer stdin;
+    private final ConcurrentMap<Integer, Pending> pending = new ConcurrentHashMap<Integer, Pending>();
+    /** requests written and not answered yet in the order the shim lints them, the first is being linted */
+    private final LinkedList<Pending> dispatched = new LinkedList<Pending>();
+    private final AtomicInteger ids = new AtomicInteger();
+    private final StringBuffer errorOutput = new StringBuffer();
+    private volatile boolean alive = true;
+    /** resident set size reported with the last response */
+    private volatile long rssBytes;
+
+    private static final class Pending {
+        final int id;
+        final long timeoutMillis;
+        final CountDownLatch done = new CountDownLatch(1);
+        volatile JsonObject response;
+        volatile String failure;
+        /** when the shim started linting the request, 0 while it waits behind others */
+        volatile long startMillis;
+        /** nobody waits for the response anymore, the shim may still be linting it or get to it later */
+        volatile boolean abandoned;
+
+        Pending(int id, long timeoutMillis) {
+            this.id = id;
+            this.timeoutMillis = timeoutMillis;
+        }
+    }
+
+    private LintServer(@NotNull Process process) {
+        this.process = process;
+        this.stdin = new OutputStreamWriter(process.getOutputStream(), CharsetToolkit.UTF8_CHARSET);
+    }
+
+    @NotNull
+    static LintServer start(@NotNull CoffeeLintRunner.CoffeeLintSettings settings, @NotNull File shim) throws ExecutionException {
+        GeneralCommandLine commandLine = new GeneralCommandLine();
+        commandLine.setExePath(settings.node);
+        commandLine.addParameter(shim.getPath());
+        commandLine.addParameter(settings.executablePath);
+        // the server lints the focused editors of every project, so it keeps normal priority whatever the first request asked for
+        if (settings.compileCache) {
+            CompileCache.getInstance().configure(commandLine, settings);
+        }
+        final LintServer server = new LintServer(commandLine.createProcess());
+        Thread reader = new Thread("CoffeeLint server reader") {
+            @Override
+            public void run() {
+                server.readResponses();
+            }
+        };
+        reader.setDaemon(true);
+        reader.start();
+        Thread errorReader = new Thread("CoffeeLint server errors") {
+            @Override
+            public void run() {
+                server.readErrors();
+            }
+        };
+        errorReader.setDaemon(true);
+        errorReader.start();
+        LOG.debug("Started lint server " + settings.node + " " + settings.executablePath);
+        return server;
+    }
+
+    boolean isAlive() {
+        return alive;
+    }
+
+    long getRssBytes() {
+        return rssBytes;
+    }
+
+    /**
+     * @param timeoutMillis from the time the shim starts linting the request, not counting the requests before it
+     * @return the response, with "results" or "error"
+     * @throws TimeoutException when there is no response within the timeout, only this request fails
+     */
+    @NotNull
+    JsonObject request(@NotNull JsonObject request, long timeoutMillis) throws IOException, TimeoutException, InterruptedException {
+        int id = ids.incrementAndGet();
+        request.addProperty("id", id);
+        Pending entry = new Pending(id, timeoutMillis);
+        pending.put(id, entry);
+        try {
+            if (!alive) {
+                throw new IOException("lint server exited: " + errorOutput);
+            }
+            synchronized (stdin) {
+                synchronized (dispatched) {
+                    dispatched.add(entry);
+                    if (dispatched.size() == 1) {
+                        entry.startMillis = System.currentTimeMillis();
+                    }
+                }
+                stdin.write(request.toString());
+                stdin.write('\n');
+                stdin.flush();
+            }
+            if (!await(entry)) {
+                // the shim is busy with it, the requests behind it keep waiting without their clocks running
+                throw new TimeoutException("lint server did not respond within " + timeoutMillis + " ms");
+            }
+        } finally {
+            pending.remove(id);
+            if (entry.response == null) {
+                // timed out, cancelled while queued or failed: once the shim gets to it nobody waits for the answer,
+                // so a hang on it is detected by the requests behind it
+                entry.abandoned = true;
+            }
+        }
+        if (entry.response == null) {
+            throw new IOException(entry.failure);
+        }
+        return entry.response;
+    }
+
+    /**
+     * @return false when the request timed out after it was dispatched
+     */
+    private boolean await(@NotNull Pending entry) throws InterruptedException {
+        while (!entry.done.await(POLL_MILLIS, TimeUnit.MILLISECONDS)) {
+            long now = System.currentTimeMillis();
+            long start = entry.startMillis;
+            if (start != 0 && now - start >= entry.timeoutMillis) {
+                return false;
+            }
+            if (start == 0 && isUnresponsive(now)) {
+                // a hung server would hold back the requests of every project, stopping it fails them and the next acquire restarts it
+                LOG.warn("Lint server did not answer an abandoned request within " + UNRESPONSIVE_MILLIS + " ms, stopping it");
+                stop();
+            }
+        }
+        return true;
+    }
+
+    private boolean isUnresponsive(long now) {
+        synchronized (dispatched) {
+            Pending first = dispatched.peek();
+            return first != null && first.abandoned && now - first.startMillis >= first.timeoutMillis + UNRESPONSIVE_MILLIS;
+        }
+    }
+
+    /**
+     * The shim answered the request, the next one in line starts.
+     */
+    private void answered(int id) {
+        synchronized (dispatched) {
+            for (Iterator<Pending> it = dispatched.iterator(); it.hasNext(); ) {
+                if (it.next().id == id) {
+                    it.remove();
+                    break;
+                }
+            }
+            Pending next = dispatched.peek();
+            if (next != null && next.startMillis == 0) {
+                next.startMillis = System.currentTimeMillis();
+            }
+        }
+    }
+
+    void stop() {
+        alive = false;
+        process.destroy();
+        failPending("lint server stopped");
+    }
+
+    private void readResponses() {
+        try {
+            BufferedReader reader = new BufferedReader(new InputStreamReader(process.getInputStream(), CharsetToolkit.UTF8_CHARSET));
+            JsonParser parser = new JsonParser();
+            String line;
+            while ((line = reader.readLine()) != null) {
+                JsonObject response = parser.parse(line).getAsJsonObject();
+                if (response.has("rss")) {
+                    rssBytes = response.get("rss").getAsLong();
+                }
+                int id = response.get("id").getAsInt();
+                answered(id);
+                Pending entry = pending.get(id);
+                if (entry != null) {
+                    entry.response = response;
+                    entry.done.countDown();
+                }
+            }
+        } catch (Exception e) {
+            LOG.debug("Lint server output ended", e);
+        } finally {
+            alive = false;
+            failPending("lint server exited: " + errorOutput);
+        }
+    }
+
+    private void readErrors() {
+        InputStream in = process.getErrorStream();
+        byte[] buffer = new byte[4096];
+        try {
+            int read;
+            while ((read = in.read(buffer)) >= 0) {
+                if (errorOutput.length() < MAX_ERROR_OUTPUT) {
+                    errorOutput.append(new String(buffer, 0, read, CharsetToolkit.UTF8_CHARSET));
+                }
+            }
+        } catch (IOException ignored) {
+            // the process is gone
+        }
+    }
+
+    private void failPending(@Nullable String failure) {
+        for (Pending entry : pending.values()) {
+            entry.failure = failure;
+            entry.done.countDown();
+        }
+    }
+}
@@ -0,0 +1,187 @@
+package com.coffeelint.engine;
+
+import com.coffeelint.CoffeeLintBundle;
+import com.coffeelint.cli.CoffeeLintRunner;
+import com.coffeelint.metrics.LintMetrics;
+import com.intellij.execution.ExecutionException;
+import com.intellij.openapi.Disposable;
+import com.intellij.openapi.application.ApplicationManager;
+import com.intellij.openapi.application.PathManager;
+import com.intellij.openapi.components.ServiceManager;
+import com.intellij.openapi.diagnostic.Logger;
+import com.intellij.openapi.util.io.FileUtil;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * One {@link LintServer} per distinct node interpreter and coffeelint executable for the whole application,
+ * shared by all open projects instead of a node process, and its 60-100 MB heap, per project.
+ * A server is referenced by the projects that used it last and stopped when the last of them closes
+ * or switches to another executable. A server that died is started again on the next request.
+ * The {@link LintMetrics} gauges show the servers, their projects, their memory, and the memory a server per project would take on top.
+ */
+public class LintServerPool implements Disposable {
+    private static final Logger LOG = Logger.getInstance(CoffeeLintBundle.LOG_ID);
+
+    static final String SHIM = "lint-server.js";
+    private static final long MB = 1024L * 1024L;
+
+    /** owner of requests without a project, its servers live until the application exits */
+    private static final Object NO_OWNER = new Object();
+
+    private static LintServerPool standalone;
+
+    /** node + '\n' + executable -> server */
+    private final Map<String, Entry> servers = new HashMap<String, Entry>();
+    /** project -> key of the server it uses */
+    private final Map<Object, String> keys = new HashMap<Object, String>();
+    private File shim;
+
+    private static final class Entry {
+        final Set<Object> owners = new HashSet<Object>();
+        LintServer server;
+    }
+
+    @NotNull
+    public static synchronized LintServerPool getInstance() {
+        if (ApplicationManager.getApplication() == null) {
+            if (standalone == null) {
+                standalone = new LintServerPool();
+            }
+            return standalone;
+        }
+        return ServiceManager.getService(LintServerPool.class);
+    }
+
+    /**
+     * @param owner the project of the request, the server stays referenced by it until {@link #release}
+     * @return a running server for the node and executable of the settings
+     */
+    @NotNull
+    synchronized LintServer acquire(@Nullable Object owner, @NotNull CoffeeLintRunner.CoffeeLintSettings settings) throws ExecutionException, IOException {
+        Object key = owner == null ? NO_OWNER : owner;
+        String serverKey = settings.node + '\n' + settings.executablePath;
+        String previous = keys.put(key, serverKey);
+        if (previous != null && !previous.equals(serverKey)) {
+            release(key, previous);
+        }
+        Entry entry = servers.get(serverKey);
+        if (entry == null) {
+            entry = new Entry();
+            servers.put(serverKey, entry);
+        }
+        entry.owners.add(key);
+        if (entry.server == null || !entry.server.isAlive()) {
+            entry.server = LintServer.start(settings, getShim());
+        }
+        updateMetrics();
+        return entry.server;
+    }
+
+    /**
+     * Drop the project's reference, called when it closes.
+     */
+    public synchronized void release(@NotNull Object owner) {
+        String serverKey = keys.remove(owner);
+        if (serverKey != null) {
+            release(owner, serverKey);
+        }
+        updateMetrics();
+    }
+
+    private void release(@NotNull Object owner, @NotNull String serverKey) {
+        Entry entry = servers.get(serverKey);
+        if (entry == null) {
+            return;
+        }
+        entry.owners.remove(owner);
+        if (entry.owners.isEmpty()) {
+            servers.remove(serverKey);
+            if (entry.server != null) {
+                LOG.debug("Stopping unused lint server " + serverKey.replace('\n', ' '));
+                entry.server.stop();
+            }
+        }
+    }
+
+    synchronized void updateMetrics() {
+        int running = 0;
+        int owners = 0;
+        long rss = 0;
+        long saved = 0;
+        for (Entry entry : servers.values()) {
+            if (entry.server == null || !entry.server.isAlive()) {
+                continue;
+            }
+            running++;
+            owners += entry.owners.size();
+            rss += entry.server.getRssBytes();
+            saved += (entry.owners.size() - 1) * entry.server.getRssBytes();
+        }
+        LintMetrics metrics = LintMetrics.getInstance();
+        metrics.set(LintMetrics.Gauge.LINT_SERVERS, running);
+        metrics.set(LintMetrics.Gauge.LINT_SERVER_PROJECTS, owners);
+        metrics.set(LintMetrics.Gauge.LINT_SERVER_MEMORY_MB, (int) (rss / MB));
+        metrics.set(LintMetrics.Gauge.LINT_SERVER_SAVED_MB, (int) (saved / MB));
+    }
+
+    public synchronized void dispose() {
+        for (Entry entry : servers.values()) {
+            if (entry.server != null) {
+                entry.server.stop();
+            }
+        }
+        servers.clear();
+        keys.clear();
+        updateMetrics();
+    }
+
+    /**
+     * node needs the shim as a file, it is written to the system directory once per version of the plugin.
+     */
+    @NotNull
+    private File getShim() throws IOException {
+        if (shim == null) {
+            InputStream in = LintServerPool.class.getResourceAsStream(SHIM);
+            if (in == null) {
+                throw new IOException(SHIM + " not found");
+            }
+            byte[] content;
+            try {
+                content = FileUtil.loadBytes(in);
+            } finally {
+                in.close();
+            }
+            File file = new File(PathManager.getSystemPath(), "coffeelint" + File.separatorChar + "lint-server-" + hash(content) + ".js");
+            if (!file.isFile()) {
+                FileUtil.writeToFile(file, content);
+            }
+            shim = file;
+        }
+        return shim;
+    }
+
+    @NotNull
+    private static String hash(@NotNull byte[] content) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-1").digest(content);
+            StringBuilder hex = new StringBuilder();
+            for (int i = 0; i < 6; i++) {
+                hex.append(String.format("%02x", digest[i] & 0xff));
+            }
+            return hex.toString();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
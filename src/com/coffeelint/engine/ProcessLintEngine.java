@@ -0,0 +1,49 @@
+package com.coffeelint.engine;
+
+import com.coffeelint.cli.CoffeeLintRunner;
+import com.coffeelint.cli.LintResult;
+import com.intellij.util.Consumer;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Future;
+
+/**
+ * Starts a coffeelint process per request and lints files on disk, unsaved documents go through a temp file.
+ */
+public class ProcessLintEngine implements LintEngine {
+    public static final String ID = "process";
+
+    @NotNull
+    public String getId() {
+        return ID;
+    }
+
+    @NotNull
+    public String getDisplayName() {
+        return "coffeelint process, files on disk";
+    }
+
+    public boolean supports(@NotNull Capability capability) {
+        return capability == Capability.MULTI_FILE;
+    }
+
+    @NotNull
+    public Future<LintResult> lint(@NotNull final LintRequest request) {
+        return LintEngines.submit(new Callable<LintResult>() {
+            public LintResult call() {
+                return CoffeeLintRunner.lint(request.settings);
+            }
+        });
+    }
+
+    @NotNull
+    public Future<LintResult> lintFiles(@NotNull final LintRequest request, @NotNull final List<String> files, @NotNull final Consumer<LintResult> consumer) {
+        return LintEngines.submit(new Callable<LintResult>() {
+            public LintResult call() {
+                return CoffeeLintRunner.lintFiles(request.settings, files, consumer);
+            }
+        });
+    }
+}
@@ -0,0 +1,151 @@
+package com.coffeelint.engine;
+
+import com.coffeelint.CoffeeLintBundle;
+import com.coffeelint.cli.CoffeeLintRules;
+import com.coffeelint.cli.IssueTable;
+import com.coffeelint.cli.LintResult;
+import com.coffeelint.metrics.LintMetrics;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.intellij.openapi.diagnostic.Logger;
+import com.intellij.util.Consumer;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Lints with a node process shared by all projects that use the same node and coffeelint, see {@link LintServerPool}.
+ * Saves the process start of every run and the memory of a process per project. Every request carries its own
+ * working directory, config and rules, documents are sent with the request.
+ */
+public class ServerLintEngine implements LintEngine {
+    public static final String ID = "server";
+
+    private static final Logger LOG = Logger.getInstance(CoffeeLintBundle.LOG_ID);
+
+    @NotNull
+    public String getId() {
+        return ID;
+    }
+
+    @NotNull
+    public String getDisplayName() {
+        return "shared coffeelint server";
+    }
+
+    public boolean supports(@NotNull Capability capability) {
+        // columns as far as the rules of the coffeelint version set them
+        return capability == Capability.STDIN || capability == Capability.COLUMNS || capability == Capability.MULTI_FILE;
+    }
+
+    @NotNull
+    public Future<LintResult> lint(@NotNull final LintRequest request) {
+        return LintEngines.submit(new Callable<LintResult>() {
+            public LintResult call() {
+                final LintResult result = new LintResult();
+                result.errorOutput = run(request, Collections.singletonList(request.settings.targetFile), request.content, new Consumer<LintResult>() {
+                    public void consume(LintResult file) {
+                        result.coffeeLint = file.coffeeLint;
+                        result.issues = file.issues;
+                    }
+                });
+                return result;
+            }
+        });
+    }
+
+    @NotNull
+    public Future<LintResult> lintFiles(@NotNull final LintRequest request, @NotNull final List<String> files, @NotNull final Consumer<LintResult> consumer) {
+        return LintEngines.submit(new Callable<LintResult>() {
+            public LintResult call() {
+                LintResult result = new LintResult();
+                result.errorOutput = run(request, files, null, consumer);
+                return result;
+            }
+        });
+    }
+
+    /**
+     * @param content text of the only file, or null to lint the files on disk
+     * @return the error output, null when the server linted all files
+     */
+    @Nullable
+    private static String run(@NotNull LintRequest request, @NotNull List<String> files, @Nullable CharSequence content, @NotNull Consumer<LintResult> consumer) {
+        if (files.isEmpty()) {
+            return null;
+        }
+        LintMetrics metrics = LintMetrics.getInstance();
+        metrics.increment(LintMetrics.Counter.RUNS);
+        LintServerPool pool = LintServerPool.getInstance();
+        try {
+            LintServer server = pool.acquire(request.project, request.settings);
+            JsonObject response;
+            try {
+                response = server.request(createRequest(request, files, content), request.settings.timeout);
+            } finally {
+                pool.updateMetrics();
+            }
+            if (response.has("error")) {
+                return response.get("error").getAsString();
+            }
+            for (JsonElement element : response.getAsJsonArray("results")) {
+                consumer.consume(toResult(element.getAsJsonObject()));
+            }
+            return null;
+        } catch (TimeoutException e) {
+            metrics.increment(LintMetrics.Counter.TIMEOUTS);
+            return e.getMessage();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return e.toString();
+        } catch (Exception e) {
+            LOG.warn(e);
+            return e.toString();
+        }
+    }
+
+    @NotNull
+    static JsonObject createRequest(@NotNull LintRequest request, @NotNull List<String> files, @Nullable CharSequence content) {
+        JsonObject json = new JsonObject();
+        json.addProperty("cwd", request.settings.cwd);
+        json.addProperty("config", emptyToNull(request.settings.config));
+        json.addProperty("rules", emptyToNull(request.settings.rules));
+        JsonArray array = new JsonArray();
+        for (String file : files) {
+            JsonObject item = new JsonObject();
+            item.addProperty("name", file);
+            if (content != null) {
+                item.addProperty("source", content.toString());
+            }
+            array.add(item);
+        }
+        json.add("files", array);
+        return json;
+    }
+
+    @NotNull
+    static LintResult toResult(@NotNull JsonObject file) {
+        JsonArray errors = file.getAsJsonArray("errors");
+        IssueTable.Builder builder = new IssueTable.Builder(errors.size());
+        for (JsonElement element : errors) {
+            JsonObject error = element.getAsJsonObject();
+            int column = error.has("column") ? error.get("column").getAsInt() : IssueTable.NO_COLUMN;
+            builder.add(CoffeeLintRules.COFFEELINT_SOURCE, error.get("line").getAsInt(), column,
+                    error.get("severity").getAsString(), error.get("message").getAsString());
+        }
+        LintResult result = LintResult.of(builder.build());
+        result.coffeeLint.file.name = file.get("name").getAsString();
+        return result;
+    }
+
+    @Nullable
+    private static String emptyToNull(@Nullable String value) {
+        return value == null || value.isEmpty() ? null : value;
+    }
+}
@@ -0,0 +1,48 @@
+package com.coffeelint.engine;
+
+import com.coffeelint.cli.CoffeeLintRunner;
+import com.coffeelint.cli.LintResult;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.Future;
+
+/**
+ * Like {@link ProcessLintEngine}, but streams the document snapshot to coffeelint's stdin when the request carries it.
+ * coffeelint looks up coffeelint.json from the working directory in stdin mode, so callers only pass content together with
+ * the file's effective config, see {@link com.coffeelint.batch.EffectiveConfigLocator}.
+ */
+public class StdinLintEngine extends ProcessLintEngine {
+    public static final String ID = "stdin";
+
+    @NotNull
+    @Override
+    public String getId() {
+        return ID;
+    }
+
+    @NotNull
+    @Override
+    public String getDisplayName() {
+        return "coffeelint process, stdin";
+    }
+
+    @Override
+    public boolean supports(@NotNull Capability capability) {
+        return capability == Capability.STDIN || super.supports(capability);
+    }
+
+    @NotNull
+    @Override
+    public Future<LintResult> lint(@NotNull final LintRequest request) {
+        final CharSequence content = request.content;
+        if (content == null) {
+            return super.lint(request);
+        }
+        return LintEngines.submit(new Callable<LintResult>() {
+            public LintResult call() {
+                return CoffeeLintRunner.lint(request.settings, content);
+            }
+        });
+    }
+}
@@ -0,0 +1,139 @@
+// Lint server of the CoffeeLint plugin, shared by all projects that use the same node and coffeelint.
+// usage: node lint-server.js <coffeelint executable>
+// Reads one JSON request per line from stdin and writes one JSON response per line to stdout:
+//   {"id": 1, "cwd": "/project", "config": "/project/coffeelint.json" or null, "rules": "/rules" or null,
+//    "files": [{"name": "src/a.coffee", "source": "text, or omitted to read the file"}]}
+//   {"id": 1, "results": [{"name": "src/a.coffee", "errors": [{"line": 1, "column": 3, "severity": "error", "message": "..."}]}], "rss": 123}
+// Requests never share state: the config is read per request (cached by modification time), without one it is looked up
+// per file like the coffeelint command does, and every rules directory gets its own instance of the coffeelint module.
+'use strict';
+var fs = require('fs');
+var path = require('path');
+var readline = require('readline');
+
+var packageDir = findPackage(path.dirname(fs.realpathSync(process.argv[2])));
+var instances = {};
+var configs = {};
+var coffeeRegistered = false;
+
+function findPackage(dir) {
+    for (var current = dir; ; current = path.dirname(current)) {
+        var manifest = path.join(current, 'package.json');
+        if (fs.existsSync(manifest) && /coffeelint/.test(JSON.parse(fs.readFileSync(manifest, 'utf8')).name)) {
+            return current;
+        }
+        if (path.dirname(current) === current) {
+            throw new Error('coffeelint package not found from ' + dir);
+        }
+    }
+}
+
+function forget(prefix) {
+    Object.keys(require.cache).forEach(function (id) {
+        if (id.indexOf(prefix + path.sep) === 0) {
+            delete require.cache[id];
+        }
+    });
+}
+
+function rulesVersion(dir) {
+    return fs.readdirSync(dir).map(function (name) {
+        return name + ':' + fs.statSync(path.join(dir, name)).mtime.getTime();
+    }).join('|');
+}
+
+// a fresh coffeelint module per rules directory, registered rules are global to the module
+function getInstance(rules) {
+    var key = rules ? rules + '\n' + rulesVersion(rules) : '';
+    var instance = instances[key];
+    if (!instance) {
+        Object.keys(instances).forEach(function (other) {
+            if (rules && other.indexOf(rules + '\n') === 0) {
+                delete instances[other];
+            }
+        });
+        forget(packageDir);
+        instance = require(packageDir);
+        if (rules) {
+            forget(rules);
+            loadRules(instance, rules);
+        }
+        instances[key] = instance;
+    }
+    return instance;
+}
+
+// like the --rules option of the coffeelint command
+function loadRules(coffeelint, dir) {
+    fs.readdirSync(dir).forEach(function (name) {
+        if (!/\.(js|coffee)$/.test(name)) {
+            return;
+        }
+        if (/\.coffee$/.test(name) && !coffeeRegistered) {
+            require(require.resolve('coffee-script/register', {paths: [packageDir]}));
+            coffeeRegistered = true;
+        }
+        [].concat(require(path.join(dir, name))).forEach(function (rule) {
+            coffeelint.registerRule(rule);
+        });
+    });
+}
+
+function readConfig(file) {
+    var mtime = fs.statSync(file).mtime.getTime();
+    var cached = configs[file];
+    if (!cached || cached.mtime !== mtime) {
+        cached = configs[file] = {mtime: mtime, config: JSON.parse(fs.readFileSync(file, 'utf8'))};
+    }
+    return cached.config;
+}
+
+function findConfig(file) {
+    try {
+        return require(path.join(packageDir, 'lib', 'configfinder')).getConfig(file) || {};
+    } catch (e) {
+        return {};
+    }
+}
+
+function lint(request) {
+    var coffeelint = getInstance(request.rules);
+    var config = request.config ? readConfig(path.resolve(request.cwd, request.config)) : null;
+    return request.files.map(function (file) {
+        var filePath = path.resolve(request.cwd, file.name);
+        var source = file.source != null ? file.source : fs.readFileSync(filePath, 'utf8');
+        var literate = /\.(litcoffee|coffee\.md)$/.test(filePath);
+        var errors = coffeelint.lint(source, config || findConfig(filePath), literate);
+        return {
+            name: file.name,
+            errors: errors.map(function (e) {
+                // as the checkstyle reporter writes them, columnNumber is 0 based like the CoffeeScript lexer and only set by some rules
+                var error = {line: e.lineNumber, severity: e.level === 'warn' ? 'warning' : e.level, message: e.message};
+                if (e.context) {
+                    error.message += '; context: ' + e.context;
+                }
+                if (typeof e.columnNumber === 'number') {
+                    error.column = e.columnNumber + 1;
+                }
+                return error;
+            })
+        };
+    });
+}
+
+readline.createInterface({input: process.stdin, terminal: false}).on('line', function (line) {
+    if (!line) {
+        return;
+    }
+    var request = JSON.parse(line);
+    var response = {id: request.id};
+    try {
+        response.results = lint(request);
+    } catch (e) {
+        response.error = String(e && e.stack || e);
+    }
+    response.rss = process.memoryUsage().rss;
+    process.stdout.write(JSON.stringify(response) + '\n');
+}).on('close', function () {
+    process.exit(0);
+});
@@ -0,0 +1,187 @@
+package com.coffeelint.fixes;
+
+import com.coffeelint.CoffeeLintBundle;
+import com.coffeelint.CoffeeLintProjectComponent;
+import com.coffeelint.cli.IssueTable;
+import com.coffeelint.config.CoffeeLintConfigFileUtil;
+import com.coffeelint.results.BulkChangeRelinter;
+import com.coffeelint.results.ContentHash;
+import com.coffeelint.results.LintResultCache;
+import com.intellij.notification.NotificationType;
+import com.intellij.openapi.actionSystem.AnAction;
+import com.intellij.openapi.actionSystem.AnActionEvent;
+import com.intellij.openapi.application.ApplicationManager;
+import com.intellij.openapi.application.ModalityState;
+import com.intellij.openapi.command.WriteCommandAction;
+import com.intellij.openapi.diagnostic.Logger;
+import com.intellij.openapi.editor.Document;
+import com.intellij.openapi.fileEditor.FileDocumentManager;
+import com.intellij.openapi.fileTypes.FileType;
+import com.intellij.openapi.progress.ProcessCanceledException;
+import com.intellij.openapi.progress.ProgressIndicator;
+import com.intellij.openapi.progress.ProgressManager;
+import com.intellij.openapi.progress.Task;
+import com.intellij.openapi.project.Project;
+import com.intellij.openapi.roots.ContentIterator;
+import com.intellij.openapi.roots.ProjectRootManager;
+import com.intellij.openapi.util.Computable;
+import com.intellij.openapi.vfs.VirtualFile;
+import com.intellij.psi.codeStyle.CodeStyleSettingsManager;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Fixes the {@link LexicalFixer} rules in every CoffeeScript file of the project.
+ * Files without a result for their content are linted first with multi-file runs, the fixes are applied
+ * in commands of {@link #FILES_PER_WRITE_ACTION} files each so the IDE stays responsive,
+ * and only the files that changed are linted again. Each command, including its line separator changes, can be undone on its own.
+ */
+public class FixLexicalIssuesAction extends AnAction {
+    private static final Logger LOG = Logger.getInstance(CoffeeLintBundle.LOG_ID);
+
+    static final int FILES_PER_WRITE_ACTION = 20;
+
+    @Override
+    public void update(AnActionEvent e) {
+        Project project = e.getProject();
+        boolean enabled = project != null && project.getComponent(CoffeeLintProjectComponent.class).isEnabled();
+        e.getPresentation().setEnabledAndVisible(enabled);
+    }
+
+    @Override
+    public void actionPerformed(AnActionEvent e) {
+        final Project project = e.getProject();
+        if (project == null) {
+            return;
+        }
+        CoffeeLintProjectComponent component = project.getComponent(CoffeeLintProjectComponent.class);
+        if (!component.isSettingsValid()) {
+            component.showInfoNotification(CoffeeLintBundle.message("coffeelint.fix.all.invalid.settings"), NotificationType.WARNING);
+            return;
+        }
+        // coffeelint lints the files on disk
+        FileDocumentManager.getInstance().saveAllDocuments();
+        ProgressManager.getInstance().run(new Task.Backgroundable(project, CoffeeLintBundle.message("coffeelint.fix.all.progress"), true) {
+            @Override
+            public void run(@NotNull ProgressIndicator indicator) {
+                fixAll(project, indicator);
+            }
+        });
+    }
+
+    private static void fixAll(@NotNull final Project project, @NotNull ProgressIndicator indicator) {
+        final CoffeeLintProjectComponent component = project.getComponent(CoffeeLintProjectComponent.class);
+        BulkChangeRelinter relinter = BulkChangeRelinter.getInstance(project);
+        List<VirtualFile> files = findCoffeeScriptFiles(project, component.extensions);
+        try {
+            indicator.setText(CoffeeLintBundle.message("coffeelint.fix.all.linting", files.size()));
+            indicator.setIndeterminate(true);
+            relinter.lintNow(files, true);
+            indicator.checkCanceled();
+
+            // only load the documents of files with something to fix
+            LintResultCache cache = LintResultCache.getInstance(project);
+            List<VirtualFile> fixable = new ArrayList<VirtualFile>();
+            for (VirtualFile file : files) {
+                IssueTable issues = cache.getLast(LintResultCache.getKey(project, file));
+                if (issues != null && LexicalFixer.countFixable(issues, null) > 0) {
+                    fixable.add(file);
+                }
+            }
+
+            indicator.setIndeterminate(false);
+            final List<VirtualFile> touched = new ArrayList<VirtualFile>();
+            final int[] fixed = new int[1];
+            for (int start = 0; start < fixable.size(); start += FILES_PER_WRITE_ACTION) {
+                indicator.checkCanceled();
+                indicator.setFraction((double) start / fixable.size());
+                indicator.setText(CoffeeLintBundle.message("coffeelint.fix.all.fixing", start, fixable.size()));
+                final List<VirtualFile> batch = fixable.subList(start, Math.min(fixable.size(), start + FILES_PER_WRITE_ACTION));
+                ApplicationManager.getApplication().invokeAndWait(new Runnable() {
+                    public void run() {
+                        if (!project.isDisposed()) {
+                            fixed[0] += fix(project, batch, touched);
+                        }
+                    }
+                }, ModalityState.defaultModalityState());
+            }
+
+            indicator.setText(CoffeeLintBundle.message("coffeelint.fix.all.relinting", touched.size()));
+            indicator.setIndeterminate(true);
+            // a new line separator leaves the content hash as it was
+            relinter.lintNow(touched, false);
+            component.showInfoNotification(CoffeeLintBundle.message("coffeelint.fix.all.done", fixed[0], touched.size()), NotificationType.INFORMATION);
+        } catch (ProcessCanceledException e) {
+            throw e;
+        } catch (Exception e) {
+            LOG.warn("Could not fix CoffeeLint issues", e);
+            component.showInfoNotification(CoffeeLintBundle.message("coffeelint.fix.all.failed", e.getMessage()), NotificationType.ERROR);
+        }
+    }
+
+    /**
+     * Fix the files, save them and change their line separators in one undoable command, on the event dispatch thread.
+     *
+     * @param touched receives the files that changed
+     * @return the number of fixed issues
+     */
+    private static int fix(@NotNull final Project project, @NotNull final List<VirtualFile> files, @NotNull final List<VirtualFile> touched) {
+        final LintResultCache cache = LintResultCache.getInstance(project);
+        final FileDocumentManager documentManager = FileDocumentManager.getInstance();
+        final int[] fixed = new int[1];
+        WriteCommandAction.runWriteCommandAction(project, new Runnable() {
+            public void run() {
+                for (VirtualFile file : files) {
+                    Document document = file.isValid() ? documentManager.getDocument(file) : null;
+                    if (document == null || !document.isWritable()) {
+                        continue;
+                    }
+                    CharSequence text = document.getImmutableCharSequence();
+                    // only fix content coffeelint saw, the file may have changed since
+                    IssueTable issues = cache.get(LintResultCache.getKey(project, file), ContentHash.of(text));
+                    if (issues == null || LexicalFixer.countFixable(issues, null) == 0) {
+                        continue;
+                    }
+                    List<LexicalFixer.Edit> edits = LexicalFixer.fixAll(text, issues, null, getIndentSize(project, file.getFileType()));
+                    String separator = LexicalFixer.getLineSeparator(issues);
+                    if (edits.isEmpty() && separator == null) {
+                        continue;
+                    }
+                    LexicalQuickFix.apply(document, edits);
+                    // coffeelint lints the file on disk, and the separators live in the file
+                    documentManager.saveDocument(document);
+                    if (separator != null) {
+                        LexicalQuickFix.changeLineSeparators(project, file, separator);
+                    }
+                    fixed[0] += LexicalFixer.countFixable(issues, null);
+                    touched.add(file);
+                }
+            }
+        });
+        return fixed[0];
+    }
+
+    private static int getIndentSize(@NotNull Project project, @NotNull FileType fileType) {
+        return CodeStyleSettingsManager.getSettings(project).getIndentSize(fileType);
+    }
+
+    @NotNull
+    private static List<VirtualFile> findCoffeeScriptFiles(@NotNull final Project project, final String extensions) {
+        return ApplicationManager.getApplication().runReadAction(new Computable<List<VirtualFile>>() {
+            public List<VirtualFile> compute() {
+                final List<VirtualFile> files = new ArrayList<VirtualFile>();
+                ProjectRootManager.getInstance(project).getFileIndex().iterateContent(new ContentIterator() {
+                    public boolean processFile(VirtualFile file) {
+                        if (!file.isDirectory() && CoffeeLintConfigFileUtil.isCoffeeScriptFile(file.getName(), extensions)) {
+                            files.add(file);
+                        }
+                        return true;
+                    }
+                });
+                return files;
+            }
+        });
+    }
+}
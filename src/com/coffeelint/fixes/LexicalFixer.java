@@ -0,0 +1,193 @@
+package com.coffeelint.fixes;
+
+import com.coffeelint.cli.IssueTable;
+import com.coffeelint.cli.LineOffsetIndex;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeMap;
+
+/**
+ * Fixes for the coffeelint rules that only look at the characters of a line, which coffeelint cannot fix itself.
+ * Only the lines coffeelint reported are changed, so options like allowed_in_comments keep their meaning.
+ * {@link #LINE_ENDINGS} is a property of the file rather than of its text, see {@link #getLineSeparator}.
+ */
+public final class LexicalFixer {
+    public static final String NO_TRAILING_WHITESPACE = "no_trailing_whitespace";
+    public static final String NO_TABS = "no_tabs";
+    public static final String NO_TRAILING_SEMICOLONS = "no_trailing_semicolons";
+    public static final String LINE_ENDINGS = "line_endings";
+
+    private static final Set<String> RULES = new HashSet<String>(Arrays.asList(NO_TRAILING_WHITESPACE, NO_TABS, NO_TRAILING_SEMICOLONS, LINE_ENDINGS));
+
+    private LexicalFixer() {
+    }
+
+    /**
+     * Replaces a range of the text, edits of one fix never overlap.
+     */
+    public static final class Edit {
+        public final int start;
+        public final int end;
+        @NotNull
+        public final String replacement;
+
+        Edit(int start, int end, @NotNull String replacement) {
+            this.start = start;
+            this.end = end;
+            this.replacement = replacement;
+        }
+    }
+
+    public static boolean isFixable(@Nullable String rule) {
+        return RULES.contains(rule);
+    }
+
+    /**
+     * @param tabSize spaces per tab of the indentation
+     * @return edits fixing the rule on the 0 based line, empty when the line is fine or the rule is not fixable here
+     */
+    @NotNull
+    public static List<Edit> fixLine(@NotNull CharSequence text, @NotNull LineOffsetIndex lines, int line, @NotNull String rule, int tabSize) {
+        if (line < 0 || line >= lines.getLineCount()) {
+            return Collections.emptyList();
+        }
+        Edit edit = fix(text, lines, line, Collections.singleton(rule), tabSize);
+        return edit == null ? Collections.<Edit>emptyList() : Collections.singletonList(edit);
+    }
+
+    /**
+     * @param rule only issues of this rule, or null for all fixable rules
+     * @return edits fixing the issues, from the end of the text to its start so that applying them in order keeps the offsets valid
+     */
+    @NotNull
+    public static List<Edit> fixAll(@NotNull CharSequence text, @NotNull IssueTable issues, @Nullable String rule, int tabSize) {
+        LineOffsetIndex lines = LineOffsetIndex.of(text);
+        // 0 based line -> rules reported on it, descending
+        TreeMap<Integer, Set<String>> rulesByLine = new TreeMap<Integer, Set<String>>(Collections.<Integer>reverseOrder());
+        for (int i = 0; i < issues.size(); i++) {
+            String issueRule = issues.getRule(i);
+            int line = issues.getLine(i) - 1;
+            if (!isFixable(issueRule) || (rule != null && !rule.equals(issueRule)) || line < 0 || line >= lines.getLineCount()) {
+                continue;
+            }
+            Set<String> rules = rulesByLine.get(line);
+            if (rules == null) {
+                rules = new HashSet<String>(4);
+                rulesByLine.put(line, rules);
+            }
+            rules.add(issueRule);
+        }
+        List<Edit> edits = new ArrayList<Edit>(rulesByLine.size());
+        for (Integer line : rulesByLine.keySet()) {
+            Edit edit = fix(text, lines, line, rulesByLine.get(line), tabSize);
+            if (edit != null) {
+                edits.add(edit);
+            }
+        }
+        return edits;
+    }
+
+    /**
+     * @return the issues of the given rule, or of all fixable rules, that the edits and the line separator fix
+     */
+    public static int countFixable(@NotNull IssueTable issues, @Nullable String rule) {
+        int count = 0;
+        for (int i = 0; i < issues.size(); i++) {
+            String issueRule = issues.getRule(i);
+            if (isFixable(issueRule) && (rule == null || rule.equals(issueRule))) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * @return the separator {@link #LINE_ENDINGS} issues ask for, or null when there are none
+     */
+    @Nullable
+    public static String getLineSeparator(@NotNull IssueTable issues) {
+        for (int i = 0; i < issues.size(); i++) {
+            if (LINE_ENDINGS.equals(issues.getRule(i))) {
+                return getLineSeparator(issues.getMessage(i));
+            }
+        }
+        return null;
+    }
+
+    /**
+     * @param message as coffeelint reports it, with the context "Expected unix" or "Expected windows"
+     */
+    @NotNull
+    public static String getLineSeparator(@NotNull String message) {
+        return message.contains("Expected windows") ? "\r\n" : "\n";
+    }
+
+    @Nullable
+    private static Edit fix(@NotNull CharSequence text, @NotNull LineOffsetIndex lines, int line, @NotNull Collection<String> rules, int tabSize) {
+        int start = lines.getLineStartOffset(line);
+        int end = lines.getLineEndOffset(line);
+        String original = text.subSequence(start, end).toString();
+        String fixed = original;
+        if (rules.contains(NO_TABS)) {
+            fixed = expandIndentation(fixed, tabSize);
+        }
+        if (rules.contains(NO_TRAILING_SEMICOLONS)) {
+            fixed = removeTrailingSemicolon(fixed);
+        }
+        if (rules.contains(NO_TRAILING_WHITESPACE)) {
+            fixed = fixed.substring(0, trimmedLength(fixed));
+        }
+        return fixed.equals(original) ? null : new Edit(start, end, fixed);
+    }
+
+    /**
+     * Replace the tabs of the indentation with spaces up to the next tab stop.
+     */
+    @NotNull
+    static String expandIndentation(@NotNull String line, int tabSize) {
+        StringBuilder indentation = new StringBuilder();
+        int i = 0;
+        for (; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (c == '\t') {
+                do {
+                    indentation.append(' ');
+                } while (indentation.length() % Math.max(1, tabSize) != 0);
+            } else if (c == ' ') {
+                indentation.append(' ');
+            } else {
+                break;
+            }
+        }
+        return indentation.append(line, i, line.length()).toString();
+    }
+
+    /**
+     * coffeelint reports a semicolon that ends the line, a comment after it hides it from the rule.
+     */
+    @NotNull
+    static String removeTrailingSemicolon(@NotNull String line) {
+        int end = trimmedLength(line);
+        int start = end;
+        while (start > 0 && line.charAt(start - 1) == ';') {
+            start--;
+        }
+        return start == end ? line : line.substring(0, start) + line.substring(end);
+    }
+
+    private static int trimmedLength(@NotNull String line) {
+        int end = line.length();
+        while (end > 0 && (line.charAt(end - 1) == ' ' || line.charAt(end - 1) == '\t')) {
+            end--;
+        }
+        return end;
+    }
+}
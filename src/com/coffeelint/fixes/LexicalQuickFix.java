@@ -0,0 +1,108 @@
+package com.coffeelint.fixes;
+
+import com.coffeelint.CoffeeLintBundle;
+import com.coffeelint.cli.IssueTable;
+import com.coffeelint.cli.LineOffsetIndex;
+import com.coffeelint.results.ContentHash;
+import com.coffeelint.results.LintResultCache;
+import com.intellij.codeInsight.intention.IntentionAction;
+import com.intellij.openapi.diagnostic.Logger;
+import com.intellij.openapi.editor.Document;
+import com.intellij.openapi.editor.Editor;
+import com.intellij.openapi.fileEditor.FileDocumentManager;
+import com.intellij.openapi.fileEditor.impl.LoadTextUtil;
+import com.intellij.openapi.project.Project;
+import com.intellij.openapi.vfs.VirtualFile;
+import com.intellij.psi.PsiFile;
+import com.intellij.psi.codeStyle.CodeStyleSettingsManager;
+import org.jetbrains.annotations.NotNull;
+
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * Quick fix of a {@link LexicalFixer} rule, for the annotated line or for every issue of the rule in the file.
+ * The issues of the file come from the {@link LintResultCache}, where the highlighting pass left them.
+ */
+public class LexicalQuickFix implements IntentionAction {
+    private static final Logger LOG = Logger.getInstance(CoffeeLintBundle.LOG_ID);
+
+    private final String rule;
+    /** 0 based */
+    private final int line;
+    private final boolean wholeFile;
+    /** what the issue reported, line_endings names the expected separator */
+    private final String message;
+
+    public LexicalQuickFix(@NotNull String rule, int line, @NotNull String message, boolean wholeFile) {
+        this.rule = rule;
+        this.line = line;
+        this.message = message;
+        this.wholeFile = wholeFile;
+    }
+
+    @NotNull
+    public String getText() {
+        if (LexicalFixer.LINE_ENDINGS.equals(rule)) {
+            return CoffeeLintBundle.message("coffeelint.fix.line.endings", "\r\n".equals(LexicalFixer.getLineSeparator(message)) ? "Windows" : "Unix");
+        }
+        return CoffeeLintBundle.message(wholeFile ? "coffeelint.fix.file" : "coffeelint.fix.line", rule);
+    }
+
+    @NotNull
+    public String getFamilyName() {
+        return CoffeeLintBundle.message("coffeelint.fix.family");
+    }
+
+    public boolean isAvailable(@NotNull Project project, Editor editor, PsiFile file) {
+        return file != null && file.getVirtualFile() != null && file.isWritable()
+                // the line separator is one fix for the whole file
+                && !(wholeFile && LexicalFixer.LINE_ENDINGS.equals(rule));
+    }
+
+    public void invoke(@NotNull Project project, Editor editor, PsiFile file) {
+        VirtualFile virtualFile = file.getVirtualFile();
+        Document document = editor.getDocument();
+        if (LexicalFixer.LINE_ENDINGS.equals(rule)) {
+            // separators live in the file, not in the document
+            FileDocumentManager.getInstance().saveDocument(document);
+            changeLineSeparators(project, virtualFile, LexicalFixer.getLineSeparator(message));
+            return;
+        }
+        int tabSize = CodeStyleSettingsManager.getSettings(project).getIndentSize(file.getFileType());
+        CharSequence text = document.getImmutableCharSequence();
+        // issues of another content would point at the wrong lines, only the annotated line is certain then
+        IssueTable issues = wholeFile ? LintResultCache.getInstance(project).get(LintResultCache.getKey(project, virtualFile), ContentHash.of(text)) : null;
+        if (issues != null) {
+            apply(document, LexicalFixer.fixAll(text, issues, rule, tabSize));
+        } else {
+            apply(document, LexicalFixer.fixLine(text, LineOffsetIndex.of(text), line, rule, tabSize));
+        }
+    }
+
+    /**
+     * Change the separators of the saved file, inside a write action, and drop its result: content hashes ignore separators,
+     * so the result with the line_endings issues would still match the file.
+     */
+    static void changeLineSeparators(@NotNull Project project, @NotNull VirtualFile file, @NotNull String separator) {
+        try {
+            LoadTextUtil.changeLineSeparators(project, file, separator, LexicalQuickFix.class);
+            LintResultCache.getInstance(project).remove(LintResultCache.getKey(project, file));
+        } catch (IOException e) {
+            LOG.warn("Could not change the line separators of " + file.getPath(), e);
+        }
+    }
+
+    /**
+     * @param edits from the end of the document to its start
+     */
+    static void apply(@NotNull Document document, @NotNull List<LexicalFixer.Edit> edits) {
+        for (LexicalFixer.Edit edit : edits) {
+            document.replaceString(edit.start, edit.end, edit.replacement);
+        }
+    }
+
+    public boolean startInWriteAction() {
+        return true;
+    }
+}
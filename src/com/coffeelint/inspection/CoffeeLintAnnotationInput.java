@@ -0,0 +1,51 @@
+package com.coffeelint.inspection;
+
+import com.intellij.openapi.editor.Editor;
+import com.intellij.openapi.project.Project;
+import com.intellij.psi.PsiFile;
+import com.wix.annotator.ExternalLintAnnotationInput;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * Annotation input that holds an immutable snapshot of the document instead of a String copy.
+ * It also keeps the editor, so {@link CoffeeLintExternalAnnotator#apply} can find the visible lines on the EDT
+ * and materialize the annotations the user is looking at first.
+ * {@link #fileContent} is always null, use {@link #content}.
+ */
+public class CoffeeLintAnnotationInput extends ExternalLintAnnotationInput {
+    public static final int UNKNOWN_LINE = -1;
+
+    /** immutable snapshot of the document */
+    public final CharSequence content;
+    /** whether the document had unsaved changes, if not the file on disk has the same content */
+    public final boolean unsaved;
+    /** whether the {@link LintTriggerPolicy} postponed linting, {@link #content} is empty then */
+    public final boolean deferred;
+    /** whether the file is selected in an editor, only then coffeelint runs at normal priority */
+    public final boolean focused;
+
+    /** the editor showing the file, only to be asked for its visible area on the EDT */
+    @Nullable
+    public final Editor editor;
+
+    public CoffeeLintAnnotationInput(Project project, PsiFile psiFile, CharSequence content, boolean unsaved, boolean focused, @Nullable Editor editor) {
+        this(project, psiFile, content, unsaved, false, focused, editor);
+    }
+
+    private CoffeeLintAnnotationInput(Project project, PsiFile psiFile, CharSequence content, boolean unsaved, boolean deferred, boolean focused,
+                                      @Nullable Editor editor) {
+        super(project, psiFile, null, editor != null ? editor.getColorsScheme() : null);
+        this.content = content;
+        this.unsaved = unsaved;
+        this.deferred = deferred;
+        this.focused = focused;
+        this.editor = editor;
+    }
+
+    /**
+     * Input of a pass that shows the last result instead of linting.
+     */
+    public static CoffeeLintAnnotationInput deferred(Project project, PsiFile psiFile, @Nullable Editor editor) {
+        return new CoffeeLintAnnotationInput(project, psiFile, "", true, true, false, editor);
+    }
+}
@@ -2,11 +2,30 @@ package com.coffeelint.inspection;
 
 import com.coffeelint.CoffeeLintBundle;
 import com.coffeelint.CoffeeLintProjectComponent;
-import com.coffeelint.cli.CoffeeLint;
-import com.coffeelint.cli.CoffeeLintRunner;
+import com.coffeelint.batch.EffectiveConfigLocator;
+import com.coffeelint.cli.IssueTable;
+import com.coffeelint.cli.LineOffsetIndex;
 import com.coffeelint.cli.LintResult;
+import com.coffeelint.cli.ProcessPriority;
+import com.coffeelint.cli.Severity;
 import com.coffeelint.config.CoffeeLintConfigFileListener;
 import com.coffeelint.config.CoffeeLintConfigFileUtil;
+import com.coffeelint.config.CoffeeLintConfigModel;
+import com.coffeelint.engine.EngineComparison;
+import com.coffeelint.engine.EngineComparisons;
+import com.coffeelint.engine.LintCircuitBreaker;
+import com.coffeelint.engine.LintEngine;
+import com.coffeelint.engine.LintEngines;
+import com.coffeelint.engine.LintRequest;
+import com.coffeelint.fixes.LexicalFixer;
+import com.coffeelint.fixes.LexicalQuickFix;
+import com.coffeelint.metrics.LintMetrics;
+import com.coffeelint.metrics.LintTracer;
+import com.coffeelint.results.BulkChangeRelinter;
+import com.coffeelint.results.CiReportIndex;
+import com.coffeelint.results.ContentHash;
+import com.coffeelint.results.LintResultCache;
+import com.coffeelint.settings.Settings;
 import com.intellij.codeInsight.daemon.HighlightDisplayKey;
 import com.intellij.codeInsight.daemon.impl.SeverityRegistrar;
 import com.intellij.lang.annotation.Annotation;
@@ -19,20 +38,25 @@ import com.intellij.openapi.editor.Document;
 import com.intellij.openapi.editor.Editor;
 import com.intellij.openapi.editor.colors.EditorColorsScheme;
 import com.intellij.openapi.editor.markup.TextAttributes;
+import com.intellij.openapi.fileEditor.FileDocumentManager;
+import com.intellij.openapi.fileEditor.FileEditorManager;
+import com.intellij.openapi.progress.ProcessCanceledException;
+import com.intellij.openapi.progress.ProgressIndicator;
+import com.intellij.openapi.progress.ProgressManager;
 import com.intellij.openapi.project.Project;
 import com.intellij.openapi.util.Key;
 import com.intellij.openapi.util.TextRange;
-import com.intellij.openapi.util.text.StringUtil;
 import com.intellij.openapi.vfs.VirtualFile;
 import com.intellij.profile.codeInspection.InspectionProjectProfileManager;
 import com.intellij.psi.MultiplePsiFilesPerDocumentFileViewProvider;
 import com.intellij.psi.PsiDocumentManager;
+import com.intellij.psi.PsiElement;
 import com.intellij.psi.PsiFile;
+import com.intellij.util.ArrayUtil;
 import com.wix.ActualFile;
 import com.wix.ActualFile2;
 import com.wix.ThreadLocalActualFile;
 import com.wix.ThreadLocalTempActualFile;
-import com.wix.annotator.ExternalLintAnnotationInput;
 import com.wix.annotator.ExternalLintAnnotationResult;
 import com.wix.annotator.InspectionUtil;
 import com.wix.utils.Delayer;
@@ -41,13 +65,17 @@ import org.apache.commons.lang.StringUtils;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
+import java.awt.Point;
+import java.awt.Rectangle;
 import java.io.File;
+import java.util.HashMap;
+import java.util.Map;
 import java.util.concurrent.TimeUnit;
 
 /**
  * @author idok
  */
-public class CoffeeLintExternalAnnotator extends ExternalAnnotator<ExternalLintAnnotationInput, ExternalLintAnnotationResult<LintResult>> {
+public class CoffeeLintExternalAnnotator extends ExternalAnnotator<CoffeeLintAnnotationInput, ExternalLintAnnotationResult<LintResult>> {
 
     public static final CoffeeLintExternalAnnotator INSTANCE = new CoffeeLintExternalAnnotator();
     private static final Logger LOG = Logger.getInstance(CoffeeLintBundle.LOG_ID);
@@ -56,13 +84,13 @@ public class CoffeeLintExternalAnnotator extends ExternalAnnotator<ExternalLintA
 
     @Nullable
     @Override
-    public ExternalLintAnnotationInput collectInformation(@NotNull PsiFile file) {
+    public CoffeeLintAnnotationInput collectInformation(@NotNull PsiFile file) {
         return collectInformation(file, null);
     }
 
     @Nullable
     @Override
-    public ExternalLintAnnotationInput collectInformation(@NotNull PsiFile file, @NotNull Editor editor, boolean hasErrors) {
+    public CoffeeLintAnnotationInput collectInformation(@NotNull PsiFile file, @NotNull Editor editor, boolean hasErrors) {
         return collectInformation(file, editor);
     }
 
@@ -81,6 +109,7 @@ public class CoffeeLintExternalAnnotator extends ExternalAnnotator<ExternalLintA
         if (annotationResult == null) {
             return;
         }
+        long start = System.nanoTime();
         InspectionProjectProfileManager inspectionProjectProfileManager = InspectionProjectProfileManager.getInstance(file.getProject());
         SeverityRegistrar severityRegistrar = inspectionProjectProfileManager.getSeverityRegistrar();
 //        HighlightDisplayKey inspectionKey = getHighlightDisplayKeyByClass();
@@ -92,68 +121,133 @@ public class CoffeeLintExternalAnnotator extends ExternalAnnotator<ExternalLintA
             return;
         }
         CoffeeLintProjectComponent component = annotationResult.input.project.getComponent(CoffeeLintProjectComponent.class);
-        for (CoffeeLint.Issue warn : annotationResult.result.coffeeLint.file.errors) {
-            HighlightSeverity severity = getHighlightSeverity(warn, component.treatAsWarnings);
-            TextAttributes forcedTextAttributes = InspectionUtil.getTextAttributes(colorsScheme, severityRegistrar, severity);
-            Annotation annotation = createAnnotation(holder, file, document, warn, severity, forcedTextAttributes, false);
+        int firstVisibleLine = CoffeeLintAnnotationInput.UNKNOWN_LINE;
+        int lastVisibleLine = CoffeeLintAnnotationInput.UNKNOWN_LINE;
+        Editor editor = annotationResult.input instanceof CoffeeLintAnnotationInput ? ((CoffeeLintAnnotationInput) annotationResult.input).editor : null;
+        if (editor != null && !editor.isDisposed()) {
+            // apply runs on the EDT, the only thread the editor may be asked for its visible area on
+            Rectangle visibleArea = editor.getScrollingModel().getVisibleArea();
+            firstVisibleLine = editor.xyToLogicalPosition(visibleArea.getLocation()).line;
+            lastVisibleLine = editor.xyToLogicalPosition(new Point(visibleArea.x, visibleArea.y + visibleArea.height)).line;
+        }
+        int limit = Settings.getInstance(file.getProject()).maxAnnotations;
+        IssueTable issues = annotationResult.result.issues;
+        // the pass is restarted when the document changes, the index only misses for results of an earlier snapshot
+        LineOffsetIndex lines = annotationResult.result.lines;
+        if (lines != null && lines.getTextLength() != document.getTextLength()) {
+            lines = null;
+        }
+        ViewportAnnotationPlan plan = ViewportAnnotationPlan.create(issues, firstVisibleLine, lastVisibleLine, limit);
+        // there are only two severities, so look up their text attributes once per pass instead of once per issue
+        Map<HighlightSeverity, TextAttributes> textAttributes = new HashMap<HighlightSeverity, TextAttributes>(4);
+        for (int index : plan.detailed) {
+            HighlightSeverity severity = getHighlightSeverity(issues.getSeverity(index), component.treatAsWarnings);
+            TextAttributes forcedTextAttributes = getTextAttributes(textAttributes, colorsScheme, severityRegistrar, severity);
+            Annotation annotation = createAnnotation(holder, file, document, lines, issues, index, severity, forcedTextAttributes, false);
+            String rule = issues.getRule(index);
+            if (annotation != null && LexicalFixer.isFixable(rule)) {
+                annotation.registerFix(new LexicalQuickFix(rule, issues.getLine(index) - 1, issues.getMessage(index), false));
+                annotation.registerFix(new LexicalQuickFix(rule, issues.getLine(index) - 1, issues.getMessage(index), true));
+            }
 //            if (annotation != null) {
-//                int offset = StringUtil.lineColToOffset(document.getText(), warn.line - 1, warn.column);
 //                PsiElement lit = PsiUtil.getElementAtOffset(file, offset);
-//                BaseActionFix actionFix = Fixes.getFixForRule(warn.rule, lit);
-//                if (actionFix != null) {
-//                    annotation.registerFix(actionFix, null, inspectionKey);
-//                }
 //                annotation.registerFix(new SuppressActionFix(warn.rule, lit), null, inspectionKey);
 //            }
         }
+        for (ViewportAnnotationPlan.Summary summary : plan.summaries) {
+            HighlightSeverity severity = summary.hasErrors && !component.treatAsWarnings ? HighlightSeverity.ERROR : HighlightSeverity.WARNING;
+            TextAttributes forcedTextAttributes = getTextAttributes(textAttributes, colorsScheme, severityRegistrar, severity);
+            createSummaryAnnotation(holder, document, summary, limit, severity, forcedTextAttributes);
+        }
+        LintMetrics.getInstance().record(LintMetrics.Stage.ANNOTATE, start);
+        LintTracer tracer = LintTracer.getInstance();
+        if (tracer.isEnabled()) {
+            tracer.record(LintTracer.Kind.ANNOTATIONS_APPLIED, file.getVirtualFile() == null ? file.getName() : file.getVirtualFile().getPath(),
+                    document.getTextLength(), issues.size(), component.configFile, System.nanoTime() - start);
+        }
     }
 
-    private static HighlightSeverity getHighlightSeverity(CoffeeLint.Issue warn, boolean treatAsWarnings) {
+    @Nullable
+    private static TextAttributes getTextAttributes(@NotNull Map<HighlightSeverity, TextAttributes> cache, @Nullable EditorColorsScheme colorsScheme,
+                                                    @NotNull SeverityRegistrar severityRegistrar, @NotNull HighlightSeverity severity) {
+        if (cache.containsKey(severity)) {
+            return cache.get(severity);
+        }
+        TextAttributes attributes = InspectionUtil.getTextAttributes(colorsScheme, severityRegistrar, severity);
+        cache.put(severity, attributes);
+        return attributes;
+    }
+
+    @NotNull
+    static HighlightSeverity getHighlightSeverity(@NotNull Severity severity, boolean treatAsWarnings) {
         if (treatAsWarnings) {
             return HighlightSeverity.WARNING;
         }
-        return warn.severity.equals("error") ? HighlightSeverity.ERROR : HighlightSeverity.WARNING;
+        return severity == Severity.ERROR ? HighlightSeverity.ERROR : HighlightSeverity.WARNING;
     }
 
+    /**
+     * @param lines index of the document's text, or null to take the line offsets from the document
+     */
     @Nullable
-    private static Annotation createAnnotation(@NotNull AnnotationHolder holder, @NotNull PsiFile file, @NotNull Document document, @NotNull CoffeeLint.Issue warn,
-                                               @NotNull HighlightSeverity severity, @Nullable TextAttributes forcedTextAttributes,
-                                               boolean showErrorOnWholeLine) {
-        int line = warn.line - 1;
-//        int column = warn.column /*- 1*/;
+    private static Annotation createAnnotation(@NotNull AnnotationHolder holder, @NotNull PsiFile file, @NotNull Document document, @Nullable LineOffsetIndex lines,
+                                               @NotNull IssueTable issues, int index, @NotNull HighlightSeverity severity,
+                                               @Nullable TextAttributes forcedTextAttributes, boolean showErrorOnWholeLine) {
+        int line = issues.getLine(index) - 1;
+        int column = issues.getColumn(index);
+        if (line < 0 || line >= (lines != null ? lines.getLineCount() : document.getLineCount())) {
+            return null;
+        }
+        int lineStartOffset = lines != null ? lines.getLineStartOffset(line) : document.getLineStartOffset(line);
+        int lineEndOffset = lines != null ? lines.getLineEndOffset(line) : document.getLineEndOffset(line);
+        String message = buildMessage(issues.getMessage(index), issues.getSource(index));
+        if (showErrorOnWholeLine || column == IssueTable.NO_COLUMN) {
+            return InspectionUtil.createAnnotation(holder, severity, forcedTextAttributes, new TextRange(lineStartOffset, lineEndOffset), message);
+        }
+        int offset = lines != null ? lines.getOffset(line, column)
+                : column - 1 >= lineEndOffset - lineStartOffset ? lineEndOffset : lineStartOffset + column - 1;
+        Annotation annotation = InspectionUtil.createAnnotation(holder, severity, forcedTextAttributes, getColumnRange(file, offset, lineEndOffset), message);
+        if (annotation != null && offset == lineEndOffset) {
+            annotation.setAfterEndOfLine(true);
+        }
+        return annotation;
+    }
 
+    /**
+     * @return the token at the offset, cut off at the end of its line, or an empty range at the end of the line
+     */
+    @NotNull
+    private static TextRange getColumnRange(@NotNull PsiFile file, int offset, int lineEndOffset) {
+        if (offset >= lineEndOffset) {
+            return new TextRange(lineEndOffset, lineEndOffset);
+        }
+        PsiElement element = file.findElementAt(offset);
+        if (element == null) {
+            return new TextRange(offset, offset + 1);
+        }
+        TextRange range = element.getTextRange().intersection(new TextRange(offset, lineEndOffset));
+        return range == null || range.isEmpty() ? new TextRange(offset, offset + 1) : range;
+    }
+
+    @NotNull
+    static String buildMessage(@NotNull String message, @NotNull String source) {
+        return MESSAGE_PREFIX + message.trim() + " (" + source + ')';
+    }
+
+    @Nullable
+    private static Annotation createSummaryAnnotation(@NotNull AnnotationHolder holder, @NotNull Document document, @NotNull ViewportAnnotationPlan.Summary summary,
+                                                      int limit, @NotNull HighlightSeverity severity, @Nullable TextAttributes forcedTextAttributes) {
+        int line = summary.firstLine - 1;
         if (line < 0 || line >= document.getLineCount()) {
             return null;
         }
-        int lineEndOffset = document.getLineEndOffset(line);
-        int lineStartOffset = document.getLineStartOffset(line);
-
-//        int errorLineStartOffset = StringUtil.lineColToOffset(document.getCharsSequence(),  line, column);
-//        int errorLineStartOffset = PsiUtil.calcErrorStartOffsetInDocument(document, lineStartOffset, lineEndOffset, column, tab);
-
-//        if (errorLineStartOffset == -1) {
-//            return null;
-//        }
-//        PsiElement element = file.findElementAt(errorLineStartOffset);
-        TextRange range;
-//        if (showErrorOnWholeLine) {
-            range = new TextRange(lineStartOffset, lineEndOffset);
-//        } else {
-////            int offset = StringUtil.lineColToOffset(document.getText(), warn.line - 1, warn.column);
-//            PsiElement lit = PsiUtil.getElementAtOffset(file, errorLineStartOffset);
-//            range = lit.getTextRange();
-//            range = new TextRange(errorLineStartOffset, errorLineStartOffset + 1);
-//        }
-
-        Annotation annotation = InspectionUtil.createAnnotation(holder, severity, forcedTextAttributes, range, MESSAGE_PREFIX + warn.message.trim() + " (" + warn.source + ')');
-//        if (annotation != null) {
-//            annotation.setAfterEndOfLine(errorLineStartOffset == lineEndOffset);
-//        }
-        return annotation;
+        TextRange range = new TextRange(document.getLineStartOffset(line), document.getLineEndOffset(line));
+        String message = MESSAGE_PREFIX + CoffeeLintBundle.message("coffeelint.annotation.summary", summary.count, summary.rule, limit);
+        return InspectionUtil.createAnnotation(holder, severity, forcedTextAttributes, range, message);
     }
 
     @Nullable
-    private static ExternalLintAnnotationInput collectInformation(@NotNull PsiFile psiFile, @Nullable Editor editor) {
+    private static CoffeeLintAnnotationInput collectInformation(@NotNull PsiFile psiFile, @Nullable Editor editor) {
         if (psiFile.getContext() != null || !CoffeeLintConfigFileUtil.isCoffeeScriptFile(psiFile)) {
             return null;
         }
@@ -173,20 +267,41 @@ public class CoffeeLintExternalAnnotator extends ExternalAnnotator<ExternalLintA
         if (document == null) {
             return null;
         }
-        String fileContent = document.getText();
-        if (StringUtil.isEmptyOrSpaces(fileContent)) {
+        boolean unsaved = FileDocumentManager.getInstance().isDocumentUnsaved(document);
+        if (editor != null && !LintTriggerPolicy.getInstance(project).shouldLint(psiFile, document, unsaved)) {
+            return CoffeeLintAnnotationInput.deferred(project, psiFile, editor);
+        }
+        // an immutable snapshot shares the document's text instead of copying it like getText() does
+        CharSequence content = document.getImmutableCharSequence();
+        if (isBlank(content)) {
             return null;
         }
-        EditorColorsScheme colorsScheme = editor != null ? editor.getColorsScheme() : null;
+        LintTracer tracer = LintTracer.getInstance();
+        if (tracer.isEnabled()) {
+            tracer.record(LintTracer.Kind.REQUEST_QUEUED, virtualFile.getPath(), content.length(), LintTracer.UNKNOWN, component.configFile, 0L);
+        }
 //        tabSize = getTabSize(editor);
 //        tabSize = 4;
-        return new ExternalLintAnnotationInput(project, psiFile, fileContent, colorsScheme);
+        // editors in other splits and the inspection of a whole scope lint in the background
+        boolean focused = editor != null && ArrayUtil.contains(virtualFile, FileEditorManager.getInstance(project).getSelectedFiles());
+        return new CoffeeLintAnnotationInput(project, psiFile, content, unsaved, focused, editor);
+    }
+
+    private static boolean isBlank(@NotNull CharSequence text) {
+        for (int i = 0, length = text.length(); i < length; i++) {
+            if (!Character.isWhitespace(text.charAt(i))) {
+                return false;
+            }
+        }
+        return true;
     }
 
     @Nullable
     @Override
-    public ExternalLintAnnotationResult<LintResult> doAnnotate(ExternalLintAnnotationInput collectedInfo) {
-        ActualFile2 actualCodeFile = null;
+    public ExternalLintAnnotationResult<LintResult> doAnnotate(CoffeeLintAnnotationInput collectedInfo) {
+        LintMetrics metrics = LintMetrics.getInstance();
+        long start = System.nanoTime();
+        metrics.enter(LintMetrics.Gauge.PASSES_IN_FLIGHT);
         try {
             PsiFile file = collectedInfo.psiFile;
             if (!CoffeeLintConfigFileUtil.isCoffeeScriptFile(file)) return null;
@@ -196,39 +311,185 @@ public class CoffeeLintExternalAnnotator extends ExternalAnnotator<ExternalLintA
             }
 
             CoffeeLintConfigFileListener.start(collectedInfo.project);
-            String relativeFile;
-            actualCodeFile = ActualFile2.getOrCreateActualFile(COFFEE_LINT_TEMP_FILE, file, collectedInfo.fileContent);
-            if (actualCodeFile == null || actualCodeFile.getActualFile() == null) {
-                return null;
+            LintResultCache cache = LintResultCache.getInstance(collectedInfo.project);
+            String cacheKey = LintResultCache.getKey(collectedInfo.project, file.getVirtualFile());
+            if (collectedInfo.deferred) {
+                // the trigger policy postponed linting, keep showing the last result
+                IssueTable last = cache.getLast(cacheKey);
+                return last == null ? null : new ExternalLintAnnotationResult<LintResult>(collectedInfo, LintResult.of(last));
             }
-            relativeFile = FileUtils.makeRelative(new File(file.getProject().getBasePath()), actualCodeFile.getActualFile());
-            if (relativeFile == null) {
-                LOG.error("Error running CoffeeLint inspection: relative file path is null");
+            long contentHash = ContentHash.of(collectedInfo.content);
+            int generation = cache.getGeneration();
+            IssueTable cached = cache.get(cacheKey, contentHash);
+            if (cached != null) {
+                metrics.increment(LintMetrics.Counter.CACHE_HITS);
+                return new ExternalLintAnnotationResult<LintResult>(collectedInfo, indexLines(LintResult.of(cached), collectedInfo.content));
+            }
+            IssueTable imported = CiReportIndex.getInstance(collectedInfo.project).find(cacheKey, collectedInfo.content);
+            if (imported != null) {
+                // CI linted exactly this text
+                metrics.increment(LintMetrics.Counter.CI_REPORT_HITS);
+                cache.put(cacheKey, contentHash, generation, imported);
+                return new ExternalLintAnnotationResult<LintResult>(collectedInfo, indexLines(LintResult.of(imported), collectedInfo.content));
+            }
+            if (BulkChangeRelinter.getInstance(collectedInfo.project).isQueued(cacheKey)) {
+                // the file changed on disk with many others, a multi-file run lints it and restarts highlighting
+                metrics.increment(LintMetrics.Counter.BULK_DEFERRED_PASSES);
+                IssueTable last = cache.getLast(cacheKey);
+                return last == null ? null : new ExternalLintAnnotationResult<LintResult>(collectedInfo, LintResult.of(last));
+            }
+            LintCircuitBreaker breaker = LintCircuitBreaker.getInstance();
+            String executable = LintCircuitBreaker.executableKey(component.nodeInterpreter, component.lintExecutable);
+            String path = file.getVirtualFile().getPath();
+            if (!breaker.allows(executable) || !breaker.allows(path)) {
+                // coffeelint kept failing on this file or for every file, keep showing the last result until the backoff ends
+                metrics.increment(LintMetrics.Counter.CIRCUIT_OPEN_SKIPS);
+                IssueTable last = cache.getLast(cacheKey);
+                return last == null ? null : new ExternalLintAnnotationResult<LintResult>(collectedInfo, LintResult.of(last));
+            }
+            if (CoffeeLintConfigModel.isInvalidConfigOf(collectedInfo.project, file.getVirtualFile())) {
+                // coffeelint would only fail on the config, keep showing the last result until it is fixed
+                metrics.increment(LintMetrics.Counter.INVALID_CONFIG_SKIPS);
+                IssueTable last = cache.getLast(cacheKey);
+                return last == null ? null : new ExternalLintAnnotationResult<LintResult>(collectedInfo, LintResult.of(last));
+            }
+            metrics.increment(LintMetrics.Counter.CACHE_MISSES);
+            String basePath = file.getProject().getBasePath();
+            LintEngine engine = LintEngines.getEngine(component.engineId);
+            long lintStart = System.nanoTime();
+            ProcessPriority priority = collectedInfo.focused ? ProcessPriority.NORMAL : ProcessPriority.BACKGROUND;
+            LintResult result = lint(engine, collectedInfo, component, basePath, cacheKey, priority);
+            if (result == null) {
                 return null;
             }
-            LintResult result = CoffeeLintRunner.lint(file.getProject().getBasePath(), relativeFile, component.nodeInterpreter, component.lintExecutable, component.configFile, component.customRulesPath, component.extensions);
-
-            actualCodeFile.deleteTemp();
+            long lintNanos = System.nanoTime() - lintStart;
             if (StringUtils.isNotEmpty(result.errorOutput)) {
-                component.showInfoNotification(result.errorOutput, NotificationType.WARNING);
+                // the circuit breaker reports files and executables that keep failing in one notification
+                metrics.increment(LintMetrics.Counter.ERROR_OUTPUTS);
+                breaker.failed(path, executable, result.errorOutput);
                 return null;
             }
+            breaker.succeeded(path, executable, lintNanos);
             Document document = PsiDocumentManager.getInstance(file.getProject()).getDocument(file);
             if (document == null) {
                 component.showInfoNotification("Error running CoffeeLint inspection: Could not get document for file " + file.getName(), NotificationType.WARNING);
                 LOG.error("Could not get document for file " + file.getName());
                 return null;
             }
-            return new ExternalLintAnnotationResult<LintResult>(collectedInfo, result);
+            cache.put(cacheKey, contentHash, generation, result.issues);
+            metrics.record(LintMetrics.Stage.LINT, start);
+            compare(engine, result, lintNanos, collectedInfo, component, basePath, cacheKey);
+            ProgressIndicator indicator = ProgressManager.getInstance().getProgressIndicator();
+            if (indicator != null && indicator.isCanceled()) {
+                // the pass was cancelled while coffeelint ran, its result is only kept in the cache
+                metrics.increment(LintMetrics.Counter.CANCELLATIONS);
+                return null;
+            }
+            return new ExternalLintAnnotationResult<LintResult>(collectedInfo, indexLines(result, collectedInfo.content));
+        } catch (ProcessCanceledException e) {
+            metrics.increment(LintMetrics.Counter.CANCELLATIONS);
+            throw e;
         } catch (Exception e) {
             LOG.error("Error running CoffeeLint inspection: ", e);
             showNotification("Error running CoffeeLint inspection: " + e.getMessage(), NotificationType.ERROR);
+        } finally {
+            metrics.exit(LintMetrics.Gauge.PASSES_IN_FLIGHT);
+        }
+        return null;
+    }
+
+    /**
+     * Index the lines of the linted snapshot on the background thread, so {@link #apply} maps columns to offsets in constant time.
+     */
+    @NotNull
+    private static LintResult indexLines(@NotNull LintResult result, @NotNull CharSequence content) {
+        if (result.issues.hasColumns()) {
+            result.lines = LineOffsetIndex.of(content);
+        }
+        return result;
+    }
+
+    /**
+     * Lint the snapshot with the engine: through stdin when the engine supports it and the file's effective config can be
+     * passed with -f, otherwise the saved file in place or a temp copy of the unsaved document.
+     *
+     * @return null when there is no file to lint
+     */
+    @Nullable
+    private static LintResult lint(@NotNull LintEngine engine, @NotNull CoffeeLintAnnotationInput input, @NotNull CoffeeLintProjectComponent component,
+                                   @NotNull String basePath, @NotNull String cacheKey, @NotNull ProcessPriority priority) throws Exception {
+        PsiFile file = input.psiFile;
+        VirtualFile virtualFile = file.getVirtualFile();
+        if (engine.supports(LintEngine.Capability.STDIN) && virtualFile != null) {
+            String config = EffectiveConfigLocator.getConfigFile(new EffectiveConfigLocator(component.configFile).getKey(new File(virtualFile.getPath())));
+            if (config != null) {
+                // coffeelint gets the config the file would find, so it does not need the file's location: stream the snapshot to its stdin
+                LintRequest request = createRequest(component, basePath, cacheKey, input.content, priority);
+                request.settings.config = config;
+                return LintEngines.await(engine.lint(request));
+            }
+        }
+        ActualFile2 actualCodeFile = null;
+        try {
+            File actualFile;
+            if (input.unsaved) {
+                long tempFileStart = System.nanoTime();
+                actualCodeFile = ActualFile2.getOrCreateActualFile(COFFEE_LINT_TEMP_FILE, file, input.content.toString());
+                actualFile = actualCodeFile == null ? null : actualCodeFile.getActualFile();
+                LintMetrics.getInstance().record(LintMetrics.Stage.TEMP_FILE, tempFileStart);
+            } else {
+                // the file on disk matches the snapshot, lint it in place
+                actualFile = virtualFile == null ? null : new File(virtualFile.getPath());
+            }
+            if (actualFile == null) {
+                return null;
+            }
+            String relativeFile = FileUtils.makeRelative(new File(basePath), actualFile);
+            if (relativeFile == null) {
+                LOG.error("Error running CoffeeLint inspection: relative file path is null");
+                return null;
+            }
+            return LintEngines.await(engine.lint(createRequest(component, basePath, relativeFile, null, priority)));
         } finally {
             if (actualCodeFile != null) {
                 actualCodeFile.deleteTemp();
             }
         }
-        return null;
+    }
+
+    /**
+     * Passes lint a single file, their timeout follows the observed latency of the executable.
+     */
+    @NotNull
+    private static LintRequest createRequest(@NotNull CoffeeLintProjectComponent component, @NotNull String basePath, @NotNull String targetFile,
+                                             @Nullable CharSequence content, @NotNull ProcessPriority priority) {
+        LintRequest request = LintRequest.create(component, basePath, targetFile, content);
+        request.settings.priority = priority;
+        request.settings.timeout = LintCircuitBreaker.getInstance().getTimeout(LintCircuitBreaker.executableKey(component.nodeInterpreter, component.lintExecutable));
+        return request;
+    }
+
+    /**
+     * In comparison mode, lint the same snapshot with the second engine and record how the two differ.
+     */
+    private static void compare(@NotNull LintEngine engine, @NotNull LintResult result, long nanos, @NotNull CoffeeLintAnnotationInput input,
+                                @NotNull CoffeeLintProjectComponent component, @NotNull String basePath, @NotNull String cacheKey) {
+        LintEngine other = LintEngines.findEngine(component.comparisonEngineId);
+        if (other == null || other.getId().equals(engine.getId())) {
+            return;
+        }
+        try {
+            long start = System.nanoTime();
+            // the comparison is only for diagnostics, it must not slow down the engine it is compared with
+            LintResult otherResult = lint(other, input, component, basePath, cacheKey, ProcessPriority.BACKGROUND);
+            if (otherResult != null) {
+                EngineComparisons.getInstance().add(new EngineComparison(cacheKey, engine.getId(), result, nanos, other.getId(), otherResult, System.nanoTime() - start));
+            }
+        } catch (ProcessCanceledException e) {
+            throw e;
+        } catch (Exception e) {
+            LOG.warn("Could not compare CoffeeLint engines", e);
+        }
     }
 
     private final Delayer delayer = new Delayer(TimeUnit.SECONDS.toMillis(5L));
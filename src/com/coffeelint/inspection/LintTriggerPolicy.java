@@ -0,0 +1,139 @@
+package com.coffeelint.inspection;
+
+import com.coffeelint.config.CoffeeLintConfigFileUtil;
+import com.coffeelint.metrics.LintMetrics;
+import com.coffeelint.settings.Settings;
+import com.intellij.AppTopics;
+import com.intellij.codeInsight.daemon.DaemonCodeAnalyzer;
+import com.intellij.openapi.application.ApplicationManager;
+import com.intellij.openapi.components.ServiceManager;
+import com.intellij.openapi.editor.Document;
+import com.intellij.openapi.fileEditor.FileDocumentManagerAdapter;
+import com.intellij.openapi.project.Project;
+import com.intellij.openapi.util.Key;
+import com.intellij.psi.PsiDocumentManager;
+import com.intellij.psi.PsiFile;
+import com.intellij.util.Alarm;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Decides by the size of a document when its highlighting passes run coffeelint:
+ * small files as you type, medium files once typing has paused for the idle delay, large files only when saved.
+ * Inspections run explicitly and documents without unsaved changes are always linted.
+ * Passes that are postponed show the last result of the file.
+ */
+public class LintTriggerPolicy {
+    public enum Trigger {
+        ON_TYPE,
+        ON_IDLE,
+        ON_SAVE
+    }
+
+    /** modification stamp of the document and when a pass first saw it */
+    private static final Key<long[]> FIRST_SEEN = Key.create("COFFEE_LINT_FIRST_SEEN");
+
+    private final Project project;
+    private final Alarm alarm;
+    private final AtomicBoolean listening = new AtomicBoolean(false);
+
+    public LintTriggerPolicy(@NotNull Project project) {
+        this.project = project;
+        this.alarm = new Alarm(Alarm.ThreadToUse.SWING_THREAD, project);
+    }
+
+    public static LintTriggerPolicy getInstance(@NotNull Project project) {
+        return ServiceManager.getService(project, LintTriggerPolicy.class);
+    }
+
+    @NotNull
+    static Trigger getTrigger(int lineCount, @NotNull Settings settings) {
+        if (lineCount <= settings.typingMaxLines) {
+            return Trigger.ON_TYPE;
+        }
+        return lineCount <= settings.idleMaxLines ? Trigger.ON_IDLE : Trigger.ON_SAVE;
+    }
+
+    /**
+     * Re-highlight files when they are saved, so files linted on save pick up their new text.
+     */
+    public void start() {
+        if (listening.compareAndSet(false, true)) {
+            project.getMessageBus().connect(project).subscribe(AppTopics.FILE_DOCUMENT_SYNC, new FileDocumentManagerAdapter() {
+                @Override
+                public void beforeDocumentSaving(@NotNull final Document document) {
+                    ApplicationManager.getApplication().invokeLater(new Runnable() {
+                        public void run() {
+                            restart(document);
+                        }
+                    });
+                }
+            });
+        }
+    }
+
+    /**
+     * Called before any text of the document is read.
+     *
+     * @return whether the highlighting pass should lint the document now
+     */
+    public boolean shouldLint(@NotNull PsiFile file, @NotNull Document document, boolean unsaved) {
+        if (!unsaved) {
+            return true;
+        }
+        Settings settings = Settings.getInstance(project);
+        switch (getTrigger(document.getLineCount(), settings)) {
+            case ON_IDLE:
+                long remaining = getRemainingIdleMillis(document, settings.idleDelayMillis);
+                if (remaining <= 0) {
+                    return true;
+                }
+                LintMetrics.getInstance().increment(LintMetrics.Counter.IDLE_DEFERRED_RUNS);
+                scheduleRestart(file, remaining);
+                return false;
+            case ON_SAVE:
+                LintMetrics.getInstance().increment(LintMetrics.Counter.SAVE_DEFERRED_RUNS);
+                return false;
+            default:
+                return true;
+        }
+    }
+
+    /**
+     * The daemon starts a pass right after each change, so the first pass to see a modification stamp approximates when the user typed.
+     */
+    private static long getRemainingIdleMillis(@NotNull Document document, int idleDelayMillis) {
+        long now = System.currentTimeMillis();
+        long stamp = document.getModificationStamp();
+        long[] firstSeen = document.getUserData(FIRST_SEEN);
+        if (firstSeen == null || firstSeen[0] != stamp) {
+            firstSeen = new long[]{stamp, now};
+            document.putUserData(FIRST_SEEN, firstSeen);
+        }
+        return firstSeen[1] + idleDelayMillis - now;
+    }
+
+    private void scheduleRestart(@NotNull final PsiFile file, long delayMillis) {
+        // typing happens in one file at a time, a newer request replaces the pending one
+        alarm.cancelAllRequests();
+        alarm.addRequest(new Runnable() {
+            public void run() {
+                if (!project.isDisposed() && file.isValid()) {
+                    DaemonCodeAnalyzer.getInstance(project).restart(file);
+                }
+            }
+        }, (int) delayMillis);
+    }
+
+    private void restart(@NotNull Document document) {
+        if (project.isDisposed()) {
+            return;
+        }
+        PsiFile file = PsiDocumentManager.getInstance(project).getCachedPsiFile(document);
+        if (file != null && CoffeeLintConfigFileUtil.isCoffeeScriptFile(file)
+                && getTrigger(document.getLineCount(), Settings.getInstance(project)) != Trigger.ON_TYPE) {
+            DaemonCodeAnalyzer.getInstance(project).restart(file);
+        }
+    }
+}
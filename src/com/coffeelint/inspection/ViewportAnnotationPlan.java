@@ -0,0 +1,99 @@
+package com.coffeelint.inspection;
+
+import com.coffeelint.cli.IssueTable;
+import com.coffeelint.cli.Severity;
+import gnu.trove.TIntObjectHashMap;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Decides which issues get a full annotation in one pass.
+ * Issues on visible lines come first, then the ones closest to the viewport, up to the limit.
+ * Whatever is left is collapsed into one summary per rule.
+ */
+final class ViewportAnnotationPlan {
+    /** indices into the {@link IssueTable} */
+    final int[] detailed;
+    final Collection<Summary> summaries;
+
+    private ViewportAnnotationPlan(int[] detailed, Collection<Summary> summaries) {
+        this.detailed = detailed;
+        this.summaries = summaries;
+    }
+
+    static final class Summary {
+        final String rule;
+        int count;
+        /** 1 based, like {@link IssueTable#getLine(int)} */
+        int firstLine = Integer.MAX_VALUE;
+        boolean hasErrors;
+
+        private Summary(String rule) {
+            this.rule = rule;
+        }
+    }
+
+    /**
+     * @param firstVisibleLine 0 based, or {@link CoffeeLintAnnotationInput#UNKNOWN_LINE}
+     * @param lastVisibleLine  0 based, or {@link CoffeeLintAnnotationInput#UNKNOWN_LINE}
+     * @param limit            maximum number of detailed annotations, 0 or less for no limit
+     */
+    static ViewportAnnotationPlan create(final IssueTable issues, final int firstVisibleLine, final int lastVisibleLine, int limit) {
+        int size = issues.size();
+        if (limit <= 0 || size <= limit) {
+            int[] all = new int[size];
+            for (int i = 0; i < size; i++) {
+                all[i] = i;
+            }
+            return new ViewportAnnotationPlan(all, new ArrayList<Summary>(0));
+        }
+        Integer[] ordered = new Integer[size];
+        for (int i = 0; i < size; i++) {
+            ordered[i] = i;
+        }
+        if (firstVisibleLine != CoffeeLintAnnotationInput.UNKNOWN_LINE) {
+            // stable sort, so issues at the same distance keep coffeelint's order
+            Arrays.sort(ordered, new Comparator<Integer>() {
+                public int compare(Integer a, Integer b) {
+                    int da = distance(issues.getLine(a) - 1, firstVisibleLine, lastVisibleLine);
+                    int db = distance(issues.getLine(b) - 1, firstVisibleLine, lastVisibleLine);
+                    return da < db ? -1 : (da == db ? 0 : 1);
+                }
+            });
+        }
+        int[] detailed = new int[limit];
+        for (int i = 0; i < limit; i++) {
+            detailed[i] = ordered[i];
+        }
+        TIntObjectHashMap<Summary> byRule = new TIntObjectHashMap<Summary>();
+        List<Summary> summaries = new ArrayList<Summary>();
+        for (int i = limit; i < size; i++) {
+            int index = ordered[i];
+            int ruleId = issues.getRuleId(index);
+            Summary summary = byRule.get(ruleId);
+            if (summary == null) {
+                summary = new Summary(issues.getRule(index));
+                byRule.put(ruleId, summary);
+                summaries.add(summary);
+            }
+            summary.count++;
+            summary.firstLine = Math.min(summary.firstLine, issues.getLine(index));
+            summary.hasErrors |= issues.getSeverity(index) == Severity.ERROR;
+        }
+        return new ViewportAnnotationPlan(detailed, summaries);
+    }
+
+    private static int distance(int line, int first, int last) {
+        if (line < first) {
+            return first - line;
+        }
+        if (line > last) {
+            return line - last;
+        }
+        return 0;
+    }
+}
@@ -0,0 +1,28 @@
+package com.coffeelint.metrics;
+
+import com.intellij.openapi.project.Project;
+import com.intellij.openapi.wm.ToolWindow;
+import com.intellij.openapi.wm.ToolWindowFactory;
+import com.intellij.ui.content.Content;
+import com.intellij.ui.content.ContentFactory;
+import org.jetbrains.annotations.NotNull;
+
+public class CoffeeLintDiagnosticsToolWindowFactory implements ToolWindowFactory {
+    public static final String ID = "CoffeeLint Diagnostics";
+
+    @Override
+    public void createToolWindowContent(@NotNull Project project, @NotNull ToolWindow toolWindow) {
+        DiagnosticsPanel panel = new DiagnosticsPanel();
+        Content content = ContentFactory.SERVICE.getInstance().createContent(panel, "Metrics", false);
+        content.setDisposer(panel);
+        toolWindow.getContentManager().addContent(content);
+        TracePanel trace = new TracePanel();
+        Content traceContent = ContentFactory.SERVICE.getInstance().createContent(trace, "Trace", false);
+        traceContent.setDisposer(trace);
+        toolWindow.getContentManager().addContent(traceContent);
+        EngineComparisonPanel engines = new EngineComparisonPanel();
+        Content enginesContent = ContentFactory.SERVICE.getInstance().createContent(engines, "Engines", false);
+        enginesContent.setDisposer(engines);
+        toolWindow.getContentManager().addContent(enginesContent);
+    }
+}
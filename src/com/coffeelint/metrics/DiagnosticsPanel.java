@@ -0,0 +1,115 @@
+package com.coffeelint.metrics;
+
+import com.coffeelint.metrics.LintMetrics.Counter;
+import com.coffeelint.metrics.LintMetrics.Gauge;
+import com.coffeelint.metrics.LintMetrics.Stage;
+import com.intellij.openapi.Disposable;
+import com.intellij.ui.components.JBLabel;
+import com.intellij.ui.components.JBScrollPane;
+import com.intellij.ui.table.JBTable;
+
+import javax.swing.*;
+import javax.swing.table.AbstractTableModel;
+import java.awt.*;
+import java.awt.event.ActionEvent;
+import java.awt.event.ActionListener;
+
+/**
+ * Live view of {@link LintMetrics}, refreshed every second while it is open.
+ */
+public class DiagnosticsPanel extends JPanel implements Disposable {
+    private static final int REFRESH_MILLIS = 1000;
+    private static final String[] COLUMNS = {"Stage", "Count", "Mean ms", "p50 ms", "p90 ms", "p99 ms", "Max ms"};
+
+    private final LintMetrics metrics = LintMetrics.getInstance();
+    private final StageTableModel stages = new StageTableModel();
+    private final JBLabel counters = new JBLabel();
+    private final Timer timer;
+
+    public DiagnosticsPanel() {
+        super(new BorderLayout());
+        JPanel top = new JPanel(new BorderLayout());
+        top.add(counters, BorderLayout.CENTER);
+        JButton reset = new JButton("Reset");
+        reset.addActionListener(new ActionListener() {
+            public void actionPerformed(ActionEvent e) {
+                metrics.reset();
+                refresh();
+            }
+        });
+        top.add(reset, BorderLayout.EAST);
+        add(top, BorderLayout.NORTH);
+        add(new JBScrollPane(new JBTable(stages)), BorderLayout.CENTER);
+
+        timer = new Timer(REFRESH_MILLIS, new ActionListener() {
+            public void actionPerformed(ActionEvent e) {
+                refresh();
+            }
+        });
+        timer.start();
+        refresh();
+    }
+
+    private void refresh() {
+        StringBuilder text = new StringBuilder("<html>");
+        for (Counter counter : Counter.values()) {
+            text.append(label(counter.name())).append(": <b>").append(metrics.getCount(counter)).append("</b> &nbsp; ");
+        }
+        text.append("<br>");
+        for (Gauge gauge : Gauge.values()) {
+            text.append(label(gauge.name())).append(": <b>").append(metrics.getValue(gauge)).append("</b> &nbsp; ");
+        }
+        text.append("</html>");
+        counters.setText(text.toString());
+        stages.fireTableDataChanged();
+    }
+
+    private static String label(String name) {
+        String words = name.toLowerCase().replace('_', ' ');
+        return Character.toUpperCase(words.charAt(0)) + words.substring(1);
+    }
+
+    public void dispose() {
+        timer.stop();
+    }
+
+    private class StageTableModel extends AbstractTableModel {
+        public int getRowCount() {
+            return Stage.values().length;
+        }
+
+        public int getColumnCount() {
+            return COLUMNS.length;
+        }
+
+        @Override
+        public String getColumnName(int column) {
+            return COLUMNS[column];
+        }
+
+        public Object getValueAt(int row, int column) {
+            Stage stage = Stage.values()[row];
+            LatencyHistogram histogram = metrics.getHistogram(stage);
+            switch (column) {
+                case 0:
+                    return label(stage.name());
+                case 1:
+                    return histogram.getCount();
+                case 2:
+                    return format(histogram.getMeanMillis());
+                case 3:
+                    return format(histogram.getPercentileMillis(50));
+                case 4:
+                    return format(histogram.getPercentileMillis(90));
+                case 5:
+                    return format(histogram.getPercentileMillis(99));
+                default:
+                    return format(histogram.getMaxMillis());
+            }
+        }
+
+        private String format(double millis) {
+            return String.format("%.1f", millis);
+        }
+    }
+}
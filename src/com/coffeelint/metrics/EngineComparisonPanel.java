@@ -0,0 +1,119 @@
+package com.coffeelint.metrics;
+
+import com.coffeelint.engine.EngineComparison;
+import com.coffeelint.engine.EngineComparisons;
+import com.intellij.openapi.Disposable;
+import com.intellij.ui.components.JBLabel;
+import com.intellij.ui.components.JBScrollPane;
+import com.intellij.ui.table.JBTable;
+
+import javax.swing.*;
+import javax.swing.table.AbstractTableModel;
+import java.awt.*;
+import java.awt.event.ActionEvent;
+import java.awt.event.ActionListener;
+import java.text.SimpleDateFormat;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+
+/**
+ * Results of the engine comparison mode, newest first.
+ */
+public class EngineComparisonPanel extends JPanel implements Disposable {
+    private static final int REFRESH_MILLIS = 1000;
+    private static final String[] COLUMNS = {"Time", "File", "Engine", "ms", "Issues", "Other engine", "ms", "Issues", "Missing", "Added", "First difference"};
+
+    private final ComparisonTableModel model = new ComparisonTableModel();
+    private final JBLabel summary = new JBLabel();
+    private final SimpleDateFormat timeFormat = new SimpleDateFormat("HH:mm:ss.SSS");
+    private final Timer timer;
+
+    public EngineComparisonPanel() {
+        super(new BorderLayout());
+        JPanel top = new JPanel(new BorderLayout());
+        top.add(summary, BorderLayout.CENTER);
+        JButton clear = new JButton("Clear");
+        clear.addActionListener(new ActionListener() {
+            public void actionPerformed(ActionEvent e) {
+                EngineComparisons.getInstance().clear();
+                refresh();
+            }
+        });
+        top.add(clear, BorderLayout.EAST);
+        add(top, BorderLayout.NORTH);
+        add(new JBScrollPane(new JBTable(model)), BorderLayout.CENTER);
+
+        timer = new Timer(REFRESH_MILLIS, new ActionListener() {
+            public void actionPerformed(ActionEvent e) {
+                refresh();
+            }
+        });
+        timer.start();
+        refresh();
+    }
+
+    private void refresh() {
+        List<EngineComparison> comparisons = EngineComparisons.getInstance().getComparisons();
+        int different = 0;
+        for (EngineComparison comparison : comparisons) {
+            if (!comparison.isSame()) {
+                different++;
+            }
+        }
+        summary.setText(comparisons.isEmpty()
+                ? "Select an engine to compare with in the CoffeeLint settings"
+                : comparisons.size() + " comparisons, " + different + " with different results");
+        model.comparisons = comparisons;
+        model.fireTableDataChanged();
+    }
+
+    public void dispose() {
+        timer.stop();
+    }
+
+    private class ComparisonTableModel extends AbstractTableModel {
+        private List<EngineComparison> comparisons = Collections.emptyList();
+
+        public int getRowCount() {
+            return comparisons.size();
+        }
+
+        public int getColumnCount() {
+            return COLUMNS.length;
+        }
+
+        @Override
+        public String getColumnName(int column) {
+            return COLUMNS[column];
+        }
+
+        public Object getValueAt(int row, int column) {
+            EngineComparison comparison = comparisons.get(row);
+            switch (column) {
+                case 0:
+                    return timeFormat.format(new Date(comparison.timeMillis));
+                case 1:
+                    return comparison.path;
+                case 2:
+                    return comparison.engine;
+                case 3:
+                    return String.format("%.1f", comparison.nanos / 1e6);
+                case 4:
+                    return comparison.issues;
+                case 5:
+                    return comparison.otherEngine;
+                case 6:
+                    return String.format("%.1f", comparison.otherNanos / 1e6);
+                case 7:
+                    return comparison.otherIssues;
+                case 8:
+                    return comparison.missingInOther;
+                case 9:
+                    return comparison.addedInOther;
+                default:
+                    return comparison.firstDifference;
+            }
+        }
+    }
+}
@@ -0,0 +1,174 @@
+package com.coffeelint.metrics;
+
+import com.intellij.openapi.diagnostic.Logger;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.lang.reflect.Constructor;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Emits the {@link LintTracer} events as JDK Flight Recorder events, one event type per {@link LintTracer.Kind}
+ * named like {@code com.coffeelint.OutputParsed} in the CoffeeLint category. The plugin is built for runtimes without JFR,
+ * so the jdk.jfr.Event subclasses are defined at runtime through {@code jdk.jfr.EventFactory} (JDK 12 and later) and
+ * everything is called reflectively. A listener tracks whether a recording runs, until one does checking costs one volatile read.
+ */
+final class JfrLintEvents {
+    private static final Logger LOG = Logger.getInstance(JfrLintEvents.class);
+
+    private static final String PACKAGE = "jdk.jfr.";
+    private static final String RUNNING = "RUNNING";
+
+    /** kind -> its jdk.jfr.EventFactory */
+    private final Map<LintTracer.Kind, Object> factories;
+    private final Method newEvent;
+    private final Method set;
+    private final Method shouldCommit;
+    private final Method commit;
+    private volatile boolean recording;
+
+    private JfrLintEvents(@NotNull Map<LintTracer.Kind, Object> factories, @NotNull Class<?> factoryClass, @NotNull Class<?> eventClass) throws Exception {
+        this.factories = factories;
+        newEvent = factoryClass.getMethod("newEvent");
+        set = eventClass.getMethod("set", int.class, Object.class);
+        shouldCommit = eventClass.getMethod("shouldCommit");
+        commit = eventClass.getMethod("commit");
+    }
+
+    /**
+     * @return null when the runtime has no usable JFR API
+     */
+    @Nullable
+    static JfrLintEvents create() {
+        try {
+            Class<?> factoryClass = Class.forName(PACKAGE + "EventFactory");
+            Class<?> eventClass = Class.forName(PACKAGE + "Event");
+            Map<LintTracer.Kind, Object> factories = new EnumMap<LintTracer.Kind, Object>(LintTracer.Kind.class);
+            List<Object> fields = fields();
+            Method create = factoryClass.getMethod("create", List.class, List.class);
+            for (LintTracer.Kind kind : LintTracer.Kind.values()) {
+                factories.put(kind, create.invoke(null, typeAnnotations(kind), fields));
+            }
+            JfrLintEvents events = new JfrLintEvents(factories, factoryClass, eventClass);
+            events.listen();
+            return events;
+        } catch (ClassNotFoundException e) {
+            return null;
+        } catch (Throwable e) {
+            LOG.debug("JFR events are not available", e);
+            return null;
+        }
+    }
+
+    boolean isRecording() {
+        return recording;
+    }
+
+    /**
+     * Sets the fields in the order of {@link #fields}, for the recordings that enable the kind.
+     */
+    void emit(@NotNull LintTracer.Event event) {
+        if (!recording) {
+            return;
+        }
+        try {
+            Object jfrEvent = newEvent.invoke(factories.get(event.kind));
+            if (!(Boolean) shouldCommit.invoke(jfrEvent)) {
+                return;
+            }
+            set.invoke(jfrEvent, 0, event.path);
+            set.invoke(jfrEvent, 1, event.size);
+            set.invoke(jfrEvent, 2, event.issueCount);
+            set.invoke(jfrEvent, 3, event.configPath);
+            set.invoke(jfrEvent, 4, event.durationNanos);
+            commit.invoke(jfrEvent);
+        } catch (Exception e) {
+            LOG.debug("Could not emit a JFR event", e);
+        }
+    }
+
+    @NotNull
+    private static List<Object> typeAnnotations(@NotNull LintTracer.Kind kind) throws Exception {
+        StringBuilder name = new StringBuilder();
+        StringBuilder label = new StringBuilder("CoffeeLint");
+        for (String word : kind.name().toLowerCase().split("_")) {
+            String capitalized = Character.toUpperCase(word.charAt(0)) + word.substring(1);
+            name.append(capitalized);
+            label.append(' ').append(capitalized);
+        }
+        return Arrays.asList(
+                annotation("Name", "com.coffeelint." + name),
+                annotation("Label", label.toString()),
+                annotation("Category", new String[]{"CoffeeLint"}),
+                // the call sites are few and known, stack traces would only cost
+                annotation("StackTrace", false));
+    }
+
+    @NotNull
+    private static List<Object> fields() throws Exception {
+        Class<?> descriptorClass = Class.forName(PACKAGE + "ValueDescriptor");
+        Constructor<?> descriptor = descriptorClass.getConstructor(Class.class, String.class, List.class);
+        List<Object> fields = new ArrayList<Object>();
+        fields.add(descriptor.newInstance(String.class, "path", Collections.singletonList(annotation("Label", "Path"))));
+        fields.add(descriptor.newInstance(int.class, "size", Collections.singletonList(annotation("Label", "Size"))));
+        fields.add(descriptor.newInstance(int.class, "issueCount", Collections.singletonList(annotation("Label", "Issues"))));
+        fields.add(descriptor.newInstance(String.class, "configPath", Collections.singletonList(annotation("Label", "Config"))));
+        fields.add(descriptor.newInstance(long.class, "lintDuration", Arrays.asList(annotation("Label", "Lint Duration"),
+                annotation("Timespan", "NANOSECONDS"))));
+        return fields;
+    }
+
+    @NotNull
+    private static Object annotation(@NotNull String type, @NotNull Object value) throws Exception {
+        Class<?> elementClass = Class.forName(PACKAGE + "AnnotationElement");
+        return elementClass.getConstructor(Class.class, Object.class).newInstance(Class.forName(PACKAGE + type), value);
+    }
+
+    /**
+     * Follow the recordings started and stopped, from the command line, jcmd or Mission Control.
+     */
+    private void listen() throws Exception {
+        final Class<?> recorderClass = Class.forName(PACKAGE + "FlightRecorder");
+        Class<?> listenerClass = Class.forName(PACKAGE + "FlightRecorderListener");
+        Object listener = Proxy.newProxyInstance(listenerClass.getClassLoader(), new Class[]{listenerClass}, new InvocationHandler() {
+            public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+                if ("recordingStateChanged".equals(method.getName())) {
+                    updateRecording(recorderClass);
+                    return null;
+                }
+                if ("equals".equals(method.getName())) {
+                    return proxy == args[0];
+                }
+                if ("hashCode".equals(method.getName())) {
+                    return System.identityHashCode(proxy);
+                }
+                if ("toString".equals(method.getName())) {
+                    return "CoffeeLint JFR listener";
+                }
+                return null;
+            }
+        });
+        recorderClass.getMethod("addListener", listenerClass).invoke(null, listener);
+        // a recording started with the JVM is running already, asking earlier would start the recorder
+        if ((Boolean) recorderClass.getMethod("isInitialized").invoke(null)) {
+            updateRecording(recorderClass);
+        }
+    }
+
+    private void updateRecording(@NotNull Class<?> recorderClass) throws Exception {
+        Object recorder = recorderClass.getMethod("getFlightRecorder").invoke(null);
+        boolean running = false;
+        for (Object recording : (List<?>) recorderClass.getMethod("getRecordings").invoke(recorder)) {
+            running |= RUNNING.equals(String.valueOf(recording.getClass().getMethod("getState").invoke(recording)));
+        }
+        recording = running;
+    }
+}
@@ -0,0 +1,171 @@
+package com.coffeelint.metrics;
+
+import com.intellij.openapi.diagnostic.Logger;
+import org.jetbrains.annotations.NotNull;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Application wide latency histograms, counters and gauges of the lint pipeline.
+ * Shown in the CoffeeLint Diagnostics tool window and exported over JMX as {@link #OBJECT_NAME}.
+ */
+public final class LintMetrics {
+    private static final Logger LOG = Logger.getInstance(LintMetrics.class);
+
+    public static final String OBJECT_NAME = "com.coffeelint:type=LintMetrics";
+
+    public enum Stage {
+        /** writing the unsaved document to a temp file */
+        TEMP_FILE,
+        /** starting the node process */
+        SPAWN,
+        /** from process start until coffeelint writes its first output */
+        EXECUTE,
+        /** from the first output until the report is parsed */
+        PARSE,
+        /** the whole background part of a highlighting pass */
+        LINT,
+        /** creating annotations on the highlighting thread */
+        ANNOTATE
+    }
+
+    public enum Counter {
+        RUNS,
+        CANCELLATIONS,
+        TIMEOUTS,
+        CACHE_HITS,
+        CACHE_MISSES,
+        CI_REPORT_HITS,
+        PARSE_FAILURES,
+        ERROR_OUTPUTS,
+        /** files linted by multi-file runs after external changes */
+        BULK_LINTED_FILES,
+        /** highlighting passes that showed the last result while their file waited for a bulk run */
+        BULK_DEFERRED_PASSES,
+        /** highlighting passes of medium files postponed until typing pauses */
+        IDLE_DEFERRED_RUNS,
+        /** highlighting passes of large files postponed until they are saved */
+        SAVE_DEFERRED_RUNS,
+        /** circuit breakers opened by repeated failures of a file or executable */
+        CIRCUIT_BREAKER_TRIPS,
+        /** highlighting passes that showed the last result because a circuit breaker was open */
+        CIRCUIT_OPEN_SKIPS,
+        /** coffeelint processes started at reduced priority for other editors and files changed on disk */
+        BACKGROUND_PRIORITY_RUNS,
+        /** coffeelint processes started at idle priority for batch runs */
+        BATCH_PRIORITY_RUNS,
+        /** highlighting passes and multi-file runs skipped because their coffeelint.json is invalid */
+        INVALID_CONFIG_SKIPS
+    }
+
+    public enum Gauge {
+        PROCESSES_IN_FLIGHT,
+        PASSES_IN_FLIGHT,
+        /** shared lint servers running, see {@link com.coffeelint.engine.LintServerPool} */
+        LINT_SERVERS,
+        /** open projects using them */
+        LINT_SERVER_PROJECTS,
+        /** their resident memory */
+        LINT_SERVER_MEMORY_MB,
+        /** memory a server per project would take in addition */
+        LINT_SERVER_SAVED_MB
+    }
+
+    private static final LintMetrics INSTANCE = new LintMetrics();
+
+    private final Map<Stage, LatencyHistogram> histograms = new EnumMap<Stage, LatencyHistogram>(Stage.class);
+    private final Map<Counter, AtomicLong> counters = new EnumMap<Counter, AtomicLong>(Counter.class);
+    private final Map<Gauge, AtomicInteger> gauges = new EnumMap<Gauge, AtomicInteger>(Gauge.class);
+
+    private LintMetrics() {
+        for (Stage stage : Stage.values()) {
+            histograms.put(stage, new LatencyHistogram());
+        }
+        for (Counter counter : Counter.values()) {
+            counters.put(counter, new AtomicLong());
+        }
+        for (Gauge gauge : Gauge.values()) {
+            gauges.put(gauge, new AtomicInteger());
+        }
+        registerMBean();
+    }
+
+    @NotNull
+    public static LintMetrics getInstance() {
+        return INSTANCE;
+    }
+
+    private void registerMBean() {
+        try {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            ObjectName name = new ObjectName(OBJECT_NAME);
+            if (!server.isRegistered(name)) {
+                server.registerMBean(new LintMetricsMXBeanImpl(this), name);
+            }
+        } catch (Exception e) {
+            LOG.warn("Could not register CoffeeLint metrics with JMX", e);
+        }
+    }
+
+    /**
+     * @param startNanos value of {@link System#nanoTime()} when the stage started
+     */
+    public void record(@NotNull Stage stage, long startNanos) {
+        histograms.get(stage).record(System.nanoTime() - startNanos);
+    }
+
+    public void recordNanos(@NotNull Stage stage, long nanos) {
+        histograms.get(stage).record(nanos);
+    }
+
+    public void increment(@NotNull Counter counter) {
+        counters.get(counter).incrementAndGet();
+    }
+
+    public void add(@NotNull Counter counter, long delta) {
+        counters.get(counter).addAndGet(delta);
+    }
+
+    public void enter(@NotNull Gauge gauge) {
+        gauges.get(gauge).incrementAndGet();
+    }
+
+    public void exit(@NotNull Gauge gauge) {
+        gauges.get(gauge).decrementAndGet();
+    }
+
+    public void set(@NotNull Gauge gauge, int value) {
+        gauges.get(gauge).set(value);
+    }
+
+    @NotNull
+    public LatencyHistogram getHistogram(@NotNull Stage stage) {
+        return histograms.get(stage);
+    }
+
+    public long getCount(@NotNull Counter counter) {
+        return counters.get(counter).get();
+    }
+
+    public int getValue(@NotNull Gauge gauge) {
+        return gauges.get(gauge).get();
+    }
+
+    /**
+     * Clear histograms and counters, gauges reflect live state and are kept.
+     */
+    public void reset() {
+        for (LatencyHistogram histogram : histograms.values()) {
+            histogram.reset();
+        }
+        for (AtomicLong counter : counters.values()) {
+            counter.set(0);
+        }
+    }
+}
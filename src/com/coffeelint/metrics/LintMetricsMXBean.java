@@ -0,0 +1,48 @@
+package com.coffeelint.metrics;
+
+/**
+ * JMX view of {@link LintMetrics}. Latencies are in milliseconds, stage names are those of {@link LintMetrics.Stage}.
+ */
+public interface LintMetricsMXBean {
+    long getRuns();
+
+    long getCancellations();
+
+    long getTimeouts();
+
+    long getCacheHits();
+
+    long getCacheMisses();
+
+    long getParseFailures();
+
+    long getErrorOutputs();
+
+    long getBackgroundPriorityRuns();
+
+    long getBatchPriorityRuns();
+
+    long getInvalidConfigSkips();
+
+    int getProcessesInFlight();
+
+    int getPassesInFlight();
+
+    int getLintServers();
+
+    int getLintServerMemoryMb();
+
+    int getLintServerSavedMb();
+
+    String[] getStages();
+
+    long getStageCount(String stage);
+
+    double getStageMeanMillis(String stage);
+
+    double getStageMaxMillis(String stage);
+
+    double getStagePercentileMillis(String stage, double percentile);
+
+    void reset();
+}
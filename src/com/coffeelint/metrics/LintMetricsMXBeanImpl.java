@@ -0,0 +1,102 @@
+package com.coffeelint.metrics;
+
+import com.coffeelint.metrics.LintMetrics.Counter;
+import com.coffeelint.metrics.LintMetrics.Gauge;
+import com.coffeelint.metrics.LintMetrics.Stage;
+
+class LintMetricsMXBeanImpl implements LintMetricsMXBean {
+    private final LintMetrics metrics;
+
+    LintMetricsMXBeanImpl(LintMetrics metrics) {
+        this.metrics = metrics;
+    }
+
+    public long getRuns() {
+        return metrics.getCount(Counter.RUNS);
+    }
+
+    public long getCancellations() {
+        return metrics.getCount(Counter.CANCELLATIONS);
+    }
+
+    public long getTimeouts() {
+        return metrics.getCount(Counter.TIMEOUTS);
+    }
+
+    public long getCacheHits() {
+        return metrics.getCount(Counter.CACHE_HITS);
+    }
+
+    public long getCacheMisses() {
+        return metrics.getCount(Counter.CACHE_MISSES);
+    }
+
+    public long getParseFailures() {
+        return metrics.getCount(Counter.PARSE_FAILURES);
+    }
+
+    public long getErrorOutputs() {
+        return metrics.getCount(Counter.ERROR_OUTPUTS);
+    }
+
+    public long getBackgroundPriorityRuns() {
+        return metrics.getCount(Counter.BACKGROUND_PRIORITY_RUNS);
+    }
+
+    public long getBatchPriorityRuns() {
+        return metrics.getCount(Counter.BATCH_PRIORITY_RUNS);
+    }
+
+    public long getInvalidConfigSkips() {
+        return metrics.getCount(Counter.INVALID_CONFIG_SKIPS);
+    }
+
+    public int getProcessesInFlight() {
+        return metrics.getValue(Gauge.PROCESSES_IN_FLIGHT);
+    }
+
+    public int getPassesInFlight() {
+        return metrics.getValue(Gauge.PASSES_IN_FLIGHT);
+    }
+
+    public int getLintServers() {
+        return metrics.getValue(Gauge.LINT_SERVERS);
+    }
+
+    public int getLintServerMemoryMb() {
+        return metrics.getValue(Gauge.LINT_SERVER_MEMORY_MB);
+    }
+
+    public int getLintServerSavedMb() {
+        return metrics.getValue(Gauge.LINT_SERVER_SAVED_MB);
+    }
+
+    public String[] getStages() {
+        Stage[] stages = Stage.values();
+        String[] names = new String[stages.length];
+        for (int i = 0; i < stages.length; i++) {
+            names[i] = stages[i].name();
+        }
+        return names;
+    }
+
+    public long getStageCount(String stage) {
+        return metrics.getHistogram(Stage.valueOf(stage)).getCount();
+    }
+
+    public double getStageMeanMillis(String stage) {
+        return metrics.getHistogram(Stage.valueOf(stage)).getMeanMillis();
+    }
+
+    public double getStageMaxMillis(String stage) {
+        return metrics.getHistogram(Stage.valueOf(stage)).getMaxMillis();
+    }
+
+    public double getStagePercentileMillis(String stage, double percentile) {
+        return metrics.getHistogram(Stage.valueOf(stage)).getPercentileMillis(percentile);
+    }
+
+    public void reset() {
+        metrics.reset();
+    }
+}
@@ -0,0 +1,144 @@
+package com.coffeelint.metrics;
+
+import com.intellij.openapi.diagnostic.Logger;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Records the steps of single lint requests into a bounded ring buffer, for the Trace tab of the diagnostics tool window.
+ * Off by default, or on from startup with {@code -Dcoffeelint.trace=true}. While off every call site costs two volatile reads,
+ * callers check {@link #isEnabled()} before they compute the event fields.
+ * On runtimes with the JFR API the steps are also emitted as Flight Recorder events while a recording runs, whether tracing
+ * is on or not, see {@link JfrLintEvents}. The ring buffer remains for the tool window and for runtimes without JFR.
+ * With debug logging enabled for this class the events are also written to idea.log, next to thread dumps and GC logs.
+ */
+public final class LintTracer {
+    private static final Logger LOG = Logger.getInstance(LintTracer.class);
+
+    public static final int CAPACITY = 1024;
+    public static final int UNKNOWN = -1;
+
+    public enum Kind {
+        /** the highlighting pass took a snapshot of the document and queued it for linting */
+        REQUEST_QUEUED,
+        /** coffeelint was spawned, the duration is the spawn time */
+        PROCESS_STARTED,
+        /** the report was read, the duration spans process start to the end of parsing */
+        OUTPUT_PARSED,
+        /** annotations were created on the highlighting thread */
+        ANNOTATIONS_APPLIED
+    }
+
+    public static final class Event {
+        public final Kind kind;
+        public final long timeMillis;
+        public final String thread;
+        public final String path;
+        /** characters of content, or {@link #UNKNOWN} */
+        public final int size;
+        /** issues found, or {@link #UNKNOWN} */
+        public final int issueCount;
+        public final String configPath;
+        public final long durationNanos;
+
+        Event(Kind kind, String path, int size, int issueCount, String configPath, long durationNanos) {
+            this.kind = kind;
+            this.timeMillis = System.currentTimeMillis();
+            this.thread = Thread.currentThread().getName();
+            this.path = path;
+            this.size = size;
+            this.issueCount = issueCount;
+            this.configPath = configPath;
+            this.durationNanos = durationNanos;
+        }
+
+        @Override
+        public String toString() {
+            return kind + " path=" + path + " size=" + size + " issues=" + issueCount + " config=" + configPath
+                    + " duration=" + durationNanos / 1000 + "us thread=" + thread;
+        }
+    }
+
+    private static final LintTracer INSTANCE = new LintTracer();
+
+    private volatile boolean enabled = Boolean.getBoolean("coffeelint.trace");
+    @Nullable
+    private final JfrLintEvents jfr = JfrLintEvents.create();
+    private final Event[] events = new Event[CAPACITY];
+    private int next;
+    private int size;
+
+    private LintTracer() {
+    }
+
+    @NotNull
+    public static LintTracer getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * @return true while tracing is on or a flight recording runs
+     */
+    public boolean isEnabled() {
+        return enabled || jfr != null && jfr.isRecording();
+    }
+
+    /**
+     * @return true while events are kept in the ring buffer
+     */
+    public boolean isTracing() {
+        return enabled;
+    }
+
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    public void record(@NotNull Kind kind, @Nullable String path, int size, int issueCount, @Nullable String configPath, long durationNanos) {
+        if (!isEnabled()) {
+            return;
+        }
+        Event event = new Event(kind, path, size, issueCount, configPath, durationNanos);
+        if (jfr != null) {
+            jfr.emit(event);
+        }
+        if (!enabled) {
+            return;
+        }
+        synchronized (events) {
+            events[next] = event;
+            next = (next + 1) % CAPACITY;
+            this.size = Math.min(this.size + 1, CAPACITY);
+        }
+        if (LOG.isDebugEnabled()) {
+            LOG.debug(event.toString());
+        }
+    }
+
+    /**
+     * @return the recorded events, oldest first
+     */
+    @NotNull
+    public List<Event> getEvents() {
+        synchronized (events) {
+            List<Event> list = new ArrayList<Event>(size);
+            for (int i = 0; i < size; i++) {
+                list.add(events[(next - size + i + CAPACITY) % CAPACITY]);
+            }
+            return list;
+        }
+    }
+
+    public void clear() {
+        synchronized (events) {
+            for (int i = 0; i < CAPACITY; i++) {
+                events[i] = null;
+            }
+            next = 0;
+            size = 0;
+        }
+    }
+}
@@ -0,0 +1,124 @@
+package com.coffeelint.metrics;
+
+import com.intellij.openapi.Disposable;
+import com.intellij.openapi.ide.CopyPasteManager;
+import com.intellij.ui.components.JBCheckBox;
+import com.intellij.ui.components.JBScrollPane;
+import com.intellij.ui.table.JBTable;
+
+import javax.swing.*;
+import javax.swing.table.AbstractTableModel;
+import java.awt.*;
+import java.awt.datatransfer.StringSelection;
+import java.awt.event.ActionEvent;
+import java.awt.event.ActionListener;
+import java.text.SimpleDateFormat;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+
+/**
+ * The events of {@link LintTracer}, newest first, refreshed every second while tracing is on.
+ */
+public class TracePanel extends JPanel implements Disposable {
+    private static final int REFRESH_MILLIS = 1000;
+    private static final String[] COLUMNS = {"Time", "Event", "File", "Size", "Issues", "Config", "Duration ms", "Thread"};
+
+    private final LintTracer tracer = LintTracer.getInstance();
+    private final EventTableModel model = new EventTableModel();
+    private final SimpleDateFormat timeFormat = new SimpleDateFormat("HH:mm:ss.SSS");
+    private final Timer timer;
+
+    public TracePanel() {
+        super(new BorderLayout());
+        JPanel top = new JPanel(new FlowLayout(FlowLayout.LEFT));
+        final JBCheckBox record = new JBCheckBox("Record lint requests", tracer.isTracing());
+        record.addActionListener(new ActionListener() {
+            public void actionPerformed(ActionEvent e) {
+                tracer.setEnabled(record.isSelected());
+            }
+        });
+        top.add(record);
+        JButton clear = new JButton("Clear");
+        clear.addActionListener(new ActionListener() {
+            public void actionPerformed(ActionEvent e) {
+                tracer.clear();
+                refresh();
+            }
+        });
+        top.add(clear);
+        JButton copy = new JButton("Copy");
+        copy.addActionListener(new ActionListener() {
+            public void actionPerformed(ActionEvent e) {
+                StringBuilder text = new StringBuilder();
+                for (LintTracer.Event event : tracer.getEvents()) {
+                    text.append(timeFormat.format(new Date(event.timeMillis))).append(' ').append(event).append('\n');
+                }
+                CopyPasteManager.getInstance().setContents(new StringSelection(text.toString()));
+            }
+        });
+        top.add(copy);
+        add(top, BorderLayout.NORTH);
+        add(new JBScrollPane(new JBTable(model)), BorderLayout.CENTER);
+
+        timer = new Timer(REFRESH_MILLIS, new ActionListener() {
+            public void actionPerformed(ActionEvent e) {
+                if (tracer.isTracing()) {
+                    refresh();
+                }
+            }
+        });
+        timer.start();
+        refresh();
+    }
+
+    private void refresh() {
+        List<LintTracer.Event> events = tracer.getEvents();
+        Collections.reverse(events);
+        model.events = events;
+        model.fireTableDataChanged();
+    }
+
+    public void dispose() {
+        timer.stop();
+    }
+
+    private class EventTableModel extends AbstractTableModel {
+        private List<LintTracer.Event> events = Collections.emptyList();
+
+        public int getRowCount() {
+            return events.size();
+        }
+
+        public int getColumnCount() {
+            return COLUMNS.length;
+        }
+
+        @Override
+        public String getColumnName(int column) {
+            return COLUMNS[column];
+        }
+
+        public Object getValueAt(int row, int column) {
+            LintTracer.Event event = events.get(row);
+            switch (column) {
+                case 0:
+                    return timeFormat.format(new Date(event.timeMillis));
+                case 1:
+                    return event.kind;
+                case 2:
+                    return event.path;
+                case 3:
+                    return event.size == LintTracer.UNKNOWN ? "" : event.size;
+                case 4:
+                    return event.issueCount == LintTracer.UNKNOWN ? "" : event.issueCount;
+                case 5:
+                    return event.configPath;
+                case 6:
+                    return String.format("%.1f", event.durationNanos / 1e6);
+                default:
+                    return event.thread;
+            }
+        }
+    }
+}
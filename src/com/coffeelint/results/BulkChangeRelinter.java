@@ -0,0 +1,360 @@
+package com.coffeelint.results;
+
+import com.coffeelint.CoffeeLintBundle;
+import com.coffeelint.CoffeeLintProjectComponent;
+import com.coffeelint.batch.EffectiveConfigLocator;
+import com.coffeelint.batch.LintCostModel;
+import com.coffeelint.batch.LintScheduler;
+import com.coffeelint.cli.LintResult;
+import com.coffeelint.cli.ProcessPriority;
+import com.coffeelint.config.CoffeeLintConfigFileUtil;
+import com.coffeelint.config.CoffeeLintConfigModel;
+import com.coffeelint.engine.LintCircuitBreaker;
+import com.coffeelint.engine.LintEngine;
+import com.coffeelint.engine.LintEngines;
+import com.coffeelint.engine.LintRequest;
+import com.coffeelint.engine.ProcessLintEngine;
+import com.coffeelint.metrics.LintMetrics;
+import com.intellij.codeInsight.daemon.DaemonCodeAnalyzer;
+import com.intellij.openapi.application.ApplicationManager;
+import com.intellij.openapi.components.ServiceManager;
+import com.intellij.openapi.diagnostic.Logger;
+import com.intellij.openapi.editor.Document;
+import com.intellij.openapi.fileEditor.FileDocumentManager;
+import com.intellij.openapi.fileEditor.impl.LoadTextUtil;
+import com.intellij.openapi.project.Project;
+import com.intellij.openapi.util.Computable;
+import com.intellij.openapi.vfs.VfsUtilCore;
+import com.intellij.openapi.vfs.VirtualFile;
+import com.intellij.openapi.vfs.VirtualFileManager;
+import com.intellij.openapi.vfs.newvfs.BulkFileListener;
+import com.intellij.openapi.vfs.newvfs.events.VFileContentChangeEvent;
+import com.intellij.openapi.vfs.newvfs.events.VFileCreateEvent;
+import com.intellij.openapi.vfs.newvfs.events.VFileEvent;
+import com.intellij.util.Alarm;
+import com.intellij.util.Consumer;
+import org.apache.commons.lang.StringUtils;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Re-lints CoffeeScript files changed outside the IDE in bulk, e.g. by a git checkout, with a few multi-file coffeelint runs
+ * instead of a process per file as editors refresh one by one.
+ * Changes are collected until the refresh settles and spread over several processes by the {@link LintScheduler},
+ * the results go to the {@link LintResultCache} and highlighting is restarted once. Highlighting passes of queued files show their last result meanwhile.
+ */
+public class BulkChangeRelinter {
+    private static final Logger LOG = Logger.getInstance(CoffeeLintBundle.LOG_ID);
+
+    /** fewer files changed in one refresh are linted by their highlighting passes as usual */
+    static final int MIN_FILES = 20;
+    static final int DELAY_MILLIS = 500;
+    /** keeps the command line short enough for every OS */
+    static final int FILES_PER_PROCESS = 100;
+    /** leaves cores to the IDE while a checkout is linted */
+    static final int WORKERS = Math.max(1, Runtime.getRuntime().availableProcessors() / 2);
+
+    private final Project project;
+    private final Alarm alarm;
+    private final AtomicBoolean listening = new AtomicBoolean(false);
+    /** project relative path -> file, waiting for the next batch */
+    private final Map<String, VirtualFile> queued = new LinkedHashMap<String, VirtualFile>();
+    /** project relative paths of the batch being linted */
+    private final Set<String> running = new HashSet<String>();
+
+    public BulkChangeRelinter(@NotNull Project project) {
+        this.project = project;
+        this.alarm = new Alarm(Alarm.ThreadToUse.POOLED_THREAD, project);
+    }
+
+    public static BulkChangeRelinter getInstance(@NotNull Project project) {
+        return ServiceManager.getService(project, BulkChangeRelinter.class);
+    }
+
+    public void start() {
+        if (listening.compareAndSet(false, true)) {
+            project.getMessageBus().connect(project).subscribe(VirtualFileManager.VFS_CHANGES, new BulkFileListener.Adapter() {
+                @Override
+                public void after(@NotNull List<? extends VFileEvent> events) {
+                    filesChanged(events);
+                }
+            });
+        }
+    }
+
+    /**
+     * @param path project relative path
+     * @return whether a batch run is going to lint the file
+     */
+    public synchronized boolean isQueued(@NotNull String path) {
+        return queued.containsKey(path) || running.contains(path);
+    }
+
+    /**
+     * Lint files with multi-file runs on the calling thread, e.g. after the plugin edited them in bulk,
+     * and restart highlighting.
+     *
+     * @param skipCached whether files linted with the same content before are skipped, content hashes ignore line separators
+     * @return the number of files whose results are cached now
+     */
+    public int lintNow(@NotNull Collection<VirtualFile> files, boolean skipCached) throws Exception {
+        VirtualFile baseDir = project.getBaseDir();
+        if (baseDir == null) {
+            return 0;
+        }
+        Map<String, VirtualFile> batch = new LinkedHashMap<String, VirtualFile>();
+        for (VirtualFile file : files) {
+            String path = VfsUtilCore.getRelativePath(file, baseDir, '/');
+            if (path != null) {
+                batch.put(path, file);
+            }
+        }
+        synchronized (this) {
+            running.addAll(batch.keySet());
+        }
+        try {
+            return lint(batch, skipCached);
+        } finally {
+            finished(batch.keySet());
+            restartHighlighting();
+        }
+    }
+
+    private void filesChanged(@NotNull List<? extends VFileEvent> events) {
+        CoffeeLintProjectComponent component = project.getComponent(CoffeeLintProjectComponent.class);
+        if (project.isDisposed() || !component.isEnabled()) {
+            return;
+        }
+        VirtualFile baseDir = project.getBaseDir();
+        if (baseDir == null) {
+            return;
+        }
+        Map<String, VirtualFile> changed = new LinkedHashMap<String, VirtualFile>();
+        for (VFileEvent event : events) {
+            if (!event.isFromRefresh() || !(event instanceof VFileContentChangeEvent || event instanceof VFileCreateEvent)) {
+                continue;
+            }
+            VirtualFile file = event.getFile();
+            if (file == null || file.isDirectory() || !CoffeeLintConfigFileUtil.isCoffeeScriptFile(file.getName(), component.extensions)) {
+                continue;
+            }
+            String path = VfsUtilCore.getRelativePath(file, baseDir, '/');
+            if (path != null) {
+                changed.put(path, file);
+            }
+        }
+        if (changed.isEmpty()) {
+            return;
+        }
+        synchronized (this) {
+            if (changed.size() < MIN_FILES && queued.isEmpty()) {
+                return;
+            }
+            queued.putAll(changed);
+        }
+        // wait for the rest of the refresh before linting
+        alarm.cancelAllRequests();
+        alarm.addRequest(new Runnable() {
+            public void run() {
+                relint();
+            }
+        }, DELAY_MILLIS);
+    }
+
+    private void relint() {
+        final Map<String, VirtualFile> batch;
+        synchronized (this) {
+            if (!running.isEmpty()) {
+                // the current batch reschedules when it is done
+                return;
+            }
+            batch = new LinkedHashMap<String, VirtualFile>(queued);
+            queued.clear();
+            running.addAll(batch.keySet());
+        }
+        int linted = 0;
+        try {
+            linted = lint(batch, false);
+        } catch (Exception e) {
+            LOG.warn("Could not lint changed CoffeeScript files", e);
+        } finally {
+            finished(batch.keySet());
+        }
+        LOG.debug("Linted " + linted + " of " + batch.size() + " changed CoffeeScript files in bulk");
+        restartHighlighting();
+    }
+
+    /**
+     * Schedule the files queued while a batch ran.
+     */
+    private void finished(@NotNull Collection<String> batch) {
+        boolean more;
+        synchronized (this) {
+            running.removeAll(batch);
+            more = running.isEmpty() && !queued.isEmpty();
+        }
+        if (more) {
+            alarm.addRequest(new Runnable() {
+                public void run() {
+                    relint();
+                }
+            }, DELAY_MILLIS);
+        }
+    }
+
+    private void restartHighlighting() {
+        ApplicationManager.getApplication().invokeLater(new Runnable() {
+            public void run() {
+                if (!project.isDisposed()) {
+                    // queued files showed their last result until now
+                    DaemonCodeAnalyzer.getInstance(project).restart();
+                }
+            }
+        });
+    }
+
+    /**
+     * @param skipCached whether files with a cached result for their content are left out
+     * @return the number of files whose results were cached
+     */
+    private int lint(@NotNull Map<String, VirtualFile> batch, boolean skipCached) throws Exception {
+        final CoffeeLintProjectComponent component = project.getComponent(CoffeeLintProjectComponent.class);
+        final String basePath = project.getBasePath();
+        if (project.isDisposed() || basePath == null || !component.isSettingsValid() || !component.isEnabled()) {
+            return 0;
+        }
+        if (!LintCircuitBreaker.getInstance().allows(LintCircuitBreaker.executableKey(component.nodeInterpreter, component.lintExecutable))) {
+            return 0;
+        }
+        final LintResultCache cache = LintResultCache.getInstance(project);
+        final int generation = cache.getGeneration();
+        final Map<String, Snapshot> snapshots = snapshot(batch);
+        int cached = 0;
+        if (skipCached) {
+            for (Iterator<Snapshot> it = snapshots.values().iterator(); it.hasNext(); ) {
+                Snapshot snapshot = it.next();
+                if (cache.get(snapshot.path, snapshot.contentHash) != null) {
+                    it.remove();
+                    cached++;
+                }
+            }
+        }
+        if (snapshots.isEmpty()) {
+            return cached;
+        }
+        LintEngine selected = LintEngines.getEngine(component.engineId);
+        final LintEngine engine = selected.supports(LintEngine.Capability.MULTI_FILE) ? selected : LintEngines.getEngine(ProcessLintEngine.ID);
+        final AtomicInteger linted = new AtomicInteger();
+        EffectiveConfigLocator configs = new EffectiveConfigLocator(component.configFile);
+        List<LintScheduler.Task> tasks = new ArrayList<LintScheduler.Task>();
+        for (Snapshot snapshot : snapshots.values()) {
+            tasks.add(new LintScheduler.Task(snapshot.path, snapshot.length, configs.getKey(new File(basePath, snapshot.path))));
+        }
+        LintScheduler scheduler = new LintScheduler(LintCostModel.getInstance(), component.nodeInterpreter + '\n' + component.lintExecutable,
+                WORKERS, FILES_PER_PROCESS);
+        scheduler.run(tasks, new LintScheduler.ChunkLinter() {
+            public void lint(@NotNull String configKey, @NotNull List<String> files) throws Exception {
+                if (CoffeeLintConfigModel.isInvalidConfig(project, configKey)) {
+                    LintMetrics.getInstance().increment(LintMetrics.Counter.INVALID_CONFIG_SKIPS);
+                    return;
+                }
+                LintRequest request = LintRequest.create(component, basePath, files.get(0), null);
+                request.settings.config = EffectiveConfigLocator.getConfigFile(configKey);
+                request.settings.priority = ProcessPriority.BACKGROUND;
+                LintResult result = LintEngines.await(engine.lintFiles(request, files, new Consumer<LintResult>() {
+                    public void consume(LintResult result) {
+                        Snapshot snapshot = snapshots.get(result.coffeeLint.file.name);
+                        // skip files that changed again while coffeelint ran
+                        if (snapshot != null && snapshot.file.getModificationStamp() == snapshot.modificationStamp) {
+                            if (cache.put(snapshot.path, snapshot.contentHash, generation, result.issues)) {
+                                linted.incrementAndGet();
+                            }
+                        }
+                    }
+                }));
+                if (StringUtils.isNotEmpty(result.errorOutput)) {
+                    LintMetrics.getInstance().increment(LintMetrics.Counter.ERROR_OUTPUTS);
+                    LOG.warn("CoffeeLint failed on changed files: " + result.errorOutput);
+                }
+            }
+        });
+        LintMetrics.getInstance().add(LintMetrics.Counter.BULK_LINTED_FILES, linted.get());
+        return cached + linted.get();
+    }
+
+    /**
+     * Hash the text of the files on disk, as their documents will have it once reloaded.
+     * Files with unsaved changes are left to their highlighting passes.
+     * Only the checks of a file take a read action, its text is read and hashed outside so a large batch does not hold
+     * back write actions. The stamp is taken before reading, a file changing meanwhile fails the check of its result.
+     */
+    @NotNull
+    private Map<String, Snapshot> snapshot(@NotNull Map<String, VirtualFile> batch) {
+        Map<String, Snapshot> snapshots = new HashMap<String, Snapshot>();
+        for (Map.Entry<String, VirtualFile> entry : batch.entrySet()) {
+            final VirtualFile file = entry.getValue();
+            Long modificationStamp = ApplicationManager.getApplication().runReadAction(new Computable<Long>() {
+                public Long compute() {
+                    if (!file.isValid()) {
+                        return null;
+                    }
+                    FileDocumentManager documentManager = FileDocumentManager.getInstance();
+                    Document document = documentManager.getCachedDocument(file);
+                    if (document != null && documentManager.isDocumentUnsaved(document)) {
+                        return null;
+                    }
+                    return file.getModificationStamp();
+                }
+            });
+            if (modificationStamp == null) {
+                continue;
+            }
+            Snapshot snapshot = Snapshot.of(entry.getKey(), file, modificationStamp);
+            if (snapshot != null) {
+                snapshots.put(entry.getKey(), snapshot);
+            }
+        }
+        return snapshots;
+    }
+
+    private static final class Snapshot {
+        final String path;
+        final VirtualFile file;
+        final long modificationStamp;
+        final long contentHash;
+        final long length;
+
+        private Snapshot(String path, VirtualFile file, long modificationStamp, long contentHash, long length) {
+            this.path = path;
+            this.file = file;
+            this.modificationStamp = modificationStamp;
+            this.contentHash = contentHash;
+            this.length = length;
+        }
+
+        @Nullable
+        static Snapshot of(@NotNull String path, @NotNull VirtualFile file, long modificationStamp) {
+            try {
+                // separators are converted to '\n' like in documents
+                CharSequence content = LoadTextUtil.loadText(file);
+                return new Snapshot(path, file, modificationStamp, ContentHash.of(content), file.getLength());
+            } catch (Exception e) {
+                LOG.debug("Could not read " + file.getPath(), e);
+                return null;
+            }
+        }
+    }
+}
@@ -0,0 +1,469 @@
+package com.coffeelint.results;
+
+import com.coffeelint.CoffeeLintBundle;
+import com.coffeelint.CoffeeLintProjectComponent;
+import com.coffeelint.batch.EffectiveConfigLocator;
+import com.coffeelint.cli.CheckstyleStreamParser;
+import com.coffeelint.cli.IssueTable;
+import com.coffeelint.cli.LintResult;
+import com.coffeelint.config.CoffeeLintRuleCatalog;
+import com.coffeelint.settings.Settings;
+import com.intellij.openapi.components.ServiceManager;
+import com.intellij.openapi.diagnostic.Logger;
+import com.intellij.openapi.project.Project;
+import com.intellij.openapi.util.io.FileUtil;
+import com.intellij.openapi.vfs.CharsetToolkit;
+import com.intellij.util.Consumer;
+import org.apache.commons.lang.StringUtils;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Lint results imported from CI, so files that are unchanged since a CI build are annotated without running coffeelint.
+ * The reports directory holds one directory per commit:
+ * <pre>
+ * &lt;commit&gt;/ls-tree.txt     output of git ls-tree -r &lt;commit&gt;
+ * &lt;commit&gt;/lint-info.txt   "coffeelint &lt;version&gt;" and "config &lt;git blob id of the config, empty without one&gt;" lines
+ * &lt;commit&gt;/checkstyle.xml  coffeelint --reporter checkstyle over the commit's files
+ * </pre>
+ * Results are keyed by path and git blob id, a file matches when its path is listed and its text hashes to the listed blob.
+ * A report only applies when it was made by the same coffeelint version as the one set up locally, with a config of the same
+ * content as the file's effective config. The reports do not record custom rules, so none apply while a rules directory is set.
+ * Listed .coffee files missing from the report had no issues.
+ * Paths are relative to the git root, which must be the project root.
+ * Only the {@link #MAX_COMMITS} most recent reports are kept. They are read on a background thread, lookups never wait for
+ * them and find nothing until the first scan is done.
+ */
+public class CiReportIndex {
+    private static final Logger LOG = Logger.getInstance(CoffeeLintBundle.LOG_ID);
+
+    public static final String MANIFEST = "ls-tree.txt";
+    public static final String INFO = "lint-info.txt";
+    public static final String REPORT = "checkstyle.xml";
+
+    static final int MAX_COMMITS = 20;
+    private static final long RESCAN_MILLIS = TimeUnit.SECONDS.toMillis(30L);
+
+    private static final ExecutorService SCANNER = Executors.newSingleThreadExecutor(new ThreadFactory() {
+        public Thread newThread(@NotNull Runnable r) {
+            Thread thread = new Thread(r, "CoffeeLint CI reports");
+            thread.setDaemon(true);
+            return thread;
+        }
+    });
+
+    @Nullable
+    private final Project project;
+    /** the loaded commits, replaced as a whole by each scan */
+    private volatile Snapshot snapshot = Snapshot.EMPTY;
+    private volatile long lastScan;
+    private final AtomicBoolean scanning = new AtomicBoolean();
+    /** changes on {@link #invalidate}, so a scan that was running meanwhile is not published */
+    private final AtomicInteger generation = new AtomicInteger();
+    /** config path -> blob id of its content, hashed again when the file's stamp changes */
+    private final ConcurrentMap<String, ConfigBlob> configBlobs = new ConcurrentHashMap<String, ConfigBlob>();
+
+    private static final class ConfigBlob {
+        final long lastModified;
+        final long length;
+        @NotNull
+        final String blob;
+
+        ConfigBlob(long lastModified, long length, @NotNull String blob) {
+            this.lastModified = lastModified;
+            this.length = length;
+            this.blob = blob;
+        }
+    }
+
+    private static final class Snapshot {
+        static final Snapshot EMPTY = new Snapshot(null, Collections.<Commit>emptyList());
+
+        @Nullable
+        final File directory;
+        /** newest first */
+        @NotNull
+        final List<Commit> commits;
+
+        Snapshot(@Nullable File directory, @NotNull List<Commit> commits) {
+            this.directory = directory;
+            this.commits = commits;
+        }
+    }
+
+    private static final class Commit {
+        @NotNull
+        final String name;
+        final long reportModified;
+        /** {@link #setup} of the coffeelint version and config the report was made with */
+        @NotNull
+        final String setup;
+        /** path -> blob id, of the files with results */
+        @NotNull
+        final Map<String, String> blobs;
+        /** path -> issues */
+        @NotNull
+        final Map<String, IssueTable> issues;
+
+        Commit(@NotNull String name, long reportModified, @NotNull String setup, @NotNull Map<String, String> blobs, @NotNull Map<String, IssueTable> issues) {
+            this.name = name;
+            this.reportModified = reportModified;
+            this.setup = setup;
+            this.blobs = blobs;
+            this.issues = issues;
+        }
+    }
+
+    public CiReportIndex(@Nullable Project project) {
+        this.project = project;
+    }
+
+    public static CiReportIndex getInstance(@NotNull Project project) {
+        return ServiceManager.getService(project, CiReportIndex.class);
+    }
+
+    /**
+     * @param path project relative path with '/' separators
+     * @return the imported issues of the file if CI linted exactly this text the way it would be linted locally, null otherwise
+     */
+    @Nullable
+    public IssueTable find(@NotNull String path, @NotNull CharSequence content) {
+        File directory = getDirectory();
+        if (directory == null || project == null || !isListed(directory, path)) {
+            return null;
+        }
+        // only files some report lists pay for finding their config
+        String setup = getLocalSetup(project, path);
+        return setup == null ? null : find(directory, path, content, setup);
+    }
+
+    /**
+     * @return whether any loaded report lists the path, without looking at the setup or the content
+     */
+    private boolean isListed(@NotNull File directory, @NotNull String path) {
+        scanLater(directory);
+        Snapshot current = snapshot;
+        if (!FileUtil.filesEqual(directory, current.directory)) {
+            return false;
+        }
+        for (Commit commit : current.commits) {
+            if (commit.blobs.containsKey(path)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @param setup {@link #setup} of the local coffeelint version and the effective config of the file
+     */
+    @Nullable
+    public IssueTable find(@NotNull File directory, @NotNull String path, @NotNull CharSequence content, @NotNull String setup) {
+        scanLater(directory);
+        Snapshot current = snapshot;
+        if (!FileUtil.filesEqual(directory, current.directory)) {
+            return null;
+        }
+        String blob = null;
+        for (Commit commit : current.commits) {
+            String listed = commit.blobs.get(path);
+            if (listed == null || !setup.equals(commit.setup)) {
+                continue;
+            }
+            if (blob == null) {
+                blob = GitBlobHash.of(content);
+            }
+            if (listed.equals(blob)) {
+                return commit.issues.get(path);
+            }
+        }
+        return null;
+    }
+
+    /**
+     * @param configBlob git blob id of the config, empty without one
+     * @return the key reports made with the coffeelint version and config are matched by
+     */
+    @NotNull
+    public static String setup(@NotNull String version, @NotNull String configBlob) {
+        return version.trim() + ' ' + configBlob.trim();
+    }
+
+    /**
+     * Forget everything, the reports are read again on the next lookup.
+     */
+    public void invalidate() {
+        generation.incrementAndGet();
+        configBlobs.clear();
+        snapshot = Snapshot.EMPTY;
+        lastScan = 0;
+    }
+
+    public int getCommitCount() {
+        return snapshot.commits.size();
+    }
+
+    @Nullable
+    private File getDirectory() {
+        if (project == null) {
+            return null;
+        }
+        String path = Settings.getInstance(project).ciReportsPath;
+        if (StringUtils.isEmpty(path)) {
+            return null;
+        }
+        return resolve(project, path);
+    }
+
+    @NotNull
+    private static File resolve(@NotNull Project project, @NotNull String path) {
+        File file = new File(path);
+        if (!file.isAbsolute() && project.getBasePath() != null) {
+            file = new File(project.getBasePath(), path);
+        }
+        return file;
+    }
+
+    /**
+     * @return the setup the file is linted with locally, null while the coffeelint version is not known or custom rules are used
+     */
+    @Nullable
+    private String getLocalSetup(@NotNull Project project, @NotNull String path) {
+        CoffeeLintProjectComponent component = project.getComponent(CoffeeLintProjectComponent.class);
+        if (StringUtils.isEmpty(component.nodeInterpreter) || StringUtils.isEmpty(component.lintExecutable) || project.getBasePath() == null) {
+            return null;
+        }
+        if (StringUtils.isNotEmpty(component.customRulesPath)) {
+            // the reports do not say which rules CI loaded, their issues could miss or add custom ones
+            return null;
+        }
+        CoffeeLintRuleCatalog.Rules rules = CoffeeLintRuleCatalog.getInstance().get(component.nodeInterpreter, component.lintExecutable);
+        if (rules == null || rules.version.isEmpty()) {
+            return null;
+        }
+        String configFile = StringUtils.isEmpty(component.configFile) ? null : resolve(project, component.configFile).getPath();
+        String config = new EffectiveConfigLocator(configFile).getKey(new File(project.getBasePath(), path));
+        if (config.equals(EffectiveConfigLocator.NO_CONFIG)) {
+            return setup(rules.version, "");
+        }
+        String blob = getConfigBlob(new File(config));
+        return blob == null ? null : setup(rules.version, blob);
+    }
+
+    /**
+     * @return the blob id of the config, hashed only when the file changed since the last call, null when it cannot be read
+     */
+    @Nullable
+    private String getConfigBlob(@NotNull File config) {
+        long lastModified = config.lastModified();
+        long length = config.length();
+        ConfigBlob cached = configBlobs.get(config.getPath());
+        if (cached != null && cached.lastModified == lastModified && cached.length == length) {
+            return cached.blob;
+        }
+        try {
+            String blob = GitBlobHash.of(FileUtil.loadFile(config, CharsetToolkit.UTF8));
+            configBlobs.put(config.getPath(), new ConfigBlob(lastModified, length, blob));
+            return blob;
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Scan on the background thread, at most every {@link #RESCAN_MILLIS} and once at a time.
+     */
+    private void scanLater(@NotNull final File directory) {
+        boolean moved = !FileUtil.filesEqual(directory, snapshot.directory);
+        if (!moved && System.currentTimeMillis() - lastScan < RESCAN_MILLIS) {
+            return;
+        }
+        if (!scanning.compareAndSet(false, true)) {
+            return;
+        }
+        lastScan = System.currentTimeMillis();
+        SCANNER.submit(new Runnable() {
+            public void run() {
+                try {
+                    scan(directory);
+                } finally {
+                    scanning.set(false);
+                }
+            }
+        });
+    }
+
+    /**
+     * Load the {@link #MAX_COMMITS} most recent complete commits, reusing the ones loaded already.
+     */
+    void scan(@NotNull File directory) {
+        int scanGeneration = generation.get();
+        lastScan = System.currentTimeMillis();
+        Snapshot current = snapshot;
+        Map<String, Commit> loaded = new HashMap<String, Commit>();
+        if (FileUtil.filesEqual(directory, current.directory)) {
+            for (Commit commit : current.commits) {
+                loaded.put(commit.name, commit);
+            }
+        }
+        File[] files = directory.listFiles();
+        List<File> commits = new ArrayList<File>();
+        final Map<File, Long> reportModified = new HashMap<File, Long>();
+        for (File commit : files == null ? new File[0] : files) {
+            if (commit.isDirectory() && new File(commit, MANIFEST).isFile() && new File(commit, INFO).isFile()
+                    && new File(commit, REPORT).isFile()) {
+                commits.add(commit);
+                reportModified.put(commit, new File(commit, REPORT).lastModified());
+            }
+        }
+        Collections.sort(commits, new Comparator<File>() {
+            public int compare(File a, File b) {
+                int byTime = reportModified.get(b).compareTo(reportModified.get(a));
+                return byTime != 0 ? byTime : b.getName().compareTo(a.getName());
+            }
+        });
+        List<Commit> recent = new ArrayList<Commit>();
+        for (File file : commits) {
+            if (recent.size() == MAX_COMMITS) {
+                break;
+            }
+            Commit commit = loaded.get(file.getName());
+            if (commit == null || commit.reportModified != reportModified.get(file)) {
+                try {
+                    commit = load(file, reportModified.get(file));
+                } catch (Exception e) {
+                    LOG.warn("Could not import CI lint results from " + file, e);
+                    continue;
+                }
+            }
+            recent.add(commit);
+        }
+        if (generation.get() == scanGeneration) {
+            snapshot = new Snapshot(directory, Collections.unmodifiableList(recent));
+        }
+    }
+
+    @NotNull
+    private static Commit load(@NotNull File commit, long reportModified) throws Exception {
+        final Map<String, String> listed = readManifest(new File(commit, MANIFEST));
+        String setup = readInfo(new File(commit, INFO));
+        final Map<String, IssueTable> reported = new HashMap<String, IssueTable>();
+        InputStream in = new BufferedInputStream(new FileInputStream(new File(commit, REPORT)));
+        try {
+            CheckstyleStreamParser.parse(in, new Consumer<LintResult>() {
+                public void consume(LintResult result) {
+                    String path = toManifestPath(result.coffeeLint.file.name, listed);
+                    if (path != null) {
+                        reported.put(path, result.issues);
+                    }
+                }
+            });
+        } finally {
+            in.close();
+        }
+        Map<String, String> blobs = new HashMap<String, String>();
+        Map<String, IssueTable> issues = new HashMap<String, IssueTable>();
+        for (Map.Entry<String, String> entry : listed.entrySet()) {
+            String path = entry.getKey();
+            IssueTable pathIssues = reported.get(path);
+            if (pathIssues == null) {
+                if (!path.endsWith(".coffee")) {
+                    continue;
+                }
+                pathIssues = IssueTable.EMPTY;
+            }
+            blobs.put(path, entry.getValue());
+            issues.put(path, pathIssues);
+        }
+        return new Commit(commit.getName(), reportModified, setup, blobs, issues);
+    }
+
+    /**
+     * @return the {@link #setup} recorded in the info file
+     */
+    @NotNull
+    static String readInfo(@NotNull File file) throws IOException {
+        String version = null;
+        String config = null;
+        for (String line : FileUtil.loadFile(file, CharsetToolkit.UTF8).split("\\r?\\n")) {
+            if (line.startsWith("coffeelint ")) {
+                version = line.substring("coffeelint ".length());
+            } else if (line.equals("config") || line.startsWith("config ")) {
+                config = line.substring("config".length());
+            }
+        }
+        if (StringUtils.isBlank(version) || config == null) {
+            throw new IOException("The coffeelint version or the config is missing from " + file);
+        }
+        return setup(version, config);
+    }
+
+    /**
+     * @return path -> blob id of the blobs listed in git ls-tree output: {@code <mode> blob <id>\t<path>}
+     */
+    @NotNull
+    static Map<String, String> readManifest(@NotNull File file) throws IOException {
+        Map<String, String> blobs = new HashMap<String, String>();
+        BufferedReader reader = new BufferedReader(new InputStreamReader(new FileInputStream(file), CharsetToolkit.UTF8_CHARSET));
+        try {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                int tab = line.indexOf('\t');
+                if (tab < 0) {
+                    continue;
+                }
+                String[] fields = line.substring(0, tab).split(" ");
+                if (fields.length == 3 && "blob".equals(fields[1])) {
+                    blobs.put(line.substring(tab + 1), fields[2]);
+                }
+            }
+        } finally {
+            reader.close();
+        }
+        return blobs;
+    }
+
+    /**
+     * CI may report absolute paths of its checkout, match them to the manifest by their longest listed suffix.
+     */
+    @Nullable
+    static String toManifestPath(@Nullable String name, @NotNull Map<String, String> blobs) {
+        if (name == null) {
+            return null;
+        }
+        String path = name.replace('\\', '/');
+        if (path.startsWith("./")) {
+            path = path.substring(2);
+        }
+        while (!blobs.containsKey(path)) {
+            int slash = path.indexOf('/');
+            if (slash < 0) {
+                return null;
+            }
+            path = path.substring(slash + 1);
+        }
+        return path;
+    }
+}
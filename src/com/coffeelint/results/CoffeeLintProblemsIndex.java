@@ -0,0 +1,256 @@
+package com.coffeelint.results;
+
+import com.coffeelint.cli.IssueDictionary;
+import com.coffeelint.cli.IssueTable;
+import com.coffeelint.cli.Severity;
+import com.intellij.openapi.components.ServiceManager;
+import com.intellij.openapi.project.Project;
+import gnu.trove.TIntIntHashMap;
+import gnu.trove.TIntObjectHashMap;
+import gnu.trove.TObjectIntHashMap;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
+
+/**
+ * Project wide index over the last lint result of every file.
+ * Counts per rule and per directory are kept up to date as single file results change, so aggregate queries
+ * never iterate the files, and listing is paged.
+ * Paths are project relative and use '/' as separator, the project root is the empty directory "".
+ */
+public class CoffeeLintProblemsIndex {
+    public static final String ROOT = "";
+    /** pass as rule to count or list issues of every rule */
+    public static final String ANY_RULE = null;
+
+    private final TreeMap<String, FileEntry> files = new TreeMap<String, FileEntry>();
+    private final TObjectIntHashMap<String> directoryIds = new TObjectIntHashMap<String>();
+    /** directory id -> rule id -> issue count, including the issues of subdirectories */
+    private final TIntObjectHashMap<TIntIntHashMap> countsByDirectory = new TIntObjectHashMap<TIntIntHashMap>();
+    /** directory id -> issue count, including the issues of subdirectories */
+    private final TIntIntHashMap totalsByDirectory = new TIntIntHashMap();
+    private long modificationCount;
+
+    private static final class FileEntry {
+        final IssueTable issues;
+        final int[] directories;
+        /** rule id -> issue count in this file */
+        final TIntIntHashMap counts;
+
+        FileEntry(IssueTable issues, int[] directories, TIntIntHashMap counts) {
+            this.issues = issues;
+            this.directories = directories;
+            this.counts = counts;
+        }
+    }
+
+    public static class Problem {
+        public final String path;
+        public final int line;
+        public final int column;
+        public final Severity severity;
+        public final String rule;
+        public final String message;
+
+        Problem(String path, IssueTable issues, int index) {
+            this.path = path;
+            this.line = issues.getLine(index);
+            this.column = issues.getColumn(index);
+            this.severity = issues.getSeverity(index);
+            this.rule = issues.getRule(index);
+            this.message = issues.getMessage(index);
+        }
+    }
+
+    public static CoffeeLintProblemsIndex getInstance(@NotNull Project project) {
+        return ServiceManager.getService(project, CoffeeLintProblemsIndex.class);
+    }
+
+    /**
+     * Replace the issues of a file, an empty table removes it.
+     */
+    public synchronized void update(@NotNull String path, @NotNull IssueTable issues) {
+        FileEntry old = files.get(path);
+        if (old != null && old.issues == issues) {
+            return;
+        }
+        if (old != null) {
+            files.remove(path);
+            apply(old, -1);
+        }
+        if (!issues.isEmpty()) {
+            TIntIntHashMap counts = new TIntIntHashMap();
+            for (int i = 0; i < issues.size(); i++) {
+                counts.adjustOrPutValue(issues.getRuleId(i), 1, 1);
+            }
+            FileEntry entry = new FileEntry(issues, old != null ? old.directories : directoriesOf(path), counts);
+            files.put(path, entry);
+            apply(entry, 1);
+        }
+        modificationCount++;
+    }
+
+    public synchronized void remove(@NotNull String path) {
+        FileEntry old = files.remove(path);
+        if (old != null) {
+            apply(old, -1);
+            modificationCount++;
+        }
+    }
+
+    public synchronized void clear() {
+        files.clear();
+        directoryIds.clear();
+        countsByDirectory.clear();
+        totalsByDirectory.clear();
+        modificationCount++;
+    }
+
+    private void apply(FileEntry entry, int sign) {
+        int[] rules = entry.counts.keys();
+        for (int directory : entry.directories) {
+            TIntIntHashMap counts = countsByDirectory.get(directory);
+            if (counts == null) {
+                counts = new TIntIntHashMap();
+                countsByDirectory.put(directory, counts);
+            }
+            for (int rule : rules) {
+                int count = counts.adjustOrPutValue(rule, sign * entry.counts.get(rule), sign * entry.counts.get(rule));
+                if (count == 0) {
+                    counts.remove(rule);
+                }
+            }
+            int total = totalsByDirectory.adjustOrPutValue(directory, sign * entry.issues.size(), sign * entry.issues.size());
+            if (total == 0) {
+                totalsByDirectory.remove(directory);
+            }
+        }
+    }
+
+    /**
+     * @return ids of the directories containing the path, from the root down
+     */
+    private int[] directoriesOf(String path) {
+        List<String> directories = new ArrayList<String>();
+        directories.add(ROOT);
+        for (int slash = path.indexOf('/'); slash > 0; slash = path.indexOf('/', slash + 1)) {
+            directories.add(path.substring(0, slash));
+        }
+        int[] ids = new int[directories.size()];
+        for (int i = 0; i < ids.length; i++) {
+            ids[i] = directoryId(directories.get(i));
+        }
+        return ids;
+    }
+
+    private int directoryId(String directory) {
+        if (directoryIds.containsKey(directory)) {
+            return directoryIds.get(directory);
+        }
+        int id = directoryIds.size();
+        directoryIds.put(directory, id);
+        return id;
+    }
+
+    /**
+     * @param rule      rule name or {@link #ANY_RULE}
+     * @param directory project relative directory without trailing '/', {@link #ROOT} for the whole project
+     */
+    public synchronized int count(@Nullable String rule, @NotNull String directory) {
+        if (!directoryIds.containsKey(directory)) {
+            return 0;
+        }
+        int directoryId = directoryIds.get(directory);
+        if (rule == null) {
+            return totalsByDirectory.get(directoryId);
+        }
+        int ruleId = IssueDictionary.getInstance().find(rule);
+        TIntIntHashMap counts = countsByDirectory.get(directoryId);
+        return ruleId < 0 || counts == null ? 0 : counts.get(ruleId);
+    }
+
+    public int countByRule(@NotNull String rule) {
+        return count(rule, ROOT);
+    }
+
+    public int countByDirectory(@NotNull String directory) {
+        return count(ANY_RULE, directory);
+    }
+
+    public synchronized int getFileCount() {
+        return files.size();
+    }
+
+    /**
+     * @return rules with at least one issue under the directory
+     */
+    @NotNull
+    public synchronized List<String> getRules(@NotNull String directory) {
+        TIntIntHashMap counts = directoryIds.containsKey(directory) ? countsByDirectory.get(directoryIds.get(directory)) : null;
+        if (counts == null) {
+            return Collections.emptyList();
+        }
+        List<String> rules = new ArrayList<String>();
+        IssueDictionary dictionary = IssueDictionary.getInstance();
+        for (int rule : counts.keys()) {
+            rules.add(dictionary.get(rule));
+        }
+        Collections.sort(rules);
+        return rules;
+    }
+
+    /**
+     * List one page of issues, ordered by path and then by coffeelint's order within the file.
+     *
+     * @param rule      rule name or {@link #ANY_RULE}
+     * @param directory project relative directory without trailing '/', {@link #ROOT} for the whole project
+     */
+    @NotNull
+    public synchronized List<Problem> list(@Nullable String rule, @NotNull String directory, int offset, int limit) {
+        int ruleId = -1;
+        if (rule != null) {
+            ruleId = IssueDictionary.getInstance().find(rule);
+            if (ruleId < 0) {
+                return Collections.emptyList();
+            }
+        }
+        SortedMap<String, FileEntry> scope = directory.equals(ROOT) ? files : files.subMap(directory + '/', directory + (char) ('/' + 1));
+        List<Problem> page = new ArrayList<Problem>(Math.max(0, Math.min(limit, 256)));
+        int skip = offset;
+        for (Map.Entry<String, FileEntry> file : scope.entrySet()) {
+            FileEntry entry = file.getValue();
+            int inFile = ruleId < 0 ? entry.issues.size() : entry.counts.get(ruleId);
+            if (skip >= inFile) {
+                skip -= inFile;
+                continue;
+            }
+            for (int i = 0; i < entry.issues.size() && page.size() < limit; i++) {
+                if (ruleId >= 0 && entry.issues.getRuleId(i) != ruleId) {
+                    continue;
+                }
+                if (skip > 0) {
+                    skip--;
+                    continue;
+                }
+                page.add(new Problem(file.getKey(), entry.issues, i));
+            }
+            if (page.size() >= limit) {
+                break;
+            }
+        }
+        return page;
+    }
+
+    /**
+     * @return a counter that changes whenever the indexed results change, for views that refresh lazily
+     */
+    public synchronized long getModificationCount() {
+        return modificationCount;
+    }
+}
@@ -0,0 +1,91 @@
+package com.coffeelint.results;
+
+import com.intellij.openapi.vfs.CharsetToolkit;
+import org.jetbrains.annotations.NotNull;
+
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+/**
+ * The id git gives a file's content, as printed by {@code git hash-object} and {@code git ls-tree}:
+ * SHA-1 of "blob &lt;byte length&gt;\0" followed by the bytes.
+ * Text is hashed as UTF-8 with the document's '\n' line separators, which matches the blob of files committed that way.
+ * The text is encoded in small chunks, never copied whole.
+ */
+public final class GitBlobHash {
+    private static final char[] HEX = "0123456789abcdef".toCharArray();
+
+    private GitBlobHash() {
+    }
+
+    @NotNull
+    public static String of(@NotNull CharSequence text) {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-1");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+        digest.update(("blob " + utf8Length(text) + '\0').getBytes(CharsetToolkit.UTF8_CHARSET));
+        CharsetEncoder encoder = CharsetToolkit.UTF8_CHARSET.newEncoder()
+                .onMalformedInput(CodingErrorAction.REPLACE)
+                .onUnmappableCharacter(CodingErrorAction.REPLACE);
+        ByteBuffer buffer = ByteBuffer.allocate(8192);
+        CharBuffer in = CharBuffer.wrap(text);
+        while (true) {
+            CoderResult result = encoder.encode(in, buffer, true);
+            update(digest, buffer);
+            if (result.isUnderflow()) {
+                break;
+            }
+        }
+        while (encoder.flush(buffer).isOverflow()) {
+            update(digest, buffer);
+        }
+        update(digest, buffer);
+        return toHex(digest.digest());
+    }
+
+    private static void update(MessageDigest digest, ByteBuffer buffer) {
+        buffer.flip();
+        digest.update(buffer.array(), buffer.arrayOffset() + buffer.position(), buffer.remaining());
+        buffer.clear();
+    }
+
+    /**
+     * Unpaired surrogates count as the single '?' byte the encoder replaces them with.
+     */
+    static long utf8Length(@NotNull CharSequence text) {
+        long length = 0;
+        for (int i = 0, size = text.length(); i < size; i++) {
+            char c = text.charAt(i);
+            if (c < 0x80) {
+                length++;
+            } else if (c < 0x800) {
+                length += 2;
+            } else if (Character.isHighSurrogate(c) && i + 1 < size && Character.isLowSurrogate(text.charAt(i + 1))) {
+                length += 4;
+                i++;
+            } else if (c >= Character.MIN_SURROGATE && c <= Character.MAX_SURROGATE) {
+                length++;
+            } else {
+                length += 3;
+            }
+        }
+        return length;
+    }
+
+    private static String toHex(byte[] bytes) {
+        char[] hex = new char[bytes.length * 2];
+        for (int i = 0; i < bytes.length; i++) {
+            hex[i * 2] = HEX[(bytes[i] >> 4) & 0xf];
+            hex[i * 2 + 1] = HEX[bytes[i] & 0xf];
+        }
+        return new String(hex);
+    }
+}
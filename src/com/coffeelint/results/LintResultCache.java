@@ -0,0 +1,127 @@
+package com.coffeelint.results;
+
+import com.coffeelint.cli.IssueTable;
+import com.intellij.openapi.components.ServiceManager;
+import com.intellij.openapi.project.Project;
+import com.intellij.openapi.vfs.VfsUtilCore;
+import com.intellij.openapi.vfs.VirtualFile;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.Iterator;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Last lint result of every file, keyed by project relative path and validated by a hash of the linted content.
+ * Changing the settings or a coffeelint.json {@link #invalidate() invalidates} all entries,
+ * but the {@link CoffeeLintProblemsIndex} keeps showing them until the files are linted again.
+ * Lints take the {@link #getGeneration() generation} when they start, so results of a lint that overlapped an invalidation are dropped.
+ */
+public class LintResultCache {
+    private final ConcurrentMap<String, Entry> entries = new ConcurrentHashMap<String, Entry>();
+    private final CoffeeLintProblemsIndex index;
+    private final AtomicInteger generation = new AtomicInteger();
+
+    private static final class Entry {
+        final long contentHash;
+        final int generation;
+        final IssueTable issues;
+
+        Entry(long contentHash, int generation, IssueTable issues) {
+            this.contentHash = contentHash;
+            this.generation = generation;
+            this.issues = issues;
+        }
+    }
+
+    public LintResultCache(@NotNull Project project) {
+        this(CoffeeLintProblemsIndex.getInstance(project));
+    }
+
+    LintResultCache(@NotNull CoffeeLintProblemsIndex index) {
+        this.index = index;
+    }
+
+    public static LintResultCache getInstance(@NotNull Project project) {
+        return ServiceManager.getService(project, LintResultCache.class);
+    }
+
+    /**
+     * @return the project relative path of the file, or its full path when it is outside the project
+     */
+    @NotNull
+    public static String getKey(@NotNull Project project, @NotNull VirtualFile file) {
+        VirtualFile baseDir = project.getBaseDir();
+        String relativePath = baseDir == null ? null : VfsUtilCore.getRelativePath(file, baseDir, '/');
+        return relativePath == null ? file.getPath() : relativePath;
+    }
+
+    /**
+     * @return the cached issues if the file was linted with this content since the last invalidation, null otherwise
+     */
+    @Nullable
+    public IssueTable get(@NotNull String path, long contentHash) {
+        Entry entry = entries.get(path);
+        if (entry == null || entry.contentHash != contentHash || entry.generation != generation.get()) {
+            return null;
+        }
+        return entry.issues;
+    }
+
+    /**
+     * @return the last issues of the file, even if they are outdated
+     */
+    @Nullable
+    public IssueTable getLast(@NotNull String path) {
+        Entry entry = entries.get(path);
+        return entry == null ? null : entry.issues;
+    }
+
+    /**
+     * @return the generation to pass to {@link #put} for a lint starting now
+     */
+    public int getGeneration() {
+        return generation.get();
+    }
+
+    /**
+     * @param generation {@link #getGeneration()} when the lint started
+     * @return false when the cache was invalidated since and the result is dropped
+     */
+    public boolean put(@NotNull String path, long contentHash, int generation, @NotNull IssueTable issues) {
+        if (generation != this.generation.get()) {
+            return false;
+        }
+        // an invalidation from here on leaves the entry stale, as it is stamped with the lint's generation
+        entries.put(path, new Entry(contentHash, generation, issues));
+        index.update(path, issues);
+        return true;
+    }
+
+    public void remove(@NotNull String path) {
+        entries.remove(path);
+        index.remove(path);
+    }
+
+    /**
+     * Forget the files under a deleted, moved or renamed directory.
+     *
+     * @param directory key of the directory, as {@link #getKey} gives it
+     */
+    public void removeUnder(@NotNull String directory) {
+        String prefix = directory.isEmpty() ? "" : directory + '/';
+        for (Iterator<String> it = entries.keySet().iterator(); it.hasNext(); ) {
+            String path = it.next();
+            if (path.startsWith(prefix)) {
+                it.remove();
+                index.remove(path);
+            }
+        }
+    }
+
+    public void invalidate() {
+        generation.incrementAndGet();
+    }
+}
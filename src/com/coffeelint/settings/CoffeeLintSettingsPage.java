@@ -3,6 +3,10 @@ package com.coffeelint.settings;
 import com.coffeelint.CoffeeLintProjectComponent;
 import com.coffeelint.cli.CoffeeLintFinder;
 import com.coffeelint.cli.CoffeeLintRunner;
+import com.coffeelint.engine.LintEngine;
+import com.coffeelint.engine.LintEngines;
+import com.coffeelint.results.CiReportIndex;
+import com.coffeelint.results.LintResultCache;
 import com.intellij.codeInsight.daemon.DaemonCodeAnalyzer;
 import com.intellij.execution.ExecutionException;
 //import com.intellij.javascript.nodejs.NodeDetectionUtil;
@@ -15,6 +19,7 @@ import com.intellij.openapi.vfs.VirtualFile;
 import com.intellij.psi.PsiManager;
 import com.intellij.ui.DocumentAdapter;
 import com.intellij.ui.HyperlinkLabel;
+import com.intellij.ui.ListCellRendererWrapper;
 import com.intellij.ui.TextFieldWithHistory;
 import com.intellij.ui.TextFieldWithHistoryWithBrowseButton;
 import com.intellij.util.NotNullProducer;
@@ -37,6 +42,7 @@ import java.awt.event.ItemListener;
 import java.io.File;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Vector;
 
 public class CoffeeLintSettingsPage implements Configurable {
     public static final String FIX_IT = "Fix it";
@@ -60,6 +66,20 @@ public class CoffeeLintSettingsPage implements Configurable {
     private JLabel nodeInterpreterLabel;
     private JLabel versionLabel;
     private JTextField extensionsField;
+    private JLabel engineLabel;
+    private JComboBox engineComboBox;
+    private JComboBox comparisonEngineComboBox;
+    private JLabel ciReportsLabel;
+    private JTextField ciReportsPathField;
+    private JLabel triggerLabel;
+    private JSpinner typingMaxLinesSpinner;
+    private JSpinner idleDelaySpinner;
+    private JSpinner idleMaxLinesSpinner;
+    private JCheckBox compileCacheCheckBox;
+    private JCheckBox checkinCheckBox;
+    private JSpinner checkinTimeBudgetSpinner;
+    private JLabel maxAnnotationsLabel;
+    private JSpinner maxAnnotationsSpinner;
     //    private TextFieldWithHistoryWithBrowseButton rulesPathField;
 //    private JLabel rulesDirectoryLabel1;
     private final PackagesNotificationPanel packagesNotificationPanel;
@@ -70,6 +90,8 @@ public class CoffeeLintSettingsPage implements Configurable {
         configConfigFileField();
 //        configESLintRulesField();
         configNodeField();
+        configEngineFields();
+        configTriggerFields();
 //        searchForEslintrcInRadioButton.addItemListener(new ItemListener() {
 //            public void itemStateChanged(ItemEvent e) {
 //                eslintrcFile.setEnabled(e.getStateChange() == ItemEvent.DESELECTED);
@@ -105,6 +127,7 @@ public class CoffeeLintSettingsPage implements Configurable {
         nodeInterpreterField.getChildComponent().getTextEditor().getDocument().addDocumentListener(docAdp);
 //        rulesPathField.getChildComponent().getTextEditor().getDocument().addDocumentListener(docAdp);
         customRulesPathField.getDocument().addDocumentListener(docAdp);
+        ciReportsPathField.getDocument().addDocumentListener(docAdp);
     }
 
     private File getProjectPath() {
@@ -136,6 +159,20 @@ public class CoffeeLintSettingsPage implements Configurable {
         pathToCoffeelintBinLabel.setEnabled(enabled);
         nodeInterpreterLabel.setEnabled(enabled);
         extensionsField.setEnabled(enabled);
+        engineLabel.setEnabled(enabled);
+        engineComboBox.setEnabled(enabled);
+        comparisonEngineComboBox.setEnabled(enabled);
+        ciReportsLabel.setEnabled(enabled);
+        ciReportsPathField.setEnabled(enabled);
+        triggerLabel.setEnabled(enabled);
+        typingMaxLinesSpinner.setEnabled(enabled);
+        idleDelaySpinner.setEnabled(enabled);
+        idleMaxLinesSpinner.setEnabled(enabled);
+        compileCacheCheckBox.setEnabled(enabled);
+        checkinCheckBox.setEnabled(enabled);
+        checkinTimeBudgetSpinner.setEnabled(enabled);
+        maxAnnotationsLabel.setEnabled(enabled);
+        maxAnnotationsSpinner.setEnabled(enabled);
     }
 
     private void validateField(List<ValidationInfo> errors, TextFieldWithHistoryWithBrowseButton field, boolean allowEmpty, String message) {
@@ -157,6 +194,10 @@ public class CoffeeLintSettingsPage implements Configurable {
             ValidationInfo error = new ValidationInfo(customRulesPathField, "Path to custom rules is invalid {{LINK}}", FIX_IT);
             errors.add(error);
         }
+        if (!validateDirectory(ciReportsPathField.getText(), true)) {
+            ValidationInfo error = new ValidationInfo(ciReportsPathField, "Path to CI lint reports is invalid {{LINK}}", FIX_IT);
+            errors.add(error);
+        }
         if (errors.isEmpty()) {
             getVersion();
         }
@@ -274,6 +315,55 @@ public class CoffeeLintSettingsPage implements Configurable {
         SwingHelper.installFileCompletionAndBrowseDialog(project, nodeInterpreterField, "Select Node interpreter", FileChooserDescriptorFactory.createSingleFileNoJarsDescriptor());
     }
 
+    private void configEngineFields() {
+        List<LintEngine> engines = LintEngines.getEngines();
+        Vector<Object> comparisonEngines = new Vector<Object>();
+        comparisonEngines.add(null);
+        comparisonEngines.addAll(engines);
+        //noinspection unchecked
+        engineComboBox.setModel(new DefaultComboBoxModel(engines.toArray()));
+        //noinspection unchecked
+        comparisonEngineComboBox.setModel(new DefaultComboBoxModel(comparisonEngines));
+        ListCellRendererWrapper<Object> renderer = new ListCellRendererWrapper<Object>() {
+            @Override
+            public void customize(JList list, Object value, int index, boolean selected, boolean hasFocus) {
+                setText(value instanceof LintEngine ? ((LintEngine) value).getDisplayName() : "None");
+            }
+        };
+        //noinspection unchecked
+        engineComboBox.setRenderer(renderer);
+        //noinspection unchecked
+        comparisonEngineComboBox.setRenderer(renderer);
+    }
+
+    private void configTriggerFields() {
+        typingMaxLinesSpinner.setModel(new SpinnerNumberModel(0, 0, Integer.MAX_VALUE, 500));
+        idleDelaySpinner.setModel(new SpinnerNumberModel(0, 0, 60000, 250));
+        idleMaxLinesSpinner.setModel(new SpinnerNumberModel(0, 0, Integer.MAX_VALUE, 1000));
+        checkinTimeBudgetSpinner.setModel(new SpinnerNumberModel(1, 1, 3600, 5));
+        maxAnnotationsSpinner.setModel(new SpinnerNumberModel(0, 0, Integer.MAX_VALUE, 100));
+    }
+
+    private static int getInt(JSpinner spinner) {
+        return ((Number) spinner.getValue()).intValue();
+    }
+
+    private static String getEngineId(JComboBox comboBox) {
+        Object selected = comboBox.getSelectedItem();
+        return selected instanceof LintEngine ? ((LintEngine) selected).getId() : "";
+    }
+
+    private static void selectEngine(JComboBox comboBox, String id) {
+        for (int i = 0; i < comboBox.getItemCount(); i++) {
+            Object item = comboBox.getItemAt(i);
+            if (item instanceof LintEngine ? ((LintEngine) item).getId().equals(id) : StringUtils.isEmpty(id)) {
+                comboBox.setSelectedIndex(i);
+                return;
+            }
+        }
+        comboBox.setSelectedIndex(0);
+    }
+
     @Nls
     @Override
     public String getDisplayName() {
@@ -306,6 +396,16 @@ public class CoffeeLintSettingsPage implements Configurable {
 //                treatAllLintIssuesCheckBox.isSelected() != s.treatAllIssuesAsWarnings ||
                 !customRulesPathField.getText().equals(s.rulesPath) ||
                 !extensionsField.getText().equals(s.extensions) ||
+                !getEngineId(engineComboBox).equals(s.engineId) ||
+                !getEngineId(comparisonEngineComboBox).equals(s.comparisonEngineId) ||
+                !ciReportsPathField.getText().equals(s.ciReportsPath) ||
+                getInt(typingMaxLinesSpinner) != s.typingMaxLines ||
+                getInt(idleDelaySpinner) != s.idleDelayMillis ||
+                getInt(idleMaxLinesSpinner) != s.idleMaxLines ||
+                compileCacheCheckBox.isSelected() != s.compileCache ||
+                checkinCheckBox.isSelected() != s.checkinEnabled ||
+                getInt(checkinTimeBudgetSpinner) != s.checkinTimeBudgetSeconds ||
+                getInt(maxAnnotationsSpinner) != s.maxAnnotations ||
 //                !areEqual(rulesPathField, s.builtinRulesPath) ||
                 !getConfigFile().equals(s.configFile);
     }
@@ -328,9 +428,21 @@ public class CoffeeLintSettingsPage implements Configurable {
         settings.configFile = getConfigFile();
         settings.rulesPath = customRulesPathField.getText();
         settings.extensions = extensionsField.getText();
+        settings.engineId = getEngineId(engineComboBox);
+        settings.comparisonEngineId = getEngineId(comparisonEngineComboBox);
+        settings.ciReportsPath = ciReportsPathField.getText();
+        settings.typingMaxLines = getInt(typingMaxLinesSpinner);
+        settings.idleDelayMillis = getInt(idleDelaySpinner);
+        settings.idleMaxLines = getInt(idleMaxLinesSpinner);
+        settings.compileCache = compileCacheCheckBox.isSelected();
+        settings.checkinEnabled = checkinCheckBox.isSelected();
+        settings.checkinTimeBudgetSeconds = getInt(checkinTimeBudgetSpinner);
+        settings.maxAnnotations = getInt(maxAnnotationsSpinner);
 //        settings.builtinRulesPath = rulesPathField.getChildComponent().getText();
 //        settings.treatAllIssuesAsWarnings = treatAllLintIssuesCheckBox.isSelected();
         project.getComponent(CoffeeLintProjectComponent.class).validateSettings();
+        LintResultCache.getInstance(project).invalidate();
+        CiReportIndex.getInstance(project).invalidate();
         DaemonCodeAnalyzer.getInstance(project).restart();
     }
 
@@ -342,6 +454,16 @@ public class CoffeeLintSettingsPage implements Configurable {
         nodeInterpreterField.getChildComponent().setText(settings.nodeInterpreter);
         customRulesPathField.setText(settings.rulesPath);
         extensionsField.setText(settings.extensions);
+        selectEngine(engineComboBox, settings.engineId);
+        selectEngine(comparisonEngineComboBox, settings.comparisonEngineId);
+        ciReportsPathField.setText(settings.ciReportsPath);
+        typingMaxLinesSpinner.setValue(settings.typingMaxLines);
+        idleDelaySpinner.setValue(settings.idleDelayMillis);
+        idleMaxLinesSpinner.setValue(settings.idleMaxLines);
+        compileCacheCheckBox.setSelected(settings.compileCache);
+        checkinCheckBox.setSelected(settings.checkinEnabled);
+        checkinTimeBudgetSpinner.setValue(settings.checkinTimeBudgetSeconds);
+        maxAnnotationsSpinner.setValue(settings.maxAnnotations);
 //        rulesPathField.getChildComponent().setText(settings.builtinRulesPath);
         useProjectEslintrcRadioButton.setSelected(StringUtils.isNotEmpty(settings.configFile));
         searchForEslintrcInRadioButton.setSelected(StringUtils.isEmpty(settings.configFile));
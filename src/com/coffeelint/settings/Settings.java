@@ -1,5 +1,6 @@
 package com.coffeelint.settings;
 
+import com.coffeelint.engine.LintEngines;
 import com.intellij.openapi.components.*;
 import com.intellij.openapi.project.Project;
 import com.intellij.util.xmlb.XmlSerializerUtil;
@@ -18,6 +19,25 @@ public class Settings implements PersistentStateComponent<Settings> {
     public String nodeInterpreter;
     public boolean treatAllIssuesAsWarnings;
     public boolean pluginEnabled;
+    /** issues annotated in detail per highlighting pass, the rest are collapsed into per rule summaries */
+    public int maxAnnotations = 500;
+    /** id of the {@link com.coffeelint.engine.LintEngine} used for highlighting */
+    public String engineId = LintEngines.DEFAULT_ENGINE_ID;
+    /** id of an engine that lints every file a second time to compare with, empty to not compare */
+    public String comparisonEngineId = "";
+    /** directory of checkstyle reports imported from CI, see {@link com.coffeelint.results.CiReportIndex}, empty to lint everything locally */
+    public String ciReportsPath = "";
+    /** files with up to this many lines are linted as you type */
+    public int typingMaxLines = 2000;
+    /** larger files with up to this many lines are linted once typing pauses for {@link #idleDelayMillis}, even larger ones on save */
+    public int idleMaxLines = 10000;
+    public int idleDelayMillis = 1500;
+    /** whether node reuses compiled coffeelint code across runs, see {@link com.coffeelint.cli.CompileCache} */
+    public boolean compileCache = true;
+    /** whether the changed files are linted before a commit from the IDE, see {@link com.coffeelint.vcs.CoffeeLintCheckinHandler} */
+    public boolean checkinEnabled = true;
+    /** files not linted within this time are committed unchecked */
+    public int checkinTimeBudgetSeconds = 30;
 
     protected Project project;
 
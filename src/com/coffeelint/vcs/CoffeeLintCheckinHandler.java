@@ -0,0 +1,138 @@
+package com.coffeelint.vcs;
+
+import com.coffeelint.CoffeeLintBundle;
+import com.coffeelint.CoffeeLintProjectComponent;
+import com.coffeelint.cli.IssueTable;
+import com.coffeelint.cli.Severity;
+import com.coffeelint.config.CoffeeLintConfigFileUtil;
+import com.coffeelint.settings.Settings;
+import com.intellij.notification.NotificationType;
+import com.intellij.openapi.fileEditor.FileDocumentManager;
+import com.intellij.openapi.fileEditor.OpenFileDescriptor;
+import com.intellij.openapi.progress.ProgressManager;
+import com.intellij.openapi.project.Project;
+import com.intellij.openapi.ui.Messages;
+import com.intellij.openapi.vcs.CheckinProjectPanel;
+import com.intellij.openapi.vcs.checkin.CheckinHandler;
+import com.intellij.openapi.vcs.ui.RefreshableOnComponent;
+import com.intellij.openapi.vfs.VfsUtilCore;
+import com.intellij.openapi.vfs.VirtualFile;
+import org.jetbrains.annotations.Nullable;
+
+import javax.swing.*;
+import java.awt.*;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Lints the CoffeeScript files of a commit from the IDE with a few multi-file runs, see {@link CommitLintCheck},
+ * and stops the commit when they have errors. Warnings never stop it, and neither do files coffeelint could not
+ * lint within the time budget of the settings.
+ */
+public class CoffeeLintCheckinHandler extends CheckinHandler {
+    private final Project project;
+    private final CheckinProjectPanel panel;
+
+    public CoffeeLintCheckinHandler(CheckinProjectPanel panel) {
+        this.project = panel.getProject();
+        this.panel = panel;
+    }
+
+    @Nullable
+    @Override
+    public RefreshableOnComponent getBeforeCheckinConfigurationPanel() {
+        if (!project.getComponent(CoffeeLintProjectComponent.class).isEnabled()) {
+            return null;
+        }
+        final JCheckBox checkBox = new JCheckBox(CoffeeLintBundle.message("coffeelint.checkin.option"));
+        return new RefreshableOnComponent() {
+            public JComponent getComponent() {
+                JPanel component = new JPanel(new BorderLayout());
+                component.add(checkBox, BorderLayout.WEST);
+                return component;
+            }
+
+            public void refresh() {
+            }
+
+            public void saveState() {
+                Settings.getInstance(project).checkinEnabled = checkBox.isSelected();
+            }
+
+            public void restoreState() {
+                checkBox.setSelected(Settings.getInstance(project).checkinEnabled);
+            }
+        };
+    }
+
+    @Override
+    public ReturnResult beforeCheckin() {
+        CoffeeLintProjectComponent component = project.getComponent(CoffeeLintProjectComponent.class);
+        Settings settings = Settings.getInstance(project);
+        VirtualFile baseDir = project.getBaseDir();
+        if (!settings.checkinEnabled || !component.isEnabled() || !component.isSettingsValid() || baseDir == null) {
+            return ReturnResult.COMMIT;
+        }
+        List<VirtualFile> files = new ArrayList<VirtualFile>();
+        for (VirtualFile file : panel.getVirtualFiles()) {
+            if (!file.isDirectory() && CoffeeLintConfigFileUtil.isCoffeeScriptFile(file.getName(), component.extensions)
+                    && VfsUtilCore.isAncestor(baseDir, file, true)) {
+                files.add(file);
+            }
+        }
+        if (files.isEmpty()) {
+            return ReturnResult.COMMIT;
+        }
+        // coffeelint reads the files from disk
+        FileDocumentManager.getInstance().saveAllDocuments();
+
+        final CommitLintCheck check = new CommitLintCheck(project, files, settings.checkinTimeBudgetSeconds * 1000L);
+        boolean completed = ProgressManager.getInstance().runProcessWithProgressSynchronously(new Runnable() {
+            public void run() {
+                check.run(ProgressManager.getInstance().getProgressIndicator());
+            }
+        }, CoffeeLintBundle.message("coffeelint.checkin.progress"), true, project);
+        if (!completed) {
+            return ReturnResult.CANCEL;
+        }
+        if (check.getUncheckedCount() > 0) {
+            CoffeeLintProjectComponent.showNotification(CoffeeLintBundle.message("coffeelint.checkin.unchecked",
+                    check.getUncheckedCount(), settings.checkinTimeBudgetSeconds), NotificationType.WARNING);
+        }
+        Map<VirtualFile, IssueTable> errors = component.treatAsWarnings ? Collections.<VirtualFile, IssueTable>emptyMap() : check.getErrors();
+        if (errors.isEmpty()) {
+            return ReturnResult.COMMIT;
+        }
+        int errorCount = 0;
+        for (IssueTable issues : errors.values()) {
+            errorCount += issues.getErrorCount();
+        }
+        int answer = Messages.showYesNoCancelDialog(project,
+                CoffeeLintBundle.message("coffeelint.checkin.errors", errorCount, errors.size()),
+                CoffeeLintBundle.message("coffeelint.checkin.title"),
+                CoffeeLintBundle.message("coffeelint.checkin.review"),
+                CoffeeLintBundle.message("coffeelint.checkin.commit"),
+                Messages.CANCEL_BUTTON, Messages.getWarningIcon());
+        if (answer == Messages.YES) {
+            review(errors);
+            return ReturnResult.CLOSE_WINDOW;
+        }
+        return answer == Messages.NO ? ReturnResult.COMMIT : ReturnResult.CANCEL;
+    }
+
+    /**
+     * Open the first error, the other files show theirs in the editor and the problems index.
+     */
+    private void review(Map<VirtualFile, IssueTable> errors) {
+        Map.Entry<VirtualFile, IssueTable> first = errors.entrySet().iterator().next();
+        IssueTable issues = first.getValue();
+        for (int i = 0; i < issues.size(); i++) {
+            if (issues.getSeverity(i) == Severity.ERROR) {
+                new OpenFileDescriptor(project, first.getKey(), Math.max(0, issues.getLine(i) - 1), 0).navigate(true);
+                return;
+            }
+        }
+    }
+}
@@ -0,0 +1,219 @@
+package com.coffeelint.vcs;
+
+import com.coffeelint.CoffeeLintBundle;
+import com.coffeelint.CoffeeLintProjectComponent;
+import com.coffeelint.batch.EffectiveConfigLocator;
+import com.coffeelint.batch.LintCostModel;
+import com.coffeelint.batch.LintScheduler;
+import com.coffeelint.cli.IssueTable;
+import com.coffeelint.cli.LintResult;
+import com.coffeelint.config.CoffeeLintConfigModel;
+import com.coffeelint.engine.LintCircuitBreaker;
+import com.coffeelint.engine.LintEngine;
+import com.coffeelint.engine.LintEngines;
+import com.coffeelint.engine.LintRequest;
+import com.coffeelint.engine.ProcessLintEngine;
+import com.coffeelint.metrics.LintMetrics;
+import com.coffeelint.results.ContentHash;
+import com.coffeelint.results.LintResultCache;
+import com.intellij.openapi.application.ApplicationManager;
+import com.intellij.openapi.diagnostic.Logger;
+import com.intellij.openapi.fileEditor.impl.LoadTextUtil;
+import com.intellij.openapi.progress.ProgressIndicator;
+import com.intellij.openapi.project.Project;
+import com.intellij.openapi.util.Computable;
+import com.intellij.openapi.vfs.VirtualFile;
+import com.intellij.util.Consumer;
+import org.apache.commons.lang.StringUtils;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Lints the files of a commit: results of the {@link LintResultCache} are used for files linted with the same content
+ * before, the others are linted with multi-file runs of the {@link LintScheduler} and cached.
+ * Waits at most the time budget, coffeelint processes still running then are killed and their files count as unchecked.
+ * The same happens when the check is cancelled, in both cases no further runs are started.
+ */
+class CommitLintCheck {
+    private static final Logger LOG = Logger.getInstance(CoffeeLintBundle.LOG_ID);
+
+    private static final long POLL_MILLIS = 100L;
+    /** keeps the command line short enough for every OS */
+    private static final int FILES_PER_PROCESS = 100;
+
+    private final Project project;
+    private final List<VirtualFile> files;
+    private final long budgetMillis;
+
+    /** project relative path -> issues of the checked files */
+    private final Map<String, IssueTable> results = new ConcurrentHashMap<String, IssueTable>();
+    private final Map<String, VirtualFile> paths = new LinkedHashMap<String, VirtualFile>();
+
+    CommitLintCheck(@NotNull Project project, @NotNull List<VirtualFile> files, long budgetMillis) {
+        this.project = project;
+        this.files = files;
+        this.budgetMillis = budgetMillis;
+    }
+
+    void run(@Nullable ProgressIndicator indicator) {
+        final long deadline = System.currentTimeMillis() + budgetMillis;
+        final CoffeeLintProjectComponent component = project.getComponent(CoffeeLintProjectComponent.class);
+        final String basePath = project.getBasePath();
+        if (basePath == null) {
+            return;
+        }
+        final LintResultCache cache = LintResultCache.getInstance(project);
+        final int generation = cache.getGeneration();
+        final Map<String, Long> hashes = snapshot(cache);
+        if (hashes.isEmpty() || !LintCircuitBreaker.getInstance().allows(LintCircuitBreaker.executableKey(component.nodeInterpreter, component.lintExecutable))) {
+            return;
+        }
+
+        final List<LintScheduler.Task> tasks = new ArrayList<LintScheduler.Task>();
+        EffectiveConfigLocator configs = new EffectiveConfigLocator(component.configFile);
+        for (String path : hashes.keySet()) {
+            tasks.add(new LintScheduler.Task(path, paths.get(path).getLength(), configs.getKey(new File(basePath, path))));
+        }
+        LintEngine selected = LintEngines.getEngine(component.engineId);
+        final LintEngine engine = selected.supports(LintEngine.Capability.MULTI_FILE) ? selected : LintEngines.getEngine(ProcessLintEngine.ID);
+        final LintScheduler scheduler = new LintScheduler(LintCostModel.getInstance(), component.nodeInterpreter + '\n' + component.lintExecutable,
+                Runtime.getRuntime().availableProcessors(), FILES_PER_PROCESS);
+        // set once the check stopped waiting, the workers still take the chunks left but no longer lint them
+        final AtomicBoolean stopped = new AtomicBoolean();
+        Future<?> future = ApplicationManager.getApplication().executeOnPooledThread(new Runnable() {
+            public void run() {
+                try {
+                    scheduler.run(tasks, new LintScheduler.ChunkLinter() {
+                        public void lint(@NotNull String configKey, @NotNull List<String> chunk) throws Exception {
+                            long remaining = deadline - System.currentTimeMillis();
+                            if (remaining <= 0 || stopped.get()) {
+                                return;
+                            }
+                            if (CoffeeLintConfigModel.isInvalidConfig(project, configKey)) {
+                                LintMetrics.getInstance().increment(LintMetrics.Counter.INVALID_CONFIG_SKIPS);
+                                return;
+                            }
+                            LintRequest request = LintRequest.create(component, basePath, chunk.get(0), null);
+                            request.settings.config = EffectiveConfigLocator.getConfigFile(configKey);
+                            request.settings.timeout = (int) Math.min(request.settings.timeout, remaining);
+                            LintResult result = LintEngines.await(engine.lintFiles(request, chunk, new Consumer<LintResult>() {
+                                public void consume(LintResult file) {
+                                    String path = file.coffeeLint.file.name;
+                                    Long hash = hashes.get(path);
+                                    if (hash != null) {
+                                        cache.put(path, hash, generation, file.issues);
+                                        results.put(path, file.issues);
+                                    }
+                                }
+                            }));
+                            if (StringUtils.isNotEmpty(result.errorOutput)) {
+                                LintMetrics.getInstance().increment(LintMetrics.Counter.ERROR_OUTPUTS);
+                                LOG.warn("CoffeeLint failed on committed files: " + result.errorOutput);
+                            }
+                        }
+                    });
+                } catch (Exception e) {
+                    LOG.warn("Could not lint committed CoffeeScript files", e);
+                }
+            }
+        });
+        try {
+            while (true) {
+                if (indicator != null) {
+                    indicator.checkCanceled();
+                    indicator.setFraction((double) results.size() / paths.size());
+                    indicator.setText2(results.size() + " / " + paths.size());
+                }
+                long remaining = deadline - System.currentTimeMillis();
+                if (remaining <= 0) {
+                    LOG.info("CoffeeLint commit check exceeded its budget of " + budgetMillis + " ms");
+                    break;
+                }
+                try {
+                    future.get(Math.min(POLL_MILLIS, remaining), TimeUnit.MILLISECONDS);
+                    break;
+                } catch (TimeoutException ignored) {
+                    // poll the indicator again
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException e) {
+            LOG.warn(e.getCause());
+        } finally {
+            // out of time or cancelled: interrupting the scheduler interrupts its workers, which kill their processes
+            stopped.set(true);
+            future.cancel(true);
+        }
+    }
+
+    /**
+     * Hash the files, the documents are saved so disk and editor agree. Cached results are taken right away.
+     *
+     * @return project relative path -> content hash of the files that still have to be linted
+     */
+    @NotNull
+    private Map<String, Long> snapshot(@NotNull final LintResultCache cache) {
+        return ApplicationManager.getApplication().runReadAction(new Computable<Map<String, Long>>() {
+            public Map<String, Long> compute() {
+                Map<String, Long> hashes = new ConcurrentHashMap<String, Long>();
+                for (VirtualFile file : files) {
+                    if (!file.isValid()) {
+                        continue;
+                    }
+                    String path = LintResultCache.getKey(project, file);
+                    paths.put(path, file);
+                    long hash;
+                    try {
+                        hash = ContentHash.of(LoadTextUtil.loadText(file));
+                    } catch (Exception e) {
+                        LOG.debug("Could not read " + file.getPath(), e);
+                        continue;
+                    }
+                    IssueTable cached = cache.get(path, hash);
+                    if (cached != null) {
+                        LintMetrics.getInstance().increment(LintMetrics.Counter.CACHE_HITS);
+                        results.put(path, cached);
+                    } else {
+                        hashes.put(path, hash);
+                    }
+                }
+                return hashes;
+            }
+        });
+    }
+
+    /**
+     * @return files that were not linted within the budget or could not be linted
+     */
+    int getUncheckedCount() {
+        return paths.size() - results.size();
+    }
+
+    /**
+     * @return the checked files with errors, in the order of the commit
+     */
+    @NotNull
+    Map<VirtualFile, IssueTable> getErrors() {
+        Map<VirtualFile, IssueTable> errors = new LinkedHashMap<VirtualFile, IssueTable>();
+        for (Map.Entry<String, VirtualFile> entry : paths.entrySet()) {
+            IssueTable issues = results.get(entry.getKey());
+            if (issues != null && issues.getErrorCount() > 0) {
+                errors.put(entry.getValue(), issues);
+            }
+        }
+        return errors;
+    }
+}
@@ -0,0 +1,187 @@
+package com.coffeelint.batch;
+
+import org.junit.Test;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class LintSchedulerTest {
+    private static final String EXECUTABLE = "node\ncoffeelint";
+
+    @Test
+    public void chunksNeverMixConfigs() {
+        LintScheduler scheduler = new LintScheduler(new LintCostModel(), EXECUTABLE, 4, 3);
+        List<LintScheduler.Task> tasks = new ArrayList<LintScheduler.Task>();
+        for (int i = 0; i < 20; i++) {
+            tasks.add(new LintScheduler.Task("f" + i + ".coffee", 100 * i, i % 2 == 0 ? "a/coffeelint.json" : "b/coffeelint.json"));
+        }
+        int files = 0;
+        for (LintScheduler.Chunk chunk : scheduler.pack(tasks)) {
+            assertTrue(chunk.files.size() <= 3);
+            for (String file : chunk.files) {
+                int index = Integer.parseInt(file.substring(1, file.indexOf('.')));
+                assertEquals(chunk.configKey, index % 2 == 0 ? "a/coffeelint.json" : "b/coffeelint.json");
+            }
+            files += chunk.files.size();
+        }
+        assertEquals(tasks.size(), files);
+    }
+
+    @Test
+    public void largeFilesGetTheirOwnProcess() {
+        LintScheduler scheduler = new LintScheduler(new LintCostModel(), EXECUTABLE, 2, 100);
+        List<LintScheduler.Task> tasks = new ArrayList<LintScheduler.Task>();
+        tasks.add(new LintScheduler.Task("big.coffee", 600 * 1024, ""));
+        for (int i = 0; i < 50; i++) {
+            tasks.add(new LintScheduler.Task("small" + i + ".coffee", 1024, ""));
+        }
+        List<LintScheduler.Chunk> chunks = scheduler.pack(tasks);
+        assertEquals(Collections.singletonList("big.coffee"), chunks.get(0).files);
+        assertTrue(chunks.size() > 1);
+    }
+
+    @Test
+    public void idleWorkersStealFromSlowOnes() throws Exception {
+        LintScheduler scheduler = new LintScheduler(new LintCostModel(), EXECUTABLE, 2, 1);
+        List<LintScheduler.Task> tasks = new ArrayList<LintScheduler.Task>();
+        for (int i = 0; i < 20; i++) {
+            tasks.add(new LintScheduler.Task("f" + i + ".coffee", 1000, ""));
+        }
+        final Set<String> linted = Collections.synchronizedSet(new HashSet<String>());
+        List<LintScheduler.WorkerStats> stats = scheduler.run(tasks, new LintScheduler.ChunkLinter() {
+            public void lint(String configKey, List<String> files) throws Exception {
+                // the first chunk is slow, the other worker has to take over the rest
+                if (files.contains("f0.coffee")) {
+                    TimeUnit.MILLISECONDS.sleep(300L);
+                }
+                linted.addAll(files);
+            }
+        });
+        assertEquals(20, linted.size());
+        assertEquals(2, stats.size());
+        assertTrue(stats.get(0).steals + stats.get(1).steals > 0);
+        assertEquals(20, stats.get(0).files + stats.get(1).files);
+    }
+
+    @Test
+    public void costModelLearnsStartupAndRate() {
+        LintCostModel model = new LintCostModel();
+        for (int i = 1; i <= 30; i++) {
+            long bytes = 10000L * i;
+            model.record(EXECUTABLE, bytes, TimeUnit.MILLISECONDS.toNanos(100L) + bytes * 500);
+        }
+        assertEquals(TimeUnit.MILLISECONDS.toNanos(100L), model.getStartupNanos(EXECUTABLE), TimeUnit.MILLISECONDS.toNanos(1L));
+        assertEquals(500L * 1000, model.estimateNanos(EXECUTABLE, 1000), 1000);
+        assertEquals(LintCostModel.DEFAULT_STARTUP_NANOS, model.getStartupNanos("other"));
+    }
+
+    @Test
+    public void recordedRunsChangeThePackingOfLaterSessions() throws Exception {
+        List<LintScheduler.Task> tasks = new ArrayList<LintScheduler.Task>();
+        for (int i = 0; i < 40; i++) {
+            tasks.add(new LintScheduler.Task("f" + i + ".coffee", 10000, ""));
+        }
+        // a chunk is worth 4 of the default 300 ms startups
+        assertEquals(2, new LintScheduler(new LintCostModel(), EXECUTABLE, 2, 100).pack(tasks).size());
+
+        File store = new File(System.getProperty("java.io.tmpdir"), "coffeelint-cost-" + System.nanoTime() + ".properties");
+        try {
+            LintCostModel model = new LintCostModel(store);
+            for (int i = 1; i <= 30; i++) {
+                long bytes = 10000L * i;
+                model.record(EXECUTABLE, bytes, TimeUnit.MILLISECONDS.toNanos(10L) + bytes * 3000);
+            }
+            model.save();
+            assertTrue(store.isFile());
+
+            // with a 10 ms startup the chunks are cut to spread the work over the workers
+            LintCostModel loaded = new LintCostModel(store);
+            assertEquals(TimeUnit.MILLISECONDS.toNanos(10L), loaded.getStartupNanos(EXECUTABLE), TimeUnit.MILLISECONDS.toNanos(1L));
+            assertEquals(8, new LintScheduler(loaded, EXECUTABLE, 2, 100).pack(tasks).size());
+        } finally {
+            store.delete();
+        }
+    }
+
+    /**
+     * coffeelint's configfinder reads the nearest package.json first, and then looks for coffeelint.json on its own.
+     */
+    @Test
+    public void packageJsonWinsOverCoffeeLintJson() throws Exception {
+        File root = new File(System.getProperty("java.io.tmpdir"), "coffeelint-config-" + System.nanoTime());
+        File app = new File(root, "app");
+        File plain = new File(root, "plain");
+        File nested = new File(plain, "nested");
+        assertTrue(app.mkdirs());
+        assertTrue(nested.mkdirs());
+        File packageJson = new File(root, "package.json");
+        File config = new File(app, "coffeelint.json");
+        File plainPackageJson = new File(plain, "package.json");
+        File plainConfig = new File(root, "coffeelint.json");
+        try {
+            write(packageJson, "{\"name\": \"x\", \"coffeelintConfig\": {}}");
+            write(config, "{}");
+            write(plainPackageJson, "{\"name\": \"y\"}");
+            write(plainConfig, "{}");
+            EffectiveConfigLocator locator = new EffectiveConfigLocator(null, null);
+            assertEquals(packageJson.getPath(), locator.getKey(new File(app, "a.coffee")));
+            // the nearest package.json has no section, the nearest coffeelint.json applies
+            assertEquals(plainConfig.getPath(), locator.getKey(new File(nested, "b.coffee")));
+        } finally {
+            packageJson.delete();
+            config.delete();
+            plainPackageJson.delete();
+            plainConfig.delete();
+            app.delete();
+            nested.delete();
+            plain.delete();
+            root.delete();
+        }
+    }
+
+    @Test
+    public void findsTheNearestConfig() throws Exception {
+        File root = new File(System.getProperty("java.io.tmpdir"), "coffeelint-config-" + System.nanoTime());
+        File nested = new File(root, "lib/nested");
+        File packaged = new File(root, "packaged");
+        assertTrue(nested.mkdirs());
+        assertTrue(packaged.mkdirs());
+        File config = new File(root, "lib/coffeelint.json");
+        File packageJson = new File(packaged, "package.json");
+        try {
+            write(config, "{}");
+            write(packageJson, "{\"name\": \"x\", \"coffeelintConfig\": {}}");
+            EffectiveConfigLocator locator = new EffectiveConfigLocator(null);
+            assertEquals(config.getPath(), locator.getKey(new File(nested, "a.coffee")));
+            assertEquals(config.getPath(), locator.getKey(new File(root, "lib/b.coffee")));
+            assertEquals(packageJson.getPath(), locator.getKey(new File(packaged, "c.coffee")));
+            assertNull(EffectiveConfigLocator.getConfigFile(packageJson.getPath()));
+            assertEquals("custom.json", new EffectiveConfigLocator("custom.json").getKey(new File(nested, "a.coffee")));
+            assertEquals(config.getPath(), new EffectiveConfigLocator(null, "missing.json").getKey(new File(nested, "a.coffee")));
+            assertEquals(packageJson.getPath(), new EffectiveConfigLocator(null, packageJson.getPath()).getKey(new File(nested, "a.coffee")));
+        } finally {
+            config.delete();
+            packageJson.delete();
+            nested.delete();
+            new File(root, "lib").delete();
+            packaged.delete();
+            root.delete();
+        }
+    }
+
+    private static void write(File file, String text) throws Exception {
+        FileOutputStream out = new FileOutputStream(file);
+        out.write(text.getBytes("UTF-8"));
+        out.close();
+    }
+}
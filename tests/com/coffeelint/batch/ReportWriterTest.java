@@ -0,0 +1,113 @@
+package com.coffeelint.batch;
+
+import com.coffeelint.cli.IssueTable;
+import com.coffeelint.settings.Settings;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.OutputStreamWriter;
+import java.io.StringWriter;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class ReportWriterTest {
+
+    private static Map<String, IssueTable> results() {
+        Map<String, IssueTable> results = new LinkedHashMap<String, IssueTable>();
+        results.put("src/a.coffee", new IssueTable.Builder(2)
+                .add("coffeelint", 3, IssueTable.NO_COLUMN, "error", "Line contains tab indentation; context: ")
+                .add("coffeelint", 7, 12, "warning", "Line ends with \"trailing\" whitespace")
+                .build());
+        results.put("src/clean.coffee", IssueTable.EMPTY);
+        return results;
+    }
+
+    @Test
+    public void checkstyleReportHasEveryFile() throws Exception {
+        StringWriter out = new StringWriter();
+        ReportWriter.write(ReportWriter.Format.CHECKSTYLE, results(), out);
+        String xml = out.toString();
+        assertTrue(xml, xml.contains("<file name=\"src/a.coffee\">"));
+        assertTrue(xml, xml.contains("<file name=\"src/clean.coffee\">"));
+        assertTrue(xml, xml.contains("<error line=\"3\" severity=\"error\""));
+        assertTrue(xml, xml.contains("<error line=\"7\" column=\"12\" severity=\"warning\""));
+        assertTrue(xml, xml.contains("&quot;trailing&quot;"));
+    }
+
+    @Test
+    public void sarifReportHasOneResultPerIssue() throws Exception {
+        StringWriter out = new StringWriter();
+        ReportWriter.write(ReportWriter.Format.SARIF, results(), out);
+        String json = out.toString();
+        assertTrue(json, json.contains("\"version\": \"2.1.0\""));
+        assertEquals(2, json.split("\"ruleId\"").length - 1);
+        assertTrue(json, json.contains("\"level\": \"error\""));
+        assertTrue(json, json.contains("\"startLine\": 7, \"startColumn\": 12"));
+        assertTrue(json, json.contains("\\\"trailing\\\""));
+        assertFalse(json, json.contains("src/clean.coffee"));
+    }
+
+    @Test
+    public void readsStoredSettings() throws Exception {
+        File project = new File(System.getProperty("java.io.tmpdir"), "coffeelint-batch-" + System.nanoTime());
+        File file = new File(project, "coffeelintPlugin.xml");
+        assertTrue(project.mkdirs());
+        try {
+            Writer writer = new OutputStreamWriter(new FileOutputStream(file), "UTF-8");
+            writer.write("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n<project version=\"4\">\n" +
+                    "  <component name=\"CoffeeLintProjectComponent\">\n" +
+                    "    <option name=\"configFile\" value=\"$PROJECT_DIR$/coffeelint.json\" />\n" +
+                    "    <option name=\"maxAnnotations\" value=\"20\" />\n" +
+                    "    <option name=\"pluginEnabled\" value=\"true\" />\n" +
+                    "    <option name=\"removedOption\" value=\"x\" />\n" +
+                    "  </component>\n</project>\n");
+            writer.close();
+            Settings settings = PluginSettingsReader.read(file, project);
+            assertEquals(project.getAbsolutePath() + "/coffeelint.json", settings.configFile);
+            assertEquals(20, settings.maxAnnotations);
+            assertTrue(settings.pluginEnabled);
+            assertEquals(2000, settings.typingMaxLines);
+        } finally {
+            file.delete();
+            project.delete();
+        }
+    }
+
+    @Test
+    public void collectsFilesOutsideSkippedDirectories() throws Exception {
+        File project = new File(System.getProperty("java.io.tmpdir"), "coffeelint-batch-" + System.nanoTime());
+        File lib = new File(project, "lib");
+        File modules = new File(project, "node_modules");
+        File nestedModules = new File(lib, "node_modules");
+        assertTrue(lib.mkdirs());
+        assertTrue(modules.mkdirs());
+        assertTrue(nestedModules.mkdirs());
+        File[] files = {new File(project, "b.coffee"), new File(lib, "a.coffee"), new File(lib, "readme.md"),
+                new File(modules, "skipped.coffee"), new File(nestedModules, "skipped.coffee")};
+        try {
+            for (File file : files) {
+                assertTrue(file.createNewFile());
+            }
+            List<String> collected = new ArrayList<String>();
+            BatchLintMain.collectFiles(project, "", "", collected);
+            assertEquals(Arrays.asList("b.coffee", "lib/a.coffee"), collected);
+        } finally {
+            for (File file : files) {
+                file.delete();
+            }
+            nestedModules.delete();
+            modules.delete();
+            lib.delete();
+            project.delete();
+        }
+    }
+}
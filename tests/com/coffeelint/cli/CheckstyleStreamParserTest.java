@@ -0,0 +1,76 @@
+package com.coffeelint.cli;
+
+import com.intellij.util.Consumer;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+
+public class CheckstyleStreamParserTest {
+
+    private static final String OUTPUT = "<?xml version=\"1.0\" encoding=\"utf-8\"?>\n" +
+            "<checkstyle version=\"4.3\">\n" +
+            "<file name=\"app/a.coffee\">\n" +
+            "<error line=\"3\"\n" +
+            "    severity=\"error\"\n" +
+            "    message=\"Class name should be UpperCamelCased; context: class name: gangster\"\n" +
+            "    source=\"coffeelint\"/>\n" +
+            "<error line=\"7\"\n" +
+            "    severity=\"warning\"\n" +
+            "    message=\"Line ends with trailing whitespace; context: \"\n" +
+            "    source=\"coffeelint\"/>\n" +
+            "</file>\n" +
+            "<file name=\"app/b.coffee\">\n" +
+            "<error line=\"1\" severity=\"error\" message=\"Line contains tab indentation; context: \" source=\"coffeelint\"/>\n" +
+            "</file>\n" +
+            "</checkstyle>\n";
+
+    private static List<LintResult> parse(String output) throws Exception {
+        final List<LintResult> results = new ArrayList<LintResult>();
+        CheckstyleStreamParser.parse(new ByteArrayInputStream(output.getBytes("UTF-8")), new Consumer<LintResult>() {
+            public void consume(LintResult result) {
+                results.add(result);
+            }
+        });
+        return results;
+    }
+
+    @Test
+    public void testEmitsOneResultPerFile() throws Exception {
+        List<LintResult> results = parse(OUTPUT);
+        assertEquals(2, results.size());
+
+        LintResult first = results.get(0);
+        assertEquals("app/a.coffee", first.coffeeLint.file.name);
+        assertEquals("4.3", first.coffeeLint.version);
+        assertEquals(2, first.issues.size());
+        assertEquals(3, first.issues.getLine(0));
+        assertEquals(Severity.ERROR, first.issues.getSeverity(0));
+        assertEquals("camel_case_classes", first.issues.getRule(0));
+        assertEquals(Severity.WARNING, first.issues.getSeverity(1));
+        assertEquals("coffeelint", first.coffeeLint.file.errors.get(1).source);
+
+        assertEquals("app/b.coffee", results.get(1).coffeeLint.file.name);
+        assertEquals("no_tabs", results.get(1).issues.getRule(0));
+    }
+
+    @Test
+    public void testReadsColumns() throws Exception {
+        List<LintResult> results = parse("<checkstyle version=\"4.3\"><file name=\"a.coffee\">" +
+                "<error line=\"2\" column=\"5\" severity=\"error\" message=\"m\" source=\"coffeelint\"/>" +
+                "<error line=\"3\" severity=\"error\" message=\"m\" source=\"coffeelint\"/>" +
+                "</file></checkstyle>");
+        assertEquals(5, results.get(0).issues.getColumn(0));
+        assertEquals(IssueTable.NO_COLUMN, results.get(0).issues.getColumn(1));
+        assertEquals(5, results.get(0).coffeeLint.file.errors.get(0).column);
+    }
+
+    @Test
+    public void testCleanRun() throws Exception {
+        List<LintResult> results = parse("<?xml version=\"1.0\" encoding=\"utf-8\"?>\n<checkstyle version=\"4.3\">\n</checkstyle>\n");
+        assertEquals(0, results.size());
+    }
+}
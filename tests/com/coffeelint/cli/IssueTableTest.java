@@ -0,0 +1,99 @@
+package com.coffeelint.cli;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+public class IssueTableTest {
+
+    private static final String[] MESSAGES = {
+            "Line exceeds maximum allowed length; context: Length is 95, max is 80",
+            "Line ends with trailing whitespace; context: ",
+            "Line contains tab indentation; context: ",
+            "Class name should be UpperCamelCased; context: class name: gangster"
+    };
+
+    private static CoffeeLint.Issue issue(int line, String severity, String message) {
+        CoffeeLint.Issue issue = new CoffeeLint.Issue();
+        issue.source = "coffeelint";
+        issue.line = line;
+        issue.severity = severity;
+        // a new string per issue, like the parser produces
+        issue.message = new String(message);
+        return issue;
+    }
+
+    private static List<CoffeeLint.Issue> createIssues(int count) {
+        List<CoffeeLint.Issue> issues = new ArrayList<CoffeeLint.Issue>(count);
+        for (int i = 0; i < count; i++) {
+            issues.add(issue(i + 1, i % 3 == 0 ? "error" : "warning", MESSAGES[i % MESSAGES.length]));
+        }
+        return issues;
+    }
+
+    @Test
+    public void testViewMatchesIssues() {
+        List<CoffeeLint.Issue> issues = createIssues(10);
+        IssueTable table = IssueTable.of(issues);
+        assertEquals(10, table.size());
+        assertEquals(4, table.getErrorCount());
+        for (int i = 0; i < issues.size(); i++) {
+            CoffeeLint.Issue expected = issues.get(i);
+            CoffeeLint.Issue actual = table.asIssues().get(i);
+            assertEquals(expected.line, actual.line);
+            assertEquals(expected.severity, actual.severity);
+            assertEquals(expected.message, actual.message);
+            assertEquals(expected.source, actual.source);
+        }
+    }
+
+    @Test
+    public void testRuleIsResolvedFromMessage() {
+        IssueTable table = IssueTable.of(createIssues(4));
+        assertEquals("max_line_length", table.getRule(0));
+        assertEquals("no_trailing_whitespace", table.getRule(1));
+        assertEquals("no_tabs", table.getRule(2));
+        assertEquals("camel_case_classes", table.getRule(3));
+        assertEquals(Severity.ERROR, table.getSeverity(0));
+        assertEquals(Severity.WARNING, table.getSeverity(1));
+    }
+
+    @Test
+    public void testStringsAreInterned() {
+        IssueTable first = IssueTable.of(createIssues(4));
+        IssueTable second = IssueTable.of(createIssues(4));
+        assertSame(first.getSource(0), second.getSource(0));
+        assertSame(first.getRule(0), second.getRule(0));
+        assertEquals(first.getMessage(0), second.getMessage(0));
+        assertEquals(first.getRuleId(2), second.getRuleId(2));
+    }
+
+    @Test
+    public void testEmpty() {
+        assertSame(IssueTable.EMPTY, IssueTable.of(null));
+        assertSame(IssueTable.EMPTY, IssueTable.of(new ArrayList<CoffeeLint.Issue>()));
+        assertEquals(0, IssueTable.EMPTY.asIssues().size());
+    }
+
+    @Test
+    public void testContextsAreNotInterned() {
+        IssueTable.of(createIssues(4));
+        IssueDictionary dictionary = IssueDictionary.getInstance();
+        int before = dictionary.size();
+        List<CoffeeLint.Issue> issues = new ArrayList<CoffeeLint.Issue>();
+        for (int i = 0; i < 1000; i++) {
+            issues.add(issue(i + 1, "error", "Line exceeds maximum allowed length; context: Length is " + (100 + i) + ", max is 80"));
+            issues.add(issue(i + 1, "error", "[stdin]:" + i + ":1: error: unexpected indentation"));
+        }
+        IssueTable table = IssueTable.of(issues);
+        assertEquals(before, dictionary.size());
+        assertEquals("Line exceeds maximum allowed length; context: Length is 999, max is 80", table.getMessage(1798));
+        assertEquals("max_line_length", table.getRule(1798));
+        assertEquals("[stdin]:999:1: error: unexpected indentation", table.getMessage(1999));
+        assertEquals("coffeelint", table.getRule(1999));
+    }
+}
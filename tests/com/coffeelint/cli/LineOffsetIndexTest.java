@@ -0,0 +1,39 @@
+package com.coffeelint.cli;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+
+public class LineOffsetIndexTest {
+
+    @Test
+    public void testLineBoundaries() {
+        LineOffsetIndex index = LineOffsetIndex.of("a = 1\r\n\tb = 2\rc\n");
+        assertEquals(4, index.getLineCount());
+        assertEquals(0, index.getLineStartOffset(0));
+        assertEquals(5, index.getLineEndOffset(0));
+        assertEquals(7, index.getLineStartOffset(1));
+        assertEquals(13, index.getLineEndOffset(1));
+        assertEquals(14, index.getLineStartOffset(2));
+        assertEquals(16, index.getLineStartOffset(3));
+        assertEquals(16, index.getLineEndOffset(3));
+    }
+
+    @Test
+    public void testColumnsCountTabsAsOneCharacter() {
+        LineOffsetIndex index = LineOffsetIndex.of("x\n\tb = 2\n");
+        assertEquals(2, index.getOffset(1, IssueTable.NO_COLUMN));
+        assertEquals(2, index.getOffset(1, 1));
+        assertEquals(3, index.getOffset(1, 2));
+        // past the end of the line
+        assertEquals(8, index.getOffset(1, 40));
+        assertEquals(8, index.getOffset(1, Integer.MAX_VALUE));
+    }
+
+    @Test
+    public void testEmptyText() {
+        LineOffsetIndex index = LineOffsetIndex.of("");
+        assertEquals(1, index.getLineCount());
+        assertEquals(0, index.getOffset(0, 3));
+    }
+}
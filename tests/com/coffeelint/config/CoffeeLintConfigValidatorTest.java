@@ -0,0 +1,159 @@
+package com.coffeelint.config;
+
+import com.google.gson.JsonElement;
+import com.google.gson.JsonParser;
+import com.google.gson.JsonPrimitive;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class CoffeeLintConfigValidatorTest {
+    private static final CoffeeLintRuleCatalog.Rules RULES = CoffeeLintRuleCatalog.parse("{\"version\":\"1.9.7\",\"rules\":{" +
+            "\"max_line_length\":{\"name\":\"max_line_length\",\"value\":80,\"level\":\"error\",\"limitComments\":true}," +
+            "\"no_tabs\":{\"name\":\"no_tabs\",\"level\":\"error\"}}}");
+
+    private final Map<String, String> levels = new LinkedHashMap<String, String>();
+    /** "error|warning at node: message" */
+    private final List<String> problems = new ArrayList<String>();
+
+    @Test
+    public void testLevels() {
+        validate("{\"no_tabs\": {\"level\": \"warn\"}, \"max_line_length\": {\"level\": \"fatal\"}}", RULES, false);
+        assertEquals("{no_tabs=warn}", levels.toString());
+        assertEquals(1, problems.size());
+        assertProblem(0, "error", "\"fatal\"");
+    }
+
+    @Test
+    public void testLevelMustBeString() {
+        validate("{\"no_tabs\": {\"level\": 2}}", RULES, false);
+        assertTrue(levels.isEmpty());
+        assertProblem(0, "error", "2");
+    }
+
+    @Test
+    public void testConfigMustBeObject() {
+        validate("[]", RULES, false);
+        assertEquals(1, problems.size());
+        assertProblem(0, "error", "[]");
+    }
+
+    @Test
+    public void testRuleMustBeObject() {
+        validate("{\"no_tabs\": \"error\", \"max_line_length\": {\"level\": \"ignore\"}}", RULES, false);
+        assertEquals(1, problems.size());
+        assertProblem(0, "error", "\"error\"");
+        assertEquals("{max_line_length=ignore}", levels.toString());
+    }
+
+    @Test
+    public void testUnknownRules() {
+        validate("{\"no_tab\": {\"level\": \"error\"}}", RULES, false);
+        assertEquals(1, problems.size());
+        assertProblem(0, "warning", "no_tab");
+        assertTrue(problems.get(0).contains("1.9.7"));
+        // the rule still applies once coffeelint knows it
+        assertEquals("{no_tab=error}", levels.toString());
+    }
+
+    @Test
+    public void testBuiltinRuleNamesWithoutCatalog() {
+        validate("{\"no_tabs\": {\"level\": \"error\", \"value\": \"x\"}, \"no_tab\": {}}", null, false);
+        assertEquals(1, problems.size());
+        assertProblem(0, "warning", "no_tab");
+    }
+
+    @Test
+    public void testOptionTypes() {
+        validate("{\"max_line_length\": {\"value\": \"80\", \"limitComments\": false, \"other\": \"x\", \"level\": \"warn\"}}", RULES, false);
+        assertEquals(1, problems.size());
+        assertProblem(0, "warning", "\"80\"");
+        assertTrue(problems.get(0).contains("number"));
+    }
+
+    @Test
+    public void testModuleAndCustomRulesAreExempt() {
+        validate("{\"coffeelint\": {\"transforms\": [\"coffee-react-transform\"]}, " +
+                "\"no_console\": {\"module\": \"coffeelint-no-console\", \"level\": \"error\"}}", RULES, false);
+        assertTrue(problems.toString(), problems.isEmpty());
+        assertEquals("{no_console=error}", levels.toString());
+
+        validate("{\"my_rule\": {\"level\": \"warn\"}}", RULES, true);
+        assertTrue(problems.toString(), problems.isEmpty());
+    }
+
+    private void assertProblem(int index, String kind, String node) {
+        assertTrue(problems.get(index), problems.get(index).startsWith(kind + " at " + node + ": "));
+    }
+
+    private void validate(String json, @Nullable CoffeeLintRuleCatalog.Rules rules, boolean customRules) {
+        levels.clear();
+        problems.clear();
+        new GsonValidator(rules, customRules).validate(new JsonParser().parse(json), levels);
+    }
+
+    /**
+     * Properties are name -> value entries, the name node of a property is its name.
+     */
+    private class GsonValidator extends CoffeeLintConfigValidator<Object> {
+        GsonValidator(@Nullable CoffeeLintRuleCatalog.Rules rules, boolean customRules) {
+            super(rules, customRules);
+        }
+
+        @Nullable
+        protected String getType(@NotNull Object value) {
+            JsonElement element = (JsonElement) value;
+            if (element.isJsonObject()) {
+                return OBJECT;
+            }
+            if (element.isJsonArray()) {
+                return "array";
+            }
+            if (element.isJsonNull()) {
+                return null;
+            }
+            JsonPrimitive primitive = element.getAsJsonPrimitive();
+            return primitive.isBoolean() ? "boolean" : primitive.isNumber() ? "number" : "string";
+        }
+
+        @NotNull
+        protected List<Object> getProperties(@NotNull Object object) {
+            return new ArrayList<Object>(((JsonElement) object).getAsJsonObject().entrySet());
+        }
+
+        @NotNull
+        @SuppressWarnings("unchecked")
+        protected String getName(@NotNull Object property) {
+            return ((Map.Entry<String, JsonElement>) property).getKey();
+        }
+
+        @Nullable
+        @SuppressWarnings("unchecked")
+        protected Object getValue(@NotNull Object property) {
+            return ((Map.Entry<String, JsonElement>) property).getValue();
+        }
+
+        @NotNull
+        protected Object getNameNode(@NotNull Object property) {
+            return getName(property);
+        }
+
+        @Nullable
+        protected String getString(@NotNull Object value) {
+            JsonElement element = (JsonElement) value;
+            return element.isJsonPrimitive() && element.getAsJsonPrimitive().isString() ? element.getAsString() : null;
+        }
+
+        protected void problem(@NotNull Object node, @NotNull String message, boolean error) {
+            problems.add((error ? "error" : "warning") + " at " + node + ": " + message);
+        }
+    }
+}
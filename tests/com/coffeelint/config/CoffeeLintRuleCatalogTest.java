@@ -0,0 +1,31 @@
+package com.coffeelint.config;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class CoffeeLintRuleCatalogTest {
+
+    @Test
+    public void testParsesRulesAndDefaults() {
+        CoffeeLintRuleCatalog.Rules rules = CoffeeLintRuleCatalog.parse("{\"version\":\"1.9.7\",\"rules\":{" +
+                "\"max_line_length\":{\"name\":\"max_line_length\",\"value\":80,\"level\":\"error\",\"limitComments\":true}," +
+                "\"arrow_spacing\":{\"name\":\"arrow_spacing\",\"level\":\"ignore\"}}}\n");
+        assertEquals("1.9.7", rules.version);
+        assertTrue(rules.contains("arrow_spacing"));
+        assertFalse(rules.contains("no_tabs"));
+        assertEquals("number", rules.getDefaultType("max_line_length", "value"));
+        assertEquals("boolean", rules.getDefaultType("max_line_length", "limitComments"));
+        assertEquals("string", rules.getDefaultType("arrow_spacing", "level"));
+        assertNull(rules.getDefaultType("max_line_length", "missing"));
+        assertNull(rules.getDefault("no_tabs", "level"));
+    }
+
+    @Test
+    public void testModuleWithoutRules() {
+        assertNull(CoffeeLintRuleCatalog.parse("{}"));
+    }
+}
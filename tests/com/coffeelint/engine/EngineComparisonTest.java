@@ -0,0 +1,55 @@
+package com.coffeelint.engine;
+
+import com.coffeelint.cli.IssueTable;
+import com.coffeelint.cli.LintResult;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class EngineComparisonTest {
+    private static final String TRAILING = "Line ends with trailing whitespace";
+    private static final String SEMICOLON = "Line contains a trailing semicolon";
+
+    @Test
+    public void testSameIssuesInAnyOrder() {
+        LintResult a = result(new int[]{1, 2, 2}, new String[]{TRAILING, TRAILING, SEMICOLON});
+        LintResult b = result(new int[]{2, 1, 2}, new String[]{SEMICOLON, TRAILING, TRAILING});
+        EngineComparison comparison = new EngineComparison("a.coffee", "stdin", a, 1000000L, "process", b, 2000000L);
+        assertTrue(comparison.isSame());
+        assertNull(comparison.firstDifference);
+        assertEquals(3, comparison.issues);
+        assertEquals(3, comparison.otherIssues);
+    }
+
+    @Test
+    public void testDifferences() {
+        LintResult a = result(new int[]{1, 1, 3}, new String[]{TRAILING, TRAILING, SEMICOLON});
+        LintResult b = result(new int[]{1, 4}, new String[]{TRAILING, SEMICOLON});
+        EngineComparison comparison = new EngineComparison("a.coffee", "stdin", a, 0L, "process", b, 0L);
+        assertFalse(comparison.isSame());
+        assertEquals(2, comparison.missingInOther);
+        assertEquals(1, comparison.addedInOther);
+        assertTrue(comparison.firstDifference, comparison.firstDifference.startsWith("only process: 4:"));
+    }
+
+    @Test
+    public void testErrorOutputDiffers() {
+        LintResult a = result(new int[0], new String[0]);
+        LintResult b = result(new int[0], new String[0]);
+        b.errorOutput = "Error: Cannot find module 'coffee-script'";
+        assertFalse(new EngineComparison("a.coffee", "stdin", a, 0L, "process", b, 0L).isSame());
+        b.errorOutput = "";
+        assertTrue(new EngineComparison("a.coffee", "stdin", a, 0L, "process", b, 0L).isSame());
+    }
+
+    private static LintResult result(int[] lines, String[] messages) {
+        IssueTable.Builder builder = new IssueTable.Builder(lines.length);
+        for (int i = 0; i < lines.length; i++) {
+            builder.add("coffeelint", lines[i], IssueTable.NO_COLUMN, "error", messages[i]);
+        }
+        return LintResult.of(builder.build());
+    }
+}
@@ -0,0 +1,104 @@
+package com.coffeelint.engine;
+
+import com.coffeelint.cli.CoffeeLintRunner;
+import com.intellij.util.Consumer;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class LintCircuitBreakerTest {
+    private static final String FILE = "/project/a.coffee";
+    private static final String OTHER_FILE = "/project/b.coffee";
+    private static final String EXECUTABLE = LintCircuitBreaker.executableKey("node", "coffeelint");
+
+    private LintCircuitBreaker breaker;
+
+    @Before
+    public void setUp() {
+        breaker = new LintCircuitBreaker(new Consumer<String>() {
+            public void consume(String message) {
+            }
+        });
+    }
+
+    @Test
+    public void testFileOpensAfterRepeatedFailures() {
+        long now = 1000L;
+        breaker.failed(FILE, EXECUTABLE, "boom", now);
+        assertTrue(breaker.allows(FILE, now));
+        breaker.failed(FILE, EXECUTABLE, "boom", now);
+        assertFalse(breaker.allows(FILE, now));
+        assertTrue(breaker.allows(OTHER_FILE, now));
+        assertTrue(breaker.allows(EXECUTABLE, now));
+        assertTrue(breaker.allows(FILE, now + LintCircuitBreaker.MIN_BACKOFF_MILLIS));
+    }
+
+    @Test
+    public void testBackoffDoublesUntilSuccess() {
+        long now = 0L;
+        breaker.failed(FILE, EXECUTABLE, "boom", now);
+        breaker.failed(FILE, EXECUTABLE, "boom", now);
+        now += LintCircuitBreaker.MIN_BACKOFF_MILLIS;
+        // the trial run fails again
+        breaker.failed(FILE, EXECUTABLE, "boom", now);
+        assertFalse(breaker.allows(FILE, now + LintCircuitBreaker.MIN_BACKOFF_MILLIS));
+        assertTrue(breaker.allows(FILE, now + 2 * LintCircuitBreaker.MIN_BACKOFF_MILLIS));
+
+        breaker.succeeded(FILE, EXECUTABLE, 0L);
+        breaker.failed(FILE, EXECUTABLE, "boom", now);
+        assertTrue(breaker.allows(FILE, now));
+    }
+
+    @Test
+    public void testBackoffIsCapped() {
+        assertEquals(LintCircuitBreaker.MIN_BACKOFF_MILLIS, LintCircuitBreaker.getBackoffMillis(0));
+        assertEquals(LintCircuitBreaker.MAX_BACKOFF_MILLIS, LintCircuitBreaker.getBackoffMillis(100));
+    }
+
+    @Test
+    public void testExecutableOpensWhenEveryFileFails() {
+        for (int i = 0; i < LintCircuitBreaker.EXECUTABLE_FAILURES; i++) {
+            assertTrue(breaker.allows(EXECUTABLE, 0L));
+            breaker.failed("/project/" + i + ".coffee", EXECUTABLE, "node: not found", 0L);
+        }
+        assertFalse(breaker.allows(EXECUTABLE, 0L));
+    }
+
+    @Test
+    public void testSingleNotificationForManyFiles() {
+        for (int i = 0; i < 10; i++) {
+            breaker.failed("/project/" + i + ".coffee", EXECUTABLE, "boom", 0L);
+            breaker.failed("/project/" + i + ".coffee", EXECUTABLE, "boom", 0L);
+        }
+        String message = breaker.flushNotification();
+        assertNotNull(message);
+        assertTrue(message, message.contains("11 files or executables"));
+        assertTrue(message, message.endsWith("boom"));
+        assertNull(breaker.flushNotification());
+    }
+
+    @Test
+    public void testTimeoutFollowsLatency() {
+        assertEquals(CoffeeLintRunner.TIME_OUT, breaker.getTimeout(EXECUTABLE));
+        for (int i = 0; i < LintCircuitBreaker.MIN_SAMPLES; i++) {
+            breaker.succeeded(FILE, EXECUTABLE, TimeUnit.SECONDS.toNanos(5L));
+        }
+        int timeout = breaker.getTimeout(EXECUTABLE);
+        assertTrue(String.valueOf(timeout), timeout >= 20000 && timeout < CoffeeLintRunner.TIME_OUT);
+    }
+
+    @Test
+    public void testTimeoutHasFloor() {
+        for (int i = 0; i < LintCircuitBreaker.MIN_SAMPLES; i++) {
+            breaker.succeeded(FILE, EXECUTABLE, TimeUnit.MILLISECONDS.toNanos(1L));
+        }
+        assertEquals(LintCircuitBreaker.MIN_TIMEOUT_MILLIS, breaker.getTimeout(EXECUTABLE));
+    }
+}
@@ -0,0 +1,166 @@
+package com.coffeelint.fake;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStreamWriter;
+import java.io.PrintStream;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+
+/**
+ * Stand-in for the coffeelint executable, started by the launcher {@link FakeCoffeeLintHarness} writes in place of node.
+ * Understands -v, -f, --rules, --ext, --reporter and --stdin, and behaves as configured by the {@link Behavior}
+ * stored in the file passed where node would get the coffeelint script.
+ */
+public final class FakeCoffeeLint {
+    private FakeCoffeeLint() {
+    }
+
+    /**
+     * How the fake behaves, saved as properties in the placeholder executable file.
+     */
+    public static class Behavior {
+        public String version = "1.9.2";
+        /** delay before anything is read or written, on top of the JVM's own start up */
+        public long startupMillis;
+        /** delay per linted file */
+        public long perFileMillis;
+        /** issues reported for every file, half errors and half warnings */
+        public int issuesPerFile = 1;
+        /** characters written to stderr before the report */
+        public int stderrChars;
+        /** write half of the report, a stack trace and exit with 1 */
+        public boolean crash;
+        /** never exit, after start up */
+        public boolean hang;
+        /** write half of the report and exit with 0, without anything on stderr */
+        public boolean truncate;
+
+        Properties toProperties() {
+            Properties properties = new Properties();
+            properties.setProperty("version", version);
+            properties.setProperty("startupMillis", String.valueOf(startupMillis));
+            properties.setProperty("perFileMillis", String.valueOf(perFileMillis));
+            properties.setProperty("issuesPerFile", String.valueOf(issuesPerFile));
+            properties.setProperty("stderrChars", String.valueOf(stderrChars));
+            properties.setProperty("crash", String.valueOf(crash));
+            properties.setProperty("hang", String.valueOf(hang));
+            properties.setProperty("truncate", String.valueOf(truncate));
+            return properties;
+        }
+
+        static Behavior fromProperties(Properties properties) {
+            Behavior behavior = new Behavior();
+            behavior.version = properties.getProperty("version", behavior.version);
+            behavior.startupMillis = Long.parseLong(properties.getProperty("startupMillis", "0"));
+            behavior.perFileMillis = Long.parseLong(properties.getProperty("perFileMillis", "0"));
+            behavior.issuesPerFile = Integer.parseInt(properties.getProperty("issuesPerFile", "1"));
+            behavior.stderrChars = Integer.parseInt(properties.getProperty("stderrChars", "0"));
+            behavior.crash = Boolean.parseBoolean(properties.getProperty("crash"));
+            behavior.hang = Boolean.parseBoolean(properties.getProperty("hang"));
+            behavior.truncate = Boolean.parseBoolean(properties.getProperty("truncate"));
+            return behavior;
+        }
+    }
+
+    /**
+     * @param args the behavior file, followed by coffeelint's arguments
+     */
+    public static void main(String[] args) throws Exception {
+        Behavior behavior = readBehavior(new File(args[0]));
+        List<String> files = new ArrayList<String>();
+        boolean stdin = false;
+        for (int i = 1; i < args.length; i++) {
+            String arg = args[i];
+            if ("-v".equals(arg)) {
+                System.out.println(behavior.version);
+                return;
+            } else if ("-f".equals(arg) || "--rules".equals(arg) || "--ext".equals(arg) || "--reporter".equals(arg)) {
+                i++;
+            } else if ("--stdin".equals(arg)) {
+                stdin = true;
+            } else {
+                files.add(arg);
+            }
+        }
+        sleep(behavior.startupMillis);
+        if (behavior.hang) {
+            sleep(Long.MAX_VALUE);
+        }
+        if (stdin) {
+            consume(System.in);
+            files.add("stdin");
+        }
+        writeStderr(behavior.stderrChars);
+
+        Writer out = new BufferedWriter(new OutputStreamWriter(System.out, "UTF-8"));
+        out.write("<?xml version=\"1.0\" encoding=\"utf-8\"?>\n<checkstyle version=\"4.3\">\n");
+        int crashAt = behavior.crash ? files.size() / 2 : -1;
+        for (int f = 0; f < files.size(); f++) {
+            if (behavior.truncate) {
+                out.write("<file name=\"" + files.get(f) + "\">\n<error line=");
+                out.flush();
+                System.exit(0);
+            }
+            if (f == crashAt) {
+                out.write("<file name=\"" + files.get(f) + "\">\n<error line=");
+                out.flush();
+                System.err.println("TypeError: Cannot read property 'tokens' of undefined\n    at Object.lint (fake/coffeelint.js:1:1)");
+                System.exit(1);
+            }
+            sleep(behavior.perFileMillis);
+            if (!stdin && !new File(files.get(f)).isFile() && !new File(System.getProperty("user.dir"), files.get(f)).isFile()) {
+                System.err.println("No such file: " + files.get(f));
+                continue;
+            }
+            if (behavior.issuesPerFile > 0) {
+                out.write("<file name=\"" + files.get(f) + "\">\n");
+                for (int i = 0; i < behavior.issuesPerFile; i++) {
+                    out.write("<error line=\"" + (i + 1) + "\" severity=\"" + (i % 2 == 0 ? "error" : "warning")
+                            + "\" message=\"Line exceeds maximum allowed length; context: Length is 95, max is 80\" source=\"coffeelint\"/>\n");
+                }
+                out.write("</file>\n");
+            }
+        }
+        out.write("</checkstyle>\n");
+        out.flush();
+        System.exit(behavior.issuesPerFile > 0 ? 1 : 0);
+    }
+
+    private static Behavior readBehavior(File file) throws IOException {
+        Properties properties = new Properties();
+        InputStream in = new FileInputStream(file);
+        try {
+            properties.load(in);
+        } finally {
+            in.close();
+        }
+        return Behavior.fromProperties(properties);
+    }
+
+    private static void writeStderr(int chars) {
+        PrintStream err = System.err;
+        for (int i = 0; i < chars; i++) {
+            err.print(i % 80 == 79 ? '\n' : 'x');
+        }
+        err.flush();
+    }
+
+    private static void consume(InputStream in) throws IOException {
+        byte[] buffer = new byte[8192];
+        while (in.read(buffer) >= 0) {
+            // coffeelint reads all of stdin before it lints
+        }
+    }
+
+    private static void sleep(long millis) throws InterruptedException {
+        if (millis > 0) {
+            Thread.sleep(millis);
+        }
+    }
+}
@@ -0,0 +1,112 @@
+package com.coffeelint.fake;
+
+import com.coffeelint.cli.CoffeeLintRunner;
+import com.intellij.openapi.util.SystemInfo;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.Writer;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A throwaway directory with a launcher that takes the place of node and runs {@link FakeCoffeeLint} in a fresh JVM,
+ * so the runner can be exercised hermetically: no node, no npm, real processes and pipes.
+ * The coffeelint executable handed to the runner is a properties file describing the fake's {@link FakeCoffeeLint.Behavior}.
+ */
+public class FakeCoffeeLintHarness {
+    private final File root;
+    private final File launcher;
+    private final AtomicInteger executables = new AtomicInteger();
+
+    public FakeCoffeeLintHarness() throws IOException {
+        root = File.createTempFile("fake-coffeelint", "");
+        if (!root.delete() || !root.mkdirs()) {
+            throw new IOException("Could not create " + root);
+        }
+        launcher = writeLauncher(root);
+    }
+
+    private static File writeLauncher(File dir) throws IOException {
+        String java = new File(System.getProperty("java.home"), "bin" + File.separator + "java").getPath();
+        String classPath = System.getProperty("java.class.path");
+        File file;
+        String script;
+        if (SystemInfo.isWindows) {
+            file = new File(dir, "node.cmd");
+            script = "@\"" + java + "\" -Xshare:auto -XX:TieredStopAtLevel=1 -cp \"" + classPath + "\" " + FakeCoffeeLint.class.getName() + " %*\r\n";
+        } else {
+            file = new File(dir, "node");
+            script = "#!/bin/sh\nexec '" + java + "' -Xshare:auto -XX:TieredStopAtLevel=1 -cp '" + classPath + "' " + FakeCoffeeLint.class.getName() + " \"$@\"\n";
+        }
+        write(file, script);
+        if (!file.setExecutable(true)) {
+            throw new IOException("Could not make " + file + " executable");
+        }
+        return file;
+    }
+
+    public File getRoot() {
+        return root;
+    }
+
+    /**
+     * @return the path of a placeholder coffeelint executable that makes the fake behave as given
+     */
+    public String createExecutable(FakeCoffeeLint.Behavior behavior) throws IOException {
+        File file = new File(root, "coffeelint-" + executables.incrementAndGet() + ".properties");
+        OutputStream out = new FileOutputStream(file);
+        try {
+            behavior.toProperties().store(out, "fake coffeelint");
+        } finally {
+            out.close();
+        }
+        return file.getPath();
+    }
+
+    /**
+     * @return the path of the new file, relative to the harness directory which is the runner's working directory
+     */
+    public String createSource(String name, int lines) throws IOException {
+        StringBuilder text = new StringBuilder();
+        for (int i = 0; i < lines; i++) {
+            text.append("value").append(i).append(" = (x) -> x * ").append(i).append('\n');
+        }
+        File file = new File(root, name);
+        if (file.getParentFile() != null && !file.getParentFile().isDirectory() && !file.getParentFile().mkdirs()) {
+            throw new IOException("Could not create " + file.getParent());
+        }
+        write(file, text.toString());
+        return name;
+    }
+
+    public CoffeeLintRunner.CoffeeLintSettings createSettings(FakeCoffeeLint.Behavior behavior, String targetFile) throws IOException {
+        return CoffeeLintRunner.buildSettings(root.getPath(), targetFile, launcher.getPath(), createExecutable(behavior), null, null, null);
+    }
+
+    public void dispose() {
+        delete(root);
+    }
+
+    private static void delete(File file) {
+        File[] children = file.listFiles();
+        if (children != null) {
+            for (File child : children) {
+                delete(child);
+            }
+        }
+        //noinspection ResultOfMethodCallIgnored
+        file.delete();
+    }
+
+    private static void write(File file, String text) throws IOException {
+        Writer writer = new FileWriter(file);
+        try {
+            writer.write(text);
+        } finally {
+            writer.close();
+        }
+    }
+}
@@ -0,0 +1,250 @@
+package com.coffeelint.fake;
+
+import com.coffeelint.cli.CoffeeLintRunner;
+import com.coffeelint.cli.LintResult;
+import com.coffeelint.metrics.LatencyHistogram;
+import com.coffeelint.metrics.LintMetrics;
+import com.intellij.util.Consumer;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Runs {@link CoffeeLintRunner} against {@link FakeCoffeeLint}.
+ * The load test scales with -Dcoffeelint.load.editors and -Dcoffeelint.load.requests.
+ */
+public class FakeCoffeeLintRunnerTest {
+    private FakeCoffeeLintHarness harness;
+
+    @Before
+    public void setUp() throws Exception {
+        harness = new FakeCoffeeLintHarness();
+    }
+
+    @After
+    public void tearDown() {
+        harness.dispose();
+    }
+
+    @Test
+    public void testLintFile() throws Exception {
+        FakeCoffeeLint.Behavior behavior = new FakeCoffeeLint.Behavior();
+        behavior.issuesPerFile = 3;
+        LintResult result = CoffeeLintRunner.lint(harness.createSettings(behavior, harness.createSource("app.coffee", 10)));
+        assertEquals("", result.errorOutput);
+        assertEquals(3, result.issues.size());
+        assertEquals(2, result.issues.getErrorCount());
+    }
+
+    @Test
+    public void testLintStdin() throws Exception {
+        FakeCoffeeLint.Behavior behavior = new FakeCoffeeLint.Behavior();
+        behavior.issuesPerFile = 2;
+        LintResult result = CoffeeLintRunner.lint(harness.createSettings(behavior, "ignored.coffee"), "a = 1\nb = 2\n");
+        assertEquals("", result.errorOutput);
+        assertEquals(2, result.issues.size());
+    }
+
+    @Test
+    public void testLintFilesReportsCleanFiles() throws Exception {
+        FakeCoffeeLint.Behavior behavior = new FakeCoffeeLint.Behavior();
+        behavior.issuesPerFile = 0;
+        List<String> files = Arrays.asList(harness.createSource("a.coffee", 1), harness.createSource("b/b.coffee", 1), harness.createSource("c.coffee", 1));
+        final List<String> reported = new ArrayList<String>();
+        LintResult result = CoffeeLintRunner.lintFiles(harness.createSettings(behavior, ""), files, new Consumer<LintResult>() {
+            public void consume(LintResult file) {
+                assertTrue(file.issues.isEmpty());
+                reported.add(file.coffeeLint.file.name);
+            }
+        });
+        assertEquals("", result.errorOutput);
+        assertEquals(files, reported);
+    }
+
+    @Test
+    public void testVersion() throws Exception {
+        FakeCoffeeLint.Behavior behavior = new FakeCoffeeLint.Behavior();
+        behavior.version = "1.10.1";
+        assertEquals("1.10.1", CoffeeLintRunner.runVersion(harness.createSettings(behavior, "")));
+    }
+
+    @Test
+    public void testStderrNoiseIsBounded() throws Exception {
+        FakeCoffeeLint.Behavior behavior = new FakeCoffeeLint.Behavior();
+        behavior.stderrChars = 1024 * 1024;
+        behavior.issuesPerFile = 5;
+        LintResult result = CoffeeLintRunner.lint(harness.createSettings(behavior, harness.createSource("app.coffee", 10)));
+        assertEquals(64 * 1024, result.errorOutput.length());
+        assertEquals(5, result.issues.size());
+    }
+
+    @Test
+    public void testCrash() throws Exception {
+        FakeCoffeeLint.Behavior behavior = new FakeCoffeeLint.Behavior();
+        behavior.crash = true;
+        LintResult result = CoffeeLintRunner.lint(harness.createSettings(behavior, harness.createSource("app.coffee", 10)));
+        assertTrue(result.errorOutput, result.errorOutput.contains("TypeError"));
+        assertTrue(result.issues.isEmpty());
+    }
+
+    @Test
+    public void testTruncatedReportIsAnError() throws Exception {
+        FakeCoffeeLint.Behavior behavior = new FakeCoffeeLint.Behavior();
+        behavior.truncate = true;
+        LintResult result = CoffeeLintRunner.lint(harness.createSettings(behavior, harness.createSource("app.coffee", 10)));
+        assertTrue(String.valueOf(result.errorOutput), result.errorOutput != null && result.errorOutput.contains("Could not parse coffeelint output"));
+    }
+
+    @Test
+    public void testThrowingConsumerStopsTheProcess() throws Exception {
+        FakeCoffeeLint.Behavior behavior = new FakeCoffeeLint.Behavior();
+        behavior.perFileMillis = 3000;
+        // enough output per file to get past the fake's buffer while the next files are slow
+        behavior.issuesPerFile = 100;
+        List<String> files = new ArrayList<String>();
+        for (int i = 0; i < 5; i++) {
+            files.add(harness.createSource("file" + i + ".coffee", 1));
+        }
+        long start = System.currentTimeMillis();
+        LintResult result = CoffeeLintRunner.lintFiles(harness.createSettings(behavior, ""), files, new Consumer<LintResult>() {
+            public void consume(LintResult file) {
+                throw new IllegalStateException("consumer failed");
+            }
+        });
+        assertTrue(result.errorOutput, result.errorOutput.contains("consumer failed"));
+        // the rest of the files would take another 12 seconds
+        assertTrue(System.currentTimeMillis() - start < 9000);
+        assertEquals(0, LintMetrics.getInstance().getValue(LintMetrics.Gauge.PROCESSES_IN_FLIGHT));
+    }
+
+    @Test
+    public void testHangTimesOut() throws Exception {
+        FakeCoffeeLint.Behavior behavior = new FakeCoffeeLint.Behavior();
+        behavior.hang = true;
+        CoffeeLintRunner.CoffeeLintSettings settings = harness.createSettings(behavior, harness.createSource("app.coffee", 10));
+        settings.timeout = 2000;
+        long start = System.currentTimeMillis();
+        LintResult result = CoffeeLintRunner.lint(settings);
+        assertTrue(result.errorOutput, result.errorOutput.contains("timed out"));
+        assertTrue(System.currentTimeMillis() - start < 30000);
+        assertEquals(0, LintMetrics.getInstance().getValue(LintMetrics.Gauge.PROCESSES_IN_FLIGHT));
+    }
+
+    @Test
+    public void testCancelStopsTheProcess() throws Exception {
+        FakeCoffeeLint.Behavior behavior = new FakeCoffeeLint.Behavior();
+        behavior.startupMillis = 60000;
+        final CoffeeLintRunner.CoffeeLintSettings settings = harness.createSettings(behavior, harness.createSource("app.coffee", 10));
+        final CountDownLatch returned = new CountDownLatch(1);
+        ExecutorService pool = Executors.newSingleThreadExecutor();
+        try {
+            // like LintEngines.await when the highlighting pass is cancelled
+            Future<LintResult> future = pool.submit(new Callable<LintResult>() {
+                public LintResult call() {
+                    try {
+                        return CoffeeLintRunner.lint(settings);
+                    } finally {
+                        returned.countDown();
+                    }
+                }
+            });
+            long deadline = System.currentTimeMillis() + 10000;
+            while (LintMetrics.getInstance().getValue(LintMetrics.Gauge.PROCESSES_IN_FLIGHT) == 0 && System.currentTimeMillis() < deadline) {
+                Thread.sleep(10);
+            }
+            assertEquals(1, LintMetrics.getInstance().getValue(LintMetrics.Gauge.PROCESSES_IN_FLIGHT));
+            future.cancel(true);
+            assertTrue("lint did not return after cancel", returned.await(5, TimeUnit.SECONDS));
+            assertEquals(0, LintMetrics.getInstance().getValue(LintMetrics.Gauge.PROCESSES_IN_FLIGHT));
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    /**
+     * Simulated editors, each linting its own file over and over like a user typing.
+     */
+    @Test
+    public void testConcurrentEditors() throws Exception {
+        int editors = Integer.getInteger("coffeelint.load.editors", 8);
+        final int requests = Integer.getInteger("coffeelint.load.requests", 4);
+        final FakeCoffeeLint.Behavior behavior = new FakeCoffeeLint.Behavior();
+        behavior.startupMillis = 20;
+        behavior.perFileMillis = 5;
+        behavior.issuesPerFile = 20;
+
+        final LatencyHistogram latency = new LatencyHistogram();
+        final AtomicInteger peakProcesses = new AtomicInteger();
+        final AtomicBoolean running = new AtomicBoolean(true);
+        Thread sampler = new Thread("process sampler") {
+            @Override
+            public void run() {
+                while (running.get()) {
+                    int processes = LintMetrics.getInstance().getValue(LintMetrics.Gauge.PROCESSES_IN_FLIGHT);
+                    if (processes > peakProcesses.get()) {
+                        peakProcesses.set(processes);
+                    }
+                    try {
+                        Thread.sleep(2);
+                    } catch (InterruptedException e) {
+                        return;
+                    }
+                }
+            }
+        };
+        sampler.start();
+
+        ExecutorService pool = Executors.newFixedThreadPool(editors);
+        final CountDownLatch start = new CountDownLatch(1);
+        List<Future<Integer>> futures = new ArrayList<Future<Integer>>();
+        long wallStart = System.nanoTime();
+        try {
+            for (int e = 0; e < editors; e++) {
+                final CoffeeLintRunner.CoffeeLintSettings settings = harness.createSettings(behavior, harness.createSource("editor" + e + ".coffee", 200));
+                futures.add(pool.submit(new Callable<Integer>() {
+                    public Integer call() throws Exception {
+                        start.await();
+                        int issues = 0;
+                        for (int r = 0; r < requests; r++) {
+                            long requestStart = System.nanoTime();
+                            LintResult result = CoffeeLintRunner.lint(settings);
+                            latency.record(System.nanoTime() - requestStart);
+                            assertEquals("", result.errorOutput);
+                            issues += result.issues.size();
+                        }
+                        return issues;
+                    }
+                }));
+            }
+            start.countDown();
+            for (Future<Integer> future : futures) {
+                assertEquals(requests * behavior.issuesPerFile, (int) future.get());
+            }
+        } finally {
+            pool.shutdown();
+            running.set(false);
+            sampler.join();
+        }
+        long wallMillis = (System.nanoTime() - wallStart) / 1000000;
+        System.out.println(String.format("%d editors x %d requests: wall %d ms, p50 %.1f ms, p99 %.1f ms, max %.1f ms, peak processes %d",
+                editors, requests, wallMillis, latency.getPercentileMillis(50), latency.getPercentileMillis(99), latency.getMaxMillis(), peakProcesses.get()));
+        assertEquals(editors * requests, latency.getCount());
+        assertTrue(peakProcesses.get() <= editors);
+        assertEquals(0, LintMetrics.getInstance().getValue(LintMetrics.Gauge.PROCESSES_IN_FLIGHT));
+    }
+}
@@ -0,0 +1,81 @@
+package com.coffeelint.fixes;
+
+import com.coffeelint.cli.IssueTable;
+import com.coffeelint.cli.LineOffsetIndex;
+import org.junit.Test;
+
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class LexicalFixerTest {
+
+    private static String apply(String text, List<LexicalFixer.Edit> edits) {
+        StringBuilder builder = new StringBuilder(text);
+        for (LexicalFixer.Edit edit : edits) {
+            builder.replace(edit.start, edit.end, edit.replacement);
+        }
+        return builder.toString();
+    }
+
+    private static IssueTable issues(Object... lineAndMessage) {
+        IssueTable.Builder builder = new IssueTable.Builder(lineAndMessage.length / 2);
+        for (int i = 0; i < lineAndMessage.length; i += 2) {
+            builder.add("coffeelint", (Integer) lineAndMessage[i], IssueTable.NO_COLUMN, "error", (String) lineAndMessage[i + 1]);
+        }
+        return builder.build();
+    }
+
+    @Test
+    public void testFixAllOnlyTouchesReportedLines() {
+        String text = "a = 1;  \n\tb = ->\n\t\tc;\nd = 2  \n";
+        IssueTable issues = issues(
+                1, "Line contains a trailing semicolon; context: ",
+                1, "Line ends with trailing whitespace; context: ",
+                2, "Line contains tab indentation; context: ",
+                3, "Line contains tab indentation; context: ",
+                3, "Line contains a trailing semicolon; context: ",
+                3, "Unknown rule");
+        List<LexicalFixer.Edit> edits = LexicalFixer.fixAll(text, issues, null, 2);
+        assertEquals("a = 1\n  b = ->\n    c\nd = 2  \n", apply(text, edits));
+        assertEquals(5, LexicalFixer.countFixable(issues, null));
+    }
+
+    @Test
+    public void testFixAllOfOneRule() {
+        String text = "a;\n\tb;\n";
+        IssueTable issues = issues(
+                1, "Line contains a trailing semicolon; context: ",
+                2, "Line contains tab indentation; context: ",
+                2, "Line contains a trailing semicolon; context: ");
+        assertEquals("a\n\tb\n", apply(text, LexicalFixer.fixAll(text, issues, LexicalFixer.NO_TRAILING_SEMICOLONS, 2)));
+    }
+
+    @Test
+    public void testFixLine() {
+        String text = "x = 1\ny = 2\t \n";
+        List<LexicalFixer.Edit> edits = LexicalFixer.fixLine(text, LineOffsetIndex.of(text), 1, LexicalFixer.NO_TRAILING_WHITESPACE, 2);
+        assertEquals("x = 1\ny = 2\n", apply(text, edits));
+        assertTrue(LexicalFixer.fixLine(text, LineOffsetIndex.of(text), 0, LexicalFixer.NO_TRAILING_WHITESPACE, 2).isEmpty());
+        assertTrue(LexicalFixer.fixLine(text, LineOffsetIndex.of(text), 5, LexicalFixer.NO_TRAILING_WHITESPACE, 2).isEmpty());
+    }
+
+    @Test
+    public void testIndentationExpandsToTabStops() {
+        assertEquals("    x", LexicalFixer.expandIndentation("\t\tx", 2));
+        assertEquals("    x\ty", LexicalFixer.expandIndentation(" \tx\ty", 4));
+        assertEquals("a;; # b", LexicalFixer.removeTrailingSemicolon("a;; # b"));
+        assertEquals("a ", LexicalFixer.removeTrailingSemicolon("a;; "));
+    }
+
+    @Test
+    public void testLineSeparator() {
+        assertNull(LexicalFixer.getLineSeparator(issues(1, "Line ends with trailing whitespace; context: ")));
+        assertEquals("\r\n", LexicalFixer.getLineSeparator(issues(1, "Line contains incorrect line endings; context: Expected windows")));
+        assertEquals("\n", LexicalFixer.getLineSeparator("Line contains incorrect line endings; context: Expected unix"));
+        assertFalse(LexicalFixer.isFixable("max_line_length"));
+    }
+}
@@ -0,0 +1,162 @@
+package com.coffeelint.results;
+
+import com.coffeelint.cli.IssueTable;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class CiReportIndexTest {
+    private static final String APP = "x = 1;\n";
+    private static final String CLEAN = "a = 1\n";
+    private static final String CONFIG = "{\"no_tabs\": {\"level\": \"error\"}}\n";
+    private static final String SETUP = CiReportIndex.setup("1.9.7", GitBlobHash.of(CONFIG));
+    private static final String REPORT = "<?xml version=\"1.0\" encoding=\"utf-8\"?>\n<checkstyle version=\"4.3\">\n"
+            + "<file name=\"/ci/workspace/src/app.coffee\">\n"
+            + "<error line=\"1\" severity=\"error\" message=\"Line contains a trailing semicolon\" source=\"coffeelint\"/>\n"
+            + "</file>\n</checkstyle>\n";
+
+    private File reports;
+
+    @Before
+    public void setUp() throws IOException {
+        reports = File.createTempFile("ci-reports", "");
+        assertTrue(reports.delete() && reports.mkdirs());
+    }
+
+    @After
+    public void tearDown() {
+        delete(reports);
+    }
+
+    @Test
+    public void testGitBlobHash() {
+        // git hash-object
+        assertEquals("e69de29bb2d1d6434b8b29ae775ad8c2e48c5391", GitBlobHash.of(""));
+        assertEquals("1337a530cbc1bd7d20aee2d80f1f174a9182417d", GitBlobHash.of(CLEAN));
+        assertEquals("967c9e5f2e0f9f26edd7839b222f65a1ce5efdf7", GitBlobHash.of("café = \"😀\"\n"));
+    }
+
+    @Test
+    public void testImportedResults() throws IOException {
+        writeCommit("c0ffee", new String[]{"src/app.coffee", "src/clean.coffee", "README.md"}, new String[]{APP, CLEAN, "# readme\n"}, REPORT);
+        CiReportIndex index = new CiReportIndex(null);
+        index.scan(reports);
+
+        IssueTable app = index.find(reports, "src/app.coffee", APP, SETUP);
+        assertNotNull(app);
+        assertEquals(1, app.size());
+        assertEquals("no_trailing_semicolons", app.getRule(0));
+        assertSame(IssueTable.EMPTY, index.find(reports, "src/clean.coffee", CLEAN, SETUP));
+
+        // edited locally, or never linted by CI
+        assertNull(index.find(reports, "src/app.coffee", "x = 2;\n", SETUP));
+        assertNull(index.find(reports, "src/other.coffee", APP, SETUP));
+        assertNull(index.find(reports, "README.md", "# readme\n", SETUP));
+        assertEquals(1, index.getCommitCount());
+    }
+
+    @Test
+    public void testOtherVersionOrConfigIsIgnored() throws IOException {
+        writeCommit("c0ffee", new String[]{"src/app.coffee"}, new String[]{APP}, REPORT);
+        CiReportIndex index = new CiReportIndex(null);
+        index.scan(reports);
+        assertNotNull(index.find(reports, "src/app.coffee", APP, SETUP));
+        assertNull(index.find(reports, "src/app.coffee", APP, CiReportIndex.setup("1.10.0", GitBlobHash.of(CONFIG))));
+        assertNull(index.find(reports, "src/app.coffee", APP, CiReportIndex.setup("1.9.7", GitBlobHash.of("{}\n"))));
+        assertNull(index.find(reports, "src/app.coffee", APP, CiReportIndex.setup("1.9.7", "")));
+    }
+
+    @Test
+    public void testOnlyRecentCommitsAreKept() throws IOException {
+        long now = System.currentTimeMillis();
+        for (int i = 0; i <= CiReportIndex.MAX_COMMITS; i++) {
+            String content = "x = " + i + "\n";
+            File commit = writeCommit("commit" + i, new String[]{"app.coffee"}, new String[]{content}, "<checkstyle/>\n");
+            assertTrue(new File(commit, CiReportIndex.REPORT).setLastModified(now - (CiReportIndex.MAX_COMMITS - i) * 60000L));
+        }
+        CiReportIndex index = new CiReportIndex(null);
+        index.scan(reports);
+        assertEquals(CiReportIndex.MAX_COMMITS, index.getCommitCount());
+        assertNull(index.find(reports, "app.coffee", "x = 0\n", SETUP));
+        assertSame(IssueTable.EMPTY, index.find(reports, "app.coffee", "x = 1\n", SETUP));
+        assertSame(IssueTable.EMPTY, index.find(reports, "app.coffee", "x = " + CiReportIndex.MAX_COMMITS + "\n", SETUP));
+    }
+
+    @Test
+    public void testLookupDoesNotWaitForScan() throws Exception {
+        writeCommit("c0ffee", new String[]{"src/app.coffee"}, new String[]{APP}, REPORT);
+        CiReportIndex index = new CiReportIndex(null);
+        // the first lookup only starts the scan
+        assertNull(index.find(reports, "src/app.coffee", APP, SETUP));
+        long deadline = System.currentTimeMillis() + 10000L;
+        while (index.getCommitCount() == 0 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10L);
+        }
+        assertNotNull(index.find(reports, "src/app.coffee", APP, SETUP));
+    }
+
+    @Test
+    public void testIncompleteCommitIsSkipped() throws IOException {
+        File commit = new File(reports, "abc");
+        assertTrue(commit.mkdirs());
+        write(new File(commit, CiReportIndex.MANIFEST), "100644 blob " + GitBlobHash.of(CLEAN) + "\tclean.coffee\n");
+        write(new File(commit, CiReportIndex.REPORT), "<checkstyle/>\n");
+        CiReportIndex index = new CiReportIndex(null);
+        index.scan(reports);
+        assertNull(index.find(reports, "clean.coffee", CLEAN, SETUP));
+        assertEquals(0, index.getCommitCount());
+    }
+
+    @Test
+    public void testReadInfo() throws IOException {
+        File info = new File(reports, CiReportIndex.INFO);
+        write(info, "coffeelint 1.9.7\r\nconfig \n");
+        assertEquals(CiReportIndex.setup("1.9.7", ""), CiReportIndex.readInfo(info));
+    }
+
+    private File writeCommit(String commit, String[] paths, String[] contents, String report) throws IOException {
+        File directory = new File(reports, commit);
+        assertTrue(directory.mkdirs());
+        StringBuilder manifest = new StringBuilder();
+        for (int i = 0; i < paths.length; i++) {
+            manifest.append("100644 blob ").append(GitBlobHash.of(contents[i])).append('\t').append(paths[i]).append('\n');
+        }
+        manifest.append("040000 tree 4b825dc642cb6eb9a060e54bf8d69288fbee4904\tsrc\n");
+        write(new File(directory, CiReportIndex.MANIFEST), manifest.toString());
+        write(new File(directory, CiReportIndex.INFO), "coffeelint 1.9.7\nconfig " + GitBlobHash.of(CONFIG) + "\n");
+        write(new File(directory, CiReportIndex.REPORT), report);
+        return directory;
+    }
+
+    private static void write(File file, String text) throws IOException {
+        Writer writer = new OutputStreamWriter(new FileOutputStream(file), "UTF-8");
+        try {
+            writer.write(text);
+        } finally {
+            writer.close();
+        }
+    }
+
+    private static void delete(File file) {
+        File[] children = file.listFiles();
+        if (children != null) {
+            for (File child : children) {
+                delete(child);
+            }
+        }
+        //noinspection ResultOfMethodCallIgnored
+        file.delete();
+    }
+}
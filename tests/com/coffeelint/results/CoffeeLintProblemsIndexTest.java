@@ -0,0 +1,84 @@
+package com.coffeelint.results;
+
+import com.coffeelint.cli.IssueTable;
+import org.junit.Test;
+
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+
+public class CoffeeLintProblemsIndexTest {
+
+    private static final String MAX_LINE_LENGTH = "Line exceeds maximum allowed length; context: Length is 95, max is 80";
+    private static final String TRAILING_WHITESPACE = "Line ends with trailing whitespace";
+
+    private static IssueTable issues(int maxLineLength, int trailingWhitespace) {
+        IssueTable.Builder builder = new IssueTable.Builder(maxLineLength + trailingWhitespace);
+        int line = 1;
+        for (int i = 0; i < maxLineLength; i++) {
+            builder.add("coffeelint", line++, IssueTable.NO_COLUMN, "error", MAX_LINE_LENGTH);
+        }
+        for (int i = 0; i < trailingWhitespace; i++) {
+            builder.add("coffeelint", line++, IssueTable.NO_COLUMN, "warning", TRAILING_WHITESPACE);
+        }
+        return builder.build();
+    }
+
+    @Test
+    public void testCountsPerRuleAndDirectory() {
+        CoffeeLintProblemsIndex index = new CoffeeLintProblemsIndex();
+        index.update("app/legacy/a.coffee", issues(3, 1));
+        index.update("app/legacy/old/b.coffee", issues(2, 0));
+        index.update("app/c.coffee", issues(1, 4));
+        index.update("lib/d.coffee", issues(0, 2));
+
+        assertEquals(5, index.count("max_line_length", "app/legacy"));
+        assertEquals(6, index.count("max_line_length", "app"));
+        assertEquals(6, index.countByRule("max_line_length"));
+        assertEquals(7, index.countByRule("no_trailing_whitespace"));
+        assertEquals(6, index.countByDirectory("app/legacy"));
+        assertEquals(13, index.countByDirectory(CoffeeLintProblemsIndex.ROOT));
+        assertEquals(0, index.count("max_line_length", "lib"));
+        assertEquals(0, index.count("no_such_rule", "app"));
+        assertEquals(0, index.countByDirectory("app/leg"));
+    }
+
+    @Test
+    public void testIncrementalUpdate() {
+        CoffeeLintProblemsIndex index = new CoffeeLintProblemsIndex();
+        index.update("app/legacy/a.coffee", issues(3, 1));
+        index.update("app/legacy/a.coffee", issues(1, 0));
+        assertEquals(1, index.count("max_line_length", "app/legacy"));
+        assertEquals(0, index.count("no_trailing_whitespace", "app"));
+
+        index.update("app/legacy/a.coffee", IssueTable.EMPTY);
+        assertEquals(0, index.countByDirectory(CoffeeLintProblemsIndex.ROOT));
+        assertEquals(0, index.getFileCount());
+
+        index.update("app/b.coffee", issues(2, 2));
+        index.remove("app/b.coffee");
+        assertEquals(0, index.countByRule("max_line_length"));
+    }
+
+    @Test
+    public void testPagedListing() {
+        CoffeeLintProblemsIndex index = new CoffeeLintProblemsIndex();
+        index.update("app/a.coffee", issues(3, 1));
+        index.update("app/b.coffee", issues(2, 2));
+        index.update("app0/c.coffee", issues(5, 0));
+
+        List<CoffeeLintProblemsIndex.Problem> first = index.list("max_line_length", "app", 0, 4);
+        assertEquals(4, first.size());
+        assertEquals("app/a.coffee", first.get(0).path);
+        assertEquals("app/b.coffee", first.get(3).path);
+
+        List<CoffeeLintProblemsIndex.Problem> second = index.list("max_line_length", "app", 4, 4);
+        assertEquals(1, second.size());
+        assertEquals("app/b.coffee", second.get(0).path);
+        assertEquals(2, second.get(0).line);
+
+        List<CoffeeLintProblemsIndex.Problem> all = index.list(null, "app", 3, 100);
+        assertEquals(5, all.size());
+        assertEquals("no_trailing_whitespace", all.get(0).rule);
+    }
+}
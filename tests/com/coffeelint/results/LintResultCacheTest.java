@@ -0,0 +1,55 @@
+package com.coffeelint.results;
+
+import com.coffeelint.cli.IssueTable;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class LintResultCacheTest {
+    private static final String TRAILING_WHITESPACE = "Line ends with trailing whitespace";
+
+    private final CoffeeLintProblemsIndex index = new CoffeeLintProblemsIndex();
+    private final LintResultCache cache = new LintResultCache(index);
+
+    private static IssueTable issues(int count) {
+        IssueTable.Builder builder = new IssueTable.Builder(count);
+        for (int i = 0; i < count; i++) {
+            builder.add("coffeelint", i + 1, IssueTable.NO_COLUMN, "warning", TRAILING_WHITESPACE);
+        }
+        return builder.build();
+    }
+
+    @Test
+    public void testResultOfLintOverlappingInvalidationIsDropped() {
+        int generation = cache.getGeneration();
+        cache.invalidate();
+        assertFalse(cache.put("app/a.coffee", 1L, generation, issues(2)));
+        assertNull(cache.getLast("app/a.coffee"));
+        assertEquals(0, index.countByRule("no_trailing_whitespace"));
+
+        assertTrue(cache.put("app/a.coffee", 1L, cache.getGeneration(), issues(2)));
+        assertNotNull(cache.get("app/a.coffee", 1L));
+        assertEquals(2, index.countByRule("no_trailing_whitespace"));
+    }
+
+    @Test
+    public void testRemoveUnderDirectory() {
+        int generation = cache.getGeneration();
+        cache.put("app/a.coffee", 1L, generation, issues(1));
+        cache.put("app/old/b.coffee", 2L, generation, issues(2));
+        cache.put("application.coffee", 3L, generation, issues(4));
+
+        cache.removeUnder("app");
+        assertNull(cache.getLast("app/a.coffee"));
+        assertNull(cache.getLast("app/old/b.coffee"));
+        assertNotNull(cache.getLast("application.coffee"));
+        assertEquals(4, index.countByRule("no_trailing_whitespace"));
+
+        cache.removeUnder("");
+        assertEquals(0, index.countByRule("no_trailing_whitespace"));
+    }
+}